@@ -0,0 +1,107 @@
+package com.taitl.commandline.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.taitl.commandline.CommandLineParser;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Throughput of parsing batches of argument vectors against one switch
+ * schema: calling setArguments() per vector on a mutable CommandLineParser,
+ * versus parseAll(), parseAllCommandLines(), and their parallel variants on
+ * the common fork/join pool. Scores are batches per
+ * second; multiply by batchSize for vectors per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchParseBenchmark
+{
+	/** Number of argument vectors in a batch. */
+	@Param({ "1", "100", "10000" })
+	public int batchSize;
+
+	/** Size of each argument vector. */
+	@Param({ "SMALL" })
+	public Workload workload;
+
+	/** The batch of argument vectors. */
+	List<String[]> argumentVectors;
+
+	/** The batch of command lines. */
+	List<String> commandLines;
+
+	/** Configured parser. */
+	CommandLineParser parser;
+
+	@Setup
+	public void setUp()
+	{
+		argumentVectors = new ArrayList<String[]>(batchSize);
+		commandLines = new ArrayList<String>(batchSize);
+		for (int i = 0; i < batchSize; i++)
+		{
+			argumentVectors.add(workload.arguments());
+			commandLines.add(workload.commandLine());
+		}
+
+		parser = new CommandLineParser();
+		parser.setPossibleSwitches(workload.possibleSwitches());
+		parser.setImplicitSwitch(Workload.IMPLICIT_SWITCH);
+	}
+
+	@Benchmark
+	public void setArgumentsLoop(Blackhole blackhole)
+	{
+		for (String[] arguments : argumentVectors)
+		{
+			parser.setArguments(arguments);
+			blackhole.consume(parser.getSwitchMap());
+		}
+	}
+
+	@Benchmark
+	public void parseAll(Blackhole blackhole)
+	{
+		blackhole.consume(parser.parseAll(argumentVectors));
+	}
+
+	@Benchmark
+	public void parseAllCommandLines(Blackhole blackhole)
+	{
+		blackhole.consume(parser.parseAllCommandLines(commandLines));
+	}
+
+	@Benchmark
+	public void parseAllParallel(Blackhole blackhole)
+	{
+		blackhole.consume(parser.parseAllParallel(argumentVectors, null));
+	}
+
+	@Benchmark
+	public void parseAllCommandLinesParallel(Blackhole blackhole)
+	{
+		blackhole.consume(parser.parseAllCommandLinesParallel(commandLines, null));
+	}
+}
@@ -0,0 +1,51 @@
+package com.taitl.commandline.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Main class of the benchmarks jar. Runs the JMH benchmarks with the GC
+ * profiler attached, so that allocation rate is reported next to
+ * throughput. Accepts the usual JMH command line options, for example:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar CommandLineParserBenchmark -p workload=LARGE
+ * </pre>
+ */
+public final class BenchmarkRunner
+{
+	/** Not to be instantiated. */
+	private BenchmarkRunner()
+	{
+	}
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param arguments
+	 *            JMH command line options.
+	 * @throws Exception
+	 *             if the options are malformed or the benchmarks fail.
+	 */
+	public static void main(String[] arguments) throws Exception
+	{
+		CommandLineOptions commandLineOptions = new CommandLineOptions(arguments);
+
+		if (commandLineOptions.shouldHelp())
+		{
+			commandLineOptions.showHelp();
+			return;
+		}
+
+		Options options = new OptionsBuilder().parent(commandLineOptions)
+				.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,143 @@
+package com.taitl.commandline.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.taitl.commandline.CommandLineParser;
+import com.taitl.commandline.ImmutableCommandLineParser;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Throughput of the CommandLineParser parsing pipeline: configuring possible
+ * switches, setting arguments or a command line (which parses them), the bare
+ * doParsing() step, the getters, and parsing with the ImmutableCommandLineParser,
+ * for small, medium and large workloads (see {@link Workload}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandLineParserBenchmark
+{
+	/**
+	 * CommandLineParser exposing the protected doParsing() step to the
+	 * benchmark.
+	 */
+	static class ExposedCommandLineParser extends CommandLineParser
+	{
+		/**
+		 * Calls doParsing().
+		 *
+		 * @param args
+		 *            Command line arguments.
+		 */
+		void parseOnly(String[] args)
+		{
+			doParsing(args);
+		}
+	}
+
+	/** Workload size. */
+	@Param({ "SMALL", "MEDIUM", "LARGE" })
+	public Workload workload;
+
+	/** Possible switches of the workload. */
+	String possibleSwitches;
+
+	/** Arguments of the workload. */
+	String[] arguments;
+
+	/** Command line of the workload. */
+	String commandLine;
+
+	/** Names of switches queried by the getters benchmark. */
+	String[] presentSwitches;
+
+	/** Configured parser; for the getters benchmark, also parsed. */
+	ExposedCommandLineParser parser;
+
+	/** Immutable parser with the same configuration. */
+	ImmutableCommandLineParser immutableParser;
+
+	@Setup
+	public void setUp()
+	{
+		possibleSwitches = workload.possibleSwitches();
+		arguments = workload.arguments();
+		commandLine = workload.commandLine();
+
+		parser = new ExposedCommandLineParser();
+		parser.setPossibleSwitches(possibleSwitches);
+		parser.setImplicitSwitch(Workload.IMPLICIT_SWITCH);
+		parser.setArguments(arguments);
+		immutableParser = parser.getImmutableParser();
+
+		String[] switchNames = parser.getSwitchMap().keySet().toArray(new String[0]);
+		presentSwitches = Arrays.copyOf(switchNames, Math.min(switchNames.length, 10));
+	}
+
+	@Benchmark
+	public void setPossibleSwitches(Blackhole blackhole)
+	{
+		parser.setPossibleSwitches(possibleSwitches);
+		blackhole.consume(parser.getPossibleSwitches());
+	}
+
+	@Benchmark
+	public void setArguments(Blackhole blackhole)
+	{
+		parser.setArguments(arguments);
+		blackhole.consume(parser.getSwitchMap());
+	}
+
+	@Benchmark
+	public void setCommandLine(Blackhole blackhole)
+	{
+		parser.setCommandLine(commandLine);
+		blackhole.consume(parser.getSwitchMap());
+	}
+
+	@Benchmark
+	public void doParsing(Blackhole blackhole)
+	{
+		parser.parseOnly(arguments);
+		blackhole.consume(parser.getSwitchMap());
+	}
+
+	@Benchmark
+	public void immutableParse(Blackhole blackhole)
+	{
+		blackhole.consume(immutableParser.parse(arguments));
+	}
+
+	@Benchmark
+	public void getters(Blackhole blackhole)
+	{
+		for (String switchName : presentSwitches)
+		{
+			blackhole.consume(parser.isSwitchPresent(switchName));
+			blackhole.consume(parser.getSwitchValueCount(switchName));
+			blackhole.consume(parser.getSwitchValues(switchName));
+		}
+		blackhole.consume(parser.getSwitchlessArguments());
+		blackhole.consume(parser.getOriginalCommandLine());
+	}
+}
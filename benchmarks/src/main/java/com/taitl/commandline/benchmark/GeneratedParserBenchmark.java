@@ -0,0 +1,76 @@
+package com.taitl.commandline.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taitl.commandline.GenerateParser;
+import com.taitl.commandline.Option;
+import com.taitl.commandline.OptionsBinder;
+import com.taitl.commandline.SwitchlessArguments;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Startup cost of parsing the arguments of a short-lived command line tool:
+ * the time of the first parse in a fresh JVM, including class loading, with
+ * an OptionsBinder reading annotations through reflection, and with the
+ * parser generated at compile time by the annotation processor. Each
+ * measurement is a single parse in its own fork; run with -f to change the
+ * number of samples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class GeneratedParserBenchmark
+{
+	/** Options of a typical tool. */
+	@GenerateParser
+	public static class Options
+	{
+		@Option(name = "--verbose")
+		public boolean verbose;
+
+		@Option(name = "--output")
+		public String output;
+
+		@Option(name = "--jobs")
+		public int jobs = 1;
+
+		@Option(name = "--exclude")
+		public List<String> excludes;
+
+		@SwitchlessArguments
+		public String[] files;
+	}
+
+	/** The arguments. */
+	String[] arguments = new String[] { "--verbose", "--output", "out", "--jobs", "8",
+			"a.txt", "b.txt", "--exclude", "tmp", "build" };
+
+	@Benchmark
+	public Options binder()
+	{
+		return new OptionsBinder<Options>(Options.class).parse(arguments);
+	}
+
+	@Benchmark
+	public Options generated()
+	{
+		return GeneratedParserBenchmark_OptionsParser.parse(arguments);
+	}
+}
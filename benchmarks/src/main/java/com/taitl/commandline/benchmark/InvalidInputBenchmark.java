@@ -0,0 +1,78 @@
+package com.taitl.commandline.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taitl.commandline.ImmutableCommandLineParser;
+import com.taitl.commandline.ParseResult;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Throughput of rejecting invalid command lines: parse(), throwing an
+ * exception that is caught and its message read, versus tryParse(), returning
+ * a structured error. The command line has an unknown switch at its end, so
+ * that all of it is scanned.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvalidInputBenchmark
+{
+	/** Size of the argument vector. */
+	@Param({ "SMALL", "MEDIUM" })
+	public Workload workload;
+
+	/** The invalid argument vector. */
+	String[] arguments;
+
+	/** The parser. */
+	ImmutableCommandLineParser parser;
+
+	@Setup
+	public void setUp()
+	{
+		String[] valid = workload.arguments();
+		arguments = new String[valid.length + 1];
+		System.arraycopy(valid, 0, arguments, 0, valid.length);
+		arguments[valid.length] = "--no-such-switch";
+		parser = new ImmutableCommandLineParser(workload.possibleSwitches(),
+				Workload.IMPLICIT_SWITCH);
+	}
+
+	@Benchmark
+	public String parseAndCatch()
+	{
+		try
+		{
+			parser.parse(arguments);
+			return null;
+		}
+		catch (IllegalArgumentException e)
+		{
+			return e.getMessage();
+		}
+	}
+
+	@Benchmark
+	public ParseResult tryParse()
+	{
+		return parser.tryParse(arguments);
+	}
+}
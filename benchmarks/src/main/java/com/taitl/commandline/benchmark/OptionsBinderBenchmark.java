@@ -0,0 +1,101 @@
+package com.taitl.commandline.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.taitl.commandline.CommandLineParser;
+import com.taitl.commandline.Option;
+import com.taitl.commandline.OptionsBinder;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Throughput of parsing a command line and reading its switches a number of
+ * times, as request handlers do: by name through CommandLineParser getters,
+ * and through the fields of an options object populated by an OptionsBinder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptionsBinderBenchmark
+{
+	/** Number of times each switch is read per parse. */
+	static final int READS = 10;
+
+	/** Options of the benchmarked command line. */
+	public static class Options
+	{
+		@Option(name = "--verbose")
+		boolean verbose;
+
+		@Option(name = "--name")
+		String name;
+
+		@Option(name = "--threads")
+		int threads;
+
+		@Option(name = "--include")
+		List<String> includes;
+	}
+
+	/** The arguments. */
+	String[] arguments = new String[] { "--verbose", "--name", "api", "--threads", "16",
+			"--include", "a", "b", "c" };
+
+	/** Parser queried by switch name. */
+	CommandLineParser parser;
+
+	/** Binder populating options objects. */
+	OptionsBinder<Options> binder;
+
+	@Setup
+	public void setUp()
+	{
+		binder = new OptionsBinder<Options>(Options.class);
+		parser = new CommandLineParser();
+		parser.setPossibleSwitches(binder.getPossibleSwitches());
+	}
+
+	@Benchmark
+	public void getters(Blackhole blackhole)
+	{
+		parser.setArguments(arguments);
+		for (int i = 0; i < READS; i++)
+		{
+			blackhole.consume(parser.isSwitchPresent("--verbose"));
+			blackhole.consume(parser.getSwitchValue("--name"));
+			blackhole.consume(parser.getInt("--threads"));
+			blackhole.consume(parser.getSwitchValues("--include"));
+		}
+	}
+
+	@Benchmark
+	public void boundFields(Blackhole blackhole)
+	{
+		Options options = binder.parse(arguments);
+		for (int i = 0; i < READS; i++)
+		{
+			blackhole.consume(options.verbose);
+			blackhole.consume(options.name);
+			blackhole.consume(options.threads);
+			blackhole.consume(options.includes);
+		}
+	}
+}
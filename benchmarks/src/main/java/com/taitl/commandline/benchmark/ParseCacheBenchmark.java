@@ -0,0 +1,87 @@
+package com.taitl.commandline.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taitl.commandline.ImmutableCommandLineParser;
+import com.taitl.commandline.ParseResult;
+import com.taitl.commandline.ParseResultCache;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Throughput of parsing the same argument vector or command line again and
+ * again, with and without a ParseResultCache in front of the parser. The
+ * cached variants measure the hit path: hashing and comparing the arguments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseCacheBenchmark
+{
+	/** Size of the argument vector. */
+	@Param({ "SMALL", "MEDIUM", "LARGE" })
+	public Workload workload;
+
+	/** The argument vector. */
+	String[] arguments;
+
+	/** The command line. */
+	String commandLine;
+
+	/** The parser. */
+	ImmutableCommandLineParser parser;
+
+	/** The cache in front of the parser. */
+	ParseResultCache cache;
+
+	@Setup
+	public void setUp()
+	{
+		arguments = workload.arguments();
+		commandLine = workload.commandLine();
+		parser = new ImmutableCommandLineParser(workload.possibleSwitches(),
+				Workload.IMPLICIT_SWITCH);
+		cache = new ParseResultCache(parser, 1000);
+	}
+
+	@Benchmark
+	public ParseResult uncachedArguments()
+	{
+		return parser.parse(arguments);
+	}
+
+	@Benchmark
+	public ParseResult cachedArguments()
+	{
+		return cache.parse(arguments);
+	}
+
+	@Benchmark
+	public ParseResult uncachedCommandLine()
+	{
+		return parser.parse(commandLine);
+	}
+
+	@Benchmark
+	public ParseResult cachedCommandLine()
+	{
+		return cache.parse(commandLine);
+	}
+}
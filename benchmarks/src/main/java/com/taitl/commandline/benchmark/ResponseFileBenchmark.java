@@ -0,0 +1,107 @@
+package com.taitl.commandline.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taitl.commandline.ImmutableCommandLineParser;
+import com.taitl.commandline.ParseResult;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Time to parse a command line passing a large response file, by default of
+ * 100 MB, with millions of file paths: expanding it as @file, memory-mapped
+ * and tokenized from the mapped buffer, versus reading it into a String and
+ * parsing that.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class ResponseFileBenchmark
+{
+	/** Character set of the response file. */
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/** Size of the response file, in megabytes. */
+	@Param({ "100" })
+	public int sizeMegabytes;
+
+	/** The response file. */
+	File responseFile;
+
+	/** Parser expanding response files. */
+	ImmutableCommandLineParser parser;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		responseFile = File.createTempFile("arguments", ".txt");
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+				responseFile), UTF_8));
+		try
+		{
+			long size = 0;
+			long limit = sizeMegabytes * 1024L * 1024L;
+			writer.write("--multi\n");
+			for (int i = 0; size < limit; i++)
+			{
+				String line = (i % 10 == 0 ? "\"/path/to/some dir/file" : "/path/to/some/file")
+						+ i + ".txt" + (i % 10 == 0 ? "\"\n" : "\n");
+				writer.write(line);
+				size += line.length();
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		parser = new ImmutableCommandLineParser("--multi(*)", "--file(*)")
+				.withResponseFileExpansion(true);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		responseFile.delete();
+	}
+
+	@Benchmark
+	public ParseResult mappedResponseFile()
+	{
+		return parser.parse(new String[] { "@" + responseFile.getPath() });
+	}
+
+	@Benchmark
+	public ParseResult readIntoString() throws IOException
+	{
+		String commandLine = new String(Files.readAllBytes(responseFile.toPath()), UTF_8);
+		return parser.parse(commandLine);
+	}
+}
@@ -0,0 +1,101 @@
+package com.taitl.commandline.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.taitl.commandline.ImmutableCommandLineParser;
+import com.taitl.commandline.benchmark.CommandLineParserBenchmark.ExposedCommandLineParser;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Throughput of doParsing() and of the ImmutableCommandLineParser with the
+ * interpreted parser, and with parsing specialized for the switch schema. The
+ * possible switches are set at runtime, as when they are loaded from a
+ * registry, for small, medium and large workloads (see {@link Workload}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecializedParsingBenchmark
+{
+	/** Workload size. */
+	@Param({ "SMALL", "MEDIUM", "LARGE" })
+	public Workload workload;
+
+	/** Arguments of the workload. */
+	String[] arguments;
+
+	/** Parser with the interpreted parsing. */
+	ExposedCommandLineParser interpretedParser;
+
+	/** Parser with parsing specialized for the possible switches. */
+	ExposedCommandLineParser specializedParser;
+
+	/** Immutable parser with the interpreted parsing. */
+	ImmutableCommandLineParser interpretedImmutableParser;
+
+	/** Immutable parser with parsing specialized for the schema. */
+	ImmutableCommandLineParser specializedImmutableParser;
+
+	@Setup
+	public void setUp()
+	{
+		arguments = workload.arguments();
+
+		interpretedParser = new ExposedCommandLineParser();
+		interpretedParser.setPossibleSwitches(workload.possibleSwitches());
+		interpretedParser.setImplicitSwitch(Workload.IMPLICIT_SWITCH);
+
+		specializedParser = new ExposedCommandLineParser();
+		specializedParser.setPossibleSwitches(workload.possibleSwitches());
+		specializedParser.setImplicitSwitch(Workload.IMPLICIT_SWITCH);
+		specializedParser.setSpecializedParsing(true);
+
+		interpretedImmutableParser = interpretedParser.getImmutableParser();
+		specializedImmutableParser = specializedParser.getImmutableParser();
+	}
+
+	@Benchmark
+	public void interpretedDoParsing(Blackhole blackhole)
+	{
+		interpretedParser.parseOnly(arguments);
+		blackhole.consume(interpretedParser.getSwitchMap());
+	}
+
+	@Benchmark
+	public void specializedDoParsing(Blackhole blackhole)
+	{
+		specializedParser.parseOnly(arguments);
+		blackhole.consume(specializedParser.getSwitchMap());
+	}
+
+	@Benchmark
+	public void interpretedImmutableParse(Blackhole blackhole)
+	{
+		blackhole.consume(interpretedImmutableParser.parse(arguments));
+	}
+
+	@Benchmark
+	public void specializedImmutableParse(Blackhole blackhole)
+	{
+		blackhole.consume(specializedImmutableParser.parse(arguments));
+	}
+}
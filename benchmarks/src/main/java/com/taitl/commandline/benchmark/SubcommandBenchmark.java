@@ -0,0 +1,95 @@
+package com.taitl.commandline.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taitl.commandline.CommandLineParser;
+import com.taitl.commandline.ImmutableCommandLineParser;
+import com.taitl.commandline.ParseResult;
+import com.taitl.commandline.SubcommandParser;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Throughput of parsing a command line of a tool with subcommands: a
+ * SubcommandParser built once, dispatching to the compiled schema of the
+ * subcommand, versus a CommandLineParser configured with the switches of the
+ * subcommand for every command line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubcommandBenchmark
+{
+	/** Number of subcommands. */
+	@Param({ "60" })
+	public int subcommandCount;
+
+	/** Size of the command line after the subcommand. */
+	@Param({ "SMALL", "MEDIUM" })
+	public Workload workload;
+
+	/** The argument vector: a subcommand and its arguments. */
+	String[] arguments;
+
+	/** Possible switches of the subcommand, to configure a parser with. */
+	String possibleSwitches;
+
+	/** The parser of subcommands. */
+	SubcommandParser parser;
+
+	@Setup
+	public void setUp()
+	{
+		possibleSwitches = workload.possibleSwitches();
+		Map<String, ImmutableCommandLineParser> subcommands = new LinkedHashMap<String, ImmutableCommandLineParser>();
+		for (int i = 0; i < subcommandCount; i++)
+		{
+			subcommands.put("subcommand" + i, new ImmutableCommandLineParser(possibleSwitches,
+					Workload.IMPLICIT_SWITCH));
+		}
+		parser = new SubcommandParser(subcommands);
+
+		String[] subcommandArguments = workload.arguments();
+		arguments = new String[subcommandArguments.length + 1];
+		arguments[0] = "subcommand" + (subcommandCount / 2);
+		System.arraycopy(subcommandArguments, 0, arguments, 1, subcommandArguments.length);
+	}
+
+	@Benchmark
+	public ParseResult dispatch()
+	{
+		return parser.parse(arguments);
+	}
+
+	@Benchmark
+	public CommandLineParser configurePerInvocation()
+	{
+		String[] subcommandArguments = new String[arguments.length - 1];
+		System.arraycopy(arguments, 1, subcommandArguments, 0, subcommandArguments.length);
+
+		CommandLineParser commandLineParser = new CommandLineParser();
+		commandLineParser.setPossibleSwitches(possibleSwitches);
+		commandLineParser.setImplicitSwitch(Workload.IMPLICIT_SWITCH);
+		commandLineParser.setArguments(subcommandArguments);
+		return commandLineParser;
+	}
+}
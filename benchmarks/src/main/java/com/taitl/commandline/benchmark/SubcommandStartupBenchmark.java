@@ -0,0 +1,115 @@
+package com.taitl.commandline.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taitl.commandline.CommandLineParser;
+import com.taitl.commandline.ImmutableCommandLineParser;
+import com.taitl.commandline.ParseResult;
+import com.taitl.commandline.SubcommandParser;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Time to first parse of a tool with many subcommands, each with 50 possible
+ * switches, measured once per freshly started JVM, as when the tool is
+ * invoked by a script: registering the schemas of all subcommands, and
+ * parsing the command line of one of them. Schemas are registered lazily,
+ * compiled only for the subcommand selected; eagerly, compiled all at once;
+ * or with a CommandLineParser per subcommand, configured with
+ * setPossibleSwitches().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class SubcommandStartupBenchmark
+{
+	/** Number of subcommands. */
+	@Param({ "100" })
+	public int subcommandCount;
+
+	/** Names of the subcommands. */
+	String[] subcommands;
+
+	/** Possible switches of every subcommand. */
+	String possibleSwitches;
+
+	/** The argument vector: a subcommand and its arguments. */
+	String[] arguments;
+
+	@Setup
+	public void setUp()
+	{
+		subcommands = new String[subcommandCount];
+		for (int i = 0; i < subcommandCount; i++)
+		{
+			subcommands[i] = "subcommand" + i;
+		}
+		possibleSwitches = Workload.MEDIUM.possibleSwitches();
+
+		String[] subcommandArguments = Workload.MEDIUM.arguments();
+		arguments = new String[subcommandArguments.length + 1];
+		arguments[0] = subcommands[subcommandCount / 2];
+		System.arraycopy(subcommandArguments, 0, arguments, 1, subcommandArguments.length);
+	}
+
+	@Benchmark
+	public ParseResult lazySchemas()
+	{
+		SubcommandParser.Builder builder = new SubcommandParser.Builder();
+		for (String subcommand : subcommands)
+		{
+			builder.withSubcommand(subcommand, possibleSwitches, Workload.IMPLICIT_SWITCH);
+		}
+		return builder.build().parse(arguments);
+	}
+
+	@Benchmark
+	public ParseResult eagerSchemas()
+	{
+		Map<String, ImmutableCommandLineParser> parsers = new LinkedHashMap<String, ImmutableCommandLineParser>();
+		for (String subcommand : subcommands)
+		{
+			parsers.put(subcommand, new ImmutableCommandLineParser(possibleSwitches,
+					Workload.IMPLICIT_SWITCH));
+		}
+		return new SubcommandParser(parsers).parse(arguments);
+	}
+
+	@Benchmark
+	public CommandLineParser commandLineParsers()
+	{
+		Map<String, CommandLineParser> parsers = new LinkedHashMap<String, CommandLineParser>();
+		for (String subcommand : subcommands)
+		{
+			CommandLineParser commandLineParser = new CommandLineParser();
+			commandLineParser.setPossibleSwitches(possibleSwitches);
+			commandLineParser.setImplicitSwitch(Workload.IMPLICIT_SWITCH);
+			parsers.put(subcommand, commandLineParser);
+		}
+
+		String[] subcommandArguments = new String[arguments.length - 1];
+		System.arraycopy(arguments, 1, subcommandArguments, 0, subcommandArguments.length);
+		CommandLineParser commandLineParser = parsers.get(arguments[0]);
+		commandLineParser.setArguments(subcommandArguments);
+		return commandLineParser;
+	}
+}
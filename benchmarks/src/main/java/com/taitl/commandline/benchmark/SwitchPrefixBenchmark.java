@@ -0,0 +1,101 @@
+package com.taitl.commandline.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.taitl.commandline.SwitchPrefixMatcher;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Measures the per-argument cost of deciding whether an argument looks like a
+ * switch: the former <code>String.matches()</code> call, which compiles the
+ * prefixes mask for every argument, against the precompiled
+ * SwitchPrefixMatcher, for the default literal mask and for a mask that needs
+ * a regular expression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwitchPrefixBenchmark
+{
+	/** Number of arguments checked per benchmark invocation. */
+	static final int ARGUMENT_COUNT = 200;
+
+	/** The switch prefixes mask: the default literal one, or a regex one. */
+	@Param({ "(--|-)", "-{1,2}" })
+	public String mask;
+
+	/** Arguments to check: every fourth one is a switch. */
+	String[] arguments;
+
+	/** The precompiled matcher. */
+	SwitchPrefixMatcher matcher;
+
+	/** The mask compiled as the former code did, for reference. */
+	Pattern pattern;
+
+	@Setup
+	public void setUp()
+	{
+		arguments = new String[ARGUMENT_COUNT];
+		for (int i = 0; i < ARGUMENT_COUNT; i++)
+		{
+			arguments[i] = i % 4 == 0 ? "--switch" + i : "/path/to/file" + i + ".txt";
+		}
+		matcher = SwitchPrefixMatcher.compile(mask);
+		pattern = Pattern.compile("^" + mask + ".*");
+	}
+
+	/** The former implementation: a regex compiled for every argument. */
+	@Benchmark
+	@OperationsPerInvocation(ARGUMENT_COUNT)
+	public void stringMatches(Blackhole blackhole)
+	{
+		for (String argument : arguments)
+		{
+			blackhole.consume(argument.matches("^" + mask + ".*"));
+		}
+	}
+
+	/** A regex compiled once, with a Matcher allocated per argument. */
+	@Benchmark
+	@OperationsPerInvocation(ARGUMENT_COUNT)
+	public void precompiledPattern(Blackhole blackhole)
+	{
+		for (String argument : arguments)
+		{
+			blackhole.consume(pattern.matcher(argument).matches());
+		}
+	}
+
+	/** The current implementation. */
+	@Benchmark
+	@OperationsPerInvocation(ARGUMENT_COUNT)
+	public void switchPrefixMatcher(Blackhole blackhole)
+	{
+		for (String argument : arguments)
+		{
+			blackhole.consume(matcher.matches(argument));
+		}
+	}
+}
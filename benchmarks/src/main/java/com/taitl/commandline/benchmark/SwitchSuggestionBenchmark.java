@@ -0,0 +1,121 @@
+package com.taitl.commandline.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taitl.commandline.ImmutableCommandLineParser;
+import com.taitl.commandline.ParseResult;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Throughput of rejecting a command line with a misspelt switch: tryParse()
+ * without suggestions, tryParse() suggesting the closest switches from a
+ * BK-tree, and, for comparison, a scan computing the distance to every
+ * possible switch name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwitchSuggestionBenchmark
+{
+	/** Number of possible switches. */
+	@Param({ "MEDIUM", "LARGE" })
+	public Workload workload;
+
+	/** The argument vector, a misspelt switch. */
+	String[] arguments;
+
+	/** The parser without suggestions. */
+	ImmutableCommandLineParser parser;
+
+	/** The parser with suggestions. */
+	ImmutableCommandLineParser suggestionsParser;
+
+	/** Names of possible switches. */
+	String[] switchNames;
+
+	@Setup
+	public void setUp()
+	{
+		arguments = new String[] { "--swich" + (workload.switchCount / 2) };
+		parser = new ImmutableCommandLineParser(workload.possibleSwitches(),
+				Workload.IMPLICIT_SWITCH);
+		suggestionsParser = parser.withSwitchSuggestionsReported(true);
+		switchNames = new String[workload.switchCount];
+		for (int i = 0; i < switchNames.length; i++)
+		{
+			switchNames[i] = Workload.switchName(i);
+		}
+	}
+
+	@Benchmark
+	public ParseResult withoutSuggestions()
+	{
+		return parser.tryParse(arguments);
+	}
+
+	@Benchmark
+	public ParseResult suggestionTree()
+	{
+		return suggestionsParser.tryParse(arguments);
+	}
+
+	@Benchmark
+	public List<String> linearScan()
+	{
+		List<String> suggestions = new ArrayList<String>();
+		for (String name : switchNames)
+		{
+			if (distance(name, arguments[0]) <= 3)
+			{
+				suggestions.add(name);
+			}
+		}
+		return suggestions;
+	}
+
+	/**
+	 * Computes the Levenshtein distance between two strings.
+	 */
+	private static int distance(String s, String t)
+	{
+		int[] previous = new int[t.length() + 1];
+		int[] current = new int[t.length() + 1];
+		for (int j = 0; j <= t.length(); j++)
+		{
+			previous[j] = j;
+		}
+		for (int i = 1; i <= s.length(); i++)
+		{
+			current[0] = i;
+			for (int j = 1; j <= t.length(); j++)
+			{
+				int replace = previous[j - 1] + (s.charAt(i - 1) == t.charAt(j - 1) ? 0 : 1);
+				current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+			}
+			int[] row = previous;
+			previous = current;
+			current = row;
+		}
+		return previous[t.length()];
+	}
+}
@@ -0,0 +1,128 @@
+package com.taitl.commandline.benchmark;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Benchmark workloads: a switch schema and a command line of a given size.
+ * <p>
+ * Possible switches are named --switch0, --switch1, ..., and accept zero to
+ * two values each; the implicit switch --file(*) collects the rest. The
+ * command line is a sequence of switches, each followed by two values, with
+ * every third switch followed by an extra, switchless argument.
+ */
+public enum Workload
+{
+	/** 5 arguments, 10 possible switches. */
+	SMALL(5, 10),
+
+	/** 100 arguments, 50 possible switches. */
+	MEDIUM(100, 50),
+
+	/** 10,000 arguments, 500 possible switches. */
+	LARGE(10000, 500);
+
+	/** The implicit switch specification used by all workloads. */
+	static final String IMPLICIT_SWITCH = "--file(*)";
+
+	/** Number of command line arguments. */
+	final int argumentCount;
+
+	/** Number of possible switches. */
+	final int switchCount;
+
+	/**
+	 * Constructs a Workload.
+	 *
+	 * @param arguments
+	 *            Number of command line arguments.
+	 * @param switches
+	 *            Number of possible switches.
+	 */
+	Workload(int arguments, int switches)
+	{
+		argumentCount = arguments;
+		switchCount = switches;
+	}
+
+	/**
+	 * Returns space-separated list of possible switches, to be passed to
+	 * setPossibleSwitches().
+	 *
+	 * @return The list of possible switches.
+	 */
+	String possibleSwitches()
+	{
+		StringBuilder list = new StringBuilder();
+		for (int i = 0; i < switchCount; i++)
+		{
+			if (i > 0)
+			{
+				list.append(' ');
+			}
+			list.append(switchName(i)).append("(0-2)");
+		}
+		return list.toString();
+	}
+
+	/**
+	 * Returns the command line arguments of this workload.
+	 *
+	 * @return The command line arguments.
+	 */
+	String[] arguments()
+	{
+		String[] arguments = new String[argumentCount];
+		int switchIndex = 0;
+		int i = 0;
+
+		while (i < argumentCount)
+		{
+			arguments[i++] = switchName(switchIndex % switchCount);
+			for (int v = 0; v < 2 && i < argumentCount; v++)
+			{
+				arguments[i] = "value" + i;
+				i++;
+			}
+			if (switchIndex % 3 == 2 && i < argumentCount)
+			{
+				arguments[i] = "/path/to/file" + i + ".txt";
+				i++;
+			}
+			switchIndex++;
+		}
+		return arguments;
+	}
+
+	/**
+	 * Returns the command line of this workload as a single string.
+	 *
+	 * @return The command line.
+	 */
+	String commandLine()
+	{
+		StringBuilder commandLine = new StringBuilder();
+		for (String argument : arguments())
+		{
+			if (commandLine.length() > 0)
+			{
+				commandLine.append(' ');
+			}
+			commandLine.append(argument);
+		}
+		return commandLine.toString();
+	}
+
+	/**
+	 * Returns the name of i-th possible switch.
+	 *
+	 * @param i
+	 *            Index of switch.
+	 * @return The name of switch, e.g. --switch7.
+	 */
+	static String switchName(int i)
+	{
+		return "--switch" + i;
+	}
+}
@@ -0,0 +1,99 @@
+package com.taitl.commandline.processor;
+
+import com.taitl.commandline.SwitchSpecification;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Field of an options class bound to a switch, or to the switchless
+ * arguments, as read by the annotation processor.
+ */
+final class BoundField
+{
+	/** Name of the field. */
+	private final String fieldName;
+
+	/** Kind of the field. */
+	private final FieldKind kind;
+
+	/** Specification of the switch, or null for the switchless arguments. */
+	private final SwitchSpecification specification;
+
+	/** True if the switch is the implicit switch. */
+	private final boolean implicit;
+
+	/**
+	 * Constructs a BoundField object.
+	 *
+	 * @param name
+	 *            Name of the field.
+	 * @param fieldKind
+	 *            Kind of the field.
+	 * @param switchSpecification
+	 *            Specification of the switch, or null for the switchless
+	 *            arguments.
+	 * @param implicitSwitch
+	 *            True if the switch is the implicit switch.
+	 */
+	BoundField(String name, FieldKind fieldKind, SwitchSpecification switchSpecification,
+			boolean implicitSwitch)
+	{
+		fieldName = name;
+		kind = fieldKind;
+		specification = switchSpecification;
+		implicit = implicitSwitch;
+	}
+
+	/**
+	 * Returns name of the field.
+	 *
+	 * @return Name of the field.
+	 */
+	String getFieldName()
+	{
+		return fieldName;
+	}
+
+	/**
+	 * Returns kind of the field.
+	 *
+	 * @return Kind of the field.
+	 */
+	FieldKind getKind()
+	{
+		return kind;
+	}
+
+	/**
+	 * Returns specification of the switch.
+	 *
+	 * @return Specification of the switch, or null for the switchless
+	 *         arguments.
+	 */
+	SwitchSpecification getSpecification()
+	{
+		return specification;
+	}
+
+	/**
+	 * Returns true if the field receives the switchless arguments.
+	 *
+	 * @return True for the switchless arguments.
+	 */
+	boolean isSwitchless()
+	{
+		return specification == null;
+	}
+
+	/**
+	 * Returns true if the switch is the implicit switch.
+	 *
+	 * @return True for the implicit switch.
+	 */
+	boolean isImplicit()
+	{
+		return implicit;
+	}
+}
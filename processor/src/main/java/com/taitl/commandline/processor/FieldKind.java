@@ -0,0 +1,188 @@
+package com.taitl.commandline.processor;
+
+import com.taitl.commandline.ValueType;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Kind of a field of an options class, determining the type of values and the
+ * default cardinality of its switch, and the code populating it.
+ */
+enum FieldKind
+{
+	/** boolean or Boolean, set to true if the switch is present. */
+	FLAG(ValueType.STRING, "0", null, "boolean", "java.lang.Boolean"),
+
+	/** String, the only value. */
+	STRING(ValueType.STRING, "1", null, "java.lang.String"),
+
+	/** int or Integer, the only value. */
+	INT(ValueType.INT, "1", null, "int", "java.lang.Integer"),
+
+	/** long or Long, the only value. */
+	LONG(ValueType.LONG, "1", null, "long", "java.lang.Long"),
+
+	/** double or Double, the only value. */
+	DOUBLE(ValueType.DOUBLE, "1", null, "double", "java.lang.Double"),
+
+	/** Duration, the only value. */
+	DURATION(ValueType.DURATION, "1", null, "java.time.Duration"),
+
+	/** String[], all values. */
+	STRING_ARRAY(ValueType.STRING, "*", STRING, "java.lang.String[]"),
+
+	/** int[], all values. */
+	INT_ARRAY(ValueType.INT, "*", INT, "int[]"),
+
+	/** long[], all values. */
+	LONG_ARRAY(ValueType.LONG, "*", LONG, "long[]"),
+
+	/** double[], all values. */
+	DOUBLE_ARRAY(ValueType.DOUBLE, "*", DOUBLE, "double[]"),
+
+	/** Duration[], all values. */
+	DURATION_ARRAY(ValueType.DURATION, "*", DURATION, "java.time.Duration[]"),
+
+	/** List&lt;String&gt;, all values. */
+	STRING_LIST(ValueType.STRING, "*", null, "java.util.List<java.lang.String>",
+			"java.util.List");
+
+	/** Type of values of switches bound to fields of this kind. */
+	private final ValueType valueType;
+
+	/** Cardinality of switches bound to fields of this kind by default. */
+	private final String defaultValues;
+
+	/** Kind of elements of arrays, or null for other kinds. */
+	private final FieldKind elementKind;
+
+	/** Names of field types of this kind, as printed by javac. */
+	private final String[] typeNames;
+
+	/**
+	 * Constructs a FieldKind.
+	 *
+	 * @param type
+	 *            Type of values.
+	 * @param values
+	 *            Default cardinality.
+	 * @param element
+	 *            Kind of elements of arrays, or null.
+	 * @param names
+	 *            Names of field types.
+	 */
+	private FieldKind(ValueType type, String values, FieldKind element, String... names)
+	{
+		valueType = type;
+		defaultValues = values;
+		elementKind = element;
+		typeNames = names;
+	}
+
+	/**
+	 * Returns kind of field of the specified type.
+	 *
+	 * @param typeName
+	 *            Name of field type, as printed by javac, e.g. int[].
+	 * @return The kind, or null if the type can not be bound to the command
+	 *         line.
+	 */
+	static FieldKind forTypeName(String typeName)
+	{
+		for (FieldKind kind : values())
+		{
+			for (String name : kind.typeNames)
+			{
+				if (name.equals(typeName))
+				{
+					return kind;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns type of values of switches bound to fields of this kind.
+	 *
+	 * @return The value type.
+	 */
+	ValueType getValueType()
+	{
+		return valueType;
+	}
+
+	/**
+	 * Returns cardinality of switches bound to fields of this kind by default.
+	 *
+	 * @return The cardinality, e.g. 1.
+	 */
+	String getDefaultValues()
+	{
+		return defaultValues;
+	}
+
+	/**
+	 * Returns kind of elements of arrays.
+	 *
+	 * @return The element kind, or null if this is not an array kind.
+	 */
+	FieldKind getElementKind()
+	{
+		return elementKind;
+	}
+
+	/**
+	 * Returns Java type of values of fields of this kind, or of their
+	 * elements for arrays.
+	 *
+	 * @return The type, e.g. int.
+	 */
+	String getElementType()
+	{
+		switch (elementKind != null ? elementKind : this)
+		{
+			case INT:
+				return "int";
+			case LONG:
+				return "long";
+			case DOUBLE:
+				return "double";
+			case DURATION:
+				return "java.time.Duration";
+			default:
+				return "String";
+		}
+	}
+
+	/**
+	 * Returns Java expression converting a switch value to the type of fields
+	 * of this kind, or of their elements for arrays. The expression throws
+	 * IllegalArgumentException if the value can not be converted.
+	 *
+	 * @param switchNameLiteral
+	 *            String literal with the name of the switch.
+	 * @param value
+	 *            Expression of the switch value.
+	 * @return The conversion expression.
+	 */
+	String convert(String switchNameLiteral, String value)
+	{
+		switch (elementKind != null ? elementKind : this)
+		{
+			case INT:
+				return "Integer.parseInt(" + value + ")";
+			case LONG:
+				return "Long.parseLong(" + value + ")";
+			case DOUBLE:
+				return "Double.parseDouble(" + value + ")";
+			case DURATION:
+				return "java.time.Duration.ofNanos(com.taitl.commandline.ValueType.DURATION.toLong("
+						+ switchNameLiteral + ", " + value + "))";
+			default:
+				return value;
+		}
+	}
+}
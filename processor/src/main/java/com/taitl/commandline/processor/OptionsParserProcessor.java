@@ -0,0 +1,484 @@
+package com.taitl.commandline.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import com.taitl.commandline.SwitchSchema;
+import com.taitl.commandline.SwitchSpecification;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * OptionsParserProcessor is an annotation processor generating, for each
+ * options class annotated with <code>@GenerateParser</code>, a parser class
+ * specialized for its <code>@Option</code> and
+ * <code>@SwitchlessArguments</code> fields. See
+ * {@link com.taitl.commandline.GenerateParser}.
+ * <p>
+ * The switch specifications are parsed, and checked, at compile time, with
+ * the rules of {@link SwitchSpecification}; inconsistent annotations are
+ * reported as compilation errors on the offending field. The processor is
+ * registered as a service, so it runs whenever this module is on the
+ * annotation processor path of javac.
+ */
+@SupportedAnnotationTypes(OptionsParserProcessor.GENERATE_PARSER)
+public class OptionsParserProcessor extends AbstractProcessor
+{
+	/** Name of the annotation requesting a parser. */
+	static final String GENERATE_PARSER = "com.taitl.commandline.GenerateParser";
+
+	/** Name of the annotation binding a field to a switch. */
+	static final String OPTION = "com.taitl.commandline.Option";
+
+	/** Name of the annotation binding a field to the switchless arguments. */
+	static final String SWITCHLESS_ARGUMENTS = "com.taitl.commandline.SwitchlessArguments";
+
+	/** Suffix of names of generated parser classes. */
+	static final String PARSER_SUFFIX = "Parser";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+	{
+		TypeElement generateParser = processingEnv.getElementUtils().getTypeElement(
+				GENERATE_PARSER);
+		if (generateParser == null)
+		{
+			return false;
+		}
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(generateParser))
+		{
+			if (element.getKind() != ElementKind.CLASS)
+			{
+				error(element, "@GenerateParser applies to classes only.");
+				continue;
+			}
+
+			TypeElement optionsClass = (TypeElement) element;
+			try
+			{
+				checkOptionsClass(optionsClass);
+				List<BoundField> fields = readFields(optionsClass);
+				writeParser(optionsClass, fields);
+			}
+			catch (InvalidOptionsException e)
+			{
+				error(e.getElement(), e.getMessage());
+			}
+			catch (IOException e)
+			{
+				error(optionsClass, "Can not write parser of " + optionsClass.getQualifiedName()
+						+ ": " + e.getMessage());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks that the generated parser can instantiate the options class.
+	 *
+	 * @param optionsClass
+	 *            The options class.
+	 * @throws InvalidOptionsException
+	 *             if the class is abstract, private, an inner class, or has
+	 *             no non-private no-argument constructor.
+	 */
+	private void checkOptionsClass(TypeElement optionsClass) throws InvalidOptionsException
+	{
+		for (Element type = optionsClass; type.getKind().isClass(); type = type
+				.getEnclosingElement())
+		{
+			if (type.getModifiers().contains(Modifier.PRIVATE))
+			{
+				throw new InvalidOptionsException(optionsClass, "Options class "
+						+ optionsClass.getQualifiedName()
+						+ " must not be private, nor nested in a private class.");
+			}
+			if (type.getEnclosingElement().getKind().isClass()
+					&& !type.getModifiers().contains(Modifier.STATIC))
+			{
+				throw new InvalidOptionsException(optionsClass, "Options class "
+						+ optionsClass.getQualifiedName() + " must not be an inner class.");
+			}
+		}
+		if (optionsClass.getModifiers().contains(Modifier.ABSTRACT))
+		{
+			throw new InvalidOptionsException(optionsClass, "Options class "
+					+ optionsClass.getQualifiedName() + " must not be abstract.");
+		}
+
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(optionsClass
+				.getEnclosedElements()))
+		{
+			if (constructor.getParameters().isEmpty()
+					&& !constructor.getModifiers().contains(Modifier.PRIVATE))
+			{
+				return;
+			}
+		}
+		throw new InvalidOptionsException(optionsClass, "Options class "
+				+ optionsClass.getQualifiedName()
+				+ " must have a non-private no-argument constructor.");
+	}
+
+	/**
+	 * Reads the annotated fields of the options class and its superclasses,
+	 * superclass fields first, and checks their switch specifications.
+	 *
+	 * @param optionsClass
+	 *            The options class.
+	 * @return The bound fields.
+	 * @throws InvalidOptionsException
+	 *             if the annotations are inconsistent.
+	 */
+	private List<BoundField> readFields(TypeElement optionsClass)
+			throws InvalidOptionsException
+	{
+		List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+		for (TypeElement type = optionsClass; type != null; type = getSuperclass(type))
+		{
+			hierarchy.add(0, type);
+		}
+
+		String optionsPackage = getPackageName(optionsClass);
+		List<BoundField> fields = new ArrayList<BoundField>();
+		List<SwitchSpecification> specifications = new ArrayList<SwitchSpecification>();
+		SwitchSpecification implicitSpecification = null;
+
+		for (TypeElement type : hierarchy)
+		{
+			for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements()))
+			{
+				AnnotationMirror option = getAnnotation(field, OPTION);
+				boolean switchless = getAnnotation(field, SWITCHLESS_ARGUMENTS) != null;
+
+				if (option == null && !switchless)
+				{
+					continue;
+				}
+				checkField(field, optionsPackage, option != null && switchless);
+
+				FieldKind kind = FieldKind.forTypeName(field.asType().toString());
+				if (kind == null)
+				{
+					throw new InvalidOptionsException(field, "Field " + field.getSimpleName()
+							+ " is of type " + field.asType()
+							+ ", which can not be bound to the command line.");
+				}
+
+				if (switchless)
+				{
+					if (kind != FieldKind.STRING_ARRAY && kind != FieldKind.STRING_LIST)
+					{
+						throw new InvalidOptionsException(field, "Field "
+								+ field.getSimpleName() + " must be of type String[] or"
+								+ " List<String> to receive the switchless arguments.");
+					}
+					fields.add(new BoundField(field.getSimpleName().toString(), kind, null,
+							false));
+					continue;
+				}
+
+				String name = (String) getValue(option, "name", null);
+				String values = (String) getValue(option, "values", "");
+				boolean implicit = (Boolean) getValue(option, "implicit", Boolean.FALSE);
+				SwitchSpecification specification;
+				try
+				{
+					specification = SwitchSpecification.parse(name + "("
+							+ (values.length() == 0 ? kind.getDefaultValues() : values)
+							+ (kind.getValueType().getName().equals("string") ? "" : ":"
+									+ kind.getValueType().getName()) + ")");
+				}
+				catch (IllegalArgumentException e)
+				{
+					throw new InvalidOptionsException(field, e.getMessage());
+				}
+
+				if (kind == FieldKind.FLAG
+						&& (specification.getMaxValues() != 0 || implicit))
+				{
+					throw new InvalidOptionsException(field, "Switch " + name
+							+ " is bound to a boolean field, and can neither have values"
+							+ " nor be the implicit switch.");
+				}
+				if (implicit)
+				{
+					if (implicitSpecification != null)
+					{
+						throw new InvalidOptionsException(field, "Switches "
+								+ implicitSpecification.getName() + " and " + name
+								+ " can not both be the implicit switch.");
+					}
+					implicitSpecification = specification;
+				}
+				else
+				{
+					specifications.add(specification);
+				}
+				fields.add(new BoundField(field.getSimpleName().toString(), kind,
+						specification, implicit));
+			}
+		}
+
+		// Check for duplicate switches with the rules of the runtime schema
+		try
+		{
+			new SwitchSchema(specifications, implicitSpecification);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new InvalidOptionsException(optionsClass, e.getMessage());
+		}
+		return fields;
+	}
+
+	/**
+	 * Checks that the generated parser can write an annotated field.
+	 *
+	 * @param field
+	 *            The field.
+	 * @param optionsPackage
+	 *            Package of the options class.
+	 * @param bothAnnotations
+	 *            True if the field has both annotations.
+	 * @throws InvalidOptionsException
+	 *             if the field can not be bound.
+	 */
+	private void checkField(VariableElement field, String optionsPackage,
+			boolean bothAnnotations) throws InvalidOptionsException
+	{
+		Set<Modifier> modifiers = field.getModifiers();
+
+		if (bothAnnotations)
+		{
+			throw new InvalidOptionsException(field, "Field " + field.getSimpleName()
+					+ " can not be both an option and the switchless arguments.");
+		}
+		if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL))
+		{
+			throw new InvalidOptionsException(field, "Field " + field.getSimpleName()
+					+ " must be neither static nor final to be bound to the command line.");
+		}
+		if (modifiers.contains(Modifier.PRIVATE)
+				|| !modifiers.contains(Modifier.PUBLIC)
+				&& !getPackageName((TypeElement) field.getEnclosingElement()).equals(
+						optionsPackage))
+		{
+			throw new InvalidOptionsException(field, "Field " + field.getSimpleName()
+					+ " must be accessible from package " + optionsPackage
+					+ " to be written by the generated parser.");
+		}
+	}
+
+	/**
+	 * Writes source of the parser of the options class.
+	 *
+	 * @param optionsClass
+	 *            The options class.
+	 * @param fields
+	 *            The bound fields.
+	 * @throws IOException
+	 *             if the source file can not be written.
+	 */
+	private void writeParser(TypeElement optionsClass, List<BoundField> fields)
+			throws IOException
+	{
+		String packageName = getPackageName(optionsClass);
+		String parserName = getParserName(optionsClass, packageName);
+		String qualifiedName = packageName.length() == 0 ? parserName : packageName + "."
+				+ parserName;
+
+		ParserWriter parserWriter = new ParserWriter(packageName, parserName, optionsClass
+				.getQualifiedName().toString(), fields);
+		JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName,
+				optionsClass);
+		Writer writer = file.openWriter();
+		try
+		{
+			writer.write(parserWriter.write());
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Returns simple name of the parser of the options class, e.g.
+	 * Tool_OptionsParser for nested class Tool.Options.
+	 *
+	 * @param optionsClass
+	 *            The options class.
+	 * @param packageName
+	 *            Package of the options class.
+	 * @return Name of the parser class.
+	 */
+	static String getParserName(TypeElement optionsClass, String packageName)
+	{
+		String name = optionsClass.getQualifiedName().toString();
+		if (packageName.length() > 0)
+		{
+			name = name.substring(packageName.length() + 1);
+		}
+		return name.replace('.', '_') + PARSER_SUFFIX;
+	}
+
+	/**
+	 * Returns package name of a class.
+	 *
+	 * @param type
+	 *            The class.
+	 * @return Name of its package, empty for the unnamed package.
+	 */
+	private String getPackageName(TypeElement type)
+	{
+		return processingEnv.getElementUtils().getPackageOf(type).getQualifiedName()
+				.toString();
+	}
+
+	/**
+	 * Returns superclass of a class.
+	 *
+	 * @param type
+	 *            The class.
+	 * @return Its superclass, or null for a direct subclass of Object.
+	 */
+	private static TypeElement getSuperclass(TypeElement type)
+	{
+		TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() != TypeKind.DECLARED)
+		{
+			return null;
+		}
+		TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+		return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+	}
+
+	/**
+	 * Returns annotation of an element.
+	 *
+	 * @param element
+	 *            The element.
+	 * @param annotationName
+	 *            Qualified name of the annotation type.
+	 * @return The annotation, or null if the element is not annotated with it.
+	 */
+	private static AnnotationMirror getAnnotation(Element element, String annotationName)
+	{
+		for (AnnotationMirror annotation : element.getAnnotationMirrors())
+		{
+			TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+			if (type.getQualifiedName().contentEquals(annotationName))
+			{
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns value of an annotation element.
+	 *
+	 * @param annotation
+	 *            The annotation.
+	 * @param name
+	 *            Name of the element.
+	 * @param defaultValue
+	 *            Value of the element when it is not specified.
+	 * @return The value.
+	 */
+	private static Object getValue(AnnotationMirror annotation, String name,
+			Object defaultValue)
+	{
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation
+				.getElementValues().entrySet())
+		{
+			if (entry.getKey().getSimpleName().contentEquals(name))
+			{
+				return entry.getValue().getValue();
+			}
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Reports a compilation error.
+	 *
+	 * @param element
+	 *            The offending element.
+	 * @param message
+	 *            The message.
+	 */
+	private void error(Element element, String message)
+	{
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	/**
+	 * Exception reporting an options class that the processor can not generate
+	 * a parser for, with the offending element.
+	 */
+	private static final class InvalidOptionsException extends Exception
+	{
+		private static final long serialVersionUID = 1L;
+
+		/** The offending element. */
+		private final transient Element element;
+
+		/**
+		 * Constructs an InvalidOptionsException object.
+		 *
+		 * @param offendingElement
+		 *            The offending element.
+		 * @param message
+		 *            The message.
+		 */
+		InvalidOptionsException(Element offendingElement, String message)
+		{
+			super(message);
+			element = offendingElement;
+		}
+
+		/**
+		 * Returns the offending element.
+		 *
+		 * @return The element.
+		 */
+		Element getElement()
+		{
+			return element;
+		}
+	}
+}
@@ -0,0 +1,486 @@
+package com.taitl.commandline.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.taitl.commandline.SwitchSpecification;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Writes the source of a parser specialized for an options class: a switch
+ * statement over the names of the possible switches, their cardinalities as
+ * constants, and direct writes of the bound fields. Arguments violating the
+ * parsing rules are handed to an ImmutableCommandLineParser over the same
+ * switches, which throws the same exception as the runtime parser would.
+ */
+final class ParserWriter
+{
+	/** Package of the options class, empty for the unnamed package. */
+	private final String packageName;
+
+	/** Simple name of the parser class. */
+	private final String parserName;
+
+	/** Qualified name of the options class. */
+	private final String optionsName;
+
+	/** The bound fields. */
+	private final List<BoundField> fields;
+
+	/** Fields bound to possible switches; index is the switch number. */
+	private final List<BoundField> switchFields = new ArrayList<BoundField>();
+
+	/** Field bound to the implicit switch, or null. */
+	private BoundField implicitField = null;
+
+	/** True if a field receives the switchless arguments. */
+	private boolean hasSwitchlessFields = false;
+
+	/** The source being written. */
+	private final StringBuilder out = new StringBuilder();
+
+	/**
+	 * Constructs a ParserWriter object.
+	 *
+	 * @param optionsPackage
+	 *            Package of the options class, empty for the unnamed package.
+	 * @param parserClassName
+	 *            Simple name of the parser class.
+	 * @param optionsClassName
+	 *            Qualified name of the options class.
+	 * @param boundFields
+	 *            The bound fields, with consistent switch specifications.
+	 */
+	ParserWriter(String optionsPackage, String parserClassName, String optionsClassName,
+			List<BoundField> boundFields)
+	{
+		packageName = optionsPackage;
+		parserName = parserClassName;
+		optionsName = optionsClassName;
+		fields = boundFields;
+
+		for (BoundField field : fields)
+		{
+			if (field.isSwitchless())
+			{
+				hasSwitchlessFields = true;
+			}
+			else if (field.isImplicit())
+			{
+				implicitField = field;
+			}
+			else
+			{
+				switchFields.add(field);
+			}
+		}
+	}
+
+	/**
+	 * Writes the source of the parser.
+	 *
+	 * @return The source.
+	 */
+	String write()
+	{
+		if (packageName.length() > 0)
+		{
+			line(0, "package " + packageName + ";");
+			line(0, "");
+		}
+		line(0, "import java.util.ArrayList;");
+		line(0, "import java.util.Arrays;");
+		line(0, "import java.util.List;");
+		line(0, "");
+		line(0, "import com.taitl.commandline.ImmutableCommandLineParser;");
+		line(0, "import com.taitl.commandline.SwitchSchema;");
+		line(0, "import com.taitl.commandline.SwitchSpecification;");
+		line(0, "");
+		line(0, "/**");
+		line(0, " * Parser of command line arguments into {@link " + optionsName
+				+ "} objects,");
+		line(0, " * generated by OptionsParserProcessor from the annotations of the options");
+		line(0, " * class. Do not edit.");
+		line(0, " */");
+		line(0, "public final class " + parserName);
+		line(0, "{");
+		writeConstants();
+		line(1, "private " + parserName + "()");
+		line(1, "{");
+		line(1, "}");
+		line(0, "");
+		writeParse();
+		writeReject();
+		writeGetImmutableParser();
+		line(0, "}");
+		return out.toString();
+	}
+
+	/**
+	 * Writes the switch specifications and cardinalities.
+	 */
+	private void writeConstants()
+	{
+		StringBuilder specifications = new StringBuilder();
+		StringBuilder maxValues = new StringBuilder();
+		for (BoundField field : switchFields)
+		{
+			if (specifications.length() > 0)
+			{
+				specifications.append(", ");
+				maxValues.append(", ");
+			}
+			specifications.append(literal(field.getSpecification().getSpecification()));
+			maxValues.append(field.getSpecification().getMaxValues());
+		}
+
+		line(1, "/** Specifications of the possible switches. */");
+		line(1, "private static final String[] POSSIBLE_SWITCHES = { " + specifications + " };");
+		line(0, "");
+		line(1, "/** Specification of the implicit switch, or null if there is none. */");
+		line(1, "private static final String IMPLICIT_SWITCH = "
+				+ (implicitField == null ? "null" : literal(implicitField.getSpecification()
+						.getSpecification())) + ";");
+		line(0, "");
+		line(1, "/** Maximum numbers of values of the possible switches. */");
+		line(1, "private static final int[] MAX_VALUES = { " + maxValues + " };");
+		line(0, "");
+		line(1, "/** Parser over the same switches, reporting violations of parsing rules. */");
+		line(1, "private static volatile ImmutableCommandLineParser immutableParser;");
+		line(0, "");
+	}
+
+	/**
+	 * Writes the parse method.
+	 */
+	private void writeParse()
+	{
+		int switchCount = switchFields.size();
+		SwitchSpecification implicit = implicitField == null ? null : implicitField
+				.getSpecification();
+
+		line(1, "/**");
+		line(1, " * Parses command line arguments into a new options object, accepting and");
+		line(1, " * rejecting the same arguments as ImmutableCommandLineParser.");
+		line(1, " *");
+		line(1, " * @param args");
+		line(1, " *            Command line arguments.");
+		line(1, " * @return The options object.");
+		line(1, " * @throws IllegalArgumentException");
+		line(1, " *             when a violation of parsing rules is encountered.");
+		line(1, " * @throws IllegalStateException");
+		line(1, " *             when the implicit switch receives too many values.");
+		line(1, " */");
+		line(1, "public static " + optionsName + " parse(String[] args)");
+		line(1, "{");
+		line(2, "if (args == null)");
+		line(2, "{");
+		line(3, "throw new IllegalArgumentException(\"This arguments array must not be null.\");");
+		line(2, "}");
+		line(0, "");
+		if (switchCount > 0)
+		{
+			line(2, "// Index of the first value and number of values of each possible");
+			line(2, "// switch, by switch number; -1 values for absent switches");
+			line(2, "int[] starts = new int[" + switchCount + "];");
+			line(2, "int[] counts = new int[" + switchCount + "];");
+			line(2, "Arrays.fill(counts, -1);");
+			line(2, "int current = -1;");
+		}
+		line(2, "int[] switchless = new int[args.length];");
+		line(2, "int switchlessCount = 0;");
+		line(0, "");
+		line(2, "for (int i = 0; i < args.length; i++)");
+		line(2, "{");
+		line(3, "String argument = args[i];");
+		line(3, "if (argument.startsWith(\"-\"))");
+		line(3, "{");
+		if (switchCount > 0)
+		{
+			line(4, "switch (argument)");
+			line(4, "{");
+			for (int k = 0; k < switchCount; k++)
+			{
+				line(5, "case " + literal(switchFields.get(k).getSpecification().getName())
+						+ ":");
+				line(6, "current = " + k + ";");
+				line(6, "break;");
+			}
+			line(5, "default:");
+			line(6, "return reject(args);");
+			line(4, "}");
+			line(4, "starts[current] = i + 1;");
+			line(4, "counts[current] = 0;");
+			line(3, "}");
+			line(3, "else if (current != -1 && counts[current] < MAX_VALUES[current])");
+			line(3, "{");
+			line(4, "counts[current]++;");
+		}
+		else
+		{
+			line(4, "return reject(args);");
+		}
+		line(3, "}");
+		line(3, "else");
+		line(3, "{");
+		if (implicit != null && implicit.getMaxValues() != Integer.MAX_VALUE)
+		{
+			line(4, "if (switchlessCount == " + implicit.getMaxValues() + ")");
+			line(4, "{");
+			line(5, "return reject(args);");
+			line(4, "}");
+		}
+		line(4, "switchless[switchlessCount++] = i;");
+		line(3, "}");
+		line(2, "}");
+		line(0, "");
+
+		List<String> tooFew = new ArrayList<String>();
+		for (int k = 0; k < switchCount; k++)
+		{
+			int minValues = switchFields.get(k).getSpecification().getMinValues();
+			if (minValues == 1)
+			{
+				tooFew.add("counts[" + k + "] == 0");
+			}
+			else if (minValues > 1)
+			{
+				tooFew.add("counts[" + k + "] != -1 && counts[" + k + "] < " + minValues);
+			}
+		}
+		if (implicit != null && implicit.getMinValues() > 1)
+		{
+			tooFew.add("switchlessCount > 0 && switchlessCount < " + implicit.getMinValues());
+		}
+		if (!tooFew.isEmpty())
+		{
+			line(2, "// Switches with too few values");
+			for (int i = 0; i < tooFew.size(); i++)
+			{
+				line(2, (i == 0 ? "if (" : "\t\t|| ") + tooFew.get(i)
+						+ (i == tooFew.size() - 1 ? ")" : ""));
+			}
+			line(2, "{");
+			line(3, "return reject(args);");
+			line(2, "}");
+			line(0, "");
+		}
+
+		line(2, optionsName + " options = new " + optionsName + "();");
+		if (implicitField != null || hasSwitchlessFields)
+		{
+			line(2, "String[] switchlessArguments = new String[switchlessCount];");
+			line(2, "for (int i = 0; i < switchlessCount; i++)");
+			line(2, "{");
+			line(3, "switchlessArguments[i] = args[switchless[i]];");
+			line(2, "}");
+		}
+		line(2, "try");
+		line(2, "{");
+		for (BoundField field : fields)
+		{
+			if (field.isSwitchless())
+			{
+				writeField(field, "switchlessArguments", "0", "switchlessCount", "true");
+			}
+			else if (field.isImplicit())
+			{
+				writeField(field, "switchlessArguments", "0", "switchlessCount",
+						"switchlessCount > 0");
+			}
+			else
+			{
+				int k = switchFields.indexOf(field);
+				writeField(field, "args", "starts[" + k + "]", "counts[" + k + "]", "counts["
+						+ k + "] != -1");
+			}
+		}
+		line(2, "}");
+		line(2, "catch (IllegalArgumentException e)");
+		line(2, "{");
+		line(3, "// A value can not be converted to the type of its field");
+		line(3, "return reject(args);");
+		line(2, "}");
+		line(2, "return options;");
+		line(1, "}");
+		line(0, "");
+	}
+
+	/**
+	 * Writes assignment of a field from a range of values.
+	 *
+	 * @param field
+	 *            The field.
+	 * @param array
+	 *            Expression of the array holding the values.
+	 * @param start
+	 *            Expression of the index of the first value.
+	 * @param count
+	 *            Expression of the number of values.
+	 * @param present
+	 *            Condition under which the field is assigned.
+	 */
+	private void writeField(BoundField field, String array, String start, String count,
+			String present)
+	{
+		FieldKind kind = field.getKind();
+		String target = "options." + field.getFieldName();
+		String name = field.isSwitchless() ? null : literal(field.getSpecification()
+				.getName());
+		String end = start.equals("0") ? count : start + " + " + count;
+
+		// Fields of absent switches keep their value; the switchless arguments
+		// are always assigned
+		boolean always = present.equals("true");
+		int indent = always ? 3 : 4;
+		if (!always)
+		{
+			line(3, "if (" + (kind.getElementKind() == null && kind != FieldKind.FLAG
+					&& kind != FieldKind.STRING_LIST ? count + " > 0" : present) + ")");
+			line(3, "{");
+		}
+
+		if (kind == FieldKind.FLAG)
+		{
+			line(indent, target + " = true;");
+		}
+		else if (kind == FieldKind.STRING_LIST)
+		{
+			line(indent, target + " = java.util.Collections.unmodifiableList(Arrays.asList(Arrays");
+			line(indent + 2, ".copyOfRange(" + array + ", " + start + ", " + end + ")));");
+		}
+		else if (kind == FieldKind.STRING_ARRAY)
+		{
+			line(indent, target + " = Arrays.copyOfRange(" + array + ", " + start + ", " + end
+					+ ");");
+		}
+		else if (kind.getElementKind() != null)
+		{
+			String type = kind.getElementType();
+			line(indent, type + "[] values = new " + type + "[" + count + "];");
+			line(indent, "for (int j = 0; j < values.length; j++)");
+			line(indent, "{");
+			line(indent + 1, "values[j] = "
+					+ kind.convert(name, array + "[" + (start.equals("0") ? "" : start + " + ")
+							+ "j]") + ";");
+			line(indent, "}");
+			line(indent, target + " = values;");
+		}
+		else
+		{
+			line(indent, target + " = " + kind.convert(name, array + "[" + start + "]") + ";");
+		}
+		if (!always)
+		{
+			line(3, "}");
+		}
+	}
+
+	/**
+	 * Writes the method handing rejected arguments to the
+	 * ImmutableCommandLineParser.
+	 */
+	private void writeReject()
+	{
+		line(1, "/**");
+		line(1, " * Throws the violation of parsing rules found in arguments by");
+		line(1, " * ImmutableCommandLineParser.");
+		line(1, " *");
+		line(1, " * @param args");
+		line(1, " *            Command line arguments.");
+		line(1, " * @return Never returns.");
+		line(1, " */");
+		line(1, "private static " + optionsName + " reject(String[] args)");
+		line(1, "{");
+		line(2, "getImmutableParser().parse(args);");
+		line(2, "throw new IllegalStateException(\"Arguments rejected by generated parser "
+				+ parserName + " are accepted by ImmutableCommandLineParser: \"");
+		line(4, "+ Arrays.toString(args));");
+		line(1, "}");
+		line(0, "");
+	}
+
+	/**
+	 * Writes the accessor of the ImmutableCommandLineParser over the same
+	 * switches.
+	 */
+	private void writeGetImmutableParser()
+	{
+		line(1, "/**");
+		line(1, " * Returns an ImmutableCommandLineParser over the switches of the options");
+		line(1, " * class, created on first use.");
+		line(1, " *");
+		line(1, " * @return The parser.");
+		line(1, " */");
+		line(1, "public static ImmutableCommandLineParser getImmutableParser()");
+		line(1, "{");
+		line(2, "ImmutableCommandLineParser parser = immutableParser;");
+		line(2, "if (parser == null)");
+		line(2, "{");
+		line(3, "List<SwitchSpecification> specifications = new ArrayList<SwitchSpecification>();");
+		line(3, "for (String specification : POSSIBLE_SWITCHES)");
+		line(3, "{");
+		line(4, "specifications.add(SwitchSpecification.parse(specification));");
+		line(3, "}");
+		line(3, "parser = new ImmutableCommandLineParser(new SwitchSchema(specifications,");
+		line(5, "IMPLICIT_SWITCH == null ? null : SwitchSpecification.parse(IMPLICIT_SWITCH)),");
+		line(5, "\"(--|-)\");");
+		line(3, "immutableParser = parser;");
+		line(2, "}");
+		line(2, "return parser;");
+		line(1, "}");
+	}
+
+	/**
+	 * Appends a line of source.
+	 *
+	 * @param indent
+	 *            Number of tabs to indent the line with.
+	 * @param text
+	 *            The line, without indentation.
+	 */
+	private void line(int indent, String text)
+	{
+		if (text.length() > 0)
+		{
+			for (int i = 0; i < indent; i++)
+			{
+				out.append('\t');
+			}
+			out.append(text);
+		}
+		out.append('\n');
+	}
+
+	/**
+	 * Returns Java string literal of a string.
+	 *
+	 * @param value
+	 *            The string.
+	 * @return The literal, in double quotes.
+	 */
+	static String literal(String value)
+	{
+		StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+			{
+				builder.append('\\').append(c);
+			}
+			else if (c < ' ' || c > '~')
+			{
+				builder.append(String.format("\\u%04x", (int) c));
+			}
+			else
+			{
+				builder.append(c);
+			}
+		}
+		return builder.append('"').toString();
+	}
+}
@@ -0,0 +1,399 @@
+package com.taitl.commandline.processor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.taitl.commandline.InvalidCommandLineException;
+import com.taitl.commandline.OptionsBinder;
+import com.taitl.commandline.ParseErrorCode;
+
+/**
+ * Tests for OptionsParserProcessor class. Options classes are compiled with
+ * the processor, and their generated parsers are checked against
+ * OptionsBinder.
+ */
+public class OptionsParserProcessorTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	static final String SERVER_OPTIONS = "package test;\n"
+			+ "import java.time.Duration;\n"
+			+ "import java.util.List;\n"
+			+ "import com.taitl.commandline.*;\n"
+			+ "@GenerateParser\n"
+			+ "public class ServerOptions\n"
+			+ "{\n"
+			+ "	@Option(name = \"--verbose\") public boolean verbose;\n"
+			+ "	@Option(name = \"--name\") public String name = \"default\";\n"
+			+ "	@Option(name = \"--threads\") public int threads = 4;\n"
+			+ "	@Option(name = \"--limit\", values = \"0-1\") public Long limit;\n"
+			+ "	@Option(name = \"--ratio\") public double ratio;\n"
+			+ "	@Option(name = \"--timeout\") public Duration timeout;\n"
+			+ "	@Option(name = \"--ports\", values = \"2-3\") public int[] ports;\n"
+			+ "	@Option(name = \"--delays\") public Duration[] delays;\n"
+			+ "	@Option(name = \"--tags\") public String[] tags;\n"
+			+ "	@Option(name = \"--include\") public List<String> includes;\n"
+			+ "	@Option(name = \"--file\", values = \"0-2\", implicit = true) public List<String> files;\n"
+			+ "	@SwitchlessArguments public String[] switchless;\n"
+			+ "	public String unrelated = \"unrelated\";\n"
+			+ "}\n";
+
+	static final String PAIR_OPTIONS = "package test;\n"
+			+ "import java.util.List;\n"
+			+ "import com.taitl.commandline.*;\n"
+			+ "@GenerateParser\n"
+			+ "public class PairOptions\n"
+			+ "{\n"
+			+ "	@Option(name = \"--include\") public String include;\n"
+			+ "	@Option(name = \"--file\", values = \"2-3\", implicit = true) public List<String> files;\n"
+			+ "}\n";
+
+	static final String NESTED_OPTIONS = "package test;\n"
+			+ "import com.taitl.commandline.*;\n"
+			+ "public class Tool\n"
+			+ "{\n"
+			+ "	@GenerateParser\n"
+			+ "	public static class Options\n"
+			+ "	{\n"
+			+ "		@Option(name = \"-r\") public boolean recursive;\n"
+			+ "		@SwitchlessArguments public String[] paths;\n"
+			+ "	}\n"
+			+ "}\n";
+
+	/** Directory of sources and classes of the compiled options classes. */
+	File directory;
+
+	/** Loader of the compiled options classes and their parsers. */
+	URLClassLoader loader;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = File.createTempFile("processor", "");
+		directory.delete();
+		directory.mkdir();
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception
+	{
+		if (loader != null)
+		{
+			loader.close();
+		}
+		delete(directory);
+	}
+
+	@Test
+	public final void testGeneratedParser() throws Exception
+	{
+		assertTrue(compile("test/ServerOptions.java", SERVER_OPTIONS).isEmpty());
+		Class<?> optionsClass = loader.loadClass("test.ServerOptions");
+		OptionsBinder<?> binder = new OptionsBinder<Object>(cast(optionsClass));
+
+		String[][] argumentVectors = new String[][] {
+				{},
+				{ "--verbose", "a.txt", "--name", "api", "b.txt", "--threads", "16", "--limit",
+						"100", "--ratio", "0.5", "--timeout", "30s", "--ports", "80", "443",
+						"--delays", "1ms", "PT2S", "--tags", "x", "y", "--include" },
+				{ "--limit", "--tags", "--threads", "1", "--threads", "2" } };
+		for (String[] args : argumentVectors)
+		{
+			Object generated = parse(args);
+			Object bound = binder.parse(args);
+			for (Field field : optionsClass.getFields())
+			{
+				assertTrue(field.getName() + " of " + Arrays.toString(args), Arrays
+						.deepEquals(new Object[] { field.get(bound) }, new Object[] { field
+								.get(generated) }));
+			}
+		}
+
+		Object options = parse(argumentVectors[1]);
+		assertEquals(Boolean.TRUE, optionsClass.getField("verbose").get(options));
+		assertEquals(Integer.valueOf(16), optionsClass.getField("threads").get(options));
+		assertEquals(Long.valueOf(100), optionsClass.getField("limit").get(options));
+		assertEquals(Duration.ofSeconds(30), optionsClass.getField("timeout").get(options));
+		assertEquals(Arrays.asList("a.txt", "b.txt"), optionsClass.getField("files").get(
+				options));
+		assertEquals(Collections.emptyList(), optionsClass.getField("includes").get(options));
+		assertTrue(Arrays.equals(new Duration[] { Duration.ofMillis(1), Duration.ofSeconds(2) },
+				(Duration[]) optionsClass.getField("delays").get(options)));
+	}
+
+	@Test
+	public final void testViolations() throws Exception
+	{
+		assertTrue(compile("test/ServerOptions.java", SERVER_OPTIONS).isEmpty());
+
+		assertParseError(ParseErrorCode.UNKNOWN_SWITCH, "--verbose", "--unknown");
+		assertParseError(ParseErrorCode.UNKNOWN_SWITCH, "-5");
+		assertParseError(ParseErrorCode.TOO_FEW_VALUES, "--ports", "80");
+		assertParseError(ParseErrorCode.TOO_FEW_VALUES, "--name");
+		assertParseError(ParseErrorCode.INVALID_VALUE, "--threads", "many");
+		assertParseError(ParseErrorCode.INVALID_VALUE, "--delays", "1ms", "soon");
+		try
+		{
+			parse(new String[] { "a", "b", "c" });
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalStateException ise)
+		{
+			assertTrue(ise.getMessage().contains("implicit"));
+		}
+		try
+		{
+			parse(null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
+	@Test
+	public final void testTooFewImplicitValues() throws Exception
+	{
+		assertTrue(compile("test/PairOptions.java", PAIR_OPTIONS).isEmpty());
+		Method parse = loader.loadClass("test.PairOptionsParser").getMethod("parse",
+				String[].class);
+
+		for (String[] args : new String[][] { { "x" }, { "--include", "a", "b" } })
+		{
+			try
+			{
+				parse.invoke(null, (Object) args);
+				fail(MISSING_EXCEPTION);
+			}
+			catch (InvocationTargetException e)
+			{
+				InvalidCommandLineException icle = (InvalidCommandLineException) e.getCause();
+				assertEquals(ParseErrorCode.TOO_FEW_VALUES, icle.getErrors().get(0).getCode());
+			}
+		}
+		Object options = parse.invoke(null, (Object) new String[] { "x", "y" });
+		assertEquals(Arrays.asList("x", "y"), loader.loadClass("test.PairOptions").getField(
+				"files").get(options));
+	}
+
+	@Test
+	public final void testNestedClass() throws Exception
+	{
+		assertTrue(compile("test/Tool.java", NESTED_OPTIONS).isEmpty());
+		Class<?> parser = loader.loadClass("test.Tool_OptionsParser");
+		Object options = parser.getMethod("parse", String[].class).invoke(null,
+				(Object) new String[] { "from", "-r", "to" });
+
+		Class<?> optionsClass = loader.loadClass("test.Tool$Options");
+		assertEquals(Boolean.TRUE, optionsClass.getField("recursive").get(options));
+		assertTrue(Arrays.equals(new String[] { "from", "to" }, (String[]) optionsClass
+				.getField("paths").get(options)));
+	}
+
+	@Test
+	public final void testInvalidOptionsClasses() throws Exception
+	{
+		assertCompilationError("must be accessible", "package test;\n"
+				+ "import com.taitl.commandline.*;\n"
+				+ "@GenerateParser public class Bad { @Option(name = \"--a\") private String a; }\n");
+		assertCompilationError("already defined", "package test;\n"
+				+ "import com.taitl.commandline.*;\n"
+				+ "@GenerateParser public class Bad { @Option(name = \"--a\") String a;"
+				+ " @Option(name = \"--a\") String b; }\n");
+		assertCompilationError("Malformed switch specification", "package test;\n"
+				+ "import com.taitl.commandline.*;\n"
+				+ "@GenerateParser public class Bad { @Option(name = \"--a\", values = \"x-*\")"
+				+ " String a; }\n");
+		assertCompilationError("can not be bound", "package test;\n"
+				+ "import com.taitl.commandline.*;\n"
+				+ "@GenerateParser public class Bad { @Option(name = \"--a\") Object a; }\n");
+		assertCompilationError("no-argument constructor", "package test;\n"
+				+ "import com.taitl.commandline.*;\n"
+				+ "@GenerateParser public class Bad { Bad(int i) {} @Option(name = \"--a\") String a; }\n");
+	}
+
+	@Test
+	public final void testLiteral()
+	{
+		assertEquals("\"--a\"", ParserWriter.literal("--a"));
+		assertEquals("\"\\\"\\\\\\u00e9\"", ParserWriter.literal("\"\\\u00e9"));
+	}
+
+	/**
+	 * Asserts that the generated parser rejects arguments with an error of
+	 * the expected kind.
+	 *
+	 * @param code
+	 *            The expected kind of error.
+	 * @param args
+	 *            Command line arguments.
+	 */
+	private void assertParseError(ParseErrorCode code, String... args) throws Exception
+	{
+		try
+		{
+			parse(args);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(code, icle.getErrors().get(0).getCode());
+		}
+	}
+
+	/**
+	 * Asserts that compiling a source fails with the expected message.
+	 *
+	 * @param message
+	 *            Part of the expected error message.
+	 * @param source
+	 *            Source of class test.Bad.
+	 */
+	private void assertCompilationError(String message, String source) throws IOException
+	{
+		List<Diagnostic<? extends JavaFileObject>> errors = compile("test/Bad.java", source);
+		assertEquals(1, errors.size());
+		assertTrue(errors.get(0).getMessage(null), errors.get(0).getMessage(null).contains(
+				message));
+	}
+
+	/**
+	 * Parses arguments with the generated parser of test.ServerOptions.
+	 *
+	 * @param args
+	 *            Command line arguments.
+	 * @return The options object.
+	 */
+	private Object parse(String[] args) throws Exception
+	{
+		Method parse = loader.loadClass("test.ServerOptionsParser").getMethod("parse",
+				String[].class);
+		try
+		{
+			return parse.invoke(null, (Object) args);
+		}
+		catch (InvocationTargetException e)
+		{
+			throw (Exception) e.getCause();
+		}
+	}
+
+	/**
+	 * Compiles a source with the processor into the temporary directory.
+	 *
+	 * @param path
+	 *            Path of the source, relative to the directory.
+	 * @param source
+	 *            The source.
+	 * @return The compilation errors.
+	 */
+	private List<Diagnostic<? extends JavaFileObject>> compile(String path, String source)
+			throws IOException
+	{
+		File file = new File(directory, path);
+		file.getParentFile().mkdirs();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset
+				.forName("UTF-8"));
+		try
+		{
+			writer.write(source);
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics,
+				null, Charset.forName("UTF-8"));
+		try
+		{
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager,
+					diagnostics, Arrays.asList("-d", directory.getPath(), "-classpath", System
+							.getProperty("java.class.path")), null, fileManager
+							.getJavaFileObjects(file));
+			task.setProcessors(Collections.singletonList(new OptionsParserProcessor()));
+			task.call();
+		}
+		finally
+		{
+			fileManager.close();
+		}
+
+		loader = new URLClassLoader(new URL[] { directory.toURI().toURL() }, getClass()
+				.getClassLoader());
+
+		List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<Diagnostic<? extends JavaFileObject>>();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+		{
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR)
+			{
+				errors.add(diagnostic);
+			}
+		}
+		return errors;
+	}
+
+	/**
+	 * Casts class to class of objects.
+	 *
+	 * @param type
+	 *            The class.
+	 * @return The same class.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Class<Object> cast(Class<?> type)
+	{
+		return (Class<Object>) type;
+	}
+
+	/**
+	 * Deletes file or directory tree.
+	 *
+	 * @param file
+	 *            The file or directory.
+	 */
+	private static void delete(File file)
+	{
+		File[] children = file.listFiles();
+		if (children != null)
+		{
+			for (File child : children)
+			{
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
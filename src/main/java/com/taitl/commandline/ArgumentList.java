@@ -0,0 +1,115 @@
+package com.taitl.commandline;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Auxiliary class used by ImmutableCommandLineParser to expose switch values
+ * and switchless arguments without copying them.
+ * <p>
+ * ArgumentList is a read-only list view over a part of the parsed argument
+ * array: either a contiguous range of it, as for values of a switch, which
+ * always immediately follow the switch on the command line, or the elements
+ * at the specified indices, as for switchless arguments. Modification methods
+ * throw UnsupportedOperationException.
+ */
+final class ArgumentList extends AbstractList<String> implements RandomAccess
+{
+	/** The parsed arguments. */
+	private final String[] arguments;
+
+	/** Indices of elements in arguments array, or null for a range. */
+	private final int[] indices;
+
+	/** Offset of the first element in arguments array, or in indices array. */
+	private final int offset;
+
+	/** Number of elements. */
+	private final int length;
+
+	/**
+	 * Constructs a view of a contiguous range of arguments.
+	 *
+	 * @param args
+	 *            The parsed arguments.
+	 * @param from
+	 *            Index of the first argument in the range.
+	 * @param count
+	 *            Number of arguments in the range.
+	 */
+	ArgumentList(String[] args, int from, int count)
+	{
+		this(args, null, from, count);
+	}
+
+	/**
+	 * Constructs a view of the arguments at the specified indices. The indices
+	 * array is owned by the new object and must not be modified afterwards.
+	 *
+	 * @param args
+	 *            The parsed arguments.
+	 * @param argumentIndices
+	 *            Indices of arguments, in the order of the view.
+	 * @param count
+	 *            Number of indices used, starting from the first one.
+	 */
+	ArgumentList(String[] args, int[] argumentIndices, int count)
+	{
+		this(args, argumentIndices, 0, count);
+	}
+
+	/**
+	 * Constructs an ArgumentList object.
+	 *
+	 * @param args
+	 *            The parsed arguments.
+	 * @param argumentIndices
+	 *            Indices of arguments, or null for a range.
+	 * @param from
+	 *            Offset of the first element.
+	 * @param count
+	 *            Number of elements.
+	 */
+	private ArgumentList(String[] args, int[] argumentIndices, int from, int count)
+	{
+		arguments = args;
+		indices = argumentIndices;
+		offset = from;
+		length = count;
+	}
+
+	@Override
+	public String get(int index)
+	{
+		if (index < 0 || index >= length)
+		{
+			throw new IndexOutOfBoundsException("Index " + index + " is out of range [0, "
+					+ length + ").");
+		}
+		return indices == null ? arguments[offset + index] : arguments[indices[offset + index]];
+	}
+
+	@Override
+	public int size()
+	{
+		return length;
+	}
+
+	/**
+	 * Returns index of element in the parsed argument array. For a range, the
+	 * index is not checked, and index -1 gives the argument preceding the
+	 * range, which is the switch for switch values.
+	 *
+	 * @param index
+	 *            Index of element.
+	 * @return Index of element in arguments array.
+	 */
+	int getArgumentIndex(int index)
+	{
+		return indices == null ? offset + index : indices[offset + index];
+	}
+}
@@ -0,0 +1,176 @@
+package com.taitl.commandline;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Auxiliary class used to tokenize response files directly from a
+ * memory-mapped buffer.
+ * <p>
+ * ByteCharSequence is a CharSequence view of UTF-8 encoded bytes, which maps
+ * each byte to one char. Double quotes, and most whitespace, are ASCII
+ * characters, which never occur inside the multi-byte encoding of other
+ * characters, and are matched byte by byte. Whitespace also includes
+ * multi-byte characters, e.g. U+3000 or U+2028, so CommandLineTokenizer asks
+ * {@link ByteCharSequence#getWhitespaceLength(int)}, which decodes the
+ * character at a lead byte. Strings created by <code>toString()</code> and
+ * {@link ByteCharSequence#decode(CharSequence)} are properly decoded from
+ * UTF-8.
+ */
+final class ByteCharSequence implements CharSequence
+{
+	/** Character set of the bytes. */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/** The bytes. */
+	private final ByteBuffer bytes;
+
+	/** Offset of the first byte of this sequence in the buffer. */
+	private final int offset;
+
+	/** Number of bytes in this sequence. */
+	private final int length;
+
+	/**
+	 * Constructs a view of the bytes between position and limit of the buffer.
+	 *
+	 * @param buffer
+	 *            The bytes.
+	 */
+	ByteCharSequence(ByteBuffer buffer)
+	{
+		this(buffer, buffer.position(), buffer.remaining());
+	}
+
+	/**
+	 * Constructs a view of a range of the buffer.
+	 *
+	 * @param buffer
+	 *            The bytes.
+	 * @param from
+	 *            Offset of the first byte in the buffer.
+	 * @param count
+	 *            Number of bytes.
+	 */
+	private ByteCharSequence(ByteBuffer buffer, int from, int count)
+	{
+		bytes = buffer;
+		offset = from;
+		length = count;
+	}
+
+	@Override
+	public int length()
+	{
+		return length;
+	}
+
+	@Override
+	public char charAt(int index)
+	{
+		if (index < 0 || index >= length)
+		{
+			throw new IndexOutOfBoundsException("Index " + index + " is out of range [0, "
+					+ length + ").");
+		}
+		return (char) (bytes.get(offset + index) & 0xFF);
+	}
+
+	/**
+	 * Returns number of bytes of the whitespace character starting at the
+	 * specified index, as determined by
+	 * {@link Character#isWhitespace(int)}: an ASCII character, or a
+	 * multi-byte one, decoded from UTF-8.
+	 *
+	 * @param index
+	 *            Index of the byte.
+	 * @return Number of bytes of the whitespace character, or 0 if there is no
+	 *         whitespace character at the index.
+	 */
+	int getWhitespaceLength(int index)
+	{
+		int lead = charAt(index);
+		if (lead < 0x80)
+		{
+			return Character.isWhitespace(lead) ? 1 : 0;
+		}
+
+		// The lead byte gives the number of continuation bytes, each holding
+		// six bits of the code point; other bytes can not start a character
+		int count = lead >= 0xF0 ? 3 : lead >= 0xE0 ? 2 : lead >= 0xC0 ? 1 : 0;
+		if (count == 0 || index + count >= length)
+		{
+			return 0;
+		}
+		int codePoint = lead & (0x3F >> count);
+		for (int i = 1; i <= count; i++)
+		{
+			int next = charAt(index + i);
+			if ((next & 0xC0) != 0x80)
+			{
+				return 0;
+			}
+			codePoint = codePoint << 6 | next & 0x3F;
+		}
+		return Character.isWhitespace(codePoint) ? count + 1 : 0;
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end)
+	{
+		if (start < 0 || end > length || start > end)
+		{
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end
+					+ ") is out of range [0, " + length + ").");
+		}
+		return new ByteCharSequence(bytes, offset + start, end - start);
+	}
+
+	@Override
+	public String toString()
+	{
+		return substring(0, length);
+	}
+
+	/**
+	 * Decodes a range of this sequence into a String, without creating an
+	 * intermediate subsequence.
+	 *
+	 * @param start
+	 *            Index of the first byte.
+	 * @param end
+	 *            Index after the last byte.
+	 * @return The decoded string.
+	 */
+	String substring(int start, int end)
+	{
+		byte[] array = new byte[end - start];
+		for (int i = 0; i < array.length; i++)
+		{
+			array[i] = bytes.get(offset + start + i);
+		}
+		return new String(array, UTF_8);
+	}
+
+	/**
+	 * Decodes chars taken from a ByteCharSequence, one byte per char, from
+	 * UTF-8.
+	 *
+	 * @param chars
+	 *            The chars, each holding one byte.
+	 * @return The decoded string.
+	 */
+	static String decode(CharSequence chars)
+	{
+		byte[] array = new byte[chars.length()];
+		for (int i = 0; i < array.length; i++)
+		{
+			array[i] = (byte) chars.charAt(i);
+		}
+		return new String(array, UTF_8);
+	}
+}
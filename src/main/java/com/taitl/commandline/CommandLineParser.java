@@ -1,12 +1,13 @@
 package com.taitl.commandline;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 /*
  * Copyright 2011 Taitl Design. All rights reserved.
@@ -72,6 +73,14 @@ public class CommandLineParser
 	/** Default switch name prefixes: -- and -. */
 	static final String DEFAULT_SWITCH_PREFIXES = "(--|-)";
 
+	/** Compiled default switch name prefixes. */
+	static final SwitchPrefixMatcher DEFAULT_SWITCH_PREFIX_MATCHER = SwitchPrefixMatcher
+			.compile(DEFAULT_SWITCH_PREFIXES);
+
+	/** Message template for switches absent from the command line. */
+	static final String SWITCH_NOT_PRESENT_MESSAGE = "Switch %s is not present on the command line."
+			+ " Use isSwitchPresent() to check for a switch.";
+
 	/** Default value of usage switch, defaulted to --usage. */
 	private String usageSwitchName = DEFAULT_USAGE_SWITCH;
 
@@ -84,18 +93,52 @@ public class CommandLineParser
 	/** Default value of switch prefixes, defaulted to (--|-). */
 	private String switchPrefixesMask = DEFAULT_SWITCH_PREFIXES;
 
+	/** Switch prefixes mask, compiled once when the mask is set. */
+	private SwitchPrefixMatcher switchPrefixMatcher = DEFAULT_SWITCH_PREFIX_MATCHER;
+
+	/** Are arguments of the form @path expanded from response files? */
+	private boolean responseFileExpansion = false;
+
+	/** Are all violations of parsing rules reported, not only the first? */
+	private boolean allErrorsReported = false;
+
+	/** Is parsing specialized for the possible switches? */
+	private boolean specializedParsing = false;
+
+	/** Are unique abbreviations of possible switches accepted? */
+	private boolean abbreviatedSwitchesAllowed = false;
+
+	/** Are unknown switches reported with suggestions? */
+	private boolean switchSuggestionsReported = false;
+
+	/**
+	 * Maximum number of cached parse results, or 0 if parse results are not
+	 * cached.
+	 * 
+	 * @see CommandLineParser#setParseCacheSize
+	 */
+	private int parseCacheSize = 0;
+
+	/**
+	 * Cache of parse results in front of the immutable parser. Created on
+	 * first use, and discarded along with the immutable parser.
+	 */
+	private ParseResultCache parseCache = null;
+
+	/**
+	 * Listener notified of every parse, or null if parses are not
+	 * instrumented.
+	 * 
+	 * @see CommandLineParser#setParseListener
+	 */
+	private ParseListener parseListener = null;
+
 	/** The original command line. */
 	private String originalCommandLine = null;
 
 	/** The original arguments array, as usually passed in the main() method. */
 	private String[] arguments = null;
 
-	/**
-	 * The command line arguments that do not have a switch corresponding to
-	 * them.
-	 */
-	private String[] switchlessArguments = null;
-
 	/**
 	 * Has this object been properly initialized? This is false unless both
 	 * setPossibleSwitches() and setArguments()/parse() has been called.
@@ -105,6 +148,26 @@ public class CommandLineParser
 	/** The set of possible switches. */
 	private Set<String> possibleSwitches = new LinkedHashSet<String>();
 
+	/** Parsed specifications of possible switches, by switch name. */
+	private Map<String, SwitchSpecification> possibleSwitchSpecifications = new LinkedHashMap<String, SwitchSpecification>();
+
+	/**
+	 * Compiled schema of possible switches and the implicit switch. Compiled
+	 * on first use and discarded whenever the possible switches or the
+	 * implicit switch change.
+	 * 
+	 * @see CommandLineParser#getSchema
+	 */
+	private SwitchSchema schema = null;
+
+	/**
+	 * Immutable parser over the compiled schema, which does the actual
+	 * parsing. Created on first use along with the schema.
+	 * 
+	 * @see CommandLineParser#getImmutableParser
+	 */
+	private ImmutableCommandLineParser immutableParser = null;
+
 	/**
 	 * The default (implicit) switch to which all switchless arguments are
 	 * attributed.
@@ -117,10 +180,7 @@ public class CommandLineParser
 	 * Main structure to hold information about the parsed command line switches
 	 * and their values and switchless arguments.
 	 */
-	private Map<String, List<String>> switchMap = new LinkedHashMap<String, List<String>>();
-
-	/** Command line switches as result of parsing. */
-	private Map<String, Switch> switches = new LinkedHashMap<String, Switch>();
+	private ParseResult parseResult = null;
 
 	/**
 	 * Default constructor.
@@ -160,35 +220,16 @@ public class CommandLineParser
 	{
 		forbid(args == null, "Args argument must not be null.");
 
-		StringBuffer commandLine = new StringBuffer();
-		String arg;
-		StringBuilder stringBuilder;
-
-		for (String arg2 : args)
+		for (String arg : args)
 		{
-			forbid(arg2 == null, "Null value in argument array.");
-
-			arg = arg2.trim();
-
-			// If argument has spaces in it, enclose it in double quotes
-			if (arg.matches(".*\\s.*"))
-			{
-				// arg = "\"" + arg + "\"";
-				stringBuilder = new StringBuilder();
-				stringBuilder.append("\"").append(arg).append("\"");
-				arg = stringBuilder.toString();
-			}
-			if (commandLine.length() > 0 && arg.length() > 0)
-			{
-				commandLine.append(" ");
-			}
-			commandLine.append(arg);
+			forbid(arg == null, "Null value in argument array.");
 		}
 
-		originalCommandLine = commandLine.toString();
+		// The original command line is rebuilt from the arguments only when
+		// requested, see getOriginalCommandLine()
+		originalCommandLine = null;
 		arguments = args;
-		switches.clear();
-		switchlessArguments = null;
+		parseResult = null;
 
 		// Uninitialize the object
 		isInitialized = false;
@@ -224,90 +265,10 @@ public class CommandLineParser
 	public void setCommandLine(String commandLine)
 	{
 		forbidNullString(commandLine, "commandLine");
-		originalCommandLine = commandLine;
-
-		// String[] args = commandLine.split("\\s");
-
-		// Go over command line, splitting it into whitespace-separated
-		// arguments, preserving arguments enclosed with double quotes,
-		// treating them as a single argument, while also removing their
-		// enclosing double quotes.
-		boolean insideDoubleQuotes = false;
-		boolean inWord = false;
-		boolean isWhitespace = false;
-		StringBuffer arg = new StringBuffer();
-		List<String> args = new ArrayList<String>();
-
-		for (int i = 0; i < commandLine.length(); i++)
-		{
-			char c = commandLine.charAt(i);
-			boolean finalizeArgument = false;
-			boolean isClosingDoubleQuote = false;
-
-			if (c == '"')
-			{
-				if (!insideDoubleQuotes)
-				{
-					insideDoubleQuotes = true;
-					continue;
-				}
-				else
-				{
-					insideDoubleQuotes = false;
-					isClosingDoubleQuote = true;
-					finalizeArgument = true;
-				}
-			}
-
-			if (insideDoubleQuotes)
-			{
-				arg.append(c);
-				continue;
-			}
-
-			isWhitespace = Character.isWhitespace(c);
-
-			if (isWhitespace)
-			{
-				if (inWord)
-				{
-					inWord = false;
-					finalizeArgument = true;
-				}
-			}
-			else
-			{
-				if (!inWord && !isClosingDoubleQuote)
-				{
-					inWord = true;
-				}
-			}
-
-			if (inWord)
-			{
-				arg.append(c);
-			}
 
-			if (finalizeArgument)
-			{
-				// Finalize argument
-				args.add(arg.toString());
-				arg.setLength(0);
-			}
-		}
-
-		// Finalize last argument
-		if (arg.length() > 0)
-		{
-			args.add(arg.toString());
-		}
-
-		// Convert to String[]
-		String[] argArray = new String[args.size()];
-		for (int i = 0; i < args.size(); i++)
-		{
-			argArray[i] = args.get(i);
-		}
+		// Split command line into arguments, recording only their offsets,
+		// then materialize the argument strings
+		String[] argArray = new CommandLineTokenizer(commandLine).toArray();
 
 		// Immediately parse
 		setArguments(argArray);
@@ -362,6 +323,13 @@ public class CommandLineParser
 	 * <p>
 	 * (3-*) - from three to any greater number of arguments, and so on.
 	 * <p>
+	 * The number may be followed by a colon and the type of switch values:
+	 * string (the default), int, long, double or duration, e.g. (1:int) or
+	 * (1-*:duration). Values of typed switches are converted when the command
+	 * line is parsed, and are available through <code>getInt()</code>,
+	 * <code>getLong()</code>, <code>getDouble()</code> and
+	 * <code>getDuration()</code>.
+	 * <p>
 	 * Example:
 	 * <p>
 	 * <code>setPossibleSwitches("--version(0) --usage(0)" 
@@ -380,6 +348,8 @@ public class CommandLineParser
 
 		// Forget old switches that were specified earlier
 		possibleSwitches.clear();
+		possibleSwitchSpecifications.clear();
+		invalidateSchema();
 
 		// Parse comma-separated list into hash map
 		for (String switchSpecification : possibleSwitchesList.split(" "))
@@ -436,6 +406,7 @@ public class CommandLineParser
 		 */
 
 		implicitSwitch = implicitSwitchSpecification;
+		invalidateSchema();
 		// addPossibleSwitch(implicitSwitch);
 	}
 
@@ -495,7 +466,7 @@ public class CommandLineParser
 			IllegalStateException
 	{
 		forbidState(
-				originalCommandLine == null || arguments == null,
+				arguments == null,
 				"You must call setArguments() or setCommandLine() method before calling parse() method without arguments.");
 
 		// Here happens the magic!
@@ -521,7 +492,7 @@ public class CommandLineParser
 		forbidEmptyString(switchString, "switchString");
 		forbid(!looksLikeSwitch(switchString),
 				"Switch must start with one of switch prefixes defined by the switchPrefixesMask mask.");
-		boolean returnValue = switches.containsKey(switchString);
+		boolean returnValue = parseResult.isSwitchPresent(switchString);
 		return returnValue;
 	}
 
@@ -556,9 +527,7 @@ public class CommandLineParser
 		requireInitialization();
 		forbidEmptyString(switchString, "switchString");
 		forbid(!isSwitchPresent(switchString),
-				"Switch "
-						+ switchString
-						+ " is not present on the command line. Use isSwitchPresent() to check for a switch.");
+				SWITCH_NOT_PRESENT_MESSAGE, switchString);
 		List<String> valueList = getSwitchValues(switchString);
 		assert valueList != null;
 		if (valueList.size() == 0)
@@ -570,10 +539,9 @@ public class CommandLineParser
 			returnValue = valueList.get(0);
 		}
 		forbid(valueList.size() > 1,
-				"Switch "
-						+ switchString
-						+ " has several values. Use getSwitchValueCount() to check for number of switch values."
-						+ " Use getSwitchValues() to get the list of switch values.");
+				"Switch %s has several values. Use getSwitchValueCount() to check for number of switch values."
+						+ " Use getSwitchValues() to get the list of switch values.",
+				switchString);
 		assert returnValue != null; // Make sure we didn't skip any branches in
 									// logic
 		return returnValue;
@@ -620,11 +588,9 @@ public class CommandLineParser
 		requireInitialization();
 		forbidEmptyString(switchString, "switchString");
 		forbid(!isSwitchPresent(switchString),
-				"Switch "
-						+ switchString
-						+ " is not present on the command line. Use isSwitchPresent() to check for a switch.");
+				SWITCH_NOT_PRESENT_MESSAGE, switchString);
 
-		List<String> valueList = switchMap.get(switchString);
+		List<String> valueList = parseResult.getSwitchValues(switchString);
 		assert valueList != null;
 		returnValue = valueList;
 		assert returnValue != null; // Make sure we didn't skip any branches in
@@ -657,21 +623,164 @@ public class CommandLineParser
 	 */
 	public int getSwitchValueCount(String switchString)
 	{
-		Integer returnValue = null;
-
 		requireInitialization();
 		forbidEmptyString(switchString, "switchString");
 		forbid(!isSwitchPresent(switchString),
-				"Switch "
-						+ switchString
-						+ " is not present on the command line. Use isSwitchPresent() to check for a switch.");
+				SWITCH_NOT_PRESENT_MESSAGE, switchString);
 
-		List<String> valueList = switchMap.get(switchString);
-		assert valueList != null;
-		returnValue = Integer.valueOf(valueList.size());
-		assert returnValue != null; // Make sure we didn't skip any branches in
-									// logic
-		return returnValue.intValue();
+		return parseResult.getSwitchValueCount(switchString);
+	}
+
+	/**
+	 * Returns switch value as an int.
+	 * <p>
+	 * Example:
+	 * <p>
+	 * For possible switch <code>--threads(1:int)</code> and command line
+	 * <code>myprogram --threads 8</code>
+	 * <p>
+	 * <code>getInt("--threads")</code> will return 8. The value is converted
+	 * once, when the command line is parsed. Values of switches declared
+	 * without a type are converted on each call.
+	 * <p>
+	 * If the switch is not present, does not have exactly one value, or its
+	 * value is not an int, the <code>IllegalArgumentException</code> is
+	 * thrown.
+	 * 
+	 * @param switchString
+	 *            The name of command line switch.
+	 * @return The value of command line switch.
+	 */
+	public int getInt(String switchString)
+	{
+		requireSwitch(switchString);
+		return parseResult.getInt(switchString);
+	}
+
+	/**
+	 * Returns the specified value of switch as an int. See
+	 * {@link CommandLineParser#getInt(String)}.
+	 * 
+	 * @param switchString
+	 *            The name of command line switch.
+	 * @param index
+	 *            Index of value.
+	 * @return The value of command line switch.
+	 */
+	public int getInt(String switchString, int index)
+	{
+		requireSwitch(switchString);
+		return parseResult.getInt(switchString, index);
+	}
+
+	/**
+	 * Returns switch value as a long. Values of switches declared with type
+	 * int or long, e.g. <code>--size(1:long)</code>, are converted once, when
+	 * the command line is parsed. See {@link CommandLineParser#getInt(String)}.
+	 * 
+	 * @param switchString
+	 *            The name of command line switch.
+	 * @return The value of command line switch.
+	 */
+	public long getLong(String switchString)
+	{
+		requireSwitch(switchString);
+		return parseResult.getLong(switchString);
+	}
+
+	/**
+	 * Returns the specified value of switch as a long. See
+	 * {@link CommandLineParser#getLong(String)}.
+	 * 
+	 * @param switchString
+	 *            The name of command line switch.
+	 * @param index
+	 *            Index of value.
+	 * @return The value of command line switch.
+	 */
+	public long getLong(String switchString, int index)
+	{
+		requireSwitch(switchString);
+		return parseResult.getLong(switchString, index);
+	}
+
+	/**
+	 * Returns switch value as a double. Values of switches declared with type
+	 * int, long or double, e.g. <code>--ratio(1:double)</code>, are converted
+	 * once, when the command line is parsed. See
+	 * {@link CommandLineParser#getInt(String)}.
+	 * 
+	 * @param switchString
+	 *            The name of command line switch.
+	 * @return The value of command line switch.
+	 */
+	public double getDouble(String switchString)
+	{
+		requireSwitch(switchString);
+		return parseResult.getDouble(switchString);
+	}
+
+	/**
+	 * Returns the specified value of switch as a double. See
+	 * {@link CommandLineParser#getDouble(String)}.
+	 * 
+	 * @param switchString
+	 *            The name of command line switch.
+	 * @param index
+	 *            Index of value.
+	 * @return The value of command line switch.
+	 */
+	public double getDouble(String switchString, int index)
+	{
+		requireSwitch(switchString);
+		return parseResult.getDouble(switchString, index);
+	}
+
+	/**
+	 * Returns switch value as a duration, e.g. 500ms, 30s or PT1M30S. Values of
+	 * switches declared with type duration, e.g.
+	 * <code>--timeout(1:duration)</code>, are converted once, when the command
+	 * line is parsed. See {@link CommandLineParser#getInt(String)}.
+	 * 
+	 * @param switchString
+	 *            The name of command line switch.
+	 * @return The value of command line switch.
+	 */
+	public Duration getDuration(String switchString)
+	{
+		requireSwitch(switchString);
+		return parseResult.getDuration(switchString);
+	}
+
+	/**
+	 * Returns the specified value of switch as a duration. See
+	 * {@link CommandLineParser#getDuration(String)}.
+	 * 
+	 * @param switchString
+	 *            The name of command line switch.
+	 * @param index
+	 *            Index of value.
+	 * @return The value of command line switch.
+	 */
+	public Duration getDuration(String switchString, int index)
+	{
+		requireSwitch(switchString);
+		return parseResult.getDuration(switchString, index);
+	}
+
+	/**
+	 * Makes sure the object is initialized and the switch is present on the
+	 * command line.
+	 * 
+	 * @param switchString
+	 *            The name of command line switch.
+	 */
+	private void requireSwitch(String switchString)
+	{
+		requireInitialization();
+		forbidEmptyString(switchString, "switchString");
+		forbid(!isSwitchPresent(switchString),
+				SWITCH_NOT_PRESENT_MESSAGE, switchString);
 	}
 
 	/**
@@ -682,11 +791,330 @@ public class CommandLineParser
 	 */
 	public String getOriginalCommandLine()
 	{
-		forbidState(originalCommandLine == null,
+		forbidState(arguments == null,
 				"You must call setCommandLine() or setArguments() before calling this method.");
+		if (originalCommandLine == null)
+		{
+			originalCommandLine = buildCommandLine(arguments);
+		}
 		return originalCommandLine;
 	}
 
+	/**
+	 * Joins arguments into a command line, separating them with spaces.
+	 * Leading and trailing whitespace is removed from arguments, and arguments
+	 * having whitespace inside are enclosed in double quotes.
+	 * 
+	 * @param args
+	 *            Command line arguments.
+	 * @return The command line.
+	 */
+	private static String buildCommandLine(String[] args)
+	{
+		StringBuilder commandLine = new StringBuilder();
+
+		for (String arg2 : args)
+		{
+			String arg = arg2.trim();
+
+			if (commandLine.length() > 0 && arg.length() > 0)
+			{
+				commandLine.append(' ');
+			}
+
+			// If argument has spaces in it, enclose it in double quotes
+			if (containsWhitespace(arg))
+			{
+				commandLine.append('"').append(arg).append('"');
+			}
+			else
+			{
+				commandLine.append(arg);
+			}
+		}
+		return commandLine.toString();
+	}
+
+	/**
+	 * Returns true if string contains a whitespace character, that is, one of
+	 * the characters matched by regular expression <code>\s</code>: space,
+	 * tab, line feed, vertical tab, form feed or carriage return.
+	 * 
+	 * @param string
+	 *            The string to check.
+	 * @return True if string contains a whitespace character.
+	 */
+	private static boolean containsWhitespace(String string)
+	{
+		for (int i = 0; i < string.length(); i++)
+		{
+			switch (string.charAt(i))
+			{
+				case ' ':
+				case '\t':
+				case '\n':
+				case '\013':
+				case '\f':
+				case '\r':
+					return true;
+				default:
+					break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Turns expansion of response files on or off. It is off by default.
+	 * <p>
+	 * When it is on, an argument of the form <code>@path</code> is replaced
+	 * with the arguments contained in the file at path, so that tens of
+	 * thousands of arguments can be passed despite the limits of the operating
+	 * system on command line length. The file is a UTF-8 encoded text file,
+	 * split into arguments following the rules of
+	 * <code>setCommandLine()</code>, where line terminators count as
+	 * whitespace. It is memory-mapped and split directly from the mapped
+	 * buffer, without being read into a string first.
+	 * <p>
+	 * Example: with <code>setResponseFileExpansion(true)</code>, command line
+	 * <code>myprogram --multi @files.txt</code> has the contents of
+	 * files.txt as values of the --multi switch.
+	 * <p>
+	 * <code>getArguments()</code> returns the arguments as passed in; the
+	 * expanded arguments are visible through the switch values and the
+	 * switchless arguments. A response file that can not be read causes
+	 * <code>IllegalArgumentException</code> when arguments are set.
+	 * 
+	 * @param expand
+	 *            True to expand response files.
+	 */
+	public void setResponseFileExpansion(boolean expand)
+	{
+		responseFileExpansion = expand;
+		immutableParser = null;
+		parseCache = null;
+	}
+
+	/**
+	 * Returns true if arguments of the form <code>@path</code> are expanded
+	 * from response files.
+	 * 
+	 * @return True if response files are expanded.
+	 */
+	public boolean isResponseFileExpansion()
+	{
+		return responseFileExpansion;
+	}
+
+	/**
+	 * Sets whether all violations of parsing rules found in the arguments are
+	 * reported at once, instead of only the first one. With
+	 * <code>setAllErrorsReported(true)</code>, the whole argument vector is
+	 * validated in one pass, and <code>setArguments()</code> and
+	 * <code>setCommandLine()</code> throw an
+	 * {@link InvalidCommandLineException}, whose message lists every unknown
+	 * switch, every switch with a wrong number of values and every invalid
+	 * typed value, and whose <code>getErrors()</code> returns them as
+	 * structured errors. <code>tryParse()</code> returns all errors, too.
+	 * <p>
+	 * Example: command line <code>--onevalue --unknown --threads x</code>
+	 * fails with three errors instead of one.
+	 * 
+	 * @param allErrors
+	 *            True to report all errors, false to stop at the first one.
+	 */
+	public void setAllErrorsReported(boolean allErrors)
+	{
+		allErrorsReported = allErrors;
+		immutableParser = null;
+		parseCache = null;
+	}
+
+	/**
+	 * Returns true if all violations of parsing rules are reported at once.
+	 * 
+	 * @return True if all errors are reported.
+	 */
+	public boolean isAllErrorsReported()
+	{
+		return allErrorsReported;
+	}
+
+	/**
+	 * Sets whether parsing is specialized for the possible switches, for
+	 * programs which set the possible switches once, e.g. from a list loaded
+	 * at runtime, and then parse many argument vectors against them. When the
+	 * possible switches are fixed, on the first parse after they are set, a
+	 * parser specialized for them is built: switches are numbered, their
+	 * names and numbers of values laid out in arrays, and each argument is
+	 * dispatched to its switch through a hash table built for these names.
+	 * See {@link ImmutableCommandLineParser#withSpecializedParsing(boolean)}.
+	 * <p>
+	 * The parse results and the violations of parsing rules reported are the
+	 * same as without specialization.
+	 * 
+	 * @param specialized
+	 *            True to specialize parsing for the possible switches.
+	 */
+	public void setSpecializedParsing(boolean specialized)
+	{
+		specializedParsing = specialized;
+		immutableParser = null;
+		parseCache = null;
+	}
+
+	/**
+	 * Returns true if parsing is specialized for the possible switches.
+	 * 
+	 * @return True if parsing is specialized.
+	 */
+	public boolean isSpecializedParsing()
+	{
+		return specializedParsing;
+	}
+
+	/**
+	 * Sets whether switches may be abbreviated on the command line. When they
+	 * may, an argument which looks like a switch, but is not among possible
+	 * switches, stands for the only possible switch whose name starts with
+	 * it, and has at least one character after its switch prefix.
+	 * <p>
+	 * Example: with possible switches <code>--verbose(0) --version(0)</code>,
+	 * <code>--verb</code> stands for <code>--verbose</code>, and the switch is
+	 * present under its full name, while <code>--ver</code> is ambiguous, and
+	 * causes an {@link InvalidCommandLineException} whose error lists both
+	 * switches. <code>createSwitch()</code> accepts abbreviations, too.
+	 * <p>
+	 * Abbreviations are resolved by a character trie over the names of
+	 * possible switches, in time proportional to the length of the argument.
+	 * 
+	 * @param allowed
+	 *            True to accept unique abbreviations of possible switches.
+	 */
+	public void setAbbreviatedSwitchesAllowed(boolean allowed)
+	{
+		abbreviatedSwitchesAllowed = allowed;
+		immutableParser = null;
+		parseCache = null;
+	}
+
+	/**
+	 * Returns true if unique abbreviations of possible switches are accepted.
+	 * 
+	 * @return True if abbreviated switches are accepted.
+	 */
+	public boolean isAbbreviatedSwitchesAllowed()
+	{
+		return abbreviatedSwitchesAllowed;
+	}
+
+	/**
+	 * Sets whether unknown switches are reported with suggestions of the
+	 * possible switches closest to them, in the number of characters to
+	 * insert, delete or replace, e.g. --verbose for --verbsoe. The
+	 * suggestions are returned by <code>getCandidates()</code> of the error,
+	 * and its message asks whether one of them was meant:
+	 * <p>
+	 * <code>Unknown switch found: --verbsoe. ... Did you mean --verbose?</code>
+	 * <p>
+	 * Suggestions are found in a BK-tree of the possible switch names, built
+	 * once, without comparing the unknown switch with every possible switch.
+	 * 
+	 * @param reported
+	 *            True to report unknown switches with suggestions.
+	 */
+	public void setSwitchSuggestionsReported(boolean reported)
+	{
+		switchSuggestionsReported = reported;
+		immutableParser = null;
+		parseCache = null;
+	}
+
+	/**
+	 * Returns true if unknown switches are reported with suggestions.
+	 * 
+	 * @return True if suggestions are reported.
+	 */
+	public boolean isSwitchSuggestionsReported()
+	{
+		return switchSuggestionsReported;
+	}
+
+	/**
+	 * Turns on caching of parse results, for programs calling
+	 * <code>setArguments()</code> or <code>setCommandLine()</code> again and
+	 * again with the same arguments. A previously seen argument vector is not
+	 * parsed again; its cached result is reused. When the cache is full, the
+	 * least recently used result is evicted. Arguments violating the parsing
+	 * rules are not cached.
+	 * <p>
+	 * The cache is discarded whenever the possible switches, the implicit
+	 * switch, the switch prefixes, response file expansion or error reporting
+	 * change. Its statistics are available from <code>getParseCache()</code>.
+	 * 
+	 * @param size
+	 *            Maximum number of cached parse results, or 0 to turn caching
+	 *            off.
+	 */
+	public void setParseCacheSize(int size)
+	{
+		forbid(size < 0, "Parse cache size must not be negative.");
+
+		parseCacheSize = size;
+		parseCache = null;
+	}
+
+	/**
+	 * Returns maximum number of cached parse results.
+	 * 
+	 * @return Maximum number of cached parse results, or 0 if parse results
+	 *         are not cached.
+	 */
+	public int getParseCacheSize()
+	{
+		return parseCacheSize;
+	}
+
+	/**
+	 * Returns the cache of parse results, with its hit and miss statistics.
+	 * 
+	 * @return The parse cache, or null if parse results are not cached or
+	 *         nothing has been parsed since the cache was last discarded.
+	 */
+	public ParseResultCache getParseCache()
+	{
+		return parseCache;
+	}
+
+	/**
+	 * Sets listener notified of every parse by <code>setArguments()</code>
+	 * and <code>setCommandLine()</code>: of its elapsed time and number of
+	 * arguments, of each violation of parsing rules by kind, and of the parse
+	 * cache lookup, if parse results are cached. A {@link ParseMetrics}
+	 * object records these as counts and a latency histogram, and exposes
+	 * them through JMX.
+	 * <p>
+	 * Without a listener, which is the default, parsing reads no clock and
+	 * allocates nothing for instrumentation.
+	 * 
+	 * @param listener
+	 *            The listener, or null to turn instrumentation off.
+	 */
+	public void setParseListener(ParseListener listener)
+	{
+		parseListener = listener;
+	}
+
+	/**
+	 * Returns listener notified of every parse.
+	 * 
+	 * @return The listener, or null if parses are not instrumented.
+	 */
+	public ParseListener getParseListener()
+	{
+		return parseListener;
+	}
+
 	/**
 	 * Returns true if usageSwitchName (default --usage) is present on the
 	 * command line.
@@ -788,6 +1216,36 @@ public class CommandLineParser
 		this.versionSwitchName = versionSwitch;
 	}
 
+	/**
+	 * Returns the switch prefixes mask (default (--|-)).
+	 * 
+	 * @return The regular expression matching switch name prefixes.
+	 */
+	public String getSwitchPrefixesMask()
+	{
+		return switchPrefixesMask;
+	}
+
+	/**
+	 * Sets the switch prefixes mask, a regular expression matching the
+	 * prefixes that switch names start with, for example <code>(--|-)</code>
+	 * or <code>(/|-)</code>. The mask is compiled once, here; a plain
+	 * alternation of literal prefixes is matched without regular expressions.
+	 * 
+	 * @param switchPrefixes
+	 *            New switch prefixes mask.
+	 * @throws IllegalArgumentException
+	 *             if the mask is empty or is not a valid regular expression.
+	 */
+	public void setSwitchPrefixesMask(String switchPrefixes)
+			throws IllegalArgumentException
+	{
+		forbidEmptyString(switchPrefixes, "switchPrefixes");
+		switchPrefixMatcher = SwitchPrefixMatcher.compile(switchPrefixes);
+		switchPrefixesMask = switchPrefixes;
+		invalidateSchema();
+	}
+
 	/**
 	 * Checks if CommandLineParser has not been properly initialized, that is,
 	 * the methods <code>setPossibleSwitches()</code> and
@@ -898,6 +1356,33 @@ public class CommandLineParser
 		}
 	}
 
+	/**
+	 * Same as <code>forbid(boolean, String)</code>, except the message is
+	 * built from a format template, as by <code>String.format()</code>, and
+	 * only when the condition holds. Use this overload instead of
+	 * concatenating the message, so that nothing is allocated on the success
+	 * path.
+	 * 
+	 * @param condition
+	 *            The boolean condition to check.
+	 * @param messageFormat
+	 *            Format template of the message, e.g. "Switch %s is unknown.".
+	 * @param argument
+	 *            The argument referenced by the format template.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if passed-in boolean condition is true.
+	 */
+	protected void forbid(boolean condition, String messageFormat,
+			Object argument) throws IllegalArgumentException
+	{
+		if (condition)
+		{
+			throw new IllegalArgumentException(String.format(messageFormat,
+					argument));
+		}
+	}
+
 	/**
 	 * Throws IllegalStateException if the specified boolean condition is false.
 	 * Same as forbid() except an IllegalStateException is thrown rather than
@@ -933,11 +1418,11 @@ public class CommandLineParser
 	public String[] getSwitchlessArguments()
 	{
 		requireInitialization();
-		forbidState(switchlessArguments == null,
-				"Member switchlessArguments must not be null.");
+		forbidState(parseResult == null,
+				"Member parseResult must not be null.");
 		// forbidState(switchlessArguments.length == 0,
 		// "Member switchlessArguments must not be empty.");
-		return switchlessArguments;
+		return parseResult.getSwitchlessArguments();
 	}
 
 	/*
@@ -994,139 +1479,303 @@ public class CommandLineParser
 					"This arguments array must not be null.");
 		}
 
-		// Process array elements one by one, accumulating
-		// the found switches and their values into switch-to-value list map.
-
-		Switch curSwitch = null;
-		Map<String, Switch> switchByName = new LinkedHashMap<String, Switch>();
-		List<String> switchless = new ArrayList<String>();
-
-		// Implicit switch to hold the switchless arguments
-		Switch implicit = null;
-		if (implicitSwitch != null)
+		parseResult = null;
+		ParseListener listener = parseListener;
+		if (listener == null)
 		{
-			implicit = createSwitch(implicitSwitch);
-			implicit.setImplicit(true);
+			parseResult = parse(args, null);
 		}
-
-		// MAIN LOOP: go over arguments one by one, making decisions
-		for (String arg : args)
+		else
 		{
-			String argument = arg;
-			// boolean isLastArgument = (i == args.length - 1);
-			boolean isSwitch = looksLikeSwitch(argument);
-			String switchName = isSwitch ? argument : null;
-			boolean needToFinalizePreviousSwitch = (curSwitch != null)
-					&& isSwitch;
-			boolean needToInilializeNewSwitch = isSwitch;
-
-			// Parsing rule 1: forbid unknown switches. All switches must be
-			// declared in a call to setPossibleSwitches().
-			forbid(isSwitch && !isPossibleSwitch(argument),
-					"Unknown switch found: "
-							+ argument
-							+ ". You must specify this switch in a call to setPossibleSwitches() first.");
-
-			if (needToFinalizePreviousSwitch)
-			{
-				// Finalize previous switch
-				if (curSwitch != null)
-				{
-					curSwitch = null;
-				}
-			}
-			if (needToInilializeNewSwitch)
-			{
-				// Initialize data structures for newly discovered switch
-				curSwitch = createSwitch(argument);
-				switchByName.put(switchName, curSwitch);
-			}
+			parseResult = parseInstrumented(args, listener);
+		}
 
-			if (isSwitch)
-			{
-				// Next will come the switch value, if any
-				continue;
-			}
-			else
+		forbidState(parseResult == null,
+				"Post-condition failure: member 'parseResult' is null");
+
+		// Ensure the object is now properly initialized.
+		// requireInitialization();
+	}
+
+	/**
+	 * Parses arguments with the immutable parser over the compiled schema,
+	 * through the parse cache if parse results are cached.
+	 * 
+	 * @param args
+	 *            Command line arguments.
+	 * @param listener
+	 *            Listener notified of the cache lookup, or null.
+	 * @return The result of parsing.
+	 */
+	private ParseResult parse(String[] args, ParseListener listener)
+	{
+		ImmutableCommandLineParser parser = getImmutableParser();
+		if (parseCacheSize > 0)
+		{
+			ParseResultCache cache = parseCache;
+			if (cache == null || cache.getParser() != parser)
 			{
-				boolean tooManyArguments = false;
-
-				if (curSwitch != null)
-				{
-					tooManyArguments = (curSwitch.getValues().size() >= curSwitch
-							.getMaxValues());
-				}
-
-				if (curSwitch != null && !tooManyArguments)
-				{
-					curSwitch.addValue(argument);
-				}
-				else
-				{
-					// Assign argument to switchless arguments
-					switchless.add(argument);
-
-					// If there is an implicit switch, assign argument to it,
-					// too.
-					if (implicitSwitch != null)
-					{
-						implicit.addValue(argument);
-					}
-				}
+				cache = new ParseResultCache(parser, parseCacheSize);
+				parseCache = cache;
 			}
+			return cache.parse(args, listener);
 		}
-		// END OF MAIN LOOP
+		return parser.parse(args);
+	}
 
-		// Add implicit switch values, if any
-		if (implicitSwitch != null && implicit.getValues().size() > 0)
+	/**
+	 * Parses arguments, timing the parse and notifying listener of its
+	 * outcome.
+	 * 
+	 * @param args
+	 *            Command line arguments.
+	 * @param listener
+	 *            The listener.
+	 * @return The result of parsing.
+	 */
+	private ParseResult parseInstrumented(String[] args, ParseListener listener)
+	{
+		long start = System.nanoTime();
+		try
 		{
-			switchByName.put(getImplicitSwitch(), implicit);
+			ParseResult result = parse(args, listener);
+			listener.parseCompleted(args.length, System.nanoTime() - start, true);
+			return result;
 		}
-
-		// Copy accumulated switch map to CommandLineParser's switch
-		// collection.
-		switches.clear();
-		switchMap.clear();
-
-		try
+		catch (InvalidCommandLineException icle)
 		{
-			for (Entry<String, Switch> entry : switchByName.entrySet())
+			long elapsed = System.nanoTime() - start;
+			for (ParseError error : icle.getErrors())
 			{
-				String switchName = entry.getKey();
-				Switch sw = entry.getValue(); // switchByName.get(switchName);
-				sw.validate();
-				switches.put(switchName, sw);
-				List<String> values = new ArrayList<String>(sw.getValues());
-				// Collections.copy(values, sw.getValues());
-				switchMap.put(switchName, values);
+				listener.parseError(error.getCode());
 			}
+			listener.parseCompleted(args.length, elapsed, false);
+			throw icle;
 		}
 		catch (IllegalStateException ise)
 		{
-			switches.clear();
-			switchMap.clear();
-			throw new IllegalArgumentException(ise.getMessage());
+			// The implicit switch received too many values
+			long elapsed = System.nanoTime() - start;
+			listener.parseError(ParseErrorCode.TOO_MANY_VALUES);
+			listener.parseCompleted(args.length, elapsed, false);
+			throw ise;
 		}
+	}
 
-		// Not to forget the rest of the arguments
-		switchlessArguments = new String[switchless.size()];
-		for (int i = 0; i < switchless.size(); i++)
+	/**
+	 * Returns the compiled schema of possible switches and the implicit
+	 * switch. The schema is compiled once after the possible switches or the
+	 * implicit switch change, and reused by all subsequent parses.
+	 * 
+	 * @return The compiled switch schema.
+	 * @throws IllegalArgumentException
+	 *             if the implicit switch specification is malformed.
+	 */
+	protected SwitchSchema getSchema() throws IllegalArgumentException
+	{
+		SwitchSchema compiledSchema = schema;
+
+		if (compiledSchema == null)
 		{
-			switchlessArguments[i] = switchless.get(i);
+			SwitchSpecification implicitSpecification = implicitSwitch == null ? null
+					: SwitchSpecification.parse(implicitSwitch);
+			compiledSchema = new SwitchSchema(
+					possibleSwitchSpecifications.values(),
+					implicitSpecification);
+			schema = compiledSchema;
 		}
+		return compiledSchema;
+	}
 
-		// Considered all possible switches?
+	/**
+	 * Discards the compiled schema and the immutable parser, to be recompiled
+	 * on next use. Called whenever the possible switches or the implicit switch
+	 * change.
+	 */
+	private void invalidateSchema()
+	{
+		schema = null;
+		immutableParser = null;
+		parseCache = null;
+	}
 
-		forbidState(switches == null,
-				"Post-condition failure: member 'switches' is null");
-		forbidState(switchMap == null,
-				"Post-condition failure: member 'switchMap' is null");
-		forbidState(
-				switchMap.size() != switches.size(),
-				"Post-condition failure: member 'switchMap' has different size from member 'switches'");
+	/**
+	 * Returns an immutable, thread-safe parser with the current configuration
+	 * of this object: its possible switches, implicit switch and switch
+	 * prefixes. The returned parser is not affected by subsequent changes to
+	 * this object's configuration, and can be shared by any number of threads,
+	 * each calling its <code>parse()</code> method.
+	 * 
+	 * @return The immutable parser with the configuration of this object.
+	 * @throws IllegalStateException
+	 *             if setPossibleSwitches() has not been called.
+	 */
+	public ImmutableCommandLineParser getImmutableParser()
+			throws IllegalStateException
+	{
+		forbidState(possibleSwitches.isEmpty(),
+				"You must call setPossibleSwitches() before calling this method.");
 
-		// Ensure the object is now properly initialized.
-		// requireInitialization();
+		ImmutableCommandLineParser parser = immutableParser;
+
+		if (parser == null)
+		{
+			parser = new ImmutableCommandLineParser(getSchema(), switchPrefixMatcher)
+					.withResponseFileExpansion(responseFileExpansion).withAllErrorsReported(
+							allErrorsReported).withSpecializedParsing(specializedParsing)
+					.withAbbreviatedSwitchesAllowed(abbreviatedSwitchesAllowed)
+					.withSwitchSuggestionsReported(switchSuggestionsReported);
+			immutableParser = parser;
+		}
+		return parser;
+	}
+
+	/**
+	 * Parses command line arguments against the possible switches of this
+	 * object, reporting violations of parsing rules as structured errors of
+	 * the result instead of throwing, for programs where invalid input is
+	 * common and exceptions would be on the hot path. The arguments and
+	 * switches of this object, as returned by its getters, are not changed.
+	 * <p>
+	 * Example:
+	 * <p>
+	 * <code>ParseResult result = parser.tryParse(args);<br>
+	 * if (result.hasErrors()) { reply(result.getErrors()); }</code>
+	 * 
+	 * @param args
+	 *            Command line arguments to parse.
+	 * @return The result of parsing, with an error if the arguments violate
+	 *         parsing rules.
+	 * @throws IllegalArgumentException
+	 *             if the arguments array or one of arguments is null.
+	 * @throws IllegalStateException
+	 *             if setPossibleSwitches() has not been called.
+	 * @see ImmutableCommandLineParser#tryParse(String[])
+	 */
+	public ParseResult tryParse(String[] args) throws IllegalArgumentException,
+			IllegalStateException
+	{
+		return getImmutableParser().tryParse(args);
+	}
+
+	/**
+	 * Splits command line string into arguments, following the rules of
+	 * <code>setCommandLine()</code>, and parses them like
+	 * <code>tryParse(String[])</code>, reporting violations of parsing rules as
+	 * structured errors of the result instead of throwing. The arguments and
+	 * switches of this object are not changed.
+	 * 
+	 * @param commandLine
+	 *            Command line to parse.
+	 * @return The result of parsing, with an error if the command line
+	 *         violates parsing rules.
+	 * @throws IllegalArgumentException
+	 *             if the command line is null.
+	 * @throws IllegalStateException
+	 *             if setPossibleSwitches() has not been called.
+	 */
+	public ParseResult tryParseCommandLine(String commandLine)
+			throws IllegalArgumentException, IllegalStateException
+	{
+		return getImmutableParser().tryParse(commandLine);
+	}
+
+	/**
+	 * Parses a batch of argument vectors, e.g. one per message of a job queue,
+	 * against the possible switches of this object. The compiled switches and
+	 * the parsing buffers are reused across the batch. The arguments and
+	 * switches of this object, as returned by its getters, are not changed.
+	 * <p>
+	 * Example:
+	 * <p>
+	 * <code>List&lt;ParseResult&gt; results = parser.parseAll(messages);</code>
+	 * 
+	 * @param argumentVectors
+	 *            Argument vectors to parse.
+	 * @return The results of parsing, in the order of the argument vectors.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered. Parsing
+	 *             stops at the first such argument vector.
+	 * @throws IllegalStateException
+	 *             if setPossibleSwitches() has not been called.
+	 */
+	public List<ParseResult> parseAll(Iterable<String[]> argumentVectors)
+			throws IllegalArgumentException, IllegalStateException
+	{
+		forbid(argumentVectors == null,
+				"Non-null value required in parameter argumentVectors.");
+		return getImmutableParser().parseAll(argumentVectors);
+	}
+
+	/**
+	 * Parses a batch of command line strings, split into arguments as by
+	 * <code>setCommandLine()</code>. See
+	 * {@link CommandLineParser#parseAll(Iterable)}.
+	 * 
+	 * @param commandLines
+	 *            Command lines to parse.
+	 * @return The results of parsing, in the order of the command lines.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered. Parsing
+	 *             stops at the first such command line.
+	 * @throws IllegalStateException
+	 *             if setPossibleSwitches() has not been called.
+	 */
+	public List<ParseResult> parseAllCommandLines(Iterable<String> commandLines)
+			throws IllegalArgumentException, IllegalStateException
+	{
+		forbid(commandLines == null, "Non-null value required in parameter commandLines.");
+		return getImmutableParser().parseAllCommandLines(commandLines);
+	}
+
+	/**
+	 * Parses a batch of argument vectors in parallel, on the common fork/join
+	 * pool or on the specified executor, e.g. one running each task in a
+	 * virtual thread. See
+	 * {@link ImmutableCommandLineParser#parseAllParallel(List, Executor)}, and
+	 * the other parallel methods of the parser returned by
+	 * <code>getImmutableParser()</code> for delivery of results as soon as
+	 * they are available.
+	 * 
+	 * @param argumentVectors
+	 *            Argument vectors to parse.
+	 * @param executor
+	 *            Executor to run the parsing tasks, or null for the common
+	 *            fork/join pool.
+	 * @return The results of parsing, in the order of the argument vectors.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             if setPossibleSwitches() has not been called.
+	 */
+	public List<ParseResult> parseAllParallel(List<String[]> argumentVectors,
+			Executor executor) throws IllegalArgumentException, IllegalStateException
+	{
+		forbid(argumentVectors == null,
+				"Non-null value required in parameter argumentVectors.");
+		return getImmutableParser().parseAllParallel(argumentVectors, executor);
+	}
+
+	/**
+	 * Parses a batch of command line strings in parallel. See
+	 * {@link CommandLineParser#parseAllParallel(List, Executor)}.
+	 * 
+	 * @param commandLines
+	 *            Command lines to parse.
+	 * @param executor
+	 *            Executor to run the parsing tasks, or null for the common
+	 *            fork/join pool.
+	 * @return The results of parsing, in the order of the command lines.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             if setPossibleSwitches() has not been called.
+	 */
+	public List<ParseResult> parseAllCommandLinesParallel(List<String> commandLines,
+			Executor executor) throws IllegalArgumentException, IllegalStateException
+	{
+		forbid(commandLines == null, "Non-null value required in parameter commandLines.");
+		return getImmutableParser().parseAllCommandLinesParallel(commandLines, executor);
 	}
 
 	/**
@@ -1152,7 +1801,11 @@ public class CommandLineParser
 	 */
 	public Map<String, List<String>> getSwitchMap()
 	{
-		return switchMap;
+		if (parseResult == null)
+		{
+			return Collections.emptyMap();
+		}
+		return parseResult.getSwitchMap();
 	}
 
 	/**
@@ -1176,20 +1829,20 @@ public class CommandLineParser
 		forbidEmptyString(switchSpecification, "switchSpecification");
 		switchSpecification = switchSpecification.trim();
 		String switchName = removeCardinality(switchSpecification);
-		forbid(isPossibleSwitch(switchName), "The possible switch "
-				+ switchName + " is already defined for this object.");
+		forbid(isPossibleSwitch(switchName),
+				"The possible switch %s is already defined for this object.",
+				switchName);
 
 		if (!possibleSwitches.contains(switchSpecification))
 		{
-			if (!switchSpecification.endsWith(")"))
-			{
-				throw new IllegalArgumentException(
-						"Incorrect format of switch:"
-								+ " each switch must be followed by numbers in parenthesis specifying the required number"
-								+ " of its values, e.g. \"--version(0), --file(1) --twomore(2-*) --any(*)\"");
-			}
+			// Parse the specification once; malformed ones are rejected here
+			SwitchSpecification specification = SwitchSpecification
+					.parse(switchSpecification);
 
 			possibleSwitches.add(switchSpecification);
+			possibleSwitchSpecifications.put(specification.getName(),
+					specification);
+			invalidateSchema();
 		}
 	}
 
@@ -1226,24 +1879,20 @@ public class CommandLineParser
 		if (bracePresent && !switchSpecification.endsWith(")"))
 		{
 			throw new IllegalArgumentException(
-					"Incorrect format of switch:"
-							+ " each switch must be followed by numbers in parenthesis specifying the required number"
-							+ " of its values, e.g. \"--version(0), --file(1) --twomore(2-*) --any(*)\"");
+					SwitchSpecification.INCORRECT_FORMAT_MESSAGE);
 		}
 
-		for (String possibleSwitch : possibleSwitches)
-		{
-			int brace = possibleSwitch.indexOf("(");
-			assert brace != -1;
-			String name = possibleSwitch.substring(0, brace).trim();
+		SwitchSpecification specification = possibleSwitchSpecifications
+				.get(switchName);
 
-			if (bracePresent && possibleSwitch.equals(switchSpecification)
-					|| !bracePresent && switchName.equals(name))
-			{
-				possibleSwitches.remove(possibleSwitch);
-				found = true;
-				break;
-			}
+		if (specification != null
+				&& (!bracePresent || specification.getSpecification().equals(
+						switchSpecification)))
+		{
+			possibleSwitches.remove(specification.getSpecification());
+			possibleSwitchSpecifications.remove(switchName);
+			invalidateSchema();
+			found = true;
 		}
 
 		if (!found)
@@ -1259,7 +1908,8 @@ public class CommandLineParser
 	/**
 	 * Creates a new Switch object for the specified switchName. Switch name
 	 * must be one of possible switches (see
-	 * {@link CommandLineParser#setPossibleSwitches}() method)
+	 * {@link CommandLineParser#setPossibleSwitches}() method), or, if
+	 * abbreviated switches are allowed, a unique abbreviation of one.
 	 * 
 	 * @param switchName
 	 *            The name of switch, e.g. --file, or its specification, e.g.
@@ -1268,123 +1918,69 @@ public class CommandLineParser
 	 */
 	public Switch createSwitch(String switchName)
 	{
-		boolean switchSpecificationFound = false;
-		String name = null;
-		int minValues = -1;
-		int maxValues = -1;
-
-		Set<String> switchCandidates = new LinkedHashSet<String>(
-				possibleSwitches);
-
-		if (implicitSwitch != null)
+		forbidNullString(switchName, "switchName");
+
+		// Look the switch up by name, then make sure the cardinality matches,
+		// if one was specified
+		String name = removeCardinality(switchName);
+		boolean nameIsSpecification = !name.equals(switchName);
+		SwitchSpecification specification = possibleSwitchSpecifications
+				.get(name);
+
+		// An abbreviation stands for the switch it abbreviates
+		if (specification == null && !nameIsSpecification
+				&& abbreviatedSwitchesAllowed && !possibleSwitches.isEmpty())
 		{
-			switchCandidates.add(implicitSwitch);
+			specification = getImmutableParser().resolveSwitch(name);
+			if (specification != null)
+			{
+				switchName = specification.getName();
+			}
 		}
 
-		for (String switchSpecification : switchCandidates)
+		if (!matchesSpecification(specification, switchName,
+				nameIsSpecification) && implicitSwitch != null)
 		{
-			assert switchSpecification.endsWith(")");
-			if (switchSpecification.startsWith(switchName))
-			{
-				boolean nameIsSpecification = switchName
-						.equals(switchSpecification);
-				int leftBrace = switchSpecification.lastIndexOf("(");
-				int rightBrace = switchSpecification.lastIndexOf(")");
-				forbid(leftBrace == -1,
-						"Malformed switch specification: missing left brace.");
-				forbid(rightBrace == -1,
-						"Malformed switch specification: missing right brace.");
-				forbid(leftBrace > rightBrace,
-						"Malformed switch specification: left brace found after right brace.");
-				forbid(leftBrace == rightBrace - 1,
-						"Malformed switch specification: a number or an interval"
-								+ " must be specified between left and right braces.");
-				name = switchSpecification.substring(0, leftBrace);
-
-				if (name.equals(switchName) || nameIsSpecification)
-				{
-					switchSpecificationFound = true;
-					String valueInterval = switchSpecification.substring(
-							leftBrace + 1, rightBrace);
-					int dash = valueInterval.indexOf("-");
-
-					if (dash == -1)
-					{
-						// Must be a * or a number
-						if (valueInterval.equals("*"))
-						{
-							minValues = 0;
-							maxValues = Integer.MAX_VALUE;
-						}
-						else
-						{
-							// One number is specified
-							try
-							{
-								minValues = Integer.parseInt(valueInterval);
-								maxValues = minValues;
-							}
-							catch (NumberFormatException e)
-							{
-								throw new IllegalArgumentException(
-										"Malformed switch specification: a number or interval"
-												+ " must be specified between left and right braces.");
-							}
-						}
-					}
-					else
-					{
-						// Two numbers or a combination number-* is specified
-						String leftValue = valueInterval.substring(0, dash);
-						String rightValue = valueInterval.substring(dash + 1);
-						try
-						{
-							minValues = Integer.parseInt(leftValue);
-						}
-						catch (NumberFormatException e)
-						{
-							throw new IllegalArgumentException(
-									"Malformed switch specification:"
-											+ " a number must be specified to the left of dash.");
-						}
-						// Must be a * or a number
-						if (rightValue.equals("*"))
-						{
-							maxValues = Integer.MAX_VALUE;
-						}
-						else
-						{
-							try
-							{
-								maxValues = Integer.parseInt(rightValue);
-							}
-							catch (NumberFormatException e)
-							{
-								throw new IllegalArgumentException(
-										"Malformed switch specification:"
-												+ " a number or a * must be specified to the right of dash.");
-							}
-						}
-					}
-				}
-
-				if (switchSpecificationFound)
-				{
-					break;
-				}
-			}
+			specification = getSchema().getImplicitSpecification();
 		}
 
-		forbid(!switchSpecificationFound,
-				"Switch "
-						+ switchName
-						+ " is not found among the possible switches or implicit switch. "
-						+ " Check if this switch is specified in a call to setPossibleSwitches() or setImplicitSwitch()");
+		forbid(!matchesSpecification(specification, switchName,
+				nameIsSpecification),
+				"Switch %s is not found among the possible switches or implicit switch. "
+						+ " Check if this switch is specified in a call to setPossibleSwitches() or setImplicitSwitch()",
+				switchName);
 
-		Switch newSwitch = new Switch(name, minValues, maxValues);
+		Switch newSwitch = specification.createSwitch();
 		return newSwitch;
 	}
 
+	/**
+	 * Returns true if switch specification corresponds to switch name or
+	 * specification passed to <code>createSwitch()</code>.
+	 * 
+	 * @param specification
+	 *            The switch specification, may be null.
+	 * @param switchName
+	 *            The name of switch, e.g. --file, or its specification, e.g.
+	 *            --file(1).
+	 * @param nameIsSpecification
+	 *            True if switchName includes cardinality.
+	 * @return True if the specification corresponds to switchName.
+	 */
+	private boolean matchesSpecification(SwitchSpecification specification,
+			String switchName, boolean nameIsSpecification)
+	{
+		if (specification == null)
+		{
+			return false;
+		}
+		if (nameIsSpecification)
+		{
+			return specification.getSpecification().equals(switchName);
+		}
+		return specification.getName().equals(switchName);
+	}
+
 	/**
 	 * Returns true if switch name looks like a switch, that is, starts with one
 	 * of the prefixes specified by the <code>switchPrefixesMask</code>.
@@ -1396,8 +1992,7 @@ public class CommandLineParser
 	 */
 	protected boolean looksLikeSwitch(String switchName)
 	{
-		boolean looksLikeSwitch = switchName.matches("^" + switchPrefixesMask
-				+ ".*");
+		boolean looksLikeSwitch = switchPrefixMatcher.matches(switchName);
 		return looksLikeSwitch;
 	}
 
@@ -1412,20 +2007,9 @@ public class CommandLineParser
 	 */
 	public boolean isPossibleSwitch(String switchName)
 	{
-		boolean result = false;
-
-		for (String possibleSwitch : possibleSwitches)
-		{
-			int leftBrace = possibleSwitch.indexOf("(");
-			forbid(leftBrace == -1, "Misformed possible switch element: "
-					+ possibleSwitch);
-			String name = possibleSwitch.substring(0, leftBrace);
-			if (switchName.equals(name))
-			{
-				result = true;
-				break;
-			}
-		}
+		// Hash lookup by name; switch specifications are parsed once, when
+		// added
+		boolean result = possibleSwitchSpecifications.containsKey(switchName);
 		return result;
 	}
 
@@ -0,0 +1,337 @@
+package com.taitl.commandline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * CommandLineReader reads newline-delimited command lines from a Reader or an
+ * InputStream, e.g. an invocation log, and parses them one at a time with an
+ * {@link ImmutableCommandLineParser}. Each line is split into arguments
+ * following the rules of {@link CommandLineParser#setCommandLine(String)};
+ * a newline always ends a command line, even inside double quotes. Blank
+ * lines are skipped.
+ * <p>
+ * Memory use is bounded by the length of the longest line, which must not
+ * exceed the maximum line length: the input is read through a fixed-size
+ * buffer, and only the current line is held in memory.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * CommandLineReader reader = new CommandLineReader(parser, new FileInputStream(log),
+ * 		Charset.forName(&quot;UTF-8&quot;));
+ * try
+ * {
+ * 	ParseResult result;
+ * 	while ((result = reader.next()) != null)
+ * 	{
+ * 		// ...
+ * 	}
+ * }
+ * finally
+ * {
+ * 	reader.close();
+ * }
+ * </pre>
+ *
+ * A line violating the parsing rules makes <code>next()</code> throw, and
+ * <code>getLineNumber()</code> tells which line it was; reading may continue
+ * with the next line. To read from a FileChannel, wrap it with
+ * <code>Channels.newReader()</code>. Objects of this class are not
+ * thread-safe.
+ */
+public final class CommandLineReader implements Closeable
+{
+	/** Default maximum length of a line, in characters. */
+	public static final int DEFAULT_MAX_LINE_LENGTH = 1024 * 1024;
+
+	/** Size of the read buffer, in characters. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** The parser. */
+	private final ImmutableCommandLineParser parser;
+
+	/** The input. */
+	private final Reader input;
+
+	/** Maximum length of a line, in characters. */
+	private final int maxLineLength;
+
+	/** The read buffer. */
+	private final char[] buffer = new char[BUFFER_SIZE];
+
+	/** Position of the next unread character in the read buffer. */
+	private int position = 0;
+
+	/** Number of characters in the read buffer. */
+	private int limit = 0;
+
+	/** True if the end of input has been reached. */
+	private boolean endOfInput = false;
+
+	/** The current line. */
+	private final StringBuilder line = new StringBuilder();
+
+	/** Number of the current line, starting from 1. */
+	private int lineNumber = 0;
+
+	/** Parsing buffers, reused for all lines. */
+	private final ImmutableCommandLineParser.Scratch scratch = new ImmutableCommandLineParser.Scratch();
+
+	/**
+	 * Constructs a CommandLineReader object with the default maximum line
+	 * length.
+	 *
+	 * @param immutableParser
+	 *            The parser.
+	 * @param reader
+	 *            The input to read command lines from.
+	 */
+	public CommandLineReader(ImmutableCommandLineParser immutableParser, Reader reader)
+	{
+		this(immutableParser, reader, DEFAULT_MAX_LINE_LENGTH);
+	}
+
+	/**
+	 * Constructs a CommandLineReader object with the default maximum line
+	 * length.
+	 *
+	 * @param immutableParser
+	 *            The parser.
+	 * @param inputStream
+	 *            The input to read command lines from.
+	 * @param charset
+	 *            Character set of the input.
+	 */
+	public CommandLineReader(ImmutableCommandLineParser immutableParser,
+			InputStream inputStream, Charset charset)
+	{
+		this(immutableParser, newReader(inputStream, charset), DEFAULT_MAX_LINE_LENGTH);
+	}
+
+	/**
+	 * Constructs a CommandLineReader object.
+	 *
+	 * @param immutableParser
+	 *            The parser.
+	 * @param reader
+	 *            The input to read command lines from.
+	 * @param maxLength
+	 *            Maximum length of a line, in characters.
+	 */
+	public CommandLineReader(ImmutableCommandLineParser immutableParser, Reader reader,
+			int maxLength)
+	{
+		if (immutableParser == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter immutableParser.");
+		}
+		if (reader == null)
+		{
+			throw new IllegalArgumentException("Non-null value required in parameter reader.");
+		}
+		if (maxLength <= 0)
+		{
+			throw new IllegalArgumentException("Maximum line length must be positive.");
+		}
+
+		parser = immutableParser;
+		input = reader;
+		maxLineLength = maxLength;
+	}
+
+	/**
+	 * Creates reader of input stream.
+	 *
+	 * @param inputStream
+	 *            The input stream.
+	 * @param charset
+	 *            Character set of the input stream.
+	 * @return The reader.
+	 */
+	private static Reader newReader(InputStream inputStream, Charset charset)
+	{
+		if (inputStream == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter inputStream.");
+		}
+		if (charset == null)
+		{
+			throw new IllegalArgumentException("Non-null value required in parameter charset.");
+		}
+		return new InputStreamReader(inputStream, charset);
+	}
+
+	/**
+	 * Reads and parses the next non-blank command line.
+	 *
+	 * @return The result of parsing, or null at the end of input.
+	 * @throws IOException
+	 *             if reading fails.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered, or the
+	 *             line is longer than the maximum line length. The line is
+	 *             skipped, and the next call continues with the next line.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values.
+	 */
+	public ParseResult next() throws IOException, IllegalArgumentException,
+			IllegalStateException
+	{
+		while (readLine())
+		{
+			CommandLineTokenizer tokens = new CommandLineTokenizer(line);
+			if (tokens.size() > 0)
+			{
+				return parser.parseTokens(tokens, scratch);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads and parses all remaining command lines, passing the results to the
+	 * handler in the order of lines, together with their line numbers.
+	 * Reading stops at the first line violating the parsing rules.
+	 *
+	 * @param handler
+	 *            Handler of results, receiving line number as the index.
+	 * @return The number of command lines parsed.
+	 * @throws IOException
+	 *             if reading fails.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered, or a line
+	 *             is longer than the maximum line length.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values.
+	 */
+	public int readAll(ParseResultHandler handler) throws IOException,
+			IllegalArgumentException, IllegalStateException
+	{
+		if (handler == null)
+		{
+			throw new IllegalArgumentException("Non-null value required in parameter handler.");
+		}
+
+		int count = 0;
+		ParseResult result;
+		while ((result = next()) != null)
+		{
+			handler.handle(lineNumber, result);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns number of the line last read, starting from 1.
+	 *
+	 * @return The line number, or 0 if no line has been read.
+	 */
+	public int getLineNumber()
+	{
+		return lineNumber;
+	}
+
+	/**
+	 * Closes the input.
+	 *
+	 * @throws IOException
+	 *             if closing fails.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		input.close();
+	}
+
+	/**
+	 * Reads the next line into the line buffer, without the line terminator
+	 * (\n or \r\n).
+	 *
+	 * @return True if a line has been read, false at the end of input.
+	 * @throws IOException
+	 *             if reading fails.
+	 * @throws IllegalArgumentException
+	 *             if the line is longer than the maximum line length.
+	 */
+	private boolean readLine() throws IOException, IllegalArgumentException
+	{
+		line.setLength(0);
+		boolean lineStarted = false;
+		boolean tooLong = false;
+
+		while (true)
+		{
+			if (position == limit)
+			{
+				if (!endOfInput)
+				{
+					limit = input.read(buffer, 0, buffer.length);
+					position = 0;
+				}
+				if (endOfInput || limit == -1)
+				{
+					endOfInput = true;
+					limit = 0;
+					if (!lineStarted)
+					{
+						return false;
+					}
+					break;
+				}
+			}
+
+			lineStarted = true;
+			int end = position;
+			while (end < limit && buffer[end] != '\n')
+			{
+				end++;
+			}
+
+			// Keep consuming an overlong line up to its end, without storing it
+			if (!tooLong && line.length() + (end - position) > maxLineLength + 1)
+			{
+				tooLong = true;
+				line.setLength(0);
+			}
+			if (!tooLong)
+			{
+				line.append(buffer, position, end - position);
+			}
+
+			if (end < limit)
+			{
+				position = end + 1;
+				break;
+			}
+			position = limit;
+		}
+
+		lineNumber++;
+
+		int length = line.length();
+		if (length > 0 && line.charAt(length - 1) == '\r')
+		{
+			line.setLength(length - 1);
+		}
+		if (tooLong || line.length() > maxLineLength)
+		{
+			line.setLength(0);
+			throw new IllegalArgumentException("Line " + lineNumber
+					+ " is longer than the maximum line length of " + maxLineLength
+					+ " characters.");
+		}
+		return true;
+	}
+}
@@ -0,0 +1,313 @@
+package com.taitl.commandline;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * CommandLineTokenizer splits a command line string into arguments, following
+ * the rules described in {@link CommandLineParser#setCommandLine(String)}:
+ * arguments are separated by whitespace, except inside double quotes, and
+ * the enclosing double quotes are removed.
+ * <p>
+ * Tokenizing records only the offsets of each argument in the original
+ * string, in a single int array; argument strings are created on demand by
+ * {@link CommandLineTokenizer#get(int)}. For an argument that is a contiguous
+ * run of characters, which is almost always the case, this is a single
+ * substring() call.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * CommandLineTokenizer tokens = new CommandLineTokenizer(
+ * 		&quot;--file \&quot;my file.txt\&quot; --verbose&quot;);
+ * tokens.size(); // 3
+ * tokens.get(1); // my file.txt
+ * </pre>
+ *
+ * Objects of this class are immutable and can be shared freely between
+ * threads.
+ */
+public final class CommandLineTokenizer
+{
+	/** The command line being tokenized. */
+	private final CharSequence commandLine;
+
+	/**
+	 * Two ints per argument. For a contiguous argument: the start and end
+	 * offsets of its characters. Otherwise (a quote is glued to the middle of
+	 * an argument, as in <code>ab"c d"</code>): the bitwise complement of the
+	 * offset where tokenizing of the argument started, and 1 or 0 depending
+	 * on whether the tokenizer was inside a word at that offset. Such
+	 * arguments are materialized by running the tokenizer again from there.
+	 */
+	private final int[] offsets;
+
+	/** Number of arguments. */
+	private final int count;
+
+	/**
+	 * Tokenizes command line.
+	 *
+	 * @param commandLineString
+	 *            Command line to split into arguments.
+	 */
+	public CommandLineTokenizer(CharSequence commandLineString)
+	{
+		if (commandLineString == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter commandLine.");
+		}
+
+		commandLine = commandLineString;
+
+		// First pass counts arguments, so that the second pass can record
+		// their offsets into an array of exact size.
+		count = scan(commandLine, 0, false, null, null);
+		offsets = new int[count * 2];
+		scan(commandLine, 0, false, offsets, null);
+	}
+
+	/**
+	 * Returns the number of arguments.
+	 *
+	 * @return The number of arguments in the command line.
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns the i-th argument, with enclosing double quotes removed.
+	 *
+	 * @param i
+	 *            Index of argument.
+	 * @return The argument.
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no such argument.
+	 */
+	public String get(int i) throws IndexOutOfBoundsException
+	{
+		if (i < 0 || i >= count)
+		{
+			throw new IndexOutOfBoundsException("Argument index " + i
+					+ " is out of range [0, " + count + ").");
+		}
+
+		int start = offsets[2 * i];
+		int end = offsets[2 * i + 1];
+
+		if (start >= 0)
+		{
+			return commandLine instanceof ByteCharSequence ? ((ByteCharSequence) commandLine)
+					.substring(start, end) : commandLine.subSequence(start, end).toString();
+		}
+
+		StringBuilder argument = new StringBuilder();
+		scan(commandLine, ~start, end != 0, null, argument);
+		return commandLine instanceof ByteCharSequence ? ByteCharSequence.decode(argument)
+				: argument.toString();
+	}
+
+	/**
+	 * Returns all arguments as an array.
+	 *
+	 * @return The array of arguments.
+	 */
+	public String[] toArray()
+	{
+		String[] arguments = new String[count];
+		for (int i = 0; i < count; i++)
+		{
+			arguments[i] = get(i);
+		}
+		return arguments;
+	}
+
+	/**
+	 * Runs the tokenizer over the command line, starting at the specified
+	 * offset outside of double quotes.
+	 * <p>
+	 * Goes over command line, splitting it into whitespace-separated arguments,
+	 * preserving arguments enclosed with double quotes, treating them as a
+	 * single argument, while also removing their enclosing double quotes.
+	 *
+	 * @param commandLine
+	 *            The command line.
+	 * @param from
+	 *            The offset to start at.
+	 * @param inWordAtStart
+	 *            Whether the tokenizer is inside a word at that offset.
+	 * @param offsets
+	 *            Array to record argument offsets into, or null.
+	 * @param argument
+	 *            If not null, characters of the first argument are appended to
+	 *            it, and the method returns when that argument ends.
+	 * @return The number of arguments found.
+	 */
+	private static int scan(CharSequence commandLine, int from,
+			boolean inWordAtStart, int[] offsets, StringBuilder argument)
+	{
+		boolean insideDoubleQuotes = false;
+		boolean inWord = inWordAtStart;
+		int argumentCount = 0;
+		int argumentStart = from;
+		boolean inWordAtArgumentStart = inWordAtStart;
+		int first = -1;
+		int last = -1;
+		boolean contiguous = true;
+		int length = commandLine.length();
+
+		for (int i = from; i < length; i++)
+		{
+			char c = commandLine.charAt(i);
+			boolean finalizeArgument = false;
+			boolean isClosingDoubleQuote = false;
+			boolean append;
+
+			if (c == '"')
+			{
+				if (!insideDoubleQuotes)
+				{
+					insideDoubleQuotes = true;
+					continue;
+				}
+				insideDoubleQuotes = false;
+				isClosingDoubleQuote = true;
+				finalizeArgument = true;
+			}
+
+			if (insideDoubleQuotes)
+			{
+				append = true;
+			}
+			else
+			{
+				int whitespaceLength = getWhitespaceLength(commandLine, i, c);
+				if (whitespaceLength > 0)
+				{
+					if (inWord)
+					{
+						inWord = false;
+						finalizeArgument = true;
+					}
+
+					// Skip the other bytes of a multi-byte whitespace character
+					i += whitespaceLength - 1;
+				}
+				else if (!inWord && !isClosingDoubleQuote)
+				{
+					inWord = true;
+				}
+				append = inWord;
+			}
+
+			if (append)
+			{
+				if (argument != null)
+				{
+					argument.append(c);
+				}
+				if (first == -1)
+				{
+					first = i;
+				}
+				else if (i != last + 1)
+				{
+					contiguous = false;
+				}
+				last = i;
+			}
+
+			if (finalizeArgument)
+			{
+				if (argument != null)
+				{
+					return 1;
+				}
+				record(offsets, argumentCount++, first, last, contiguous,
+						argumentStart, inWordAtArgumentStart);
+				argumentStart = i + 1;
+				inWordAtArgumentStart = inWord;
+				first = -1;
+				contiguous = true;
+			}
+		}
+
+		// Finalize last argument, unless it is empty
+		if (first != -1)
+		{
+			record(offsets, argumentCount++, first, last, contiguous,
+					argumentStart, inWordAtArgumentStart);
+		}
+		return argumentCount;
+	}
+
+	/**
+	 * Returns number of chars of the whitespace character at the specified
+	 * offset: 1 for whitespace in a string, as determined by
+	 * {@link Character#isWhitespace(char)}, and the number of bytes of its
+	 * UTF-8 encoding for whitespace in a {@link ByteCharSequence}.
+	 *
+	 * @param commandLine
+	 *            The command line.
+	 * @param i
+	 *            The offset.
+	 * @param c
+	 *            The char at the offset.
+	 * @return Number of chars of the whitespace character, or 0 if there is
+	 *         no whitespace character at the offset.
+	 */
+	private static int getWhitespaceLength(CharSequence commandLine, int i, char c)
+	{
+		if (commandLine instanceof ByteCharSequence)
+		{
+			return ((ByteCharSequence) commandLine).getWhitespaceLength(i);
+		}
+		return Character.isWhitespace(c) ? 1 : 0;
+	}
+
+	/**
+	 * Records offsets of an argument, see {@link CommandLineTokenizer#offsets}.
+	 *
+	 * @param offsets
+	 *            Array to record argument offsets into, or null.
+	 * @param index
+	 *            Index of argument.
+	 * @param first
+	 *            Offset of the first character of argument, or -1 if empty.
+	 * @param last
+	 *            Offset of the last character of argument.
+	 * @param contiguous
+	 *            True if argument characters are contiguous.
+	 * @param argumentStart
+	 *            Offset where tokenizing of argument started.
+	 * @param inWordAtArgumentStart
+	 *            Whether the tokenizer was inside a word at that offset.
+	 */
+	private static void record(int[] offsets, int index, int first, int last,
+			boolean contiguous, int argumentStart, boolean inWordAtArgumentStart)
+	{
+		if (offsets == null)
+		{
+			return;
+		}
+		if (first == -1)
+		{
+			offsets[2 * index] = 0;
+			offsets[2 * index + 1] = 0;
+		}
+		else if (contiguous)
+		{
+			offsets[2 * index] = first;
+			offsets[2 * index + 1] = last + 1;
+		}
+		else
+		{
+			offsets[2 * index] = ~argumentStart;
+			offsets[2 * index + 1] = inWordAtArgumentStart ? 1 : 0;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.taitl.commandline;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Requests a parser specialized for an options class, whose fields are
+ * annotated with {@link Option} and {@link SwitchlessArguments}, to be
+ * generated at compile time by the annotation processor of the
+ * taitl-command-line-parser-processor module. For options class
+ * <code>ServerOptions</code>, the generated class is
+ * <code>ServerOptionsParser</code>, in the same package; for a nested class
+ * <code>Tool.Options</code>, it is <code>Tool_OptionsParser</code>.
+ * <p>
+ * The generated parser dispatches on switch names with a switch statement,
+ * has the cardinalities of switches compiled in as constants, and writes
+ * fields directly, so it uses neither reflection nor specification parsing.
+ * It accepts and rejects the same arguments as {@link OptionsBinder}. Bound
+ * fields must not be private, and the options class must have a non-private
+ * no-argument constructor.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateParser
+{
+}
@@ -0,0 +1,1185 @@
+package com.taitl.commandline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * ImmutableCommandLineParser parses command lines against a fixed, compiled
+ * switch schema. Unlike {@link CommandLineParser}, it keeps no per-parse
+ * state: every call to <code>parse()</code> returns a new immutable
+ * {@link ParseResult}. A single instance can therefore be shared by any
+ * number of threads without synchronization.
+ * <p>
+ * Usage:
+ * <p>
+ *
+ * <pre>
+ * // Once, e.g. in a static initializer
+ * ImmutableCommandLineParser parser = new ImmutableCommandLineParser(
+ * 		&quot;--version(0) --multi(*)&quot;, &quot;--file(1)&quot;);
+ *
+ * // Per request, from any thread
+ * ParseResult result = parser.parse(arguments);
+ * if (result.isSwitchPresent(&quot;--multi&quot;))
+ * {
+ * 	List&lt;String&gt; switchValues = result.getSwitchValues(&quot;--multi&quot;);
+ * 	// ...
+ * }
+ * </pre>
+ *
+ * An instance with the configuration of a <code>CommandLineParser</code> can
+ * also be obtained with {@link CommandLineParser#getImmutableParser()}.
+ */
+public final class ImmutableCommandLineParser
+{
+	/** Initial capacity of the array of switchless argument indices. */
+	static final int INITIAL_SWITCHLESS_CAPACITY = 10;
+
+	/** Empty array of switchless argument indices, shared by results. */
+	static final int[] NO_INDICES = new int[0];
+
+	/** Compiled schema of possible switches and the implicit switch. */
+	private final SwitchSchema schema;
+
+	/** Compiled switch name prefixes mask, e.g. (--|-). */
+	private final SwitchPrefixMatcher switchPrefixMatcher;
+
+	/** True if arguments of the form @path are expanded from response files. */
+	private final boolean expandResponseFiles;
+
+	/** True if all violations of parsing rules are reported, not the first. */
+	private final boolean reportAllErrors;
+
+	/** True if parsing is specialized for the schema. */
+	private final boolean specializedParsing;
+
+	/** True if unique abbreviations of possible switches are accepted. */
+	private final boolean allowAbbreviations;
+
+	/**
+	 * Trie over the names of possible switches, resolving abbreviations, or
+	 * null if abbreviations are not accepted.
+	 */
+	private final SwitchTrie switchTrie;
+
+	/** True if unknown switches are reported with suggestions. */
+	private final boolean reportSuggestions;
+
+	/**
+	 * Tree of possible switch names, finding the closest ones to an unknown
+	 * switch, or null if suggestions are not reported.
+	 */
+	private final SwitchSuggestionTree suggestionTree;
+
+	/**
+	 * Parser specialized for the schema, or null if parsing is not
+	 * specialized, or the schema does not allow it.
+	 */
+	private final SpecializedParser specializedParser;
+
+	/**
+	 * Constructs an ImmutableCommandLineParser object with the default switch
+	 * prefixes, -- and -.
+	 *
+	 * @param possibleSwitchesList
+	 *            Space-separated list of allowed command line switches, e.g.
+	 *            "--version(0) --multi(1-*)". See
+	 *            {@link CommandLineParser#setPossibleSwitches(String)}.
+	 * @param implicitSwitchSpecification
+	 *            Specification of implicit switch, e.g. "--file(1)", or null if
+	 *            there is no implicit switch.
+	 */
+	public ImmutableCommandLineParser(String possibleSwitchesList,
+			String implicitSwitchSpecification)
+	{
+		this(SwitchSchema.compile(possibleSwitchesList, implicitSwitchSpecification),
+				CommandLineParser.DEFAULT_SWITCH_PREFIX_MATCHER);
+	}
+
+	/**
+	 * Constructs an ImmutableCommandLineParser object.
+	 *
+	 * @param switchSchema
+	 *            Compiled schema of possible switches and implicit switch.
+	 * @param switchPrefixes
+	 *            Regular expression matching switch name prefixes, e.g.
+	 *            (--|-).
+	 */
+	public ImmutableCommandLineParser(SwitchSchema switchSchema, String switchPrefixes)
+	{
+		this(switchSchema, SwitchPrefixMatcher.compile(switchPrefixes));
+	}
+
+	/**
+	 * Constructs an ImmutableCommandLineParser object.
+	 *
+	 * @param switchSchema
+	 *            Compiled schema of possible switches and implicit switch.
+	 * @param switchPrefixes
+	 *            Compiled switch name prefixes mask.
+	 */
+	public ImmutableCommandLineParser(SwitchSchema switchSchema,
+			SwitchPrefixMatcher switchPrefixes)
+	{
+		this(switchSchema, switchPrefixes, false, false, false, false, false);
+	}
+
+	/**
+	 * Constructs an ImmutableCommandLineParser object.
+	 *
+	 * @param switchSchema
+	 *            Compiled schema of possible switches and implicit switch.
+	 * @param switchPrefixes
+	 *            Compiled switch name prefixes mask.
+	 * @param responseFiles
+	 *            True if arguments of the form @path are expanded from
+	 *            response files.
+	 * @param allErrors
+	 *            True if all violations of parsing rules are reported.
+	 * @param specialized
+	 *            True if parsing is specialized for the schema.
+	 * @param abbreviations
+	 *            True if unique abbreviations of possible switches are
+	 *            accepted.
+	 * @param suggestions
+	 *            True if unknown switches are reported with suggestions.
+	 */
+	private ImmutableCommandLineParser(SwitchSchema switchSchema,
+			SwitchPrefixMatcher switchPrefixes, boolean responseFiles, boolean allErrors,
+			boolean specialized, boolean abbreviations, boolean suggestions)
+	{
+		if (switchSchema == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter switchSchema.");
+		}
+		if (switchPrefixes == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter switchPrefixes.");
+		}
+
+		schema = switchSchema;
+		switchPrefixMatcher = switchPrefixes;
+		expandResponseFiles = responseFiles;
+		reportAllErrors = allErrors;
+		specializedParsing = specialized;
+		allowAbbreviations = abbreviations;
+		switchTrie = abbreviations ? new SwitchTrie(switchSchema.getSpecifications(),
+				switchPrefixes) : null;
+		specializedParser = specialized ? SpecializedParser.create(switchSchema,
+				switchPrefixes, switchTrie) : null;
+		reportSuggestions = suggestions;
+		suggestionTree = suggestions ? new SwitchSuggestionTree(switchSchema
+				.getSpecifications(), switchPrefixes) : null;
+	}
+
+	/**
+	 * Returns a parser with the configuration of this one, which expands, or
+	 * does not expand, response files. When expansion is on, an argument of
+	 * the form <code>@path</code> is replaced with the arguments contained in
+	 * the file at path, a UTF-8 encoded text file split into arguments
+	 * following the rules of {@link CommandLineParser#setCommandLine(String)}.
+	 * The file is memory-mapped and split directly from the mapped buffer.
+	 *
+	 * @param responseFiles
+	 *            True if arguments of the form @path are expanded from
+	 *            response files.
+	 * @return The parser, this one if its setting is already as requested.
+	 */
+	public ImmutableCommandLineParser withResponseFileExpansion(boolean responseFiles)
+	{
+		return responseFiles == expandResponseFiles ? this : new ImmutableCommandLineParser(
+				schema, switchPrefixMatcher, responseFiles, reportAllErrors,
+				specializedParsing, allowAbbreviations, reportSuggestions);
+	}
+
+	/**
+	 * Returns true if arguments of the form @path are expanded from response
+	 * files.
+	 *
+	 * @return True if response files are expanded.
+	 */
+	public boolean isResponseFileExpansion()
+	{
+		return expandResponseFiles;
+	}
+
+	/**
+	 * Returns a parser with the configuration of this one, which reports all
+	 * violations of parsing rules found in a command line, or only the first
+	 * one. When all errors are reported, the whole command line is validated
+	 * in one pass, so that a client can fix every error at once:
+	 * <code>tryParse()</code> returns all errors, ordered by position, and
+	 * <code>parse()</code> throws an {@link InvalidCommandLineException}
+	 * carrying all of them, also when the implicit switch receives too many
+	 * values. Values following an unknown switch are taken as its values, and
+	 * ignored.
+	 *
+	 * @param allErrors
+	 *            True to report all errors, false to stop at the first one.
+	 * @return The parser, this one if its setting is already as requested.
+	 */
+	public ImmutableCommandLineParser withAllErrorsReported(boolean allErrors)
+	{
+		return allErrors == reportAllErrors ? this : new ImmutableCommandLineParser(schema,
+				switchPrefixMatcher, expandResponseFiles, allErrors, specializedParsing,
+				allowAbbreviations, reportSuggestions);
+	}
+
+	/**
+	 * Returns true if all violations of parsing rules found in a command line
+	 * are reported, rather than only the first one.
+	 *
+	 * @return True if all errors are reported.
+	 */
+	public boolean isAllErrorsReported()
+	{
+		return reportAllErrors;
+	}
+
+	/**
+	 * Returns a parser with the configuration of this one, whose parsing is,
+	 * or is not, specialized for its switch schema. A specialized parser is
+	 * built once, when the parser is created: switches are numbered, their
+	 * names, cardinalities and the switch prefixes laid out in final arrays,
+	 * and each argument is dispatched to its switch number through an
+	 * open-addressing table, with the values of each switch validated in the
+	 * same pass. This pays off for schemas known only at runtime, which are
+	 * parsed against many times.
+	 * <p>
+	 * The results and the errors are the same as without specialization: a
+	 * command line violating the parsing rules is parsed again by the
+	 * interpreted parser, which reports the errors.
+	 *
+	 * @param specialized
+	 *            True to specialize parsing for the schema.
+	 * @return The parser, this one if its setting is already as requested.
+	 */
+	public ImmutableCommandLineParser withSpecializedParsing(boolean specialized)
+	{
+		return specialized == specializedParsing ? this : new ImmutableCommandLineParser(
+				schema, switchPrefixMatcher, expandResponseFiles, reportAllErrors,
+				specialized, allowAbbreviations, reportSuggestions);
+	}
+
+	/**
+	 * Returns true if parsing is specialized for the switch schema.
+	 *
+	 * @return True if parsing is specialized.
+	 */
+	public boolean isSpecializedParsing()
+	{
+		return specializedParsing;
+	}
+
+	/**
+	 * Returns a parser with the configuration of this one, which accepts, or
+	 * does not accept, abbreviated switches. When abbreviations are accepted,
+	 * an argument which looks like a switch, but is not among possible
+	 * switches, stands for the only possible switch whose name starts with
+	 * it, e.g. --verb for --verbose, and has at least one character after its
+	 * switch prefix. An abbreviation of more than one possible switch, e.g.
+	 * --ver for --verbose and --version, is reported as an ambiguous switch,
+	 * along with the switches it abbreviates.
+	 * <p>
+	 * Abbreviations are resolved by a character trie over the names of
+	 * possible switches, built when the parser is created, in time
+	 * proportional to the length of the abbreviation. The switches of the
+	 * result are named in full.
+	 *
+	 * @param abbreviations
+	 *            True to accept unique abbreviations of possible switches.
+	 * @return The parser, this one if its setting is already as requested.
+	 */
+	public ImmutableCommandLineParser withAbbreviatedSwitchesAllowed(boolean abbreviations)
+	{
+		return abbreviations == allowAbbreviations ? this : new ImmutableCommandLineParser(
+				schema, switchPrefixMatcher, expandResponseFiles, reportAllErrors,
+				specializedParsing, abbreviations, reportSuggestions);
+	}
+
+	/**
+	 * Returns true if unique abbreviations of possible switches are accepted.
+	 *
+	 * @return True if abbreviated switches are accepted.
+	 */
+	public boolean isAbbreviatedSwitchesAllowed()
+	{
+		return allowAbbreviations;
+	}
+
+	/**
+	 * Returns a parser with the configuration of this one, which reports, or
+	 * does not report, unknown switches with suggestions: the possible
+	 * switches closest to the unknown switch, e.g. --verbose for --verbsoe, at
+	 * most three, the closest first. They are returned by
+	 * {@link ParseError#getCandidates()}, and the message of the error asks
+	 * whether one of them was meant.
+	 * <p>
+	 * Suggestions are found in a BK-tree of the names of possible switches,
+	 * built when the parser is created, which a search visits only a small
+	 * part of, rather than comparing the unknown switch with every possible
+	 * switch.
+	 *
+	 * @param suggestions
+	 *            True to report unknown switches with suggestions.
+	 * @return The parser, this one if its setting is already as requested.
+	 */
+	public ImmutableCommandLineParser withSwitchSuggestionsReported(boolean suggestions)
+	{
+		return suggestions == reportSuggestions ? this : new ImmutableCommandLineParser(
+				schema, switchPrefixMatcher, expandResponseFiles, reportAllErrors,
+				specializedParsing, allowAbbreviations, suggestions);
+	}
+
+	/**
+	 * Returns true if unknown switches are reported with suggestions.
+	 *
+	 * @return True if suggestions are reported.
+	 */
+	public boolean isSwitchSuggestionsReported()
+	{
+		return reportSuggestions;
+	}
+
+	/**
+	 * Returns the compiled switch schema of this parser.
+	 *
+	 * @return The compiled switch schema.
+	 */
+	public SwitchSchema getSchema()
+	{
+		return schema;
+	}
+
+	/**
+	 * Returns the switch name prefixes mask of this parser.
+	 *
+	 * @return The switch name prefixes mask, e.g. (--|-).
+	 */
+	public String getSwitchPrefixesMask()
+	{
+		return switchPrefixMatcher.getMask();
+	}
+
+	/**
+	 * Splits command line string into arguments, following the rules of
+	 * {@link CommandLineParser#setCommandLine(String)}, and parses them.
+	 *
+	 * @param commandLine
+	 *            Command line to parse.
+	 * @return The result of parsing.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values.
+	 */
+	public ParseResult parse(String commandLine) throws IllegalArgumentException,
+			IllegalStateException
+	{
+		if (commandLine == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter commandLine.");
+		}
+		return parseArguments(new CommandLineTokenizer(commandLine).toArray(), null, null);
+	}
+
+	/**
+	 * Parses command line arguments into switches, their values, and
+	 * switchless arguments. See {@link CommandLineParser#setArguments} for the
+	 * parsing rules. The passed-in array is copied and may be reused by the
+	 * caller.
+	 *
+	 * @param args
+	 *            Command line arguments to parse.
+	 * @return The result of parsing.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered, for
+	 *             example, when a switch is present on command line which is
+	 *             not among possible switches.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values.
+	 */
+	public ParseResult parse(String[] args) throws IllegalArgumentException,
+			IllegalStateException
+	{
+		return parseArguments(copyArguments(args), null, null);
+	}
+
+	/**
+	 * Parses command line arguments like {@link #parse(String[])}, but
+	 * reports violations of parsing rules as structured errors of the result
+	 * instead of throwing, for callers where invalid input is common, e.g.
+	 * servers parsing command lines sent by users. No exception is thrown or
+	 * stack trace filled for a violation of parsing rules; the only exception
+	 * is a response file that can not be read, whose I/O exception is caught
+	 * and reported as an error.
+	 * <p>
+	 * Parsing stops at the first violation, unless all errors are reported,
+	 * see {@link #withAllErrorsReported(boolean)}. A result with errors carries
+	 * only the errors: no switches, no switchless arguments.
+	 *
+	 * @param args
+	 *            Command line arguments to parse.
+	 * @return The result of parsing, with errors if the arguments violate
+	 *         parsing rules. See {@link ParseResult#hasErrors()}.
+	 * @throws IllegalArgumentException
+	 *             if the arguments array or one of arguments is null, which is
+	 *             a programming error rather than invalid input.
+	 */
+	public ParseResult tryParse(String[] args) throws IllegalArgumentException
+	{
+		return parseArguments(copyArguments(args), null, new ArrayList<ParseError>(
+				reportAllErrors ? 4 : 1));
+	}
+
+	/**
+	 * Splits command line string into arguments, following the rules of
+	 * {@link CommandLineParser#setCommandLine(String)}, and parses them like
+	 * {@link #tryParse(String[])}, reporting violations of parsing rules as
+	 * structured errors of the result instead of throwing.
+	 *
+	 * @param commandLine
+	 *            Command line to parse.
+	 * @return The result of parsing, with errors if the command line violates
+	 *         parsing rules.
+	 * @throws IllegalArgumentException
+	 *             if the command line is null.
+	 */
+	public ParseResult tryParse(String commandLine) throws IllegalArgumentException
+	{
+		if (commandLine == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter commandLine.");
+		}
+		return parseArguments(new CommandLineTokenizer(commandLine).toArray(), null,
+				new ArrayList<ParseError>(reportAllErrors ? 4 : 1));
+	}
+
+	/**
+	 * Parses a batch of argument vectors, e.g. one per message of a job queue.
+	 * Buffers used in parsing are allocated once and reused across the batch.
+	 * Parsing stops at the first argument vector violating the parsing rules.
+	 *
+	 * @param argumentVectors
+	 *            Argument vectors to parse.
+	 * @return The results of parsing, in the order of the argument vectors.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values.
+	 */
+	public List<ParseResult> parseAll(Iterable<String[]> argumentVectors)
+			throws IllegalArgumentException, IllegalStateException
+	{
+		if (argumentVectors == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter argumentVectors.");
+		}
+
+		List<ParseResult> results = newResultList(argumentVectors);
+		Scratch scratch = new Scratch();
+		for (String[] args : argumentVectors)
+		{
+			results.add(parseArguments(copyArguments(args), scratch, null));
+		}
+		return results;
+	}
+
+	/**
+	 * Splits a batch of command line strings into arguments, following the
+	 * rules of {@link CommandLineParser#setCommandLine(String)}, and parses
+	 * them. Buffers used in parsing are allocated once and reused across the
+	 * batch. Parsing stops at the first command line violating the parsing
+	 * rules.
+	 *
+	 * @param commandLines
+	 *            Command lines to parse.
+	 * @return The results of parsing, in the order of the command lines.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values.
+	 */
+	public List<ParseResult> parseAllCommandLines(Iterable<String> commandLines)
+			throws IllegalArgumentException, IllegalStateException
+	{
+		if (commandLines == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter commandLines.");
+		}
+
+		List<ParseResult> results = newResultList(commandLines);
+		Scratch scratch = new Scratch();
+		for (String commandLine : commandLines)
+		{
+			if (commandLine == null)
+			{
+				throw new IllegalArgumentException("Null value in command line collection.");
+			}
+			results.add(parseArguments(new CommandLineTokenizer(commandLine).toArray(),
+					scratch, null));
+		}
+		return results;
+	}
+
+	/**
+	 * Parses a batch of argument vectors in parallel, e.g. to replay a large
+	 * log of invocations. The batch is split into chunks, each parsed by one
+	 * thread with its own buffers. Parsing stops at the first argument vector
+	 * violating the parsing rules.
+	 * <p>
+	 * Chunks run on the common fork/join pool, or on the specified executor.
+	 * For example, on Java 21 or later, pass
+	 * <code>Executors.newVirtualThreadPerTaskExecutor()</code> to parse each
+	 * chunk in a virtual thread.
+	 *
+	 * @param argumentVectors
+	 *            Argument vectors to parse.
+	 * @param executor
+	 *            Executor to run the chunks, or null for the common fork/join
+	 *            pool.
+	 * @return The results of parsing, in the order of the argument vectors.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values, or the
+	 *             calling thread is interrupted while waiting for the results.
+	 */
+	public List<ParseResult> parseAllParallel(List<String[]> argumentVectors,
+			Executor executor) throws IllegalArgumentException, IllegalStateException
+	{
+		if (argumentVectors == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter argumentVectors.");
+		}
+		return new ParallelBatchParser(this, argumentVectors, false, null).parse(executor);
+	}
+
+	/**
+	 * Parses a batch of argument vectors in parallel, passing each result to
+	 * the handler as soon as it is available, in no particular order. See
+	 * {@link ImmutableCommandLineParser#parseAllParallel(List, Executor)}.
+	 * Returns when all argument vectors are parsed.
+	 *
+	 * @param argumentVectors
+	 *            Argument vectors to parse.
+	 * @param executor
+	 *            Executor to run the chunks, or null for the common fork/join
+	 *            pool.
+	 * @param handler
+	 *            Thread-safe handler of results.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values, or the
+	 *             calling thread is interrupted while waiting for the results.
+	 */
+	public void parseAllParallel(List<String[]> argumentVectors, Executor executor,
+			ParseResultHandler handler) throws IllegalArgumentException, IllegalStateException
+	{
+		if (argumentVectors == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter argumentVectors.");
+		}
+		if (handler == null)
+		{
+			throw new IllegalArgumentException("Non-null value required in parameter handler.");
+		}
+		new ParallelBatchParser(this, argumentVectors, false, handler).parse(executor);
+	}
+
+	/**
+	 * Parses a batch of command line strings in parallel. See
+	 * {@link ImmutableCommandLineParser#parseAllParallel(List, Executor)}.
+	 *
+	 * @param commandLines
+	 *            Command lines to parse.
+	 * @param executor
+	 *            Executor to run the chunks, or null for the common fork/join
+	 *            pool.
+	 * @return The results of parsing, in the order of the command lines.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values, or the
+	 *             calling thread is interrupted while waiting for the results.
+	 */
+	public List<ParseResult> parseAllCommandLinesParallel(List<String> commandLines,
+			Executor executor) throws IllegalArgumentException, IllegalStateException
+	{
+		if (commandLines == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter commandLines.");
+		}
+		return new ParallelBatchParser(this, commandLines, true, null).parse(executor);
+	}
+
+	/**
+	 * Parses a batch of command line strings in parallel, passing each result
+	 * to the handler as soon as it is available, in no particular order. See
+	 * {@link ImmutableCommandLineParser#parseAllParallel(List, Executor)}.
+	 * Returns when all command lines are parsed.
+	 *
+	 * @param commandLines
+	 *            Command lines to parse.
+	 * @param executor
+	 *            Executor to run the chunks, or null for the common fork/join
+	 *            pool.
+	 * @param handler
+	 *            Thread-safe handler of results.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values, or the
+	 *             calling thread is interrupted while waiting for the results.
+	 */
+	public void parseAllCommandLinesParallel(List<String> commandLines, Executor executor,
+			ParseResultHandler handler) throws IllegalArgumentException, IllegalStateException
+	{
+		if (commandLines == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter commandLines.");
+		}
+		if (handler == null)
+		{
+			throw new IllegalArgumentException("Non-null value required in parameter handler.");
+		}
+		new ParallelBatchParser(this, commandLines, true, handler).parse(executor);
+	}
+
+	/**
+	 * Parses one element of a batch.
+	 *
+	 * @param element
+	 *            Argument vector or command line.
+	 * @param isCommandLine
+	 *            True if the element is a command line.
+	 * @param scratch
+	 *            Buffers reused across the batch.
+	 * @return The result of parsing.
+	 */
+	ParseResult parseBatchElement(Object element, boolean isCommandLine, Scratch scratch)
+	{
+		if (isCommandLine)
+		{
+			if (element == null)
+			{
+				throw new IllegalArgumentException("Null value in command line collection.");
+			}
+			return parseArguments(new CommandLineTokenizer((String) element).toArray(), scratch,
+					null);
+		}
+		return parseArguments(copyArguments((String[]) element), scratch, null);
+	}
+
+	/**
+	 * Parses a tokenized command line.
+	 *
+	 * @param tokens
+	 *            The tokenized command line.
+	 * @param scratch
+	 *            Buffers reused across a batch, or null for a single parse.
+	 * @return The result of parsing.
+	 */
+	ParseResult parseTokens(CommandLineTokenizer tokens, Scratch scratch)
+	{
+		return parseArguments(tokens.toArray(), scratch, null);
+	}
+
+	/**
+	 * Creates list for the results of parsing a batch, of the size of the
+	 * batch if it is known.
+	 *
+	 * @param batch
+	 *            The batch to parse.
+	 * @return The empty list of results.
+	 */
+	private static List<ParseResult> newResultList(Iterable<?> batch)
+	{
+		return batch instanceof Collection ? new ArrayList<ParseResult>(
+				((Collection<?>) batch).size()) : new ArrayList<ParseResult>();
+	}
+
+	/**
+	 * Copies argument array, making sure it has no null values.
+	 *
+	 * @param args
+	 *            Command line arguments.
+	 * @return The copy of arguments.
+	 */
+	private static String[] copyArguments(String[] args)
+	{
+		if (args == null)
+		{
+			throw new IllegalArgumentException("This arguments array must not be null.");
+		}
+
+		String[] arguments = args.clone();
+		for (String arg : arguments)
+		{
+			if (arg == null)
+			{
+				throw new IllegalArgumentException("Null value in argument array.");
+			}
+		}
+		return arguments;
+	}
+
+	/**
+	 * Implements the algorithm for parsing command line arguments into
+	 * meaningful pairs of switch name - switch value(s).
+	 * <p>
+	 * Values of a switch are the arguments immediately following it, so they
+	 * are exposed as a view of a range of the argument array. Switchless
+	 * arguments, which are also the values of the implicit switch, are exposed
+	 * as a view of the argument array through an array of their indices. No
+	 * argument is copied.
+	 * <p>
+	 * Violations of parsing rules are either thrown, as an
+	 * InvalidCommandLineException, or as an IllegalStateException if the
+	 * implicit switch receives too many values, or, if there is a list of
+	 * errors, added to it without creating an exception, and returned in a
+	 * result without switches. Parsing stops at the first violation, unless
+	 * all errors are reported.
+	 *
+	 * @param args
+	 *            Command line arguments, owned by this method.
+	 * @param scratch
+	 *            Buffers reused across a batch, or null for a single parse.
+	 * @param errors
+	 *            Empty list to collect errors, or null to throw them.
+	 * @return The result of parsing.
+	 */
+	private ParseResult parseArguments(String[] args, Scratch scratch,
+			List<ParseError> errors)
+	{
+		// Report all errors at once in a single exception
+		if (errors == null && reportAllErrors)
+		{
+			List<ParseError> allErrors = new ArrayList<ParseError>(4);
+			ParseResult result = parseArguments(args, scratch, allErrors);
+			if (result.hasErrors())
+			{
+				throw new InvalidCommandLineException(result.getErrors());
+			}
+			return result;
+		}
+
+		String[] arguments = args;
+		if (expandResponseFiles)
+		{
+			arguments = ResponseFiles.expand(args, errors);
+			if (arguments == null)
+			{
+				return new ParseResult(args, errors);
+			}
+		}
+
+		if (specializedParser != null)
+		{
+			ParseResult result = specializedParser.parse(arguments, scratch);
+			if (result != null)
+			{
+				return result;
+			}
+		}
+
+		// Process array elements one by one, accumulating
+		// the found switches and their values into switch-to-value list map.
+
+		SwitchSpecification implicitSpecification = schema.getImplicitSpecification();
+		Map<String, List<String>> switchMap = new LinkedHashMap<String, List<String>>();
+
+		// The switch being parsed: its specification, and the index and number
+		// of its values in the argument array
+		SwitchSpecification curSpecification = null;
+		int curValuesStart = 0;
+		int curValueCount = 0;
+
+		// Indices of switchless arguments, which are also the values of the
+		// implicit switch
+		int[] switchless = scratch != null ? scratch.switchless : new int[Math.min(
+				arguments.length, INITIAL_SWITCHLESS_CAPACITY)];
+		int switchlessCount = 0;
+
+		// When reporting all errors: are the values of an unknown switch being
+		// skipped, and index of the first value in excess of the implicit
+		// switch
+		boolean inUnknownSwitch = false;
+		int excessPosition = -1;
+
+		// MAIN LOOP: go over arguments one by one, making decisions
+		for (int i = 0; i < arguments.length; i++)
+		{
+			String argument = arguments[i];
+
+			if (looksLikeSwitch(argument))
+			{
+				SwitchSpecification specification = schema.getSpecification(argument);
+
+				// Parsing rule 1: forbid unknown switches. All switches must be
+				// declared among possible switches, or, if abbreviations are
+				// accepted, be a unique abbreviation of one.
+				if (specification == null)
+				{
+					ParseError error = null;
+					if (switchTrie != null)
+					{
+						int number = switchTrie.find(argument);
+						if (number >= 0)
+						{
+							specification = schema.getSpecifications().get(number);
+						}
+						else if (number == SwitchTrie.AMBIGUOUS)
+						{
+							error = ParseError.ambiguousSwitch(i, argument, switchTrie
+									.getCompletions(argument));
+						}
+					}
+					if (specification == null)
+					{
+						report(errors, error != null ? error : unknownSwitch(i, argument));
+						if (!reportAllErrors)
+						{
+							return new ParseResult(arguments, errors);
+						}
+					}
+				}
+
+				if (curSpecification != null)
+				{
+					switchMap.put(curSpecification.getName(), new ArgumentList(arguments,
+							curValuesStart, curValueCount));
+				}
+
+				// Next will come the switch value, if any.
+				curSpecification = specification;
+				curValuesStart = i + 1;
+				curValueCount = 0;
+				inUnknownSwitch = specification == null;
+			}
+			else if (inUnknownSwitch)
+			{
+				// Values of an unknown switch are ignored
+				continue;
+			}
+			else if (curSpecification != null
+					&& curValueCount < curSpecification.getMaxValues())
+			{
+				curValueCount++;
+			}
+			else
+			{
+				// If there is an implicit switch, assign argument to it, too.
+				if (implicitSpecification != null)
+				{
+					if (errors == null)
+					{
+						Switch.checkCanAddValue(implicitSpecification.getName(),
+								implicitSpecification.getMaxValues(), switchlessCount, true);
+					}
+					else if (switchlessCount >= implicitSpecification.getMaxValues()
+							&& excessPosition == -1)
+					{
+						if (!reportAllErrors)
+						{
+							errors.add(ParseError.tooManyValues(i, argument,
+									implicitSpecification.getName(),
+									implicitSpecification.getMaxValues(), switchlessCount + 1));
+							return new ParseResult(arguments, errors);
+						}
+						excessPosition = i;
+					}
+				}
+
+				// Assign argument to switchless arguments
+				if (switchlessCount == switchless.length)
+				{
+					switchless = Arrays.copyOf(switchless, switchlessCount * 2);
+					if (scratch != null)
+					{
+						scratch.switchless = switchless;
+					}
+				}
+				switchless[switchlessCount++] = i;
+			}
+		}
+		// END OF MAIN LOOP
+
+		if (excessPosition != -1)
+		{
+			errors.add(ParseError.tooManyValues(excessPosition, arguments[excessPosition],
+					implicitSpecification.getName(), implicitSpecification.getMaxValues(),
+					switchlessCount));
+		}
+
+		if (curSpecification != null)
+		{
+			switchMap.put(curSpecification.getName(), new ArgumentList(arguments,
+					curValuesStart, curValueCount));
+		}
+
+		// In a batch, the scratch buffer is kept for the next parse, and the
+		// result gets a copy of exact size
+		if (scratch != null)
+		{
+			switchless = switchlessCount == 0 ? NO_INDICES : Arrays.copyOf(switchless,
+					switchlessCount);
+		}
+
+		ArgumentList switchlessArguments = new ArgumentList(arguments, switchless,
+				switchlessCount);
+
+		// Add implicit switch values, if any
+		boolean hasImplicitValues = implicitSpecification != null && switchlessCount > 0;
+		if (hasImplicitValues)
+		{
+			switchMap.put(implicitSpecification.getName(), switchlessArguments);
+		}
+
+		// Validate number of values, and convert values of typed switches
+		Map<String, TypedValues> typedValues = null;
+
+		for (Entry<String, List<String>> entry : switchMap.entrySet())
+		{
+			ArgumentList values = (ArgumentList) entry.getValue();
+			boolean isImplicit = hasImplicitValues && values == switchlessArguments;
+			SwitchSpecification specification = isImplicit ? implicitSpecification : schema
+					.getSpecification(entry.getKey());
+
+			// The implicit switch is not an argument; other values follow
+			// their switch
+			int switchPosition = isImplicit ? -1 : values.getArgumentIndex(-1);
+			TypedValues converted = specification.getValueType() == ValueType.STRING ? null
+					: new TypedValues(specification.getValueType(), values.size());
+			if (!isValid(specification, values, converted, switchPosition, errors)
+					&& !reportAllErrors)
+			{
+				return new ParseResult(arguments, errors);
+			}
+
+			if (converted != null && (errors == null || errors.isEmpty()))
+			{
+				if (typedValues == null)
+				{
+					typedValues = new HashMap<String, TypedValues>();
+				}
+				typedValues.put(entry.getKey(), converted);
+			}
+		}
+
+		if (errors != null && !errors.isEmpty())
+		{
+			Collections.sort(errors, ParseError.POSITION_ORDER);
+			return new ParseResult(arguments, errors);
+		}
+
+		return new ParseResult(arguments, Collections.unmodifiableMap(switchMap),
+				switchlessArguments, typedValues == null ? Collections
+						.<String, TypedValues> emptyMap() : typedValues);
+	}
+
+	/**
+	 * Checks the number of values of a switch, and converts values of a typed
+	 * switch, checking their type in the same pass, reporting the first
+	 * violation of parsing rules, or all of them if all errors are reported.
+	 *
+	 * @param specification
+	 *            Specification of switch.
+	 * @param values
+	 *            Values of switch.
+	 * @param converted
+	 *            Typed values to fill, or null for a switch of type string.
+	 * @param switchPosition
+	 *            Index of the switch among arguments, or -1 for the implicit
+	 *            switch.
+	 * @param errors
+	 *            List to add errors to, or null to throw the first one.
+	 * @return True if the values are valid.
+	 */
+	private boolean isValid(SwitchSpecification specification, ArgumentList values,
+			TypedValues converted, int switchPosition, List<ParseError> errors)
+	{
+		String switchName = specification.getName();
+		int count = values.size();
+
+		// Only the implicit switch can have too many values, which is checked
+		// while parsing; it has values whenever it is validated
+		if (count < specification.getMinValues())
+		{
+			report(errors, ParseError.tooFewValues(switchPosition, switchName,
+					specification.getMinValues(), count));
+			return false;
+		}
+
+		boolean valid = true;
+		if (converted != null)
+		{
+			int invalid = converted.convert(values, 0);
+			while (invalid != -1)
+			{
+				report(errors, ParseError.invalidValue(values.getArgumentIndex(invalid), values
+						.get(invalid), switchName, specification.getValueType()));
+				valid = false;
+				invalid = reportAllErrors ? converted.convert(values, invalid + 1) : -1;
+			}
+		}
+		return valid;
+	}
+
+	/**
+	 * Reports violation of parsing rules, either adding it to the list of
+	 * errors, or throwing it in an InvalidCommandLineException.
+	 *
+	 * @param errors
+	 *            List to add error to, or null to throw it.
+	 * @param error
+	 *            The violation of parsing rules.
+	 * @throws InvalidCommandLineException
+	 *             if there is no list of errors.
+	 */
+	private static void report(List<ParseError> errors, ParseError error)
+			throws InvalidCommandLineException
+	{
+		if (errors == null)
+		{
+			throw new InvalidCommandLineException(Collections.singletonList(error));
+		}
+		errors.add(error);
+	}
+
+	/**
+	 * Creates error reporting an unknown switch, with suggestions if they are
+	 * reported.
+	 *
+	 * @param position
+	 *            Index of the switch.
+	 * @param argument
+	 *            The switch.
+	 * @return The error.
+	 */
+	private ParseError unknownSwitch(int position, String argument)
+	{
+		return suggestionTree == null ? ParseError.unknownSwitch(position, argument)
+				: ParseError.unknownSwitch(position, argument, suggestionTree.suggest(argument));
+	}
+
+	/**
+	 * Builds message reporting an unknown switch.
+	 *
+	 * @param switchName
+	 *            The unknown switch.
+	 * @param suggestions
+	 *            Names of the possible switches suggested instead, or an empty
+	 *            list.
+	 * @return The message.
+	 */
+	static String unknownSwitchMessage(String switchName, List<String> suggestions)
+	{
+		StringBuilder message = new StringBuilder("Unknown switch found: ");
+		message.append(switchName).append(
+				". You must specify this switch in a call to setPossibleSwitches() first.");
+		for (int i = 0; i < suggestions.size(); i++)
+		{
+			message.append(i == 0 ? " Did you mean " : i == suggestions.size() - 1 ? " or "
+					: ", ");
+			message.append(suggestions.get(i));
+		}
+		return suggestions.isEmpty() ? message.toString() : message.append('?').toString();
+	}
+
+	/**
+	 * Builds message reporting an abbreviation of more than one possible
+	 * switch.
+	 *
+	 * @param argument
+	 *            The abbreviation.
+	 * @param switchNames
+	 *            Names of the possible switches it abbreviates.
+	 * @return The message.
+	 */
+	static String ambiguousSwitchMessage(String argument, List<String> switchNames)
+	{
+		StringBuilder message = new StringBuilder("Ambiguous switch found: ");
+		message.append(argument).append(". It abbreviates more than one possible switch: ");
+		for (int i = 0; i < switchNames.size(); i++)
+		{
+			message.append(i > 0 ? ", " : "").append(switchNames.get(i));
+		}
+		return message.append('.').toString();
+	}
+
+	/**
+	 * Returns specification of the possible switch an argument names, or
+	 * abbreviates if abbreviations are accepted.
+	 *
+	 * @param argument
+	 *            Name or abbreviation of switch.
+	 * @return The switch specification, or null if the argument names or
+	 *         abbreviates no possible switch.
+	 * @throws IllegalArgumentException
+	 *             if the argument abbreviates more than one possible switch.
+	 */
+	SwitchSpecification resolveSwitch(String argument) throws IllegalArgumentException
+	{
+		SwitchSpecification specification = schema.getSpecification(argument);
+		if (specification != null || switchTrie == null)
+		{
+			return specification;
+		}
+
+		int number = switchTrie.find(argument);
+		if (number == SwitchTrie.AMBIGUOUS)
+		{
+			throw new IllegalArgumentException(ambiguousSwitchMessage(argument, switchTrie
+					.getCompletions(argument)));
+		}
+		return number >= 0 ? schema.getSpecifications().get(number) : null;
+	}
+
+	/**
+	 * Buffers reused across the parses of a batch, or of a chunk of a batch
+	 * parsed by one thread.
+	 */
+	static final class Scratch
+	{
+		/** Indices of switchless arguments. */
+		int[] switchless = new int[INITIAL_SWITCHLESS_CAPACITY];
+	}
+
+	/**
+	 * Returns true if switch name looks like a switch, that is, starts with one
+	 * of the prefixes specified by the <code>switchPrefixesMask</code>.
+	 *
+	 * @param switchName
+	 *            Name of switch.
+	 * @return True if switch name starts with one of the prefixes specified by
+	 *         the <code>switchPrefixesMask</code>.
+	 */
+	boolean looksLikeSwitch(String switchName)
+	{
+		return switchPrefixMatcher.matches(switchName);
+	}
+}
@@ -0,0 +1,96 @@
+package com.taitl.commandline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * InvalidCommandLineException reports violations of parsing rules found in a
+ * command line: the first one, or all of them at once when all errors are
+ * reported, see {@link ImmutableCommandLineParser#withAllErrorsReported(boolean)}
+ * and {@link CommandLineParser#setAllErrorsReported(boolean)}. Its message is
+ * the message of the error, or lists the messages of all errors, one per
+ * line; {@link #getErrors()} returns them as structured values.
+ * <p>
+ * The exception is an IllegalArgumentException, which parsers have always
+ * thrown for violations of parsing rules. The only violation reported
+ * otherwise, with IllegalStateException, is the implicit switch receiving too
+ * many values while only the first error is reported.
+ */
+public class InvalidCommandLineException extends IllegalArgumentException
+{
+	/** Serialization version. */
+	private static final long serialVersionUID = 1L;
+
+	/** Violations of parsing rules, ordered by position. */
+	private final List<ParseError> errors;
+
+	/**
+	 * Constructs an InvalidCommandLineException object.
+	 *
+	 * @param parseErrors
+	 *            Violations of parsing rules, not empty.
+	 */
+	public InvalidCommandLineException(List<ParseError> parseErrors)
+	{
+		this(parseErrors, null);
+	}
+
+	/**
+	 * Constructs an InvalidCommandLineException object.
+	 *
+	 * @param parseErrors
+	 *            Violations of parsing rules, not empty.
+	 * @param cause
+	 *            The cause, e.g. the I/O exception reading a response file, or
+	 *            null.
+	 */
+	public InvalidCommandLineException(List<ParseError> parseErrors, Throwable cause)
+	{
+		super(buildMessage(parseErrors), cause);
+		errors = Collections.unmodifiableList(new ArrayList<ParseError>(parseErrors));
+	}
+
+	/**
+	 * Builds message listing errors: the message of the error itself if there
+	 * is only one, otherwise the number of errors followed by each error on its
+	 * own line.
+	 *
+	 * @param parseErrors
+	 *            Violations of parsing rules.
+	 * @return The message.
+	 */
+	private static String buildMessage(List<ParseError> parseErrors)
+	{
+		if (parseErrors == null || parseErrors.isEmpty())
+		{
+			throw new IllegalArgumentException("At least one parse error is required.");
+		}
+		if (parseErrors.size() == 1)
+		{
+			return parseErrors.get(0).getMessage();
+		}
+
+		StringBuilder message = new StringBuilder();
+		message.append(parseErrors.size()).append(" errors found in command line:");
+		for (ParseError error : parseErrors)
+		{
+			message.append('\n').append(error);
+		}
+		return message.toString();
+	}
+
+	/**
+	 * Returns violations of parsing rules found in the command line.
+	 *
+	 * @return Unmodifiable list of errors, ordered by position.
+	 */
+	public List<ParseError> getErrors()
+	{
+		return errors;
+	}
+}
@@ -0,0 +1,80 @@
+package com.taitl.commandline;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Declares a field of an options class as a command line switch, to be
+ * populated by {@link OptionsBinder}. The annotations of an options class
+ * take the place of the possible switches string of
+ * {@link CommandLineParser#setPossibleSwitches(String)}.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * class ServerOptions
+ * {
+ * 	&#064;Option(name = &quot;--verbose&quot;)
+ * 	boolean verbose;
+ *
+ * 	&#064;Option(name = &quot;--threads&quot;)
+ * 	int threads = 4;
+ *
+ * 	&#064;Option(name = &quot;--include&quot;, values = &quot;1-*&quot;)
+ * 	List&lt;String&gt; includes;
+ *
+ * 	&#064;Option(name = &quot;--file&quot;, implicit = true)
+ * 	String file;
+ * }
+ * </pre>
+ *
+ * The type of the field determines the type of values of the switch, which
+ * are converted at parse time, and its default cardinality:
+ * <ul>
+ * <li><code>boolean</code>: no values, the field is set to true if the switch
+ * is present;</li>
+ * <li><code>String</code>, <code>int</code>, <code>long</code>,
+ * <code>double</code>, their wrappers and <code>Duration</code>: exactly one
+ * value;</li>
+ * <li>arrays of these types and <code>List&lt;String&gt;</code>: any number of
+ * values.</li>
+ * </ul>
+ * Fields of switches absent from the command line keep their initial value.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Option
+{
+	/**
+	 * Name of switch, e.g. --threads.
+	 *
+	 * @return Name of switch.
+	 */
+	String name();
+
+	/**
+	 * Cardinality of switch, in the syntax used between the braces of a switch
+	 * specification, without a type: e.g. 1, 0-1, 2-* or *. Empty to derive
+	 * the cardinality from the type of the field.
+	 *
+	 * @return Cardinality of switch, or empty string.
+	 */
+	String values() default "";
+
+	/**
+	 * True if this is the implicit switch, receiving the switchless arguments.
+	 * See {@link CommandLineParser#setImplicitSwitch(String)}. At most one
+	 * field of an options class can be the implicit switch.
+	 *
+	 * @return True if this is the implicit switch.
+	 */
+	boolean implicit() default false;
+}
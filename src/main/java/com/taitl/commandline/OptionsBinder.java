@@ -0,0 +1,697 @@
+package com.taitl.commandline;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * OptionsBinder parses command lines into objects of an options class, whose
+ * fields are annotated with {@link Option} and {@link SwitchlessArguments}.
+ * The annotations are read, and the switch schema is compiled, once, when the
+ * binder is constructed; each parse then populates the fields of an options
+ * object in one pass over the switches, after which the program reads plain
+ * fields instead of looking switches up by name.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * // Once, e.g. in a static initializer
+ * OptionsBinder&lt;ServerOptions&gt; binder = new OptionsBinder&lt;ServerOptions&gt;(
+ * 		ServerOptions.class);
+ *
+ * // Per invocation
+ * ServerOptions options = binder.parse(args);
+ * if (options.verbose)
+ * {
+ * 	// ...
+ * }
+ * </pre>
+ *
+ * Violations of parsing rules, including values that can not be converted to
+ * the type of their field, are thrown as {@link InvalidCommandLineException},
+ * as by {@link ImmutableCommandLineParser#parse(String[])}. Objects of this
+ * class are immutable and can be shared freely between threads; the options
+ * objects they populate are not shared.
+ *
+ * @param <T>
+ *            The options class.
+ */
+public final class OptionsBinder<T>
+{
+	/**
+	 * Kind of field of an options class, determining how it is populated.
+	 */
+	private enum Kind
+	{
+		/** boolean, set to true if the switch is present. */
+		FLAG(ValueType.STRING, "0"),
+
+		/** String, the only value. */
+		STRING(ValueType.STRING, "1"),
+
+		/** int or Integer, the only value. */
+		INT(ValueType.INT, "1"),
+
+		/** long or Long, the only value. */
+		LONG(ValueType.LONG, "1"),
+
+		/** double or Double, the only value. */
+		DOUBLE(ValueType.DOUBLE, "1"),
+
+		/** Duration, the only value. */
+		DURATION(ValueType.DURATION, "1"),
+
+		/** String[], all values. */
+		STRING_ARRAY(ValueType.STRING, "*"),
+
+		/** int[], all values. */
+		INT_ARRAY(ValueType.INT, "*"),
+
+		/** long[], all values. */
+		LONG_ARRAY(ValueType.LONG, "*"),
+
+		/** double[], all values. */
+		DOUBLE_ARRAY(ValueType.DOUBLE, "*"),
+
+		/** Duration[], all values. */
+		DURATION_ARRAY(ValueType.DURATION, "*"),
+
+		/** List&lt;String&gt;, all values. */
+		STRING_LIST(ValueType.STRING, "*");
+
+		/** Type of values of switches bound to fields of this kind. */
+		final ValueType valueType;
+
+		/** Cardinality of switches bound to fields of this kind by default. */
+		final String defaultValues;
+
+		/**
+		 * Constructs a Kind.
+		 *
+		 * @param type
+		 *            Type of values.
+		 * @param values
+		 *            Default cardinality.
+		 */
+		private Kind(ValueType type, String values)
+		{
+			valueType = type;
+			defaultValues = values;
+		}
+	}
+
+	/**
+	 * Field of an options class bound to a switch.
+	 */
+	private static final class Binding
+	{
+		/** The field. */
+		final Field field;
+
+		/** Name of the switch. */
+		final String switchName;
+
+		/** Kind of the field. */
+		final Kind kind;
+
+		/**
+		 * Constructs a Binding object.
+		 *
+		 * @param boundField
+		 *            The field.
+		 * @param name
+		 *            Name of the switch.
+		 * @param fieldKind
+		 *            Kind of the field.
+		 */
+		Binding(Field boundField, String name, Kind fieldKind)
+		{
+			field = boundField;
+			switchName = name;
+			kind = fieldKind;
+		}
+	}
+
+	/** The options class. */
+	private final Class<T> optionsClass;
+
+	/** No-argument constructor of the options class, or null. */
+	private final Constructor<T> constructor;
+
+	/** Fields bound to switches, including the implicit switch. */
+	private final Binding[] bindings;
+
+	/** Fields receiving the switchless arguments. */
+	private final Field[] switchlessFields;
+
+	/** Parser over the schema of the options class. */
+	private final ImmutableCommandLineParser parser;
+
+	/**
+	 * Constructs an OptionsBinder object with the default switch prefixes, --
+	 * and -.
+	 *
+	 * @param options
+	 *            The options class.
+	 * @throws IllegalArgumentException
+	 *             if the annotations of the options class are inconsistent,
+	 *             e.g. a switch is declared twice, a cardinality is
+	 *             malformed, or an annotated field is of an unsupported type.
+	 */
+	public OptionsBinder(Class<T> options) throws IllegalArgumentException
+	{
+		this(options, CommandLineParser.DEFAULT_SWITCH_PREFIXES);
+	}
+
+	/**
+	 * Constructs an OptionsBinder object.
+	 *
+	 * @param options
+	 *            The options class.
+	 * @param switchPrefixes
+	 *            Regular expression matching switch name prefixes, e.g.
+	 *            (--|-).
+	 * @throws IllegalArgumentException
+	 *             if the annotations of the options class are inconsistent,
+	 *             e.g. a switch is declared twice, a cardinality is
+	 *             malformed, or an annotated field is of an unsupported type.
+	 */
+	public OptionsBinder(Class<T> options, String switchPrefixes)
+			throws IllegalArgumentException
+	{
+		if (options == null)
+		{
+			throw new IllegalArgumentException("Non-null value required in parameter options.");
+		}
+
+		List<Binding> bindingList = new ArrayList<Binding>();
+		List<Field> switchlessList = new ArrayList<Field>();
+		List<SwitchSpecification> specifications = new ArrayList<SwitchSpecification>();
+		SwitchSpecification implicitSpecification = null;
+
+		for (Field field : getFields(options))
+		{
+			Option option = field.getAnnotation(Option.class);
+			boolean switchless = field.isAnnotationPresent(SwitchlessArguments.class);
+
+			if (option == null && !switchless)
+			{
+				continue;
+			}
+			if (option != null && switchless)
+			{
+				throw new IllegalArgumentException("Field " + field.getName()
+						+ " can not be both an option and the switchless arguments.");
+			}
+			if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()))
+			{
+				throw new IllegalArgumentException("Field " + field.getName()
+						+ " must be neither static nor final to be bound to the command line.");
+			}
+			field.setAccessible(true);
+
+			if (switchless)
+			{
+				Kind kind = getKind(field);
+				if (kind != Kind.STRING_ARRAY && kind != Kind.STRING_LIST)
+				{
+					throw new IllegalArgumentException("Field " + field.getName()
+							+ " must be of type String[] or List<String> to receive"
+							+ " the switchless arguments.");
+				}
+				switchlessList.add(field);
+				continue;
+			}
+
+			Kind kind = getKind(field);
+			SwitchSpecification specification = SwitchSpecification.parse(getSpecification(
+					option, kind));
+			if (kind == Kind.FLAG && specification.getMaxValues() != 0)
+			{
+				throw new IllegalArgumentException("Switch " + option.name()
+						+ " is bound to a boolean field, and can not have values.");
+			}
+			if (option.implicit())
+			{
+				if (kind == Kind.FLAG)
+				{
+					throw new IllegalArgumentException("Switch " + option.name()
+							+ " is bound to a boolean field, and can not be the implicit switch.");
+				}
+				if (implicitSpecification != null)
+				{
+					throw new IllegalArgumentException("Switches "
+							+ implicitSpecification.getName() + " and " + option.name()
+							+ " can not both be the implicit switch.");
+				}
+				implicitSpecification = specification;
+			}
+			else
+			{
+				specifications.add(specification);
+			}
+			bindingList.add(new Binding(field, specification.getName(), kind));
+		}
+
+		optionsClass = options;
+		constructor = getConstructor(options);
+		bindings = bindingList.toArray(new Binding[bindingList.size()]);
+		switchlessFields = switchlessList.toArray(new Field[switchlessList.size()]);
+		parser = new ImmutableCommandLineParser(new SwitchSchema(specifications,
+				implicitSpecification), switchPrefixes);
+	}
+
+	/**
+	 * Returns fields of class and its superclasses, superclass fields first.
+	 *
+	 * @param options
+	 *            The options class.
+	 * @return The fields.
+	 */
+	private static List<Field> getFields(Class<?> options)
+	{
+		List<Field> fields = new ArrayList<Field>();
+		for (Class<?> type = options; type != null && type != Object.class; type = type
+				.getSuperclass())
+		{
+			fields.addAll(0, Arrays.asList(type.getDeclaredFields()));
+		}
+		return fields;
+	}
+
+	/**
+	 * Returns kind of field.
+	 *
+	 * @param field
+	 *            The field.
+	 * @return The kind.
+	 * @throws IllegalArgumentException
+	 *             if the field is of an unsupported type.
+	 */
+	private static Kind getKind(Field field) throws IllegalArgumentException
+	{
+		Class<?> type = field.getType();
+
+		if (type == boolean.class || type == Boolean.class)
+		{
+			return Kind.FLAG;
+		}
+		if (type == String.class)
+		{
+			return Kind.STRING;
+		}
+		if (type == int.class || type == Integer.class)
+		{
+			return Kind.INT;
+		}
+		if (type == long.class || type == Long.class)
+		{
+			return Kind.LONG;
+		}
+		if (type == double.class || type == Double.class)
+		{
+			return Kind.DOUBLE;
+		}
+		if (type == Duration.class)
+		{
+			return Kind.DURATION;
+		}
+		if (type == String[].class)
+		{
+			return Kind.STRING_ARRAY;
+		}
+		if (type == int[].class)
+		{
+			return Kind.INT_ARRAY;
+		}
+		if (type == long[].class)
+		{
+			return Kind.LONG_ARRAY;
+		}
+		if (type == double[].class)
+		{
+			return Kind.DOUBLE_ARRAY;
+		}
+		if (type == Duration[].class)
+		{
+			return Kind.DURATION_ARRAY;
+		}
+		if (type == List.class && isListOfStrings(field.getGenericType()))
+		{
+			return Kind.STRING_LIST;
+		}
+		throw new IllegalArgumentException("Field " + field.getName() + " is of type "
+				+ field.getGenericType() + ", which can not be bound to the command line.");
+	}
+
+	/**
+	 * Returns true if type is List&lt;String&gt;, or raw List.
+	 *
+	 * @param type
+	 *            Generic type of field of class List.
+	 * @return True if elements of the list are strings.
+	 */
+	private static boolean isListOfStrings(Type type)
+	{
+		return !(type instanceof ParameterizedType)
+				|| ((ParameterizedType) type).getActualTypeArguments()[0] == String.class;
+	}
+
+	/**
+	 * Builds switch specification string of an annotated field, e.g.
+	 * --threads(1:int).
+	 *
+	 * @param option
+	 *            Annotation of the field.
+	 * @param kind
+	 *            Kind of the field.
+	 * @return The switch specification.
+	 */
+	private static String getSpecification(Option option, Kind kind)
+	{
+		String values = option.values().length() == 0 ? kind.defaultValues : option.values();
+		String type = kind.valueType == ValueType.STRING ? "" : ":"
+				+ kind.valueType.getName();
+
+		return option.name() + "(" + values + type + ")";
+	}
+
+	/**
+	 * Returns no-argument constructor of class.
+	 *
+	 * @param options
+	 *            The options class.
+	 * @return The constructor, or null if there is none.
+	 */
+	private static <T> Constructor<T> getConstructor(Class<T> options)
+	{
+		try
+		{
+			Constructor<T> noArgumentConstructor = options.getDeclaredConstructor();
+			noArgumentConstructor.setAccessible(true);
+			return noArgumentConstructor;
+		}
+		catch (NoSuchMethodException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Parses command line arguments into a new options object.
+	 *
+	 * @param args
+	 *            Command line arguments.
+	 * @return The options object.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values, or the
+	 *             options class has no no-argument constructor.
+	 */
+	public T parse(String[] args) throws IllegalArgumentException, IllegalStateException
+	{
+		return bind(parser.parse(args), newOptions());
+	}
+
+	/**
+	 * Parses command line into a new options object. See
+	 * {@link CommandLineParser#setCommandLine(String)} for the splitting rules.
+	 *
+	 * @param commandLine
+	 *            Command line to parse.
+	 * @return The options object.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values, or the
+	 *             options class has no no-argument constructor.
+	 */
+	public T parse(String commandLine) throws IllegalArgumentException, IllegalStateException
+	{
+		return bind(parser.parse(commandLine), newOptions());
+	}
+
+	/**
+	 * Creates an options object with the no-argument constructor.
+	 *
+	 * @return The options object.
+	 */
+	private T newOptions()
+	{
+		if (constructor == null)
+		{
+			throw new IllegalStateException("Class " + optionsClass.getName()
+					+ " has no no-argument constructor; use bind() with an options object.");
+		}
+
+		try
+		{
+			return constructor.newInstance();
+		}
+		catch (InstantiationException e)
+		{
+			throw new IllegalStateException("Can not instantiate " + optionsClass.getName()
+					+ ": " + e.getMessage(), e);
+		}
+		catch (IllegalAccessException e)
+		{
+			throw new IllegalStateException("Can not instantiate " + optionsClass.getName()
+					+ ": " + e.getMessage(), e);
+		}
+		catch (InvocationTargetException e)
+		{
+			throw new IllegalStateException("Can not instantiate " + optionsClass.getName()
+					+ ": " + e.getCause(), e.getCause());
+		}
+	}
+
+	/**
+	 * Populates options object with a result of parsing by the parser of this
+	 * binder, e.g. a result from a {@link ParseResultCache}. Fields of
+	 * switches absent from the result keep their value.
+	 *
+	 * @param result
+	 *            The result of parsing, without errors.
+	 * @param options
+	 *            The options object.
+	 * @return The options object.
+	 * @throws IllegalArgumentException
+	 *             if the result has errors, or was not parsed with the schema
+	 *             of this binder.
+	 */
+	public T bind(ParseResult result, T options) throws IllegalArgumentException
+	{
+		if (result == null)
+		{
+			throw new IllegalArgumentException("Non-null value required in parameter result.");
+		}
+		if (options == null)
+		{
+			throw new IllegalArgumentException("Non-null value required in parameter options.");
+		}
+		if (result.hasErrors())
+		{
+			throw new InvalidCommandLineException(result.getErrors());
+		}
+
+		Map<String, List<String>> switchMap = result.getSwitchMap();
+		for (Binding binding : bindings)
+		{
+			// Fields of absent switches keep their value
+			List<String> values = switchMap.get(binding.switchName);
+			if (values != null)
+			{
+				Object value = getValue(result, binding.switchName, binding.kind, values);
+				if (value != null)
+				{
+					set(binding.field, options, value);
+				}
+			}
+		}
+
+		if (switchlessFields.length > 0)
+		{
+			String[] switchless = result.getSwitchlessArguments();
+			for (Field field : switchlessFields)
+			{
+				set(field, options, field.getType() == List.class ? Collections
+						.unmodifiableList(Arrays.asList(switchless.clone())) : switchless.clone());
+			}
+		}
+		return options;
+	}
+
+	/**
+	 * Returns value of field bound to a switch.
+	 *
+	 * @param result
+	 *            The result of parsing.
+	 * @param name
+	 *            Name of the switch.
+	 * @param kind
+	 *            Kind of the field.
+	 * @param values
+	 *            Values of the present switch.
+	 * @return The value, or null to keep the value of the field.
+	 */
+	private static Object getValue(ParseResult result, String name, Kind kind,
+			List<String> values)
+	{
+		int count = values.size();
+
+		switch (kind)
+		{
+			case FLAG:
+				return Boolean.TRUE;
+			case STRING:
+				return count == 0 ? null : values.get(0);
+			case INT:
+				return count == 0 ? null : Integer.valueOf(result.getInt(name, 0));
+			case LONG:
+				return count == 0 ? null : Long.valueOf(result.getLong(name, 0));
+			case DOUBLE:
+				return count == 0 ? null : Double.valueOf(result.getDouble(name, 0));
+			case DURATION:
+				return count == 0 ? null : result.getDuration(name, 0);
+			case STRING_ARRAY:
+				return values.toArray(new String[count]);
+			case INT_ARRAY:
+				int[] ints = new int[count];
+				for (int i = 0; i < count; i++)
+				{
+					ints[i] = result.getInt(name, i);
+				}
+				return ints;
+			case LONG_ARRAY:
+				long[] longs = new long[count];
+				for (int i = 0; i < count; i++)
+				{
+					longs[i] = result.getLong(name, i);
+				}
+				return longs;
+			case DOUBLE_ARRAY:
+				double[] doubles = new double[count];
+				for (int i = 0; i < count; i++)
+				{
+					doubles[i] = result.getDouble(name, i);
+				}
+				return doubles;
+			case DURATION_ARRAY:
+				Duration[] durations = new Duration[count];
+				for (int i = 0; i < count; i++)
+				{
+					durations[i] = result.getDuration(name, i);
+				}
+				return durations;
+			case STRING_LIST:
+				return values;
+			default:
+				throw new IllegalStateException("Unexpected kind of field: " + kind);
+		}
+	}
+
+	/**
+	 * Sets field of options object.
+	 *
+	 * @param field
+	 *            The accessible field.
+	 * @param options
+	 *            The options object.
+	 * @param value
+	 *            The value, unboxed for fields of primitive types.
+	 */
+	private static void set(Field field, Object options, Object value)
+	{
+		try
+		{
+			field.set(options, value);
+		}
+		catch (IllegalAccessException e)
+		{
+			throw new IllegalStateException("Can not set field " + field.getName() + ": "
+					+ e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the options class.
+	 *
+	 * @return The options class.
+	 */
+	public Class<T> getOptionsClass()
+	{
+		return optionsClass;
+	}
+
+	/**
+	 * Returns the parser over the schema of the options class, e.g. to put a
+	 * {@link ParseResultCache} in front of it, or to parse without exceptions
+	 * with <code>tryParse()</code> before calling
+	 * {@link OptionsBinder#bind(ParseResult, Object)}.
+	 *
+	 * @return The parser.
+	 */
+	public ImmutableCommandLineParser getParser()
+	{
+		return parser;
+	}
+
+	/**
+	 * Returns the switch schema compiled from the annotations of the options
+	 * class.
+	 *
+	 * @return The compiled switch schema.
+	 */
+	public SwitchSchema getSchema()
+	{
+		return parser.getSchema();
+	}
+
+	/**
+	 * Returns the possible switches of the options class, in the format of
+	 * {@link CommandLineParser#setPossibleSwitches(String)}, e.g. for
+	 * configuring a CommandLineParser with the same switches.
+	 *
+	 * @return Space-separated list of possible switch specifications, empty if
+	 *         there are none.
+	 */
+	public String getPossibleSwitches()
+	{
+		StringBuilder builder = new StringBuilder();
+		for (SwitchSpecification specification : getSchema().getSpecifications())
+		{
+			if (builder.length() > 0)
+			{
+				builder.append(' ');
+			}
+			builder.append(specification.getSpecification());
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Returns specification of the implicit switch of the options class, in
+	 * the format of {@link CommandLineParser#setImplicitSwitch(String)}.
+	 *
+	 * @return Specification of implicit switch, or null if there is none.
+	 */
+	public String getImplicitSwitch()
+	{
+		SwitchSpecification implicit = getSchema().getImplicitSpecification();
+		return implicit == null ? null : implicit.getSpecification();
+	}
+}
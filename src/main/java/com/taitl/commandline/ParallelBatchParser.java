@@ -0,0 +1,278 @@
+package com.taitl.commandline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Auxiliary class used by ImmutableCommandLineParser to parse a batch in
+ * parallel.
+ * <p>
+ * The batch is split into chunks of consecutive elements. Each chunk is
+ * parsed by a single thread, with its own parsing buffers, either as a task
+ * of the common fork/join pool or as a task submitted to an executor, e.g.
+ * one starting a virtual thread per task. Results are stored at their index,
+ * or passed to a {@link ParseResultHandler} as soon as they are available.
+ * After the first violation of parsing rules, remaining elements are skipped
+ * and the exception is rethrown to the caller.
+ */
+final class ParallelBatchParser
+{
+	/** Minimum number of elements in a chunk. */
+	private static final int MIN_CHUNK_SIZE = 64;
+
+	/** Number of chunks per processor, to even out the load. */
+	private static final int CHUNKS_PER_PROCESSOR = 4;
+
+	/** The parser. */
+	private final ImmutableCommandLineParser parser;
+
+	/** The batch, of argument vectors or command lines. */
+	private final List<?> batch;
+
+	/** True if the batch consists of command lines. */
+	private final boolean commandLines;
+
+	/** Handler of results, or null if results are stored in results array. */
+	private final ParseResultHandler handler;
+
+	/** Results in the order of the batch, or null if there is a handler. */
+	private final ParseResult[] results;
+
+	/** Number of elements in a chunk. */
+	private final int chunkSize;
+
+	/** The first exception thrown while parsing, if any. */
+	private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+	/**
+	 * Constructs a ParallelBatchParser object.
+	 *
+	 * @param immutableParser
+	 *            The parser.
+	 * @param elements
+	 *            The batch, of argument vectors or command lines.
+	 * @param elementsAreCommandLines
+	 *            True if the batch consists of command lines.
+	 * @param resultHandler
+	 *            Handler of results, or null to collect the results in order.
+	 */
+	ParallelBatchParser(ImmutableCommandLineParser immutableParser, List<?> elements,
+			boolean elementsAreCommandLines, ParseResultHandler resultHandler)
+	{
+		parser = immutableParser;
+		batch = elements instanceof RandomAccess ? elements : new ArrayList<Object>(elements);
+		commandLines = elementsAreCommandLines;
+		handler = resultHandler;
+		results = resultHandler == null ? new ParseResult[batch.size()] : null;
+		chunkSize = Math.max(MIN_CHUNK_SIZE, batch.size()
+				/ (Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR));
+	}
+
+	/**
+	 * Parses the batch, waiting until all elements are parsed.
+	 *
+	 * @param executor
+	 *            Executor to run the chunks, or null for the common fork/join
+	 *            pool.
+	 * @return The results in the order of the batch, or null if there is a
+	 *         handler.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values, or the
+	 *             calling thread is interrupted while waiting.
+	 */
+	List<ParseResult> parse(Executor executor) throws IllegalArgumentException,
+			IllegalStateException
+	{
+		if (executor == null)
+		{
+			ForkJoinPool.commonPool().invoke(new ChunkTask(0, batch.size()));
+		}
+		else
+		{
+			executeChunks(executor);
+		}
+
+		RuntimeException exception = failure.get();
+		if (exception != null)
+		{
+			throw exception;
+		}
+		return results == null ? null : Arrays.asList(results);
+	}
+
+	/**
+	 * Submits chunks to the executor, and waits for their completion.
+	 *
+	 * @param executor
+	 *            Executor to run the chunks.
+	 */
+	private void executeChunks(Executor executor)
+	{
+		int chunkCount = (batch.size() + chunkSize - 1) / chunkSize;
+		CountDownLatch done = new CountDownLatch(chunkCount);
+
+		for (int from = 0; from < batch.size(); from += chunkSize)
+		{
+			try
+			{
+				executor.execute(new ChunkRunnable(from, Math.min(from + chunkSize,
+						batch.size()), done));
+			}
+			catch (RejectedExecutionException e)
+			{
+				failure.compareAndSet(null, new IllegalStateException(
+						"The executor rejected a parsing task: " + e.getMessage()));
+				done.countDown();
+			}
+		}
+
+		try
+		{
+			done.await();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, new IllegalStateException(
+					"Interrupted while waiting for the batch to be parsed."));
+		}
+	}
+
+	/**
+	 * Parses a chunk of consecutive elements of the batch with one set of
+	 * parsing buffers.
+	 *
+	 * @param from
+	 *            Index of the first element of the chunk.
+	 * @param to
+	 *            Index after the last element of the chunk.
+	 */
+	private void parseChunk(int from, int to)
+	{
+		ImmutableCommandLineParser.Scratch scratch = new ImmutableCommandLineParser.Scratch();
+
+		try
+		{
+			for (int i = from; i < to && failure.get() == null; i++)
+			{
+				ParseResult result = parser.parseBatchElement(batch.get(i), commandLines,
+						scratch);
+				if (handler == null)
+				{
+					results[i] = result;
+				}
+				else
+				{
+					handler.handle(i, result);
+				}
+			}
+		}
+		catch (RuntimeException e)
+		{
+			failure.compareAndSet(null, e);
+		}
+	}
+
+	/**
+	 * Fork/join task parsing a range of the batch, splitting it in halves
+	 * until it is no longer than a chunk.
+	 */
+	private final class ChunkTask extends RecursiveAction
+	{
+		/** Serialization version. */
+		private static final long serialVersionUID = 1L;
+
+		/** Index of the first element of the range. */
+		private final int from;
+
+		/** Index after the last element of the range. */
+		private final int to;
+
+		/**
+		 * Constructs a ChunkTask object.
+		 *
+		 * @param first
+		 *            Index of the first element of the range.
+		 * @param end
+		 *            Index after the last element of the range.
+		 */
+		ChunkTask(int first, int end)
+		{
+			from = first;
+			to = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= chunkSize)
+			{
+				parseChunk(from, to);
+			}
+			else
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(new ChunkTask(from, middle), new ChunkTask(middle, to));
+			}
+		}
+	}
+
+	/**
+	 * Executor task parsing a chunk of the batch.
+	 */
+	private final class ChunkRunnable implements Runnable
+	{
+		/** Index of the first element of the chunk. */
+		private final int from;
+
+		/** Index after the last element of the chunk. */
+		private final int to;
+
+		/** Latch counted down on completion. */
+		private final CountDownLatch done;
+
+		/**
+		 * Constructs a ChunkRunnable object.
+		 *
+		 * @param first
+		 *            Index of the first element of the chunk.
+		 * @param end
+		 *            Index after the last element of the chunk.
+		 * @param latch
+		 *            Latch counted down on completion.
+		 */
+		ChunkRunnable(int first, int end, CountDownLatch latch)
+		{
+			from = first;
+			to = end;
+			done = latch;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				parseChunk(from, to);
+			}
+			finally
+			{
+				done.countDown();
+			}
+		}
+	}
+}
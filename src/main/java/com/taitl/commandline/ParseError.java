@@ -0,0 +1,396 @@
+package com.taitl.commandline;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * ParseError describes one violation of parsing rules found by
+ * {@link ImmutableCommandLineParser#tryParse(String[])}: its kind, the
+ * position of the offending argument, and the switch involved.
+ * <p>
+ * Errors are plain values, created without throwing an exception or filling
+ * a stack trace. The human-readable message is built only when requested,
+ * and is the same as the message of the exception <code>parse()</code> throws
+ * for the error, except that the implicit switch receiving too many values
+ * is reported as a whole.
+ * <p>
+ * Objects of this class are immutable.
+ */
+public final class ParseError implements Serializable
+{
+	/** Serialization version. */
+	private static final long serialVersionUID = 1L;
+
+	/** Orders errors by position of the offending argument. */
+	static final Comparator<ParseError> POSITION_ORDER = new Comparator<ParseError>()
+	{
+		@Override
+		public int compare(ParseError error1, ParseError error2)
+		{
+			return error1.position < error2.position ? -1
+					: error1.position == error2.position ? 0 : 1;
+		}
+	};
+
+	/** Kind of error. */
+	private final ParseErrorCode code;
+
+	/** Index of the offending argument, or -1. */
+	private final int position;
+
+	/** The offending argument, or null. */
+	private final String argument;
+
+	/** Name of the switch involved, or null. */
+	private final String switchName;
+
+	/** Violated minimum or maximum number of values, or -1. */
+	private final int limit;
+
+	/** Number of values of the switch, or -1. */
+	private final int valueCount;
+
+	/** Expected type of the offending value, or null. */
+	private final ValueType valueType;
+
+	/** Message, if it can not be built from the other fields, or null. */
+	private final String message;
+
+	/** Possible switches the offending argument may stand for, or null. */
+	private final String[] candidates;
+
+	/**
+	 * Constructs a ParseError object.
+	 *
+	 * @param errorCode
+	 *            Kind of error.
+	 * @param argumentIndex
+	 *            Index of the offending argument, or -1.
+	 * @param offendingArgument
+	 *            The offending argument, or null.
+	 * @param name
+	 *            Name of the switch involved, or null.
+	 * @param violatedLimit
+	 *            Violated minimum or maximum number of values, or -1.
+	 * @param count
+	 *            Number of values of the switch, or -1.
+	 * @param type
+	 *            Expected type of the offending value, or null.
+	 * @param errorMessage
+	 *            Message, or null to build it from the other fields.
+	 * @param switchNames
+	 *            Possible switches the offending argument may stand for, or
+	 *            null.
+	 */
+	private ParseError(ParseErrorCode errorCode, int argumentIndex,
+			String offendingArgument, String name, int violatedLimit, int count,
+			ValueType type, String errorMessage, String[] switchNames)
+	{
+		code = errorCode;
+		position = argumentIndex;
+		argument = offendingArgument;
+		switchName = name;
+		limit = violatedLimit;
+		valueCount = count;
+		valueType = type;
+		message = errorMessage;
+		candidates = switchNames;
+	}
+
+	/**
+	 * Creates error reporting an unknown switch.
+	 *
+	 * @param position
+	 *            Index of the switch.
+	 * @param argument
+	 *            The switch.
+	 * @return The error.
+	 */
+	static ParseError unknownSwitch(int position, String argument)
+	{
+		return new ParseError(ParseErrorCode.UNKNOWN_SWITCH, position, argument, argument,
+				-1, -1, null, null, null);
+	}
+
+	/**
+	 * Creates error reporting an unknown switch, with the possible switches
+	 * suggested instead.
+	 *
+	 * @param position
+	 *            Index of the switch.
+	 * @param argument
+	 *            The switch.
+	 * @param suggestions
+	 *            Names of the possible switches closest to it, the closest
+	 *            first.
+	 * @return The error.
+	 */
+	static ParseError unknownSwitch(int position, String argument, List<String> suggestions)
+	{
+		return new ParseError(ParseErrorCode.UNKNOWN_SWITCH, position, argument, argument,
+				-1, -1, null, null, suggestions.toArray(new String[suggestions.size()]));
+	}
+
+	/**
+	 * Creates error reporting a switch with too few values.
+	 *
+	 * @param position
+	 *            Index of the switch, or -1 for the implicit switch.
+	 * @param switchName
+	 *            Name of the switch.
+	 * @param minValues
+	 *            Minimum number of values of the switch.
+	 * @param valueCount
+	 *            Number of values of the switch.
+	 * @return The error.
+	 */
+	static ParseError tooFewValues(int position, String switchName, int minValues,
+			int valueCount)
+	{
+		return new ParseError(ParseErrorCode.TOO_FEW_VALUES, position, null, switchName,
+				minValues, valueCount, null, null, null);
+	}
+
+	/**
+	 * Creates error reporting a switch with too many values.
+	 *
+	 * @param position
+	 *            Index of the first value in excess.
+	 * @param argument
+	 *            The first value in excess.
+	 * @param switchName
+	 *            Name of the switch.
+	 * @param maxValues
+	 *            Maximum number of values of the switch.
+	 * @param valueCount
+	 *            Number of values of the switch.
+	 * @return The error.
+	 */
+	static ParseError tooManyValues(int position, String argument, String switchName,
+			int maxValues, int valueCount)
+	{
+		return new ParseError(ParseErrorCode.TOO_MANY_VALUES, position, argument,
+				switchName, maxValues, valueCount, null, null, null);
+	}
+
+	/**
+	 * Creates error reporting a value which can not be converted to the type
+	 * of its switch.
+	 *
+	 * @param position
+	 *            Index of the value.
+	 * @param argument
+	 *            The value.
+	 * @param switchName
+	 *            Name of the switch.
+	 * @param valueType
+	 *            Type of the switch.
+	 * @return The error.
+	 */
+	static ParseError invalidValue(int position, String argument, String switchName,
+			ValueType valueType)
+	{
+		return new ParseError(ParseErrorCode.INVALID_VALUE, position, argument, switchName,
+				-1, -1, valueType, null, null);
+	}
+
+	/**
+	 * Creates error reporting a response file which can not be read.
+	 *
+	 * @param position
+	 *            Index of the argument naming the response file.
+	 * @param argument
+	 *            The argument naming the response file.
+	 * @param message
+	 *            Description of the failure.
+	 * @return The error.
+	 */
+	static ParseError unreadableResponseFile(int position, String argument,
+			String message)
+	{
+		return new ParseError(ParseErrorCode.UNREADABLE_RESPONSE_FILE, position, argument,
+				null, -1, -1, null, message, null);
+	}
+
+	/**
+	 * Creates error reporting an abbreviation of more than one possible
+	 * switch.
+	 *
+	 * @param position
+	 *            Index of the abbreviation.
+	 * @param argument
+	 *            The abbreviation.
+	 * @param switchNames
+	 *            Names of the possible switches it abbreviates.
+	 * @return The error.
+	 */
+	static ParseError ambiguousSwitch(int position, String argument, List<String> switchNames)
+	{
+		return new ParseError(ParseErrorCode.AMBIGUOUS_SWITCH, position, argument, argument,
+				-1, -1, null, null, switchNames.toArray(new String[switchNames.size()]));
+	}
+
+	/**
+	 * Creates error reporting a command line without a subcommand.
+	 *
+	 * @return The error.
+	 */
+	static ParseError missingSubcommand()
+	{
+		return new ParseError(ParseErrorCode.MISSING_SUBCOMMAND, -1, null, null, -1, -1,
+				null, null, null);
+	}
+
+	/**
+	 * Creates error reporting a first argument which names no subcommand.
+	 *
+	 * @param argument
+	 *            The first argument.
+	 * @return The error.
+	 */
+	static ParseError unknownSubcommand(String argument)
+	{
+		return new ParseError(ParseErrorCode.UNKNOWN_SUBCOMMAND, 0, argument, null, -1, -1,
+				null, null, null);
+	}
+
+	/**
+	 * Returns kind of error.
+	 *
+	 * @return Kind of error.
+	 */
+	public ParseErrorCode getCode()
+	{
+		return code;
+	}
+
+	/**
+	 * Returns index of the offending argument: the unknown switch, the switch
+	 * with too few values, the first value in excess, or the value which can
+	 * not be converted, among the arguments after expansion of response files,
+	 * as returned by {@link ParseResult#getArguments()}; or the argument naming
+	 * a response file which can not be read, among the arguments passed in.
+	 * For a command line parsed by {@link SubcommandParser}, the arguments are
+	 * those after the subcommand, except for an unknown subcommand, which is
+	 * at index 0.
+	 *
+	 * @return Index of the offending argument, or -1 if the error is not
+	 *         caused by one argument, as when the implicit switch has too few
+	 *         values.
+	 */
+	public int getPosition()
+	{
+		return position;
+	}
+
+	/**
+	 * Returns the offending argument.
+	 *
+	 * @return The offending argument, or null if the error is not caused by
+	 *         one argument.
+	 */
+	public String getArgument()
+	{
+		return argument;
+	}
+
+	/**
+	 * Returns name of the switch involved.
+	 *
+	 * @return Name of switch, or null for an unreadable response file or a
+	 *         missing or unknown subcommand.
+	 */
+	public String getSwitchName()
+	{
+		return switchName;
+	}
+
+	/**
+	 * Returns the violated minimum or maximum number of values of the switch.
+	 *
+	 * @return The minimum number of values for TOO_FEW_VALUES, the maximum
+	 *         number of values for TOO_MANY_VALUES, or -1.
+	 */
+	public int getLimit()
+	{
+		return limit;
+	}
+
+	/**
+	 * Returns number of values of the switch.
+	 *
+	 * @return Number of values for TOO_FEW_VALUES and TOO_MANY_VALUES, or -1.
+	 */
+	public int getValueCount()
+	{
+		return valueCount;
+	}
+
+	/**
+	 * Returns type the offending value was expected to have.
+	 *
+	 * @return Type of switch for INVALID_VALUE, or null.
+	 */
+	public ValueType getValueType()
+	{
+		return valueType;
+	}
+
+	/**
+	 * Returns names of the possible switches the offending argument may stand
+	 * for.
+	 *
+	 * @return The switches an ambiguous abbreviation abbreviates, in
+	 *         alphabetical order; the switches closest to an unknown switch,
+	 *         the closest first, if suggestions are reported; or an empty
+	 *         list.
+	 */
+	public List<String> getCandidates()
+	{
+		return candidates == null ? Collections.<String> emptyList() : Collections
+				.unmodifiableList(Arrays.asList(candidates));
+	}
+
+	/**
+	 * Returns human-readable description of the error.
+	 *
+	 * @return The message.
+	 */
+	public String getMessage()
+	{
+		switch (code)
+		{
+			case UNKNOWN_SWITCH:
+				return ImmutableCommandLineParser.unknownSwitchMessage(argument,
+						getCandidates());
+			case TOO_FEW_VALUES:
+				return Switch.tooFewValuesMessage(switchName, limit, valueCount);
+			case TOO_MANY_VALUES:
+				return Switch.tooManyValuesMessage(switchName, limit, valueCount);
+			case INVALID_VALUE:
+				return valueType.invalidValueMessage(switchName, argument);
+			case AMBIGUOUS_SWITCH:
+				return ImmutableCommandLineParser.ambiguousSwitchMessage(argument,
+						getCandidates());
+			case MISSING_SUBCOMMAND:
+				return SubcommandParser.MISSING_SUBCOMMAND_MESSAGE;
+			case UNKNOWN_SUBCOMMAND:
+				return SubcommandParser.unknownSubcommandMessage(argument);
+			default:
+				return message;
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return code + (position >= 0 ? " at argument " + position : "") + ": " + getMessage();
+	}
+}
@@ -0,0 +1,49 @@
+package com.taitl.commandline;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * ParseErrorCode is the kind of a violation of parsing rules, as reported by
+ * {@link ParseError#getCode()}.
+ */
+public enum ParseErrorCode
+{
+	/** A switch not declared among possible switches. */
+	UNKNOWN_SWITCH,
+
+	/** A switch with fewer values than its minimum number of values. */
+	TOO_FEW_VALUES,
+
+	/**
+	 * A switch with more values than its maximum number of values. Only the
+	 * implicit switch can receive too many values; a switch declared among
+	 * possible switches leaves the excess values to the implicit switch.
+	 */
+	TOO_MANY_VALUES,
+
+	/** A value of a typed switch which can not be converted to its type. */
+	INVALID_VALUE,
+
+	/** A response file which can not be read. */
+	UNREADABLE_RESPONSE_FILE,
+
+	/**
+	 * An abbreviation of more than one possible switch, when abbreviated
+	 * switches are allowed.
+	 */
+	AMBIGUOUS_SWITCH,
+
+	/**
+	 * No subcommand, when parsing with {@link SubcommandParser}: the command
+	 * line is empty.
+	 */
+	MISSING_SUBCOMMAND,
+
+	/**
+	 * A first argument which names no subcommand, when parsing with
+	 * {@link SubcommandParser}.
+	 */
+	UNKNOWN_SUBCOMMAND
+}
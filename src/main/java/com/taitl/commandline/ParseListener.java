@@ -0,0 +1,48 @@
+package com.taitl.commandline;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * ParseListener receives instrumentation events from a
+ * {@link CommandLineParser}, e.g. to record how much time parsing costs in
+ * production. See {@link CommandLineParser#setParseListener(ParseListener)}
+ * and {@link ParseMetrics}, which implements this interface.
+ * <p>
+ * Methods are called on the thread parsing, right after each parse, so they
+ * should be fast and must not throw.
+ */
+public interface ParseListener
+{
+	/**
+	 * Called for each violation of parsing rules found by a parse, before
+	 * <code>parseCompleted()</code>.
+	 *
+	 * @param code
+	 *            Kind of error.
+	 */
+	void parseError(ParseErrorCode code);
+
+	/**
+	 * Called for each lookup in the parse cache, if parse results are cached,
+	 * before <code>parseError()</code> and <code>parseCompleted()</code>.
+	 *
+	 * @param hit
+	 *            True if the result was found in the cache.
+	 */
+	void cacheLookup(boolean hit);
+
+	/**
+	 * Called after each parse, successful or not.
+	 *
+	 * @param argumentCount
+	 *            Number of arguments parsed, before expansion of response
+	 *            files.
+	 * @param elapsedNanos
+	 *            Time the parse took, in nanoseconds.
+	 * @param successful
+	 *            False if the arguments violated parsing rules.
+	 */
+	void parseCompleted(int argumentCount, long elapsedNanos, boolean successful);
+}
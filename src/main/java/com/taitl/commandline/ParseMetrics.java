@@ -0,0 +1,438 @@
+package com.taitl.commandline;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * ParseMetrics is a {@link ParseListener} recording parse counts, a
+ * histogram of parse latencies, argument counts, error counts by kind and
+ * parse cache hits, with no dependencies beyond the JDK. The metrics are
+ * available from getters, and through JMX once the object is registered as
+ * an MBean.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * ParseMetrics metrics = new ParseMetrics();
+ * metrics.registerMBean(&quot;gateway&quot;);
+ * parser.setParseListener(metrics);
+ * // ...
+ * long p99 = metrics.getP99LatencyNanos();
+ * </pre>
+ *
+ * Latencies are counted in buckets of powers of two nanoseconds, so
+ * percentiles are approximate: they are reported as the upper bound of their
+ * bucket, at most twice the actual value. Objects of this class are
+ * thread-safe, and can be shared by parsers on several threads; reading the
+ * metrics while parses are recorded gives a consistent view of each metric,
+ * but not of all of them together.
+ */
+public final class ParseMetrics implements ParseListener, ParseMetricsMBean
+{
+	/** JMX domain of ParseMetrics MBeans. */
+	public static final String JMX_DOMAIN = "com.taitl.commandline";
+
+	/** Number of latency histogram buckets, one per power of two. */
+	public static final int LATENCY_BUCKETS = 64;
+
+	/** Number of parses. */
+	private final LongAdder parseCount = new LongAdder();
+
+	/** Number of failed parses. */
+	private final LongAdder failedParseCount = new LongAdder();
+
+	/** Total time of parses, in nanoseconds. */
+	private final LongAdder totalNanos = new LongAdder();
+
+	/** Longest time of a parse, in nanoseconds. */
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/** Counts of parses by latency bucket. */
+	private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS);
+
+	/** Total number of arguments parsed. */
+	private final LongAdder argumentCount = new LongAdder();
+
+	/** Largest number of arguments parsed at once. */
+	private final AtomicLong maxArgumentCount = new AtomicLong();
+
+	/** Counts of errors, by ordinal of error code. */
+	private final AtomicLongArray errorCounts = new AtomicLongArray(
+			ParseErrorCode.values().length);
+
+	/** Number of parse cache hits. */
+	private final LongAdder cacheHitCount = new LongAdder();
+
+	/** Number of parse cache misses. */
+	private final LongAdder cacheMissCount = new LongAdder();
+
+	/** Name under which this object is registered as an MBean, or null. */
+	private volatile ObjectName objectName = null;
+
+	@Override
+	public void parseError(ParseErrorCode code)
+	{
+		errorCounts.incrementAndGet(code.ordinal());
+	}
+
+	@Override
+	public void cacheLookup(boolean hit)
+	{
+		if (hit)
+		{
+			cacheHitCount.increment();
+		}
+		else
+		{
+			cacheMissCount.increment();
+		}
+	}
+
+	@Override
+	public void parseCompleted(int arguments, long elapsedNanos, boolean successful)
+	{
+		long nanos = Math.max(0, elapsedNanos);
+
+		parseCount.increment();
+		if (!successful)
+		{
+			failedParseCount.increment();
+		}
+		totalNanos.add(nanos);
+		updateMax(maxNanos, nanos);
+		latencyHistogram.incrementAndGet(getBucket(nanos));
+		argumentCount.add(arguments);
+		updateMax(maxArgumentCount, arguments);
+	}
+
+	/**
+	 * Raises maximum to value, if value is greater.
+	 *
+	 * @param max
+	 *            The maximum.
+	 * @param value
+	 *            The value.
+	 */
+	private static void updateMax(AtomicLong max, long value)
+	{
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value))
+		{
+			current = max.get();
+		}
+	}
+
+	/**
+	 * Returns latency bucket of duration: bucket 0 for 0 ns, and bucket k for
+	 * [2<sup>k-1</sup>, 2<sup>k</sup>) ns.
+	 *
+	 * @param nanos
+	 *            The non-negative duration, in nanoseconds.
+	 * @return The bucket.
+	 */
+	static int getBucket(long nanos)
+	{
+		return Math.min(LATENCY_BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(nanos));
+	}
+
+	/**
+	 * Returns upper bound of latency bucket.
+	 *
+	 * @param bucket
+	 *            The bucket.
+	 * @return The longest duration counted in bucket, in nanoseconds.
+	 */
+	static long getBucketUpperBound(int bucket)
+	{
+		return bucket == 0 ? 0 : bucket == LATENCY_BUCKETS - 1 ? Long.MAX_VALUE
+				: (1L << bucket) - 1;
+	}
+
+	@Override
+	public long getParseCount()
+	{
+		return parseCount.sum();
+	}
+
+	@Override
+	public long getFailedParseCount()
+	{
+		return failedParseCount.sum();
+	}
+
+	/**
+	 * Returns total time of parses.
+	 *
+	 * @return Total latency in nanoseconds.
+	 */
+	public long getTotalLatencyNanos()
+	{
+		return totalNanos.sum();
+	}
+
+	@Override
+	public long getMeanLatencyNanos()
+	{
+		long count = parseCount.sum();
+		return count == 0 ? 0 : totalNanos.sum() / count;
+	}
+
+	@Override
+	public long getMaxLatencyNanos()
+	{
+		return maxNanos.get();
+	}
+
+	@Override
+	public long getMedianLatencyNanos()
+	{
+		return getLatencyPercentileNanos(50.0);
+	}
+
+	@Override
+	public long getP99LatencyNanos()
+	{
+		return getLatencyPercentileNanos(99.0);
+	}
+
+	/**
+	 * Returns percentile of parse times, approximated by the upper bound of
+	 * its histogram bucket.
+	 *
+	 * @param percentile
+	 *            The percentile, between 0 and 100.
+	 * @return The latency in nanoseconds, or 0 if there were no parses.
+	 */
+	public long getLatencyPercentileNanos(double percentile)
+	{
+		if (percentile < 0 || percentile > 100)
+		{
+			throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+		}
+
+		long[] histogram = getLatencyHistogram();
+		long count = 0;
+		for (long bucketCount : histogram)
+		{
+			count += bucketCount;
+		}
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+		long seen = 0;
+		for (int bucket = 0; bucket < histogram.length; bucket++)
+		{
+			seen += histogram[bucket];
+			if (seen >= rank)
+			{
+				return Math.min(getBucketUpperBound(bucket), maxNanos.get());
+			}
+		}
+		return maxNanos.get();
+	}
+
+	/**
+	 * Returns histogram of parse times: element 0 counts parses that took 0
+	 * ns, and element k parses that took from 2<sup>k-1</sup> to
+	 * 2<sup>k</sup>-1 ns.
+	 *
+	 * @return Copy of the histogram, of LATENCY_BUCKETS elements.
+	 */
+	public long[] getLatencyHistogram()
+	{
+		long[] histogram = new long[LATENCY_BUCKETS];
+		for (int i = 0; i < histogram.length; i++)
+		{
+			histogram[i] = latencyHistogram.get(i);
+		}
+		return histogram;
+	}
+
+	@Override
+	public long getArgumentCount()
+	{
+		return argumentCount.sum();
+	}
+
+	@Override
+	public long getMaxArgumentCount()
+	{
+		return maxArgumentCount.get();
+	}
+
+	/**
+	 * Returns number of errors of a kind.
+	 *
+	 * @param code
+	 *            Kind of error.
+	 * @return Number of errors.
+	 */
+	public long getErrorCount(ParseErrorCode code)
+	{
+		return errorCounts.get(code.ordinal());
+	}
+
+	@Override
+	public long getUnknownSwitchErrorCount()
+	{
+		return getErrorCount(ParseErrorCode.UNKNOWN_SWITCH);
+	}
+
+	@Override
+	public long getTooFewValuesErrorCount()
+	{
+		return getErrorCount(ParseErrorCode.TOO_FEW_VALUES);
+	}
+
+	@Override
+	public long getTooManyValuesErrorCount()
+	{
+		return getErrorCount(ParseErrorCode.TOO_MANY_VALUES);
+	}
+
+	@Override
+	public long getInvalidValueErrorCount()
+	{
+		return getErrorCount(ParseErrorCode.INVALID_VALUE);
+	}
+
+	@Override
+	public long getUnreadableResponseFileErrorCount()
+	{
+		return getErrorCount(ParseErrorCode.UNREADABLE_RESPONSE_FILE);
+	}
+
+	@Override
+	public long getAmbiguousSwitchErrorCount()
+	{
+		return getErrorCount(ParseErrorCode.AMBIGUOUS_SWITCH);
+	}
+
+	@Override
+	public long getCacheHitCount()
+	{
+		return cacheHitCount.sum();
+	}
+
+	@Override
+	public long getCacheMissCount()
+	{
+		return cacheMissCount.sum();
+	}
+
+	@Override
+	public void reset()
+	{
+		parseCount.reset();
+		failedParseCount.reset();
+		totalNanos.reset();
+		maxNanos.set(0);
+		for (int i = 0; i < LATENCY_BUCKETS; i++)
+		{
+			latencyHistogram.set(i, 0);
+		}
+		argumentCount.reset();
+		maxArgumentCount.set(0);
+		for (int i = 0; i < errorCounts.length(); i++)
+		{
+			errorCounts.set(i, 0);
+		}
+		cacheHitCount.reset();
+		cacheMissCount.reset();
+	}
+
+	/**
+	 * Registers this object with the platform MBean server, under name
+	 * <code>com.taitl.commandline:type=ParseMetrics,name=</code><i>name</i>.
+	 *
+	 * @param name
+	 *            Name distinguishing this object from other ParseMetrics
+	 *            MBeans, e.g. the name of the program.
+	 * @return The object name of the MBean.
+	 * @throws IllegalStateException
+	 *             if this object is already registered, or registration fails,
+	 *             e.g. because the name is taken.
+	 */
+	public synchronized ObjectName registerMBean(String name) throws IllegalStateException
+	{
+		if (name == null || name.length() == 0)
+		{
+			throw new IllegalArgumentException("Non-empty value required in parameter name.");
+		}
+		if (objectName != null)
+		{
+			throw new IllegalStateException("This object is already registered as MBean "
+					+ objectName + ".");
+		}
+
+		try
+		{
+			ObjectName newName = new ObjectName(JMX_DOMAIN + ":type=ParseMetrics,name="
+					+ ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+			objectName = newName;
+			return newName;
+		}
+		catch (JMException e)
+		{
+			throw new IllegalStateException("Can not register ParseMetrics MBean " + name
+					+ ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Unregisters this object from the platform MBean server, if it is
+	 * registered.
+	 *
+	 * @throws IllegalStateException
+	 *             if unregistration fails.
+	 */
+	public synchronized void unregisterMBean() throws IllegalStateException
+	{
+		if (objectName == null)
+		{
+			return;
+		}
+
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			objectName = null;
+		}
+		catch (JMException e)
+		{
+			throw new IllegalStateException("Can not unregister ParseMetrics MBean "
+					+ objectName + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns name under which this object is registered as an MBean.
+	 *
+	 * @return The object name, or null if this object is not registered.
+	 */
+	public ObjectName getObjectName()
+	{
+		return objectName;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ParseMetrics[parses=" + getParseCount() + ", failed=" + getFailedParseCount()
+				+ ", meanNanos=" + getMeanLatencyNanos() + ", p99Nanos="
+				+ getP99LatencyNanos() + ", maxNanos=" + getMaxLatencyNanos() + "]";
+	}
+}
@@ -0,0 +1,131 @@
+package com.taitl.commandline;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * JMX management interface of {@link ParseMetrics}.
+ */
+public interface ParseMetricsMBean
+{
+	/**
+	 * Returns number of parses, successful or not.
+	 *
+	 * @return Number of parses.
+	 */
+	long getParseCount();
+
+	/**
+	 * Returns number of parses of arguments violating parsing rules.
+	 *
+	 * @return Number of failed parses.
+	 */
+	long getFailedParseCount();
+
+	/**
+	 * Returns mean time of a parse.
+	 *
+	 * @return Mean latency in nanoseconds, or 0 if there were no parses.
+	 */
+	long getMeanLatencyNanos();
+
+	/**
+	 * Returns longest time of a parse.
+	 *
+	 * @return Maximum latency in nanoseconds.
+	 */
+	long getMaxLatencyNanos();
+
+	/**
+	 * Returns median time of a parse, approximated by the upper bound of its
+	 * histogram bucket.
+	 *
+	 * @return Median latency in nanoseconds.
+	 */
+	long getMedianLatencyNanos();
+
+	/**
+	 * Returns 99th percentile of parse times, approximated by the upper bound
+	 * of its histogram bucket.
+	 *
+	 * @return 99th percentile latency in nanoseconds.
+	 */
+	long getP99LatencyNanos();
+
+	/**
+	 * Returns total number of arguments parsed.
+	 *
+	 * @return Number of arguments.
+	 */
+	long getArgumentCount();
+
+	/**
+	 * Returns largest number of arguments parsed at once.
+	 *
+	 * @return Maximum number of arguments.
+	 */
+	long getMaxArgumentCount();
+
+	/**
+	 * Returns number of unknown switches found.
+	 *
+	 * @return Number of UNKNOWN_SWITCH errors.
+	 */
+	long getUnknownSwitchErrorCount();
+
+	/**
+	 * Returns number of switches found with too few values.
+	 *
+	 * @return Number of TOO_FEW_VALUES errors.
+	 */
+	long getTooFewValuesErrorCount();
+
+	/**
+	 * Returns number of switches found with too many values.
+	 *
+	 * @return Number of TOO_MANY_VALUES errors.
+	 */
+	long getTooManyValuesErrorCount();
+
+	/**
+	 * Returns number of values found that could not be converted to the type
+	 * of their switch.
+	 *
+	 * @return Number of INVALID_VALUE errors.
+	 */
+	long getInvalidValueErrorCount();
+
+	/**
+	 * Returns number of response files that could not be read.
+	 *
+	 * @return Number of UNREADABLE_RESPONSE_FILE errors.
+	 */
+	long getUnreadableResponseFileErrorCount();
+
+	/**
+	 * Returns number of ambiguous abbreviations of switches found.
+	 *
+	 * @return Number of AMBIGUOUS_SWITCH errors.
+	 */
+	long getAmbiguousSwitchErrorCount();
+
+	/**
+	 * Returns number of parses whose result was found in the parse cache.
+	 *
+	 * @return Number of cache hits.
+	 */
+	long getCacheHitCount();
+
+	/**
+	 * Returns number of parses whose result was not found in the parse cache.
+	 *
+	 * @return Number of cache misses.
+	 */
+	long getCacheMissCount();
+
+	/**
+	 * Resets all counters to zero.
+	 */
+	void reset();
+}
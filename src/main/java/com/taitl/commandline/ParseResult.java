@@ -0,0 +1,482 @@
+package com.taitl.commandline;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * ParseResult holds the outcome of parsing one command line with
+ * {@link ImmutableCommandLineParser}: the switches found on the command line
+ * with their values, and the switchless arguments; and, for a command line
+ * parsed by {@link SubcommandParser}, the subcommand it names.
+ * <p>
+ * Objects of this class are immutable and can be shared freely between
+ * threads.
+ */
+public final class ParseResult
+{
+	/** The parsed arguments. */
+	private final String[] arguments;
+
+	/** Switch names mapped to lists of their values, in command line order. */
+	private final Map<String, List<String>> switchMap;
+
+	/**
+	 * The command line arguments that do not have a switch corresponding to
+	 * them.
+	 */
+	private final List<String> switchlessArguments;
+
+	/** Switch names of typed switches mapped to their converted values. */
+	private final Map<String, TypedValues> typedValues;
+
+	/** Violations of parsing rules, empty if the command line is valid. */
+	private final List<ParseError> errors;
+
+	/** Name of the subcommand, or null if not parsed by a SubcommandParser. */
+	private final String subcommand;
+
+	/**
+	 * Constructs a ParseResult object. The passed-in array, map and list are
+	 * owned by the new object and must not be modified afterwards. The lists
+	 * are usually read-only views of the argument array.
+	 *
+	 * @param args
+	 *            The parsed arguments.
+	 * @param switchValues
+	 *            Unmodifiable mapping of switch names to unmodifiable lists of
+	 *            their values.
+	 * @param switchless
+	 *            Unmodifiable list of the switchless arguments.
+	 * @param typedSwitchValues
+	 *            Mapping of names of typed switches to their converted values.
+	 */
+	ParseResult(String[] args, Map<String, List<String>> switchValues,
+			List<String> switchless, Map<String, TypedValues> typedSwitchValues)
+	{
+		arguments = args;
+		switchMap = switchValues;
+		switchlessArguments = switchless;
+		typedValues = typedSwitchValues;
+		errors = Collections.emptyList();
+		subcommand = null;
+	}
+
+	/**
+	 * Constructs a ParseResult object for arguments violating parsing rules,
+	 * which has no switches and no switchless arguments. The passed-in array
+	 * and list are owned by the new object and must not be modified
+	 * afterwards.
+	 *
+	 * @param args
+	 *            The parsed arguments.
+	 * @param parseErrors
+	 *            Violations of parsing rules, not empty.
+	 */
+	ParseResult(String[] args, List<ParseError> parseErrors)
+	{
+		arguments = args;
+		switchMap = Collections.emptyMap();
+		switchlessArguments = Collections.emptyList();
+		typedValues = Collections.emptyMap();
+		errors = Collections.unmodifiableList(parseErrors);
+		subcommand = null;
+	}
+
+	/**
+	 * Constructs a ParseResult object sharing the contents of another one,
+	 * for a subcommand.
+	 *
+	 * @param result
+	 *            The result of parsing the arguments after the subcommand.
+	 * @param subcommandName
+	 *            Name of the subcommand.
+	 */
+	private ParseResult(ParseResult result, String subcommandName)
+	{
+		arguments = result.arguments;
+		switchMap = result.switchMap;
+		switchlessArguments = result.switchlessArguments;
+		typedValues = result.typedValues;
+		errors = result.errors;
+		subcommand = subcommandName;
+	}
+
+	/**
+	 * Returns result with the contents of this one, for a subcommand.
+	 *
+	 * @param subcommandName
+	 *            Name of the subcommand.
+	 * @return The result.
+	 */
+	ParseResult withSubcommand(String subcommandName)
+	{
+		return new ParseResult(this, subcommandName);
+	}
+
+	/**
+	 * Returns name of the subcommand, the first argument of a command line
+	 * parsed by {@link SubcommandParser}. The other methods then describe the
+	 * arguments after it.
+	 *
+	 * @return Name of the subcommand, e.g. commit, or null if the command line
+	 *         has not been parsed by a SubcommandParser, or names no known
+	 *         subcommand.
+	 */
+	public String getSubcommand()
+	{
+		return subcommand;
+	}
+
+	/**
+	 * Returns the parsed arguments.
+	 *
+	 * @return Copy of the parsed argument array.
+	 */
+	public String[] getArguments()
+	{
+		return arguments.clone();
+	}
+
+	/**
+	 * Returns true if the command line violates parsing rules. Such a result
+	 * is only returned by <code>tryParse()</code>, and has no switches and no
+	 * switchless arguments.
+	 *
+	 * @return True if there are errors.
+	 */
+	public boolean hasErrors()
+	{
+		return !errors.isEmpty();
+	}
+
+	/**
+	 * Returns the violations of parsing rules found in the command line.
+	 *
+	 * @return Unmodifiable list of errors, empty if the command line is valid.
+	 */
+	public List<ParseError> getErrors()
+	{
+		return errors;
+	}
+
+	/**
+	 * Is command line switch present?
+	 *
+	 * @param switchName
+	 *            The command line switch, e.g. --version.
+	 * @return True or false depending on whether the switch is present on the
+	 *         command line.
+	 */
+	public boolean isSwitchPresent(String switchName)
+	{
+		return switchMap.containsKey(switchName);
+	}
+
+	/**
+	 * Returns switch value: empty string if the switch has no values, or its
+	 * only value.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @return The value of command line switch, empty string if switch has no
+	 *         value.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present or has several values.
+	 */
+	public String getSwitchValue(String switchName)
+			throws IllegalArgumentException
+	{
+		List<String> valueList = getSwitchValues(switchName);
+
+		if (valueList.size() > 1)
+		{
+			throw new IllegalArgumentException("Switch " + switchName
+					+ " has several values. Use getSwitchValueCount() to check for number of switch values."
+					+ " Use getSwitchValues() to get the list of switch values.");
+		}
+		return valueList.isEmpty() ? "" : valueList.get(0);
+	}
+
+	/**
+	 * Returns the list of values of command line switch.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @return Unmodifiable list of values of command line switch.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present.
+	 */
+	public List<String> getSwitchValues(String switchName)
+			throws IllegalArgumentException
+	{
+		List<String> valueList = switchMap.get(switchName);
+
+		if (valueList == null)
+		{
+			throw new IllegalArgumentException("Switch " + switchName
+					+ " is not present on the command line. Use isSwitchPresent() to check for a switch.");
+		}
+		return valueList;
+	}
+
+	/**
+	 * Returns value count of switch.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @return The number of values of command line switch.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present.
+	 */
+	public int getSwitchValueCount(String switchName)
+			throws IllegalArgumentException
+	{
+		return getSwitchValues(switchName).size();
+	}
+
+	/**
+	 * Returns the only value of switch as an int.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @return The value of command line switch.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present, does not have exactly one
+	 *             value, or its value is not an int.
+	 */
+	public int getInt(String switchName) throws IllegalArgumentException
+	{
+		return getInt(switchName, getOnlyValueIndex(switchName));
+	}
+
+	/**
+	 * Returns the specified value of switch as an int. Values of switches
+	 * declared with type int are converted at parse time; values of switches
+	 * declared without a type are converted by this method.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @param index
+	 *            Index of value.
+	 * @return The value of command line switch.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present, or its value is not an int.
+	 * @throws IndexOutOfBoundsException
+	 *             if the switch has no value with this index.
+	 */
+	public int getInt(String switchName, int index) throws IllegalArgumentException,
+			IndexOutOfBoundsException
+	{
+		return (int) getIntegralValue(switchName, index, ValueType.INT);
+	}
+
+	/**
+	 * Returns the only value of switch as a long.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @return The value of command line switch.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present, does not have exactly one
+	 *             value, or its value is not a long.
+	 */
+	public long getLong(String switchName) throws IllegalArgumentException
+	{
+		return getLong(switchName, getOnlyValueIndex(switchName));
+	}
+
+	/**
+	 * Returns the specified value of switch as a long. Values of switches
+	 * declared with type int or long are converted at parse time; values of
+	 * switches declared without a type are converted by this method.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @param index
+	 *            Index of value.
+	 * @return The value of command line switch.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present, or its value is not a long.
+	 * @throws IndexOutOfBoundsException
+	 *             if the switch has no value with this index.
+	 */
+	public long getLong(String switchName, int index) throws IllegalArgumentException,
+			IndexOutOfBoundsException
+	{
+		return getIntegralValue(switchName, index, ValueType.LONG);
+	}
+
+	/**
+	 * Returns the only value of switch as a double.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @return The value of command line switch.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present, does not have exactly one
+	 *             value, or its value is not a double.
+	 */
+	public double getDouble(String switchName) throws IllegalArgumentException
+	{
+		return getDouble(switchName, getOnlyValueIndex(switchName));
+	}
+
+	/**
+	 * Returns the specified value of switch as a double. Values of switches
+	 * declared with type int, long or double are converted at parse time;
+	 * values of switches declared without a type are converted by this method.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @param index
+	 *            Index of value.
+	 * @return The value of command line switch.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present, or its value is not a double.
+	 * @throws IndexOutOfBoundsException
+	 *             if the switch has no value with this index.
+	 */
+	public double getDouble(String switchName, int index) throws IllegalArgumentException,
+			IndexOutOfBoundsException
+	{
+		String value = getSwitchValues(switchName).get(index);
+		TypedValues typed = getTypedValues(switchName, ValueType.DOUBLE);
+
+		return typed == null ? ValueType.DOUBLE.toDouble(switchName, value) : typed
+				.getDouble(index);
+	}
+
+	/**
+	 * Returns the only value of switch as a duration.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @return The value of command line switch.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present, does not have exactly one
+	 *             value, or its value is not a duration.
+	 */
+	public Duration getDuration(String switchName) throws IllegalArgumentException
+	{
+		return getDuration(switchName, getOnlyValueIndex(switchName));
+	}
+
+	/**
+	 * Returns the specified value of switch as a duration, see
+	 * {@link ValueType#DURATION} for the format. Values of switches declared
+	 * with type duration are converted at parse time; values of switches
+	 * declared without a type are converted by this method.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @param index
+	 *            Index of value.
+	 * @return The value of command line switch.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present, or its value is not a
+	 *             duration.
+	 * @throws IndexOutOfBoundsException
+	 *             if the switch has no value with this index.
+	 */
+	public Duration getDuration(String switchName, int index)
+			throws IllegalArgumentException, IndexOutOfBoundsException
+	{
+		return Duration.ofNanos(getIntegralValue(switchName, index, ValueType.DURATION));
+	}
+
+	/**
+	 * Returns the specified value of switch of type int, long or duration.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @param index
+	 *            Index of value.
+	 * @param type
+	 *            The requested type.
+	 * @return The value, in nanoseconds for a duration.
+	 */
+	private long getIntegralValue(String switchName, int index, ValueType type)
+	{
+		String value = getSwitchValues(switchName).get(index);
+		TypedValues typed = getTypedValues(switchName, type);
+
+		return typed == null ? type.toLong(switchName, value) : typed.getLong(index);
+	}
+
+	/**
+	 * Returns the converted values of switch, checking that they can be
+	 * returned as the requested type.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @param type
+	 *            The requested type.
+	 * @return The converted values, or null if the switch was declared
+	 *         without a type.
+	 */
+	private TypedValues getTypedValues(String switchName, ValueType type)
+	{
+		TypedValues typed = typedValues.get(switchName);
+
+		if (typed != null && !typed.getType().widensTo(type))
+		{
+			throw new IllegalArgumentException("Switch " + switchName
+					+ " is declared with values of type " + typed.getType().getName()
+					+ ", which can not be returned as " + type.getName() + ".");
+		}
+		return typed;
+	}
+
+	/**
+	 * Returns index of the only value of switch, which is 0.
+	 *
+	 * @param switchName
+	 *            The name of command line switch.
+	 * @return Index of the only value.
+	 * @throws IllegalArgumentException
+	 *             if the switch is not present or does not have exactly one
+	 *             value.
+	 */
+	private int getOnlyValueIndex(String switchName) throws IllegalArgumentException
+	{
+		int count = getSwitchValueCount(switchName);
+
+		if (count != 1)
+		{
+			throw new IllegalArgumentException("Switch " + switchName + " has " + count
+					+ " values, while exactly one is expected. Use the accessor with"
+					+ " index of value for switches with several values.");
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns command line arguments that do not have any switch corresponding
+	 * to them.
+	 *
+	 * @return Copy of the array of switchless arguments in the order they
+	 *         appear in the command line.
+	 */
+	public String[] getSwitchlessArguments()
+	{
+		return switchlessArguments.toArray(new String[switchlessArguments.size()]);
+	}
+
+	/**
+	 * Returns the mapping of switch names to list of their corresponding
+	 * values.
+	 *
+	 * @return Unmodifiable mapping of command line switch names to lists of
+	 *         their corresponding values.
+	 */
+	public Map<String, List<String>> getSwitchMap()
+	{
+		return switchMap;
+	}
+}
@@ -0,0 +1,362 @@
+package com.taitl.commandline;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * ParseResultCache is a bounded cache of parse results in front of an
+ * {@link ImmutableCommandLineParser}, for workloads where the same argument
+ * vectors or command lines are parsed again and again, e.g. cron-style jobs
+ * firing the same command every minute. A previously seen argument vector or
+ * command line gets the shared, immutable result of its first parse.
+ * <p>
+ * When the cache is full, the least recently used result is evicted. Hit,
+ * miss and eviction counts are kept for monitoring. Command lines and
+ * argument vectors violating the parsing rules are not cached: they are
+ * parsed, and rejected, every time. Neither are argument vectors referring to
+ * response files when the parser expands them, since the files may change.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * ParseResultCache cache = new ParseResultCache(parser, 10000);
+ * ParseResult result = cache.parse(arguments);
+ * </pre>
+ *
+ * Objects of this class are thread-safe. Lookups are serialized on the cache;
+ * parsing on a miss is not.
+ */
+public final class ParseResultCache
+{
+	/** The parser. */
+	private final ImmutableCommandLineParser parser;
+
+	/** Maximum number of cached results. */
+	private final int maximumSize;
+
+	/** Cached results by argument vector or command line, in access order. */
+	private final Map<Object, ParseResult> results;
+
+	/** Number of lookups that found a cached result. */
+	private long hitCount = 0;
+
+	/** Number of lookups that did not find a cached result. */
+	private long missCount = 0;
+
+	/** Number of results evicted to keep the cache within its size. */
+	private long evictionCount = 0;
+
+	/**
+	 * Constructs a ParseResultCache object.
+	 *
+	 * @param immutableParser
+	 *            The parser.
+	 * @param size
+	 *            Maximum number of cached results.
+	 */
+	public ParseResultCache(ImmutableCommandLineParser immutableParser, int size)
+	{
+		if (immutableParser == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter immutableParser.");
+		}
+		if (size <= 0)
+		{
+			throw new IllegalArgumentException("Maximum cache size must be positive.");
+		}
+
+		parser = immutableParser;
+		maximumSize = size;
+		results = new LinkedHashMap<Object, ParseResult>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, ParseResult> eldest)
+			{
+				if (size() > maximumSize)
+				{
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached result of parsing the argument vector, parsing it on
+	 * a miss. See {@link ImmutableCommandLineParser#parse(String[])}.
+	 *
+	 * @param args
+	 *            Command line arguments to parse.
+	 * @return The result of parsing.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values.
+	 */
+	public ParseResult parse(String[] args) throws IllegalArgumentException,
+			IllegalStateException
+	{
+		return parse(args, null);
+	}
+
+	/**
+	 * Returns the cached result of parsing the argument vector, parsing it on
+	 * a miss, and reports the lookup to listener.
+	 *
+	 * @param args
+	 *            Command line arguments to parse.
+	 * @param listener
+	 *            Listener notified of the cache lookup, or null.
+	 * @return The result of parsing.
+	 */
+	ParseResult parse(String[] args, ParseListener listener)
+	{
+		if (args == null)
+		{
+			throw new IllegalArgumentException("This arguments array must not be null.");
+		}
+		if (parser.isResponseFileExpansion() && hasResponseFile(args))
+		{
+			return parser.parse(args);
+		}
+
+		ArgumentsKey key = new ArgumentsKey(args);
+		ParseResult result = lookup(key);
+		if (listener != null)
+		{
+			listener.cacheLookup(result != null);
+		}
+		if (result == null)
+		{
+			result = parser.parse(args);
+			store(new ArgumentsKey(result.getArguments()), result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the cached result of parsing the command line, parsing it on a
+	 * miss. See {@link ImmutableCommandLineParser#parse(String)}.
+	 *
+	 * @param commandLine
+	 *            Command line to parse.
+	 * @return The result of parsing.
+	 * @throws IllegalArgumentException
+	 *             when a violation of parsing rules is encountered.
+	 * @throws IllegalStateException
+	 *             when the implicit switch receives too many values.
+	 */
+	public ParseResult parse(String commandLine) throws IllegalArgumentException,
+			IllegalStateException
+	{
+		if (commandLine == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter commandLine.");
+		}
+
+		ParseResult result = lookup(commandLine);
+		if (result == null)
+		{
+			result = parser.parse(commandLine);
+			if (!parser.isResponseFileExpansion()
+					|| commandLine.indexOf(ResponseFiles.RESPONSE_FILE_PREFIX) == -1)
+			{
+				store(commandLine, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Looks up cached result, counting a hit or a miss.
+	 *
+	 * @param key
+	 *            Argument vector key or command line.
+	 * @return The cached result, or null.
+	 */
+	private synchronized ParseResult lookup(Object key)
+	{
+		ParseResult result = results.get(key);
+		if (result != null)
+		{
+			hitCount++;
+		}
+		else
+		{
+			missCount++;
+		}
+		return result;
+	}
+
+	/**
+	 * Caches result, evicting the least recently used one if the cache is
+	 * full.
+	 *
+	 * @param key
+	 *            Argument vector key or command line.
+	 * @param result
+	 *            The result of parsing.
+	 */
+	private synchronized void store(Object key, ParseResult result)
+	{
+		results.put(key, result);
+	}
+
+	/**
+	 * Returns true if one of arguments names a response file.
+	 *
+	 * @param args
+	 *            Command line arguments.
+	 * @return True if an argument starts with @.
+	 */
+	private static boolean hasResponseFile(String[] args)
+	{
+		for (String arg : args)
+		{
+			if (arg != null && arg.length() > 1
+					&& arg.charAt(0) == ResponseFiles.RESPONSE_FILE_PREFIX)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the parser of this cache.
+	 *
+	 * @return The parser.
+	 */
+	public ImmutableCommandLineParser getParser()
+	{
+		return parser;
+	}
+
+	/**
+	 * Returns maximum number of cached results.
+	 *
+	 * @return Maximum number of cached results.
+	 */
+	public int getMaximumSize()
+	{
+		return maximumSize;
+	}
+
+	/**
+	 * Returns number of cached results.
+	 *
+	 * @return Number of cached results.
+	 */
+	public synchronized int size()
+	{
+		return results.size();
+	}
+
+	/**
+	 * Returns number of lookups that found a cached result.
+	 *
+	 * @return The hit count.
+	 */
+	public synchronized long getHitCount()
+	{
+		return hitCount;
+	}
+
+	/**
+	 * Returns number of lookups that did not find a cached result.
+	 *
+	 * @return The miss count.
+	 */
+	public synchronized long getMissCount()
+	{
+		return missCount;
+	}
+
+	/**
+	 * Returns number of results evicted to keep the cache within its size.
+	 *
+	 * @return The eviction count.
+	 */
+	public synchronized long getEvictionCount()
+	{
+		return evictionCount;
+	}
+
+	/**
+	 * Returns ratio of hits to all lookups.
+	 *
+	 * @return The hit rate, between 0 and 1, or 0 if there were no lookups.
+	 */
+	public synchronized double getHitRate()
+	{
+		long lookups = hitCount + missCount;
+		return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+	}
+
+	/**
+	 * Discards all cached results. Statistics are kept.
+	 */
+	public synchronized void clear()
+	{
+		results.clear();
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "ParseResultCache[size=" + results.size() + ", maximumSize=" + maximumSize
+				+ ", hits=" + hitCount + ", misses=" + missCount + ", evictions="
+				+ evictionCount + "]";
+	}
+
+	/**
+	 * Key of cached result of parsing an argument vector.
+	 */
+	private static final class ArgumentsKey
+	{
+		/** The arguments. */
+		private final String[] arguments;
+
+		/** Hash code of the arguments, computed once. */
+		private final int hash;
+
+		/**
+		 * Constructs an ArgumentsKey object.
+		 *
+		 * @param args
+		 *            The arguments, not to be modified while the key is in use.
+		 */
+		ArgumentsKey(String[] args)
+		{
+			arguments = args;
+			hash = Arrays.hashCode(args);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof ArgumentsKey))
+			{
+				return false;
+			}
+			ArgumentsKey other = (ArgumentsKey) obj;
+			return hash == other.hash && Arrays.equals(arguments, other.arguments);
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package com.taitl.commandline;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * ParseResultHandler receives the results of parallel batch parsing as soon
+ * as they are available, in no particular order, see
+ * {@link ImmutableCommandLineParser#parseAllParallel(java.util.List, java.util.concurrent.Executor, ParseResultHandler)}.
+ * <p>
+ * The handler is called concurrently from the threads doing the parsing, and
+ * must therefore be thread-safe.
+ */
+public interface ParseResultHandler
+{
+	/**
+	 * Handles the result of parsing one element of a batch.
+	 *
+	 * @param index
+	 *            Index of the element in the batch.
+	 * @param result
+	 *            The result of parsing the element.
+	 */
+	void handle(int index, ParseResult result);
+}
@@ -0,0 +1,199 @@
+package com.taitl.commandline;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Auxiliary class used by ImmutableCommandLineParser to expand response
+ * files.
+ * <p>
+ * An argument of the form <code>@path</code> is replaced with the arguments
+ * contained in the file at path, split following the rules of
+ * {@link CommandLineParser#setCommandLine(String)}, where line terminators
+ * count as whitespace. The file must be UTF-8 encoded (ASCII is fine). It is
+ * memory-mapped and tokenized directly from the mapped buffer, without being
+ * read into a String first. Arguments inside response files are not expanded
+ * again.
+ */
+final class ResponseFiles
+{
+	/** Prefix of arguments naming a response file. */
+	static final char RESPONSE_FILE_PREFIX = '@';
+
+	/**
+	 * Utility class, not to be instantiated.
+	 */
+	private ResponseFiles()
+	{
+	}
+
+	/**
+	 * Replaces arguments of the form <code>@path</code> with the arguments
+	 * contained in response files.
+	 *
+	 * @param arguments
+	 *            Command line arguments.
+	 * @return The expanded arguments, or the same array if there are no
+	 *         response files among arguments.
+	 * @throws IllegalArgumentException
+	 *             if a response file can not be read.
+	 */
+	static String[] expand(String[] arguments) throws IllegalArgumentException
+	{
+		return expand(arguments, null);
+	}
+
+	/**
+	 * Replaces arguments of the form <code>@path</code> with the arguments
+	 * contained in response files, reporting response files that can not be
+	 * read either by throwing or as parse errors.
+	 *
+	 * @param arguments
+	 *            Command line arguments.
+	 * @param errors
+	 *            List to add errors to, or null to throw on the first error.
+	 * @return The expanded arguments, the same array if there are no response
+	 *         files among arguments, or null if errors have been added.
+	 * @throws IllegalArgumentException
+	 *             if a response file can not be read, and errors is null.
+	 */
+	static String[] expand(String[] arguments, List<ParseError> errors)
+			throws IllegalArgumentException
+	{
+		int first = 0;
+		while (first < arguments.length && !isResponseFile(arguments[first]))
+		{
+			first++;
+		}
+		if (first == arguments.length)
+		{
+			return arguments;
+		}
+		if (arguments.length == 1)
+		{
+			return read(arguments, 0, errors);
+		}
+
+		List<String> expanded = new ArrayList<String>(Arrays.asList(arguments).subList(0,
+				first));
+		boolean failed = false;
+		for (int i = first; i < arguments.length; i++)
+		{
+			if (isResponseFile(arguments[i]))
+			{
+				String[] contents = read(arguments, i, errors);
+				if (contents == null)
+				{
+					failed = true;
+				}
+				else if (!failed)
+				{
+					expanded.addAll(Arrays.asList(contents));
+				}
+			}
+			else
+			{
+				expanded.add(arguments[i]);
+			}
+		}
+		return failed ? null : expanded.toArray(new String[expanded.size()]);
+	}
+
+	/**
+	 * Reads response file named by an argument.
+	 *
+	 * @param arguments
+	 *            Command line arguments.
+	 * @param index
+	 *            Index of the argument naming the response file.
+	 * @param errors
+	 *            List to add the error to, or null to throw it.
+	 * @return The arguments contained in response file, or null if an error
+	 *         has been added.
+	 * @throws InvalidCommandLineException
+	 *             if the response file can not be read, and errors is null.
+	 */
+	private static String[] read(String[] arguments, int index, List<ParseError> errors)
+			throws IllegalArgumentException
+	{
+		try
+		{
+			return read(arguments[index].substring(1));
+		}
+		catch (IllegalArgumentException e)
+		{
+			ParseError error = ParseError.unreadableResponseFile(index, arguments[index],
+					e.getMessage());
+			if (errors == null)
+			{
+				throw new InvalidCommandLineException(Collections.singletonList(error),
+						e.getCause());
+			}
+			errors.add(error);
+			return null;
+		}
+	}
+
+	/**
+	 * Returns true if argument names a response file.
+	 *
+	 * @param argument
+	 *            The argument.
+	 * @return True if argument is of the form <code>@path</code>.
+	 */
+	private static boolean isResponseFile(String argument)
+	{
+		return argument.length() > 1 && argument.charAt(0) == RESPONSE_FILE_PREFIX;
+	}
+
+	/**
+	 * Memory-maps response file and splits it into arguments.
+	 *
+	 * @param path
+	 *            Path of response file.
+	 * @return The arguments contained in response file.
+	 * @throws IllegalArgumentException
+	 *             if the response file can not be read.
+	 */
+	static String[] read(String path) throws IllegalArgumentException
+	{
+		try
+		{
+			RandomAccessFile file = new RandomAccessFile(path, "r");
+			try
+			{
+				FileChannel channel = file.getChannel();
+				long size = channel.size();
+
+				if (size > Integer.MAX_VALUE)
+				{
+					throw new IllegalArgumentException("Response file " + path
+							+ " is larger than " + Integer.MAX_VALUE + " bytes.");
+				}
+
+				// The mapping stays valid after the channel is closed
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+				return new CommandLineTokenizer(new ByteCharSequence(buffer)).toArray();
+			}
+			finally
+			{
+				file.close();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new IllegalArgumentException("Can not read response file " + path + ": "
+					+ e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,414 @@
+package com.taitl.commandline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * SpecializedParser is a parser built once for a fixed switch schema, with
+ * the switch names, their cardinalities and the switch prefixes laid out in
+ * final arrays: switches are numbered, and an argument is dispatched to its
+ * switch number through an open-addressing table keyed by the switch names
+ * and their hash codes. The parsing loop then works on switch numbers only,
+ * and validates the values of each switch as soon as they end, in the same
+ * pass, with no further lookups by name.
+ * <p>
+ * Only command lines that obey the parsing rules are parsed here. At the
+ * first violation, parsing gives up and returns null, and the caller parses
+ * the arguments again with the interpreted parser, which reports the exact
+ * errors.
+ * <p>
+ * Objects of this class are immutable and can be shared freely between
+ * threads.
+ */
+final class SpecializedParser
+{
+	/** Specifications of possible switches, by switch number. */
+	private final SwitchSpecification[] specifications;
+
+	/** Switch names, by switch number. */
+	private final String[] names;
+
+	/** Minimum numbers of values, by switch number. */
+	private final int[] minValues;
+
+	/** Maximum numbers of values, by switch number. */
+	private final int[] maxValues;
+
+	/** True for switches with typed values, by switch number. */
+	private final boolean[] typed;
+
+	/** Switch names, by table slot; null for an empty slot. */
+	private final String[] slotNames;
+
+	/** Hash codes of switch names, by table slot. */
+	private final int[] slotHashes;
+
+	/** Switch numbers, by table slot. */
+	private final int[] slotNumbers;
+
+	/** Mask of table slot index; the table size is a power of two. */
+	private final int slotMask;
+
+	/** Shift of a spread hash code to the table slot index. */
+	private final int slotShift;
+
+	/**
+	 * Literal switch prefixes, with each prefix starting with another one
+	 * dropped, or null if prefixes are matched with a regular expression.
+	 */
+	private final String[] prefixes;
+
+	/** Compiled switch name prefixes mask. */
+	private final SwitchPrefixMatcher switchPrefixMatcher;
+
+	/** Specification of implicit switch, or null if there is none. */
+	private final SwitchSpecification implicitSpecification;
+
+	/** Trie resolving abbreviated switches, or null. */
+	private final SwitchTrie switchTrie;
+
+	/** Maximum number of switchless arguments. */
+	private final int maxSwitchless;
+
+	/**
+	 * Constructs a SpecializedParser object.
+	 *
+	 * @param schema
+	 *            Compiled schema of possible switches and implicit switch.
+	 * @param switchPrefixes
+	 *            Compiled switch name prefixes mask.
+	 * @param abbreviations
+	 *            Trie resolving abbreviated switches, or null if abbreviations
+	 *            are not accepted.
+	 */
+	private SpecializedParser(SwitchSchema schema, SwitchPrefixMatcher switchPrefixes,
+			SwitchTrie abbreviations)
+	{
+		List<SwitchSpecification> possibleSwitches = schema.getSpecifications();
+		int count = possibleSwitches.size();
+
+		specifications = possibleSwitches.toArray(new SwitchSpecification[count]);
+		names = new String[count];
+		minValues = new int[count];
+		maxValues = new int[count];
+		typed = new boolean[count];
+
+		int tableSize = Integer.highestOneBit(Math.max(count, 1) * 2) * 2;
+		slotNames = new String[tableSize];
+		slotHashes = new int[tableSize];
+		slotNumbers = new int[tableSize];
+		slotMask = tableSize - 1;
+		slotShift = Integer.numberOfLeadingZeros(slotMask);
+
+		for (int number = 0; number < count; number++)
+		{
+			SwitchSpecification specification = specifications[number];
+			names[number] = specification.getName();
+			minValues[number] = specification.getMinValues();
+			maxValues[number] = specification.getMaxValues();
+			typed[number] = specification.getValueType() != ValueType.STRING;
+
+			int hash = names[number].hashCode();
+			int slot = spread(hash) >>> slotShift;
+			while (slotNames[slot] != null)
+			{
+				slot = (slot + 1) & slotMask;
+			}
+			slotNames[slot] = names[number];
+			slotHashes[slot] = hash;
+			slotNumbers[slot] = number;
+		}
+
+		switchPrefixMatcher = switchPrefixes;
+		prefixes = switchPrefixes.isLiteral() ? reducePrefixes(switchPrefixes.getMask())
+				: null;
+		implicitSpecification = schema.getImplicitSpecification();
+		maxSwitchless = implicitSpecification == null ? Integer.MAX_VALUE
+				: implicitSpecification.getMaxValues();
+		switchTrie = abbreviations;
+	}
+
+	/**
+	 * Builds a parser specialized for the schema, if the schema allows it.
+	 *
+	 * @param schema
+	 *            Compiled schema of possible switches and implicit switch.
+	 * @param switchPrefixes
+	 *            Compiled switch name prefixes mask.
+	 * @param abbreviations
+	 *            Trie resolving abbreviated switches, or null if abbreviations
+	 *            are not accepted.
+	 * @return The specialized parser, or null if the implicit switch is also
+	 *         among possible switches, whose values the interpreted parser
+	 *         merges.
+	 */
+	static SpecializedParser create(SwitchSchema schema, SwitchPrefixMatcher switchPrefixes,
+			SwitchTrie abbreviations)
+	{
+		SwitchSpecification implicit = schema.getImplicitSpecification();
+		if (implicit != null && schema.isPossibleSwitch(implicit.getName()))
+		{
+			return null;
+		}
+		return new SpecializedParser(schema, switchPrefixes, abbreviations);
+	}
+
+	/**
+	 * Drops literal prefixes which start with another prefix, as an argument
+	 * matching them also matches the shorter one, e.g. (--|-) is reduced to -.
+	 *
+	 * @param switchPrefixesMask
+	 *            Switch prefixes mask, a plain alternation of literals.
+	 * @return The reduced prefixes.
+	 */
+	private static String[] reducePrefixes(String switchPrefixesMask)
+	{
+		String alternation = switchPrefixesMask;
+		if (alternation.startsWith("(") && alternation.endsWith(")"))
+		{
+			alternation = alternation.substring(1, alternation.length() - 1);
+		}
+
+		String[] all = alternation.split("\\|", -1);
+		List<String> reduced = new ArrayList<String>(all.length);
+		for (String prefix : all)
+		{
+			boolean covered = false;
+			for (String other : all)
+			{
+				if (other.length() < prefix.length() && prefix.startsWith(other))
+				{
+					covered = true;
+				}
+			}
+			if (!covered && !reduced.contains(prefix))
+			{
+				reduced.add(prefix);
+			}
+		}
+		return reduced.toArray(new String[reduced.size()]);
+	}
+
+	/**
+	 * Spreads the bits of a hash code into the higher ones, which index the
+	 * table. Switch names often differ in their last characters only, e.g.
+	 * --switch1, --switch2, and their hash codes form runs of consecutive
+	 * numbers, which multiplication by the golden ratio scatters.
+	 *
+	 * @param hash
+	 *            Hash code of switch name.
+	 * @return The spread hash code.
+	 */
+	private static int spread(int hash)
+	{
+		return hash * 0x9E3779B9;
+	}
+
+	/**
+	 * Returns the number of a possible switch.
+	 *
+	 * @param switchName
+	 *            Name of switch, e.g. --file.
+	 * @return The switch number, or -1 if there is no such possible switch.
+	 */
+	int getSwitchNumber(String switchName)
+	{
+		int hash = switchName.hashCode();
+		int slot = spread(hash) >>> slotShift;
+		String name;
+		while ((name = slotNames[slot]) != null)
+		{
+			if (slotHashes[slot] == hash && name.equals(switchName))
+			{
+				return slotNumbers[slot];
+			}
+			slot = (slot + 1) & slotMask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true if the argument starts with one of the switch prefixes.
+	 *
+	 * @param argument
+	 *            The command line argument.
+	 * @return True if the argument looks like a switch.
+	 */
+	private boolean looksLikeSwitch(String argument)
+	{
+		if (prefixes == null)
+		{
+			return switchPrefixMatcher.matches(argument);
+		}
+		for (String prefix : prefixes)
+		{
+			if (argument.startsWith(prefix))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Parses command line arguments, following the rules of
+	 * {@link ImmutableCommandLineParser#parse(String[])}.
+	 *
+	 * @param arguments
+	 *            Command line arguments, owned by the result.
+	 * @param scratch
+	 *            Buffers reused across a batch, or null for a single parse.
+	 * @return The result of parsing, or null if the arguments violate the
+	 *         parsing rules.
+	 */
+	ParseResult parse(String[] arguments, ImmutableCommandLineParser.Scratch scratch)
+	{
+		Map<String, List<String>> switchMap = new LinkedHashMap<String, List<String>>();
+		Map<String, TypedValues> typedValues = null;
+
+		// The switch being parsed: its number, and the index and number of its
+		// values in the argument array
+		int current = -1;
+		int valuesStart = 0;
+		int valueCount = 0;
+
+		int[] switchless = scratch != null ? scratch.switchless : new int[Math.min(
+				arguments.length, ImmutableCommandLineParser.INITIAL_SWITCHLESS_CAPACITY)];
+		int switchlessCount = 0;
+
+		for (int i = 0; i <= arguments.length; i++)
+		{
+			String argument = i < arguments.length ? arguments[i] : null;
+			boolean isSwitch = argument == null || looksLikeSwitch(argument);
+
+			if (isSwitch)
+			{
+				// The values of the current switch end here
+				if (current != -1)
+				{
+					if (valueCount < minValues[current])
+					{
+						return null;
+					}
+					ArgumentList values = new ArgumentList(arguments, valuesStart, valueCount);
+					switchMap.put(names[current], values);
+					if (typed[current])
+					{
+						typedValues = putTypedValues(typedValues, specifications[current],
+								values);
+						if (typedValues == null)
+						{
+							return null;
+						}
+					}
+				}
+				if (argument == null)
+				{
+					break;
+				}
+
+				current = getSwitchNumber(argument);
+				if (current == -1 && switchTrie != null)
+				{
+					current = switchTrie.find(argument);
+				}
+				if (current < 0)
+				{
+					return null;
+				}
+				valuesStart = i + 1;
+				valueCount = 0;
+			}
+			else if (current != -1 && valueCount < maxValues[current])
+			{
+				valueCount++;
+			}
+			else
+			{
+				if (switchlessCount >= maxSwitchless)
+				{
+					return null;
+				}
+				if (switchlessCount == switchless.length)
+				{
+					switchless = Arrays.copyOf(switchless, switchlessCount * 2);
+					if (scratch != null)
+					{
+						scratch.switchless = switchless;
+					}
+				}
+				switchless[switchlessCount++] = i;
+			}
+		}
+
+		if (scratch != null)
+		{
+			switchless = switchlessCount == 0 ? ImmutableCommandLineParser.NO_INDICES
+					: Arrays.copyOf(switchless, switchlessCount);
+		}
+		ArgumentList switchlessArguments = new ArgumentList(arguments, switchless,
+				switchlessCount);
+
+		if (implicitSpecification != null && switchlessCount > 0)
+		{
+			if (switchlessCount < implicitSpecification.getMinValues())
+			{
+				return null;
+			}
+			switchMap.put(implicitSpecification.getName(), switchlessArguments);
+			if (implicitSpecification.getValueType() != ValueType.STRING)
+			{
+				typedValues = putTypedValues(typedValues, implicitSpecification,
+						switchlessArguments);
+				if (typedValues == null)
+				{
+					return null;
+				}
+			}
+		}
+
+		return new ParseResult(arguments, Collections.unmodifiableMap(switchMap),
+				switchlessArguments, typedValues == null ? Collections
+						.<String, TypedValues> emptyMap() : typedValues);
+	}
+
+	/**
+	 * Converts values of a typed switch, and puts them into the map of typed
+	 * values.
+	 *
+	 * @param typedValues
+	 *            Map of typed values, or null if it is not created yet.
+	 * @param specification
+	 *            Specification of switch.
+	 * @param values
+	 *            Values of switch.
+	 * @return The map of typed values, or null if a value is invalid.
+	 */
+	private static Map<String, TypedValues> putTypedValues(
+			Map<String, TypedValues> typedValues, SwitchSpecification specification,
+			List<String> values)
+	{
+		TypedValues converted = new TypedValues(specification.getValueType(), values.size());
+		if (converted.convert(values, 0) != -1)
+		{
+			return null;
+		}
+
+		Map<String, TypedValues> map = typedValues;
+		if (map == null)
+		{
+			map = new HashMap<String, TypedValues>();
+		}
+		map.put(specification.getName(), converted);
+		return map;
+	}
+}
@@ -0,0 +1,599 @@
+package com.taitl.commandline;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * SubcommandParser parses command lines of tools with git-style subcommands,
+ * e.g. <code>tool commit --message "Fix" a.txt</code>, where the first
+ * argument names a subcommand and each subcommand has its own possible
+ * switches and implicit switch.
+ * <p>
+ * Every subcommand has an {@link ImmutableCommandLineParser}, with its switch
+ * schema compiled once. The parsers are kept in a dispatch table keyed by
+ * subcommand name, so that parsing looks up the subcommand in constant time,
+ * and goes straight to its parser, whatever the number of subcommands.
+ * <p>
+ * A subcommand can also be added with a supplier of its parser, or with its
+ * switch specifications, see {@link #withSubcommand(String, Supplier)} and
+ * {@link #withSubcommand(String, String, String)}. Its schema is then
+ * compiled when the subcommand is first selected, so that a tool invoked to
+ * run one of many subcommands compiles the schema of that one only. Every
+ * <code>withSubcommand()</code> call copies the dispatch table; to add many
+ * subcommands, use a {@link Builder}, which fills one table:
+ * <p>
+ *
+ * <pre>
+ * SubcommandParser parser = new SubcommandParser.Builder()
+ * 		.withSubcommand(&quot;commit&quot;, &quot;--message(1) --all(0)&quot;, &quot;--file(*)&quot;)
+ * 		.withSubcommand(&quot;push&quot;, &quot;--force(0)&quot;, &quot;--remote(0-1)&quot;).build();
+ * </pre>
+ * <p>
+ * Usage:
+ * <p>
+ *
+ * <pre>
+ * // Once, e.g. in a static initializer
+ * Map&lt;String, ImmutableCommandLineParser&gt; subcommands = new LinkedHashMap&lt;String, ImmutableCommandLineParser&gt;();
+ * subcommands.put(&quot;commit&quot;, new ImmutableCommandLineParser(
+ * 		&quot;--message(1) --all(0)&quot;, &quot;--file(*)&quot;));
+ * subcommands.put(&quot;push&quot;, new ImmutableCommandLineParser(&quot;--force(0)&quot;,
+ * 		&quot;--remote(0-1)&quot;));
+ * SubcommandParser parser = new SubcommandParser(subcommands);
+ *
+ * // Per request, from any thread
+ * ParseResult result = parser.parse(arguments);
+ * if (&quot;commit&quot;.equals(result.getSubcommand()))
+ * {
+ * 	String message = result.getSwitchValue(&quot;--message&quot;);
+ * 	// ...
+ * }
+ * </pre>
+ *
+ * The result of parsing describes the arguments after the subcommand, as
+ * parsed by the parser of the subcommand, and names the subcommand, see
+ * {@link ParseResult#getSubcommand()}.
+ * <p>
+ * Objects of this class are immutable and can be shared freely between
+ * threads.
+ */
+public final class SubcommandParser
+{
+	/** Message of the error reporting a command line without a subcommand. */
+	static final String MISSING_SUBCOMMAND_MESSAGE = "Subcommand expected as the first argument.";
+
+	/** Subcommands by name, in the order added. */
+	private final Map<String, Subcommand> subcommands;
+
+	/**
+	 * Subcommand of the dispatch table: its parser, or the supplier of its
+	 * parser, called once, when the subcommand is first selected.
+	 */
+	private static final class Subcommand
+	{
+		/** Name of the subcommand. */
+		final String name;
+
+		/** Supplier of the parser, or null if the parser is given. */
+		final Supplier<ImmutableCommandLineParser> supplier;
+
+		/** The parser, or null until supplied. */
+		volatile ImmutableCommandLineParser parser;
+
+		/**
+		 * Constructs a Subcommand object with a given parser.
+		 *
+		 * @param subcommandName
+		 *            Name of the subcommand.
+		 * @param subcommandParser
+		 *            Parser of the subcommand.
+		 */
+		Subcommand(String subcommandName, ImmutableCommandLineParser subcommandParser)
+		{
+			name = subcommandName;
+			supplier = null;
+			parser = subcommandParser;
+		}
+
+		/**
+		 * Constructs a Subcommand object with a supplier of its parser.
+		 *
+		 * @param subcommandName
+		 *            Name of the subcommand.
+		 * @param parserSupplier
+		 *            Supplier of the parser of the subcommand.
+		 */
+		Subcommand(String subcommandName, Supplier<ImmutableCommandLineParser> parserSupplier)
+		{
+			name = subcommandName;
+			supplier = parserSupplier;
+			parser = null;
+		}
+
+		/**
+		 * Returns parser of the subcommand, calling its supplier first if it
+		 * has not been called. The supplier is called at most once, even when
+		 * the subcommand is first selected by several threads at once.
+		 *
+		 * @return The parser.
+		 * @throws IllegalStateException
+		 *             if the supplier returns null.
+		 */
+		ImmutableCommandLineParser getParser() throws IllegalStateException
+		{
+			ImmutableCommandLineParser result = parser;
+			if (result == null)
+			{
+				synchronized (this)
+				{
+					result = parser;
+					if (result == null)
+					{
+						result = supplier.get();
+						if (result == null)
+						{
+							throw new IllegalStateException("Supplier of subcommand " + name
+									+ " returned null.");
+						}
+						parser = result;
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Builder of a SubcommandParser, which adds subcommands to one dispatch
+	 * table, rather than copying the table for every subcommand, as
+	 * <code>withSubcommand()</code> of SubcommandParser does. The methods
+	 * adding subcommands are those of SubcommandParser. A builder is not
+	 * thread-safe, but the parsers it builds are.
+	 */
+	public static final class Builder
+	{
+		/** Subcommands by name, in the order added. */
+		private final Map<String, Subcommand> subcommands = new LinkedHashMap<String, Subcommand>();
+
+		/**
+		 * Adds a subcommand. See
+		 * {@link SubcommandParser#withSubcommand(String, ImmutableCommandLineParser)}
+		 * .
+		 *
+		 * @param name
+		 *            Name of the subcommand, e.g. commit.
+		 * @param parser
+		 *            Parser of the arguments after the subcommand.
+		 * @return This builder. A subcommand of the same name is replaced.
+		 */
+		public Builder withSubcommand(String name, ImmutableCommandLineParser parser)
+		{
+			checkSubcommand(name, parser);
+			subcommands.put(name, new Subcommand(name, parser));
+			return this;
+		}
+
+		/**
+		 * Adds a subcommand whose parser is supplied when the subcommand is
+		 * first selected. See
+		 * {@link SubcommandParser#withSubcommand(String, Supplier)}.
+		 *
+		 * @param name
+		 *            Name of the subcommand, e.g. commit.
+		 * @param parserSupplier
+		 *            Supplier of the parser of the arguments after the
+		 *            subcommand, which must not return null.
+		 * @return This builder. A subcommand of the same name is replaced.
+		 */
+		public Builder withSubcommand(String name,
+				Supplier<ImmutableCommandLineParser> parserSupplier)
+		{
+			checkSubcommand(name, parserSupplier);
+			subcommands.put(name, new Subcommand(name, parserSupplier));
+			return this;
+		}
+
+		/**
+		 * Adds a subcommand whose switch specifications are compiled when the
+		 * subcommand is first selected. See
+		 * {@link SubcommandParser#withSubcommand(String, String, String)}.
+		 *
+		 * @param name
+		 *            Name of the subcommand, e.g. commit.
+		 * @param possibleSwitchesList
+		 *            Space-separated list of allowed command line switches of
+		 *            the subcommand, e.g. "--message(1) --all(0)".
+		 * @param implicitSwitchSpecification
+		 *            Specification of implicit switch of the subcommand, e.g.
+		 *            "--file(*)", or null if there is no implicit switch.
+		 * @return This builder. A subcommand of the same name is replaced.
+		 */
+		public Builder withSubcommand(String name, String possibleSwitchesList,
+				String implicitSwitchSpecification)
+		{
+			checkSubcommand(name, possibleSwitchesList);
+			return withSubcommand(name, compiler(possibleSwitchesList,
+					implicitSwitchSpecification));
+		}
+
+		/**
+		 * Builds a parser with the subcommands added so far. The builder can
+		 * be used further, without affecting the parser.
+		 *
+		 * @return The parser.
+		 */
+		public SubcommandParser build()
+		{
+			return new SubcommandParser(this);
+		}
+	}
+
+	/**
+	 * Constructs a SubcommandParser object without subcommands, to be added
+	 * with <code>withSubcommand()</code>.
+	 */
+	public SubcommandParser()
+	{
+		subcommands = Collections.emptyMap();
+	}
+
+	/**
+	 * Constructs a SubcommandParser object.
+	 *
+	 * @param subcommandParsers
+	 *            Parsers of subcommands, by subcommand name, e.g. commit. The
+	 *            map is copied.
+	 */
+	public SubcommandParser(Map<String, ImmutableCommandLineParser> subcommandParsers)
+	{
+		if (subcommandParsers == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter subcommandParsers.");
+		}
+
+		Map<String, Subcommand> table = new LinkedHashMap<String, Subcommand>(
+				subcommandParsers.size() * 4 / 3 + 1);
+		for (Entry<String, ImmutableCommandLineParser> entry : subcommandParsers.entrySet())
+		{
+			checkSubcommand(entry.getKey(), entry.getValue());
+			table.put(entry.getKey(), new Subcommand(entry.getKey(), entry.getValue()));
+		}
+		subcommands = Collections.unmodifiableMap(table);
+	}
+
+	/**
+	 * Constructs a SubcommandParser object with the subcommands of another
+	 * one, and another subcommand.
+	 *
+	 * @param parser
+	 *            The other parser.
+	 * @param subcommand
+	 *            The subcommand. A subcommand of the same name is replaced.
+	 */
+	private SubcommandParser(SubcommandParser parser, Subcommand subcommand)
+	{
+		Map<String, Subcommand> table = new LinkedHashMap<String, Subcommand>(
+				(parser.subcommands.size() + 1) * 4 / 3 + 1);
+		table.putAll(parser.subcommands);
+		table.put(subcommand.name, subcommand);
+		subcommands = Collections.unmodifiableMap(table);
+	}
+
+	/**
+	 * Constructs a SubcommandParser object with the subcommands of a builder.
+	 *
+	 * @param builder
+	 *            The builder.
+	 */
+	private SubcommandParser(Builder builder)
+	{
+		subcommands = Collections.unmodifiableMap(new LinkedHashMap<String, Subcommand>(
+				builder.subcommands));
+	}
+
+	/**
+	 * Returns supplier of a parser compiling switch specifications of a
+	 * subcommand.
+	 *
+	 * @param possibleSwitchesList
+	 *            Space-separated list of allowed command line switches.
+	 * @param implicitSwitchSpecification
+	 *            Specification of implicit switch, or null.
+	 * @return The supplier.
+	 */
+	private static Supplier<ImmutableCommandLineParser> compiler(
+			final String possibleSwitchesList, final String implicitSwitchSpecification)
+	{
+		return new Supplier<ImmutableCommandLineParser>()
+		{
+			@Override
+			public ImmutableCommandLineParser get()
+			{
+				return new ImmutableCommandLineParser(possibleSwitchesList,
+						implicitSwitchSpecification);
+			}
+		};
+	}
+
+	/**
+	 * Checks name and parser, or supplier of parser, of a subcommand.
+	 *
+	 * @param name
+	 *            Name of the subcommand.
+	 * @param parser
+	 *            Parser of the subcommand, or its supplier.
+	 */
+	private static void checkSubcommand(String name, Object parser)
+	{
+		if (name == null || name.length() == 0)
+		{
+			throw new IllegalArgumentException("Subcommand name must not be null or empty.");
+		}
+		if (parser == null)
+		{
+			throw new IllegalArgumentException("Non-null parser required for subcommand "
+					+ name + ".");
+		}
+	}
+
+	/**
+	 * Returns a parser with the subcommands of this one, and another one.
+	 *
+	 * @param name
+	 *            Name of the subcommand, e.g. commit.
+	 * @param parser
+	 *            Parser of the arguments after the subcommand.
+	 * @return The parser. A subcommand of the same name is replaced.
+	 */
+	public SubcommandParser withSubcommand(String name, ImmutableCommandLineParser parser)
+	{
+		checkSubcommand(name, parser);
+		return new SubcommandParser(this, new Subcommand(name, parser));
+	}
+
+	/**
+	 * Returns a parser with the subcommands of this one, and another one,
+	 * whose parser is supplied when the subcommand is first selected, by
+	 * parsing a command line naming it, or by {@link #getParser(String)}.
+	 * Nothing is compiled for the other subcommands, so a tool with many
+	 * subcommands, of which one runs, starts faster. The supplier is called
+	 * at most once, and its parser kept.
+	 *
+	 * @param name
+	 *            Name of the subcommand, e.g. commit.
+	 * @param parserSupplier
+	 *            Supplier of the parser of the arguments after the subcommand,
+	 *            which must not return null.
+	 * @return The parser. A subcommand of the same name is replaced.
+	 */
+	public SubcommandParser withSubcommand(String name,
+			Supplier<ImmutableCommandLineParser> parserSupplier)
+	{
+		checkSubcommand(name, parserSupplier);
+		return new SubcommandParser(this, new Subcommand(name, parserSupplier));
+	}
+
+	/**
+	 * Returns a parser with the subcommands of this one, and another one,
+	 * whose possible switches and implicit switch are compiled, with the
+	 * default switch prefixes, when the subcommand is first selected. See
+	 * {@link #withSubcommand(String, Supplier)}. Specifications which can not
+	 * be compiled are therefore reported then, not by this method.
+	 *
+	 * @param name
+	 *            Name of the subcommand, e.g. commit.
+	 * @param possibleSwitchesList
+	 *            Space-separated list of allowed command line switches of the
+	 *            subcommand, e.g. "--message(1) --all(0)". See
+	 *            {@link CommandLineParser#setPossibleSwitches(String)}.
+	 * @param implicitSwitchSpecification
+	 *            Specification of implicit switch of the subcommand, e.g.
+	 *            "--file(*)", or null if there is no implicit switch.
+	 * @return The parser. A subcommand of the same name is replaced.
+	 */
+	public SubcommandParser withSubcommand(String name, String possibleSwitchesList,
+			String implicitSwitchSpecification)
+	{
+		checkSubcommand(name, possibleSwitchesList);
+		return withSubcommand(name, compiler(possibleSwitchesList, implicitSwitchSpecification));
+	}
+
+	/**
+	 * Returns names of the subcommands.
+	 *
+	 * @return Unmodifiable set of subcommand names, in the order added.
+	 */
+	public Set<String> getSubcommands()
+	{
+		return subcommands.keySet();
+	}
+
+	/**
+	 * Returns parser of a subcommand, supplying it first if the subcommand
+	 * has been added with a supplier of its parser, and not yet selected.
+	 *
+	 * @param name
+	 *            Name of the subcommand.
+	 * @return The parser, or null if there is no such subcommand.
+	 * @throws IllegalStateException
+	 *             if the supplier of the parser returns null.
+	 */
+	public ImmutableCommandLineParser getParser(String name) throws IllegalStateException
+	{
+		Subcommand subcommand = subcommands.get(name);
+		return subcommand == null ? null : subcommand.getParser();
+	}
+
+	/**
+	 * Parses command line arguments: the first one names the subcommand, and
+	 * the others are parsed by its parser. The passed-in array is copied and
+	 * may be reused by the caller.
+	 *
+	 * @param args
+	 *            Command line arguments to parse.
+	 * @return The result of parsing the arguments after the subcommand, naming
+	 *         the subcommand.
+	 * @throws IllegalArgumentException
+	 *             when there is no subcommand, the subcommand is unknown, or a
+	 *             violation of parsing rules is encountered in the arguments
+	 *             after it.
+	 * @throws IllegalStateException
+	 *             when the implicit switch of the subcommand receives too many
+	 *             values, or the supplier of its parser returns null.
+	 */
+	public ParseResult parse(String[] args) throws IllegalArgumentException,
+			IllegalStateException
+	{
+		ImmutableCommandLineParser parser = dispatch(args);
+		if (parser == null)
+		{
+			throw new InvalidCommandLineException(Collections
+					.singletonList(dispatchError(args)));
+		}
+		return parser.parse(Arrays.copyOfRange(args, 1, args.length)).withSubcommand(args[0]);
+	}
+
+	/**
+	 * Splits command line string into arguments, following the rules of
+	 * {@link CommandLineParser#setCommandLine(String)}, and parses them like
+	 * {@link #parse(String[])}.
+	 *
+	 * @param commandLine
+	 *            Command line to parse.
+	 * @return The result of parsing the arguments after the subcommand, naming
+	 *         the subcommand.
+	 * @throws IllegalArgumentException
+	 *             when there is no subcommand, the subcommand is unknown, or a
+	 *             violation of parsing rules is encountered in the arguments
+	 *             after it.
+	 * @throws IllegalStateException
+	 *             when the implicit switch of the subcommand receives too many
+	 *             values, or the supplier of its parser returns null.
+	 */
+	public ParseResult parse(String commandLine) throws IllegalArgumentException,
+			IllegalStateException
+	{
+		if (commandLine == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter commandLine.");
+		}
+		return parse(new CommandLineTokenizer(commandLine).toArray());
+	}
+
+	/**
+	 * Parses command line arguments like {@link #parse(String[])}, but
+	 * reports violations of parsing rules, including a missing or unknown
+	 * subcommand, as structured errors of the result instead of throwing. See
+	 * {@link ImmutableCommandLineParser#tryParse(String[])}.
+	 *
+	 * @param args
+	 *            Command line arguments to parse.
+	 * @return The result of parsing, with errors if the arguments violate
+	 *         parsing rules. The subcommand is named unless it is missing or
+	 *         unknown.
+	 * @throws IllegalArgumentException
+	 *             if the arguments array or one of arguments is null, which is
+	 *             a programming error rather than invalid input, as is a
+	 *             lazily compiled schema which is invalid.
+	 * @throws IllegalStateException
+	 *             if the supplier of the parser of the subcommand returns
+	 *             null.
+	 */
+	public ParseResult tryParse(String[] args) throws IllegalArgumentException,
+			IllegalStateException
+	{
+		ImmutableCommandLineParser parser = dispatch(args);
+		if (parser == null)
+		{
+			return new ParseResult(args.clone(), Collections
+					.singletonList(dispatchError(args)));
+		}
+		return parser.tryParse(Arrays.copyOfRange(args, 1, args.length)).withSubcommand(
+				args[0]);
+	}
+
+	/**
+	 * Splits command line string into arguments, following the rules of
+	 * {@link CommandLineParser#setCommandLine(String)}, and parses them like
+	 * {@link #tryParse(String[])}, reporting violations of parsing rules as
+	 * structured errors of the result instead of throwing.
+	 *
+	 * @param commandLine
+	 *            Command line to parse.
+	 * @return The result of parsing, with errors if the command line violates
+	 *         parsing rules.
+	 * @throws IllegalArgumentException
+	 *             if the command line is null.
+	 */
+	public ParseResult tryParse(String commandLine) throws IllegalArgumentException
+	{
+		if (commandLine == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter commandLine.");
+		}
+		return tryParse(new CommandLineTokenizer(commandLine).toArray());
+	}
+
+	/**
+	 * Looks up parser of the subcommand named by the first argument.
+	 *
+	 * @param args
+	 *            Command line arguments.
+	 * @return The parser, or null if the subcommand is missing or unknown.
+	 */
+	private ImmutableCommandLineParser dispatch(String[] args)
+	{
+		if (args == null)
+		{
+			throw new IllegalArgumentException("This arguments array must not be null.");
+		}
+		if (args.length == 0)
+		{
+			return null;
+		}
+		if (args[0] == null)
+		{
+			throw new IllegalArgumentException("Null value in argument array.");
+		}
+		Subcommand subcommand = subcommands.get(args[0]);
+		return subcommand == null ? null : subcommand.getParser();
+	}
+
+	/**
+	 * Creates error reporting the subcommand missing or unknown.
+	 *
+	 * @param args
+	 *            Command line arguments, naming no known subcommand.
+	 * @return The error.
+	 */
+	private static ParseError dispatchError(String[] args)
+	{
+		return args.length == 0 ? ParseError.missingSubcommand() : ParseError
+				.unknownSubcommand(args[0]);
+	}
+
+	/**
+	 * Builds message reporting a first argument which names no subcommand.
+	 *
+	 * @param subcommand
+	 *            The first argument.
+	 * @return The message.
+	 */
+	static String unknownSubcommandMessage(String subcommand)
+	{
+		return "Unknown subcommand found: " + subcommand
+				+ ". You must specify this subcommand among the subcommands of the parser first.";
+	}
+}
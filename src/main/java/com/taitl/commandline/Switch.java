@@ -154,22 +154,7 @@ class Switch
 		{
 			values = new ArrayList<String>();
 		}
-		if (values.size() >= maxValues)
-		{
-			String implicitDescription = isImplicit() ? " implicit" : "";
-
-			if (maxValues == 1)
-			{
-				throw new IllegalStateException("The" + implicitDescription + " switch '"
-						+ getSwitchName() + "' already has a value.");
-			}
-			else
-			{
-				throw new IllegalStateException("The " + implicitDescription + " switch '"
-						+ getSwitchName() + "' already has " + values.size() + " value specified.");
-			}
-
-		}
+		checkCanAddValue(getSwitchName(), maxValues, values.size(), isImplicit());
 
 		values.add(switchValue);
 	}
@@ -195,23 +180,106 @@ class Switch
 	 */
 	public void validate()
 	{
-		int numValues = values == null ? 0 : values.size();
+		validate(switchName, minValues, maxValues, values == null ? 0 : values.size());
+	}
+
+	/**
+	 * Ensures that one more value can be added to a switch which already has
+	 * the specified number of values. Throws IllegalStateException if this is
+	 * not the case.
+	 * 
+	 * @param switchName
+	 *            Name of switch.
+	 * @param maxValues
+	 *            Maximum allowed number of values for the switch.
+	 * @param numValues
+	 *            The number of values the switch already has.
+	 * @param implicit
+	 *            True if this is an implicit switch.
+	 */
+	static void checkCanAddValue(String switchName, int maxValues, int numValues,
+			boolean implicit)
+	{
+		if (numValues >= maxValues)
+		{
+			String implicitDescription = implicit ? " implicit" : "";
+
+			if (maxValues == 1)
+			{
+				throw new IllegalStateException("The" + implicitDescription + " switch '"
+						+ switchName + "' already has a value.");
+			}
+			else
+			{
+				throw new IllegalStateException("The " + implicitDescription + " switch '"
+						+ switchName + "' already has " + numValues + " value specified.");
+			}
+		}
+	}
 
+	/**
+	 * Validates the number of values of a switch, ensuring that it is no less
+	 * than minValues, and no more than maxValues. Throws IllegalStateException
+	 * if this is not the case.
+	 * 
+	 * @param switchName
+	 *            Name of switch.
+	 * @param minValues
+	 *            Minimum allowed number of values for the switch.
+	 * @param maxValues
+	 *            Maximum allowed number of values for the switch.
+	 * @param numValues
+	 *            The number of values of the switch.
+	 */
+	static void validate(String switchName, int minValues, int maxValues, int numValues)
+	{
 		if (numValues < minValues)
 		{
-			throw new IllegalStateException("Too few values are specified for switch " + switchName
-					+ " (must be no less than " + minValues + " value, specified " + numValues
-					+ " values).");
+			throw new IllegalStateException(tooFewValuesMessage(switchName, minValues, numValues));
 		}
 
 		if (numValues > maxValues)
 		{
-			throw new IllegalStateException("Too many values are specified for switch "
-					+ switchName + " (must be up to " + maxValues + " value, specified "
-					+ numValues + " values).");
+			throw new IllegalStateException(tooManyValuesMessage(switchName, maxValues,
+					numValues));
 		}
 	}
 
+	/**
+	 * Builds message reporting a switch with too few values.
+	 * 
+	 * @param switchName
+	 *            Name of switch.
+	 * @param minValues
+	 *            Minimum allowed number of values for the switch.
+	 * @param numValues
+	 *            The number of values of the switch.
+	 * @return The message.
+	 */
+	static String tooFewValuesMessage(String switchName, int minValues, int numValues)
+	{
+		return "Too few values are specified for switch " + switchName
+				+ " (must be no less than " + minValues + " value, specified " + numValues
+				+ " values).";
+	}
+
+	/**
+	 * Builds message reporting a switch with too many values.
+	 * 
+	 * @param switchName
+	 *            Name of switch.
+	 * @param maxValues
+	 *            Maximum allowed number of values for the switch.
+	 * @param numValues
+	 *            The number of values of the switch.
+	 * @return The message.
+	 */
+	static String tooManyValuesMessage(String switchName, int maxValues, int numValues)
+	{
+		return "Too many values are specified for switch " + switchName + " (must be up to "
+				+ maxValues + " value, specified " + numValues + " values).";
+	}
+
 	/**
 	 * Sets if this as an implicit switch.
 	 * 
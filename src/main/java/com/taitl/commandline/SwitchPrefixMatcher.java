@@ -0,0 +1,206 @@
+package com.taitl.commandline;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * SwitchPrefixMatcher tells whether a command line argument starts with one of
+ * the switch prefixes, e.g. -- or -, described by a switch prefixes mask such
+ * as <code>(--|-)</code>.
+ * <p>
+ * The mask is compiled once. A mask that is a plain alternation of literal
+ * prefixes, like the default <code>(--|-)</code>, is turned into a direct
+ * character comparison; any other mask is compiled into a regular expression
+ * Pattern. Objects of this class are immutable and can be shared freely
+ * between threads.
+ */
+public final class SwitchPrefixMatcher
+{
+	/** Characters having special meaning in regular expressions. */
+	private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+	/** The switch prefixes mask, e.g. (--|-). */
+	private final String mask;
+
+	/** Literal prefixes, or null if the mask is not a literal alternation. */
+	private final String[] literalPrefixes;
+
+	/** Compiled mask, or null if the mask is a literal alternation. */
+	private final Pattern pattern;
+
+	/**
+	 * Constructs a SwitchPrefixMatcher object.
+	 *
+	 * @param switchPrefixesMask
+	 *            The switch prefixes mask.
+	 * @param prefixes
+	 *            Literal prefixes, or null.
+	 * @param compiledMask
+	 *            Compiled mask, or null.
+	 */
+	private SwitchPrefixMatcher(String switchPrefixesMask, String[] prefixes,
+			Pattern compiledMask)
+	{
+		mask = switchPrefixesMask;
+		literalPrefixes = prefixes;
+		pattern = compiledMask;
+	}
+
+	/**
+	 * Compiles switch prefixes mask into a SwitchPrefixMatcher object.
+	 *
+	 * @param switchPrefixesMask
+	 *            Regular expression matching switch prefixes, e.g. (--|-).
+	 * @return The compiled matcher.
+	 * @throws IllegalArgumentException
+	 *             if the mask is null, empty, or not a valid regular
+	 *             expression.
+	 */
+	public static SwitchPrefixMatcher compile(String switchPrefixesMask)
+			throws IllegalArgumentException
+	{
+		if (switchPrefixesMask == null || switchPrefixesMask.length() == 0)
+		{
+			throw new IllegalArgumentException(
+					"Non-empty value required in parameter switchPrefixesMask.");
+		}
+
+		String[] prefixes = toLiteralPrefixes(switchPrefixesMask);
+		if (prefixes != null)
+		{
+			return new SwitchPrefixMatcher(switchPrefixesMask, prefixes, null);
+		}
+
+		try
+		{
+			return new SwitchPrefixMatcher(switchPrefixesMask, null,
+					Pattern.compile(switchPrefixesMask));
+		}
+		catch (PatternSyntaxException e)
+		{
+			throw new IllegalArgumentException("Malformed switch prefixes mask: "
+					+ switchPrefixesMask + ". " + e.getDescription() + ".");
+		}
+	}
+
+	/**
+	 * Splits a mask of the form <code>(a|b|c)</code> or <code>a|b|c</code>,
+	 * where a, b and c contain no regular expression metacharacters, into
+	 * literal prefixes.
+	 *
+	 * @param switchPrefixesMask
+	 *            The switch prefixes mask.
+	 * @return The literal prefixes, or null if the mask is not a literal
+	 *         alternation.
+	 */
+	private static String[] toLiteralPrefixes(String switchPrefixesMask)
+	{
+		String alternation = switchPrefixesMask;
+
+		if (alternation.startsWith("(") && alternation.endsWith(")"))
+		{
+			alternation = alternation.substring(1, alternation.length() - 1);
+		}
+
+		String[] prefixes = alternation.split("\\|", -1);
+		for (String prefix : prefixes)
+		{
+			if (prefix.length() == 0)
+			{
+				return null;
+			}
+			for (int i = 0; i < prefix.length(); i++)
+			{
+				if (REGEX_METACHARACTERS.indexOf(prefix.charAt(i)) != -1)
+				{
+					return null;
+				}
+			}
+		}
+		return prefixes;
+	}
+
+	/**
+	 * Returns true if the argument starts with one of the switch prefixes.
+	 *
+	 * @param argument
+	 *            The command line argument.
+	 * @return True if the argument starts with one of the switch prefixes.
+	 */
+	public boolean matches(String argument)
+	{
+		if (literalPrefixes == null)
+		{
+			return pattern.matcher(argument).lookingAt();
+		}
+
+		for (String prefix : literalPrefixes)
+		{
+			if (argument.startsWith(prefix))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns length of the switch prefix an argument starts with: of the
+	 * longest literal prefix, or of the match of the mask.
+	 *
+	 * @param argument
+	 *            The command line argument.
+	 * @return Length of the switch prefix, or -1 if the argument does not start
+	 *         with a switch prefix.
+	 */
+	public int getPrefixLength(String argument)
+	{
+		if (literalPrefixes == null)
+		{
+			Matcher matcher = pattern.matcher(argument);
+			return matcher.lookingAt() ? matcher.end() : -1;
+		}
+
+		int length = -1;
+		for (String prefix : literalPrefixes)
+		{
+			if (prefix.length() > length && argument.startsWith(prefix))
+			{
+				length = prefix.length();
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Returns the switch prefixes mask this matcher was compiled from.
+	 *
+	 * @return The switch prefixes mask, e.g. (--|-).
+	 */
+	public String getMask()
+	{
+		return mask;
+	}
+
+	/**
+	 * Returns true if the mask has been turned into a direct character
+	 * comparison rather than a regular expression.
+	 *
+	 * @return True if the mask is a plain alternation of literal prefixes.
+	 */
+	public boolean isLiteral()
+	{
+		return literalPrefixes != null;
+	}
+
+	@Override
+	public String toString()
+	{
+		return mask;
+	}
+}
@@ -0,0 +1,178 @@
+package com.taitl.commandline;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * SwitchSchema is the compiled, immutable form of the possible switches and
+ * the implicit switch of a command line: the switch specifications, parsed
+ * once, and a hash index from switch name to its specification.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * SwitchSchema schema = SwitchSchema.compile(&quot;--version(0) --multi(*)&quot;,
+ * 		&quot;--file(1)&quot;);
+ * SwitchSpecification multi = schema.getSpecification(&quot;--multi&quot;);
+ * </pre>
+ *
+ * Objects of this class are immutable and can be shared freely between
+ * threads.
+ */
+public final class SwitchSchema
+{
+	/** Possible switch specifications, in the order they were specified. */
+	private final List<SwitchSpecification> specifications;
+
+	/** Index of possible switch specifications by switch name. */
+	private final Map<String, SwitchSpecification> specificationsByName;
+
+	/** Specification of implicit switch, or null if there is none. */
+	private final SwitchSpecification implicitSpecification;
+
+	/**
+	 * Constructs a SwitchSchema object.
+	 *
+	 * @param possibleSwitches
+	 *            Specifications of possible switches.
+	 * @param implicitSwitch
+	 *            Specification of implicit switch, or null if there is no
+	 *            implicit switch.
+	 */
+	public SwitchSchema(Collection<SwitchSpecification> possibleSwitches,
+			SwitchSpecification implicitSwitch)
+	{
+		if (possibleSwitches == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter possibleSwitches.");
+		}
+
+		List<SwitchSpecification> list = new ArrayList<SwitchSpecification>(
+				possibleSwitches.size());
+		Map<String, SwitchSpecification> index = new HashMap<String, SwitchSpecification>(
+				possibleSwitches.size() * 2);
+
+		for (SwitchSpecification specification : possibleSwitches)
+		{
+			if (specification == null)
+			{
+				throw new IllegalArgumentException(
+						"Null value in possible switch collection.");
+			}
+			if (index.put(specification.getName(), specification) != null)
+			{
+				throw new IllegalArgumentException("The possible switch "
+						+ specification.getName() + " is already defined for this object.");
+			}
+			list.add(specification);
+		}
+
+		specifications = Collections.unmodifiableList(list);
+		specificationsByName = index;
+		implicitSpecification = implicitSwitch;
+	}
+
+	/**
+	 * Compiles space-separated list of possible switches and the implicit
+	 * switch specification into a SwitchSchema object. See
+	 * {@link CommandLineParser#setPossibleSwitches(String)} for the format.
+	 *
+	 * @param possibleSwitchesList
+	 *            Space-separated list of allowed command line switches, e.g.
+	 *            "--version(0) --multi(1-*)".
+	 * @param implicitSwitchSpecification
+	 *            Specification of implicit switch, e.g. "--file(1)", or null if
+	 *            there is no implicit switch.
+	 * @return The compiled schema.
+	 */
+	public static SwitchSchema compile(String possibleSwitchesList,
+			String implicitSwitchSpecification)
+	{
+		if (possibleSwitchesList == null || possibleSwitchesList.length() == 0)
+		{
+			throw new IllegalArgumentException(
+					"Non-empty value required in parameter possibleSwitchesList.");
+		}
+
+		List<SwitchSpecification> list = new ArrayList<SwitchSpecification>();
+		for (String switchSpecification : possibleSwitchesList.split(" "))
+		{
+			if (switchSpecification.length() == 0)
+			{
+				throw new IllegalArgumentException(
+						"Non-empty value required in parameter switchSpecification.");
+			}
+			list.add(SwitchSpecification.parse(switchSpecification));
+		}
+
+		SwitchSpecification implicit = implicitSwitchSpecification == null ? null
+				: SwitchSpecification.parse(implicitSwitchSpecification);
+
+		return new SwitchSchema(list, implicit);
+	}
+
+	/**
+	 * Returns specification of the possible switch with the specified name.
+	 *
+	 * @param switchName
+	 *            Name of switch, e.g. --file.
+	 * @return The switch specification, or null if there is no such possible
+	 *         switch.
+	 */
+	public SwitchSpecification getSpecification(String switchName)
+	{
+		return specificationsByName.get(switchName);
+	}
+
+	/**
+	 * Returns true if switch is among possible switches.
+	 *
+	 * @param switchName
+	 *            Name of switch, e.g. --file.
+	 * @return True if switch is among possible switches.
+	 */
+	public boolean isPossibleSwitch(String switchName)
+	{
+		return specificationsByName.containsKey(switchName);
+	}
+
+	/**
+	 * Returns specifications of possible switches, in the order they were
+	 * specified.
+	 *
+	 * @return Unmodifiable list of possible switch specifications.
+	 */
+	public List<SwitchSpecification> getSpecifications()
+	{
+		return specifications;
+	}
+
+	/**
+	 * Returns specification of implicit switch.
+	 *
+	 * @return Specification of implicit switch, or null if there is none.
+	 */
+	public SwitchSpecification getImplicitSpecification()
+	{
+		return implicitSpecification;
+	}
+
+	/**
+	 * Returns the number of possible switches.
+	 *
+	 * @return The number of possible switches.
+	 */
+	public int size()
+	{
+		return specifications.size();
+	}
+}
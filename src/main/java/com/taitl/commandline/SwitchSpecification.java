@@ -0,0 +1,276 @@
+package com.taitl.commandline;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * SwitchSpecification holds the compiled form of a switch specification
+ * string, such as <code>--file(1)</code>, <code>--multi(2-*)</code> or
+ * <code>--threads(1:int)</code>: the switch name, the minimum and maximum
+ * number of its values, and the type of its values.
+ * <p>
+ * The specification string is parsed exactly once, by
+ * {@link SwitchSpecification#parse(String)}; objects of this class are
+ * immutable and can be shared freely between threads.
+ */
+public final class SwitchSpecification
+{
+	/** Error message for specifications not followed by cardinality. */
+	static final String INCORRECT_FORMAT_MESSAGE = "Incorrect format of switch:"
+			+ " each switch must be followed by numbers in parenthesis specifying the required number"
+			+ " of its values, e.g. \"--version(0), --file(1) --twomore(2-*) --any(*)\"";
+
+	/** Name of switch, e.g. --file. */
+	private final String name;
+
+	/** Minimum allowed number of values for this switch. */
+	private final int minValues;
+
+	/** Maximum allowed number of values for this switch. */
+	private final int maxValues;
+
+	/** Type of values of this switch. */
+	private final ValueType valueType;
+
+	/** The specification string this object was parsed from, e.g. --file(1). */
+	private final String specification;
+
+	/**
+	 * Constructs a SwitchSpecification object.
+	 *
+	 * @param switchName
+	 *            Name of the switch, e.g. --version.
+	 * @param minNumberOfValues
+	 *            Minimum allowed number of values for this switch.
+	 * @param maxNumberOfValues
+	 *            Maximum allowed number of values for this switch.
+	 * @param type
+	 *            Type of values of this switch.
+	 * @param switchSpecification
+	 *            The specification string, e.g. --version(0).
+	 */
+	private SwitchSpecification(String switchName, int minNumberOfValues,
+			int maxNumberOfValues, ValueType type, String switchSpecification)
+	{
+		if (switchName == null || switchName.length() == 0)
+		{
+			throw new IllegalArgumentException("Switch name is null or empty string.");
+		}
+		if (switchName.contains("(") || switchName.contains(")"))
+		{
+			throw new IllegalArgumentException("Switch name can not contain special characters.");
+		}
+		if (minNumberOfValues < 0 || maxNumberOfValues < 0)
+		{
+			throw new IllegalArgumentException("Min and max values must be non-negative.");
+		}
+		if (minNumberOfValues > maxNumberOfValues)
+		{
+			throw new IllegalArgumentException(
+					"Min number of values must be no less than max number of values.");
+		}
+
+		name = switchName;
+		minValues = minNumberOfValues;
+		maxValues = maxNumberOfValues;
+		valueType = type;
+		specification = switchSpecification;
+	}
+
+	/**
+	 * Parses switch specification string into a SwitchSpecification object.
+	 * <p>
+	 * Example: <code>parse("--file(0-*)")</code> will return specification
+	 * of switch --file with zero to infinite number of values.
+	 * <p>
+	 * The cardinality may be followed by a colon and the type of values, see
+	 * {@link ValueType}. Example: <code>parse("--threads(1:int)")</code> will
+	 * return specification of switch --threads with exactly one value, which
+	 * must be an int.
+	 *
+	 * @param switchSpecification
+	 *            Name and cardinality of switch, e.g. --file(1), meaning that
+	 *            the --file switch requires exactly one value.
+	 * @return The parsed switch specification.
+	 * @throws IllegalArgumentException
+	 *             if the specification is malformed.
+	 */
+	public static SwitchSpecification parse(String switchSpecification)
+			throws IllegalArgumentException
+	{
+		if (switchSpecification == null)
+		{
+			throw new IllegalArgumentException(
+					"Non-null value required in parameter switchSpecification.");
+		}
+
+		String spec = switchSpecification.trim();
+
+		if (!spec.endsWith(")"))
+		{
+			throw new IllegalArgumentException(INCORRECT_FORMAT_MESSAGE);
+		}
+
+		int leftBrace = spec.lastIndexOf('(');
+		int rightBrace = spec.length() - 1;
+
+		if (leftBrace == -1)
+		{
+			throw new IllegalArgumentException(
+					"Malformed switch specification: missing left brace.");
+		}
+		if (leftBrace == rightBrace - 1)
+		{
+			throw new IllegalArgumentException(
+					"Malformed switch specification: a number or an interval"
+							+ " must be specified between left and right braces.");
+		}
+
+		String switchName = spec.substring(0, leftBrace);
+		String valueInterval = spec.substring(leftBrace + 1, rightBrace);
+		ValueType type = ValueType.STRING;
+		int colon = valueInterval.indexOf(':');
+
+		if (colon != -1)
+		{
+			type = ValueType.forName(valueInterval.substring(colon + 1));
+			valueInterval = valueInterval.substring(0, colon);
+		}
+
+		int minNumberOfValues;
+		int maxNumberOfValues;
+		int dash = valueInterval.indexOf('-');
+
+		if (dash == -1)
+		{
+			// Must be a * or a number
+			if (valueInterval.equals("*"))
+			{
+				minNumberOfValues = 0;
+				maxNumberOfValues = Integer.MAX_VALUE;
+			}
+			else
+			{
+				// One number is specified
+				minNumberOfValues = parseNumber(valueInterval,
+						"Malformed switch specification: a number or interval"
+								+ " must be specified between left and right braces.");
+				maxNumberOfValues = minNumberOfValues;
+			}
+		}
+		else
+		{
+			// Two numbers or a combination number-* is specified
+			String leftValue = valueInterval.substring(0, dash);
+			String rightValue = valueInterval.substring(dash + 1);
+
+			minNumberOfValues = parseNumber(leftValue, "Malformed switch specification:"
+					+ " a number must be specified to the left of dash.");
+
+			// Must be a * or a number
+			if (rightValue.equals("*"))
+			{
+				maxNumberOfValues = Integer.MAX_VALUE;
+			}
+			else
+			{
+				maxNumberOfValues = parseNumber(rightValue, "Malformed switch specification:"
+						+ " a number or a * must be specified to the right of dash.");
+			}
+		}
+
+		return new SwitchSpecification(switchName, minNumberOfValues, maxNumberOfValues, type,
+				spec);
+	}
+
+	/**
+	 * Parses a number in switch cardinality, throwing IllegalArgumentException
+	 * with the specified message if the string is not a number.
+	 *
+	 * @param number
+	 *            The string to parse.
+	 * @param message
+	 *            The message to set to the thrown IllegalArgumentException.
+	 * @return The parsed number.
+	 */
+	private static int parseNumber(String number, String message)
+	{
+		try
+		{
+			return Integer.parseInt(number);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException(message);
+		}
+	}
+
+	/**
+	 * Gets switch name.
+	 *
+	 * @return Name of switch, e.g. --file.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Gets minimum number of values that this switch can accept.
+	 *
+	 * @return The minimum number of values that this switch can accept.
+	 */
+	public int getMinValues()
+	{
+		return minValues;
+	}
+
+	/**
+	 * Gets maximum number of values that this switch can accept.
+	 *
+	 * @return The maximum number of values that this switch can accept.
+	 */
+	public int getMaxValues()
+	{
+		return maxValues;
+	}
+
+	/**
+	 * Gets type of values of this switch.
+	 *
+	 * @return Type of values, {@link ValueType#STRING} if no type was
+	 *         specified.
+	 */
+	public ValueType getValueType()
+	{
+		return valueType;
+	}
+
+	/**
+	 * Gets the specification string this object was parsed from.
+	 *
+	 * @return The switch specification, e.g. --file(1).
+	 */
+	public String getSpecification()
+	{
+		return specification;
+	}
+
+	/**
+	 * Creates a new Switch object, to be populated with values in the parsing
+	 * process, with the name and cardinality of this specification.
+	 *
+	 * @return The newly created Switch object.
+	 */
+	Switch createSwitch()
+	{
+		return new Switch(name, minValues, maxValues);
+	}
+
+	@Override
+	public String toString()
+	{
+		return specification;
+	}
+}
@@ -0,0 +1,249 @@
+package com.taitl.commandline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * SwitchSuggestionTree finds the possible switches closest to an unknown
+ * switch, e.g. --verbose for --verbsoe, to be suggested in its error.
+ * <p>
+ * Closeness is the Levenshtein distance: the number of characters inserted,
+ * deleted or replaced to turn one name into the other. The switch names are
+ * kept in a BK-tree, built once, in which the children of a node are keyed
+ * by their distance to it. Since the distance obeys the triangle inequality,
+ * a search within a distance of r from an argument only descends into the
+ * children whose key differs by at most r from the distance between the
+ * argument and their parent, and visits a small part of the tree.
+ * <p>
+ * The distance allowed grows with the length of the argument after its
+ * switch prefix: one edit per three characters, at most {@link #MAX_DISTANCE}
+ * edits, so that short arguments are not matched with unrelated names.
+ * <p>
+ * Objects of this class are immutable and can be shared freely between
+ * threads.
+ */
+final class SwitchSuggestionTree
+{
+	/** Maximum distance between an unknown switch and a suggestion. */
+	static final int MAX_DISTANCE = 3;
+
+	/** Maximum number of suggestions for an unknown switch. */
+	static final int MAX_SUGGESTIONS = 3;
+
+	/** Root of the tree, or null if there are no possible switches. */
+	private final Node root;
+
+	/** Compiled switch name prefixes mask. */
+	private final SwitchPrefixMatcher switchPrefixMatcher;
+
+	/**
+	 * Node of the tree: a switch name, and its children by distance.
+	 */
+	private static final class Node
+	{
+		/** Switch name. */
+		final String name;
+
+		/** Children, by their distance to this node, or null for a leaf. */
+		Node[] children = null;
+
+		/**
+		 * Constructs a Node object.
+		 *
+		 * @param switchName
+		 *            Switch name.
+		 */
+		Node(String switchName)
+		{
+			name = switchName;
+		}
+	}
+
+	/**
+	 * A switch name found near an argument, and its distance.
+	 */
+	private static final class Suggestion
+	{
+		/** Orders suggestions by distance, then by name. */
+		static final Comparator<Suggestion> ORDER = new Comparator<Suggestion>()
+		{
+			@Override
+			public int compare(Suggestion suggestion1, Suggestion suggestion2)
+			{
+				if (suggestion1.distance != suggestion2.distance)
+				{
+					return suggestion1.distance < suggestion2.distance ? -1 : 1;
+				}
+				return suggestion1.name.compareTo(suggestion2.name);
+			}
+		};
+
+		/** Switch name. */
+		final String name;
+
+		/** Distance between the switch name and the argument. */
+		final int distance;
+
+		/**
+		 * Constructs a Suggestion object.
+		 *
+		 * @param switchName
+		 *            Switch name.
+		 * @param editDistance
+		 *            Distance between the switch name and the argument.
+		 */
+		Suggestion(String switchName, int editDistance)
+		{
+			name = switchName;
+			distance = editDistance;
+		}
+	}
+
+	/**
+	 * Constructs a SwitchSuggestionTree object.
+	 *
+	 * @param possibleSwitches
+	 *            Specifications of possible switches.
+	 * @param switchPrefixes
+	 *            Compiled switch name prefixes mask.
+	 */
+	SwitchSuggestionTree(List<SwitchSpecification> possibleSwitches,
+			SwitchPrefixMatcher switchPrefixes)
+	{
+		Node first = null;
+		for (SwitchSpecification specification : possibleSwitches)
+		{
+			if (first == null)
+			{
+				first = new Node(specification.getName());
+			}
+			else
+			{
+				add(first, specification.getName());
+			}
+		}
+		root = first;
+		switchPrefixMatcher = switchPrefixes;
+	}
+
+	/**
+	 * Adds switch name to the tree.
+	 *
+	 * @param root
+	 *            Root of the tree.
+	 * @param switchName
+	 *            Switch name.
+	 */
+	private static void add(Node root, String switchName)
+	{
+		Node node = root;
+		while (true)
+		{
+			int distance = distance(node.name, switchName);
+			if (node.children == null || node.children.length <= distance)
+			{
+				node.children = node.children == null ? new Node[distance + 1] : Arrays
+						.copyOf(node.children, distance + 1);
+			}
+			if (node.children[distance] == null)
+			{
+				node.children[distance] = new Node(switchName);
+				return;
+			}
+			node = node.children[distance];
+		}
+	}
+
+	/**
+	 * Returns the possible switches closest to an unknown switch.
+	 *
+	 * @param argument
+	 *            The unknown switch, e.g. --verbsoe.
+	 * @return Names of at most {@link #MAX_SUGGESTIONS} possible switches, the
+	 *         closest first, or an empty list if no switch is close enough.
+	 */
+	List<String> suggest(String argument)
+	{
+		int maxDistance = Math.min(MAX_DISTANCE, (argument.length() - Math.max(0,
+				switchPrefixMatcher.getPrefixLength(argument))) / 3);
+		if (root == null || maxDistance == 0)
+		{
+			return Collections.emptyList();
+		}
+
+		List<Suggestion> found = new ArrayList<Suggestion>();
+		List<Node> pending = new ArrayList<Node>();
+		pending.add(root);
+		while (!pending.isEmpty())
+		{
+			Node node = pending.remove(pending.size() - 1);
+			int distance = distance(node.name, argument);
+			if (distance <= maxDistance)
+			{
+				found.add(new Suggestion(node.name, distance));
+			}
+			if (node.children != null)
+			{
+				int last = Math.min(node.children.length - 1, distance + maxDistance);
+				for (int d = Math.max(0, distance - maxDistance); d <= last; d++)
+				{
+					if (node.children[d] != null)
+					{
+						pending.add(node.children[d]);
+					}
+				}
+			}
+		}
+
+		Collections.sort(found, Suggestion.ORDER);
+		List<String> suggestions = new ArrayList<String>(Math.min(found.size(),
+				MAX_SUGGESTIONS));
+		for (int i = 0; i < found.size() && i < MAX_SUGGESTIONS; i++)
+		{
+			suggestions.add(found.get(i).name);
+		}
+		return suggestions;
+	}
+
+	/**
+	 * Computes the Levenshtein distance between two strings.
+	 *
+	 * @param s
+	 *            The first string.
+	 * @param t
+	 *            The second string.
+	 * @return The number of characters inserted, deleted or replaced to turn
+	 *         one string into the other.
+	 */
+	static int distance(String s, String t)
+	{
+		int[] previous = new int[t.length() + 1];
+		int[] current = new int[t.length() + 1];
+		for (int j = 0; j <= t.length(); j++)
+		{
+			previous[j] = j;
+		}
+
+		for (int i = 1; i <= s.length(); i++)
+		{
+			current[0] = i;
+			char c = s.charAt(i - 1);
+			for (int j = 1; j <= t.length(); j++)
+			{
+				int replace = previous[j - 1] + (c == t.charAt(j - 1) ? 0 : 1);
+				current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+			}
+			int[] row = previous;
+			previous = current;
+			current = row;
+		}
+		return previous[t.length()];
+	}
+}
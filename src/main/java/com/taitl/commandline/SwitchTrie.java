@@ -0,0 +1,269 @@
+package com.taitl.commandline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * SwitchTrie is a character trie over the names of possible switches, which
+ * resolves an argument to the switch it names exactly, or to the only switch
+ * it abbreviates, e.g. --verb to --verbose, in one walk down the trie, and
+ * tells when an abbreviation is ambiguous.
+ * <p>
+ * The trie is built once and laid out in arrays: the children of each node
+ * are a range of the child arrays, sorted by character, and found by binary
+ * search. Each node knows the switch whose name ends there, and the only
+ * switch whose name goes through it, if there is one.
+ * <p>
+ * An abbreviation must start with a switch prefix, and have at least one
+ * character after it: with prefixes (--|-), --v may abbreviate --verbose,
+ * but -- does not.
+ * <p>
+ * Objects of this class are immutable and can be shared freely between
+ * threads.
+ */
+final class SwitchTrie
+{
+	/** Result of {@link #find(String)} when no switch matches. */
+	static final int NO_MATCH = -1;
+
+	/** Result of {@link #find(String)} when more than one switch matches. */
+	static final int AMBIGUOUS = -2;
+
+	/** Switch names, by switch number. */
+	private final String[] names;
+
+	/** Index of the first child of each node in the child arrays. */
+	private final int[] childStart;
+
+	/** Number of children of each node. */
+	private final int[] childCount;
+
+	/** Characters leading to children, sorted within the range of a node. */
+	private final char[] childChars;
+
+	/** Child nodes, in the order of their characters. */
+	private final int[] childNodes;
+
+	/** Number of the switch whose name ends at each node, or -1. */
+	private final int[] terminal;
+
+	/**
+	 * Number of the only switch whose name goes through or ends at each node,
+	 * or -1 if there is more than one.
+	 */
+	private final int[] only;
+
+	/** Compiled switch name prefixes mask. */
+	private final SwitchPrefixMatcher switchPrefixMatcher;
+
+	/**
+	 * Node of the trie while it is built, with children sorted by character.
+	 */
+	private static final class Node
+	{
+		/** Children, by character. */
+		final TreeMap<Character, Node> children = new TreeMap<Character, Node>();
+
+		/** Number of the switch whose name ends here, or -1. */
+		int terminal = -1;
+
+		/** Number of a switch whose name goes through or ends here. */
+		int any = -1;
+
+		/** Number of names going through or ending here. */
+		int count = 0;
+	}
+
+	/**
+	 * Constructs a SwitchTrie object.
+	 *
+	 * @param possibleSwitches
+	 *            Specifications of possible switches, numbered in order.
+	 * @param switchPrefixes
+	 *            Compiled switch name prefixes mask.
+	 */
+	SwitchTrie(List<SwitchSpecification> possibleSwitches, SwitchPrefixMatcher switchPrefixes)
+	{
+		names = new String[possibleSwitches.size()];
+
+		Node root = new Node();
+		int nodeCount = 1;
+		for (int number = 0; number < names.length; number++)
+		{
+			names[number] = possibleSwitches.get(number).getName();
+
+			Node node = root;
+			for (int i = 0; i < names[number].length(); i++)
+			{
+				node.count++;
+				node.any = number;
+
+				Character c = Character.valueOf(names[number].charAt(i));
+				Node child = node.children.get(c);
+				if (child == null)
+				{
+					child = new Node();
+					node.children.put(c, child);
+					nodeCount++;
+				}
+				node = child;
+			}
+			node.count++;
+			node.any = number;
+			node.terminal = number;
+		}
+
+		childStart = new int[nodeCount];
+		childCount = new int[nodeCount];
+		childChars = new char[nodeCount - 1];
+		childNodes = new int[nodeCount - 1];
+		terminal = new int[nodeCount];
+		only = new int[nodeCount];
+		switchPrefixMatcher = switchPrefixes;
+
+		// Lay the nodes out breadth first, so that the children of a node get
+		// consecutive numbers
+		List<Node> queue = new ArrayList<Node>(nodeCount);
+		queue.add(root);
+		for (int index = 0; index < queue.size(); index++)
+		{
+			Node node = queue.get(index);
+			terminal[index] = node.terminal;
+			only[index] = node.count == 1 ? node.any : -1;
+			childStart[index] = queue.size() - 1;
+			childCount[index] = node.children.size();
+
+			for (Character c : node.children.keySet())
+			{
+				childChars[queue.size() - 1] = c.charValue();
+				childNodes[queue.size() - 1] = queue.size();
+				queue.add(node.children.get(c));
+			}
+		}
+	}
+
+	/**
+	 * Returns the node reached by walking down the trie along the characters
+	 * of an argument.
+	 *
+	 * @param argument
+	 *            The argument.
+	 * @return The node, or -1 if no switch name starts with the argument.
+	 */
+	private int walk(String argument)
+	{
+		int node = 0;
+		for (int i = 0; i < argument.length() && node != -1; i++)
+		{
+			node = child(node, argument.charAt(i));
+		}
+		return node;
+	}
+
+	/**
+	 * Returns child of a node, found by binary search among its children.
+	 *
+	 * @param node
+	 *            The node.
+	 * @param c
+	 *            Character leading to the child.
+	 * @return The child, or -1 if there is none.
+	 */
+	private int child(int node, char c)
+	{
+		int low = childStart[node];
+		int high = low + childCount[node] - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			char middleChar = childChars[middle];
+			if (middleChar < c)
+			{
+				low = middle + 1;
+			}
+			else if (middleChar > c)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				return childNodes[middle];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the switch named or abbreviated by an argument.
+	 *
+	 * @param argument
+	 *            The argument, e.g. --verb.
+	 * @return The number of the switch named by the argument, or of the only
+	 *         switch it abbreviates; {@link #NO_MATCH} if it names or
+	 *         abbreviates no switch; {@link #AMBIGUOUS} if it abbreviates more
+	 *         than one.
+	 */
+	int find(String argument)
+	{
+		int node = walk(argument);
+		if (node == -1)
+		{
+			return NO_MATCH;
+		}
+		if (terminal[node] != -1)
+		{
+			return terminal[node];
+		}
+		int prefixLength = switchPrefixMatcher.getPrefixLength(argument);
+		if (prefixLength == -1 || argument.length() == prefixLength)
+		{
+			return NO_MATCH;
+		}
+		return only[node] != -1 ? only[node] : AMBIGUOUS;
+	}
+
+	/**
+	 * Returns names of the possible switches starting with an argument.
+	 *
+	 * @param argument
+	 *            The argument, e.g. --ver.
+	 * @return The switch names, in alphabetical order, e.g. --verbose and
+	 *         --version.
+	 */
+	List<String> getCompletions(String argument)
+	{
+		List<String> completions = new ArrayList<String>();
+		int node = walk(argument);
+		if (node != -1)
+		{
+			addCompletions(node, completions);
+		}
+		return completions;
+	}
+
+	/**
+	 * Adds names of the possible switches ending at or below a node, in
+	 * alphabetical order.
+	 *
+	 * @param node
+	 *            The node.
+	 * @param completions
+	 *            List to add names to.
+	 */
+	private void addCompletions(int node, List<String> completions)
+	{
+		if (terminal[node] != -1)
+		{
+			completions.add(names[terminal[node]]);
+		}
+		for (int i = childStart[node]; i < childStart[node] + childCount[node]; i++)
+		{
+			addCompletions(childNodes[i], completions);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package com.taitl.commandline;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Marks a field of an options class, of type <code>String[]</code> or
+ * <code>List&lt;String&gt;</code>, to be populated by {@link OptionsBinder}
+ * with the command line arguments that do not belong to any switch. See
+ * {@link Option}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface SwitchlessArguments
+{
+}
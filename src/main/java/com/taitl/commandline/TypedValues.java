@@ -0,0 +1,104 @@
+package com.taitl.commandline;
+
+import java.util.List;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * Auxiliary class used by ImmutableCommandLineParser in the parsing process.
+ * <p>
+ * TypedValues holds the values of a switch of a numeric type, checked and
+ * converted in one pass at parse time: values of type int, long and duration
+ * (in nanoseconds) in an array of longs, values of type double in an array of
+ * doubles.
+ */
+final class TypedValues
+{
+	/** Type of values. */
+	private final ValueType type;
+
+	/** Values of type int, long or duration, or null. */
+	private final long[] longValues;
+
+	/** Values of type double, or null. */
+	private final double[] doubleValues;
+
+	/**
+	 * Constructs a TypedValues object, to be filled by
+	 * {@link #convert(List, int)}.
+	 *
+	 * @param valueType
+	 *            Type of values, other than string.
+	 * @param count
+	 *            Number of values.
+	 */
+	TypedValues(ValueType valueType, int count)
+	{
+		type = valueType;
+		longValues = valueType == ValueType.DOUBLE ? null : new long[count];
+		doubleValues = valueType == ValueType.DOUBLE ? new double[count] : null;
+	}
+
+	/**
+	 * Converts switch values to the type of the switch, checking each value
+	 * in the same pass that converts it, without throwing an exception.
+	 * Conversion stops at the first value that can not be converted, and can
+	 * be resumed after it to find the others.
+	 *
+	 * @param values
+	 *            Values of switch, as many as this object holds.
+	 * @param start
+	 *            Index of the first value to convert.
+	 * @return Index of the first value at or after start that can not be
+	 *         converted, or -1 if all are converted.
+	 */
+	int convert(List<String> values, int start)
+	{
+		for (int i = start; i < values.size(); i++)
+		{
+			boolean converted = doubleValues != null ? type.convert(values.get(i),
+					doubleValues, i) : type.convert(values.get(i), longValues, i);
+			if (!converted)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns type of values.
+	 *
+	 * @return Type of values.
+	 */
+	ValueType getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Returns value of type int, long or duration.
+	 *
+	 * @param index
+	 *            Index of value.
+	 * @return The value, in nanoseconds for a duration.
+	 */
+	long getLong(int index)
+	{
+		return longValues[index];
+	}
+
+	/**
+	 * Returns value of type int, long or double as a double.
+	 *
+	 * @param index
+	 *            Index of value.
+	 * @return The value.
+	 */
+	double getDouble(int index)
+	{
+		return doubleValues != null ? doubleValues[index] : longValues[index];
+	}
+}
@@ -0,0 +1,733 @@
+package com.taitl.commandline;
+
+import java.time.Duration;
+
+/*
+ * Copyright 2011 Taitl Design. All rights reserved.
+ */
+
+/**
+ * ValueType is the type of values of a switch, specified after a colon in the
+ * switch cardinality, e.g. <code>--threads(1:int)</code> or
+ * <code>--timeout(0-1:duration)</code>. Switches without a type have values of
+ * type {@link ValueType#STRING}.
+ * <p>
+ * Values of numeric types are converted once, when the command line is
+ * parsed, and stored in primitive arrays; a value that can not be converted
+ * is a violation of parsing rules.
+ */
+public enum ValueType
+{
+	/** Any string. This is the type of switches declared without a type. */
+	STRING("string"),
+
+	/** A 32-bit integer, as accepted by {@link Integer#parseInt(String)}. */
+	INT("int"),
+
+	/** A 64-bit integer, as accepted by {@link Long#parseLong(String)}. */
+	LONG("long"),
+
+	/** A double, as accepted by {@link Double#parseDouble(String)}. */
+	DOUBLE("double"),
+
+	/**
+	 * A duration, either an integer followed by one of units ns, us, ms, s, m,
+	 * h, d, e.g. 500ms, or an ISO-8601 duration, e.g. PT1M30S. Stored in
+	 * nanoseconds.
+	 */
+	DURATION("duration");
+
+	/** Name of type in switch specification, e.g. int. */
+	private final String typeName;
+
+	/**
+	 * Constructs a ValueType.
+	 *
+	 * @param name
+	 *            Name of type in switch specification.
+	 */
+	private ValueType(String name)
+	{
+		typeName = name;
+	}
+
+	/**
+	 * Returns the value type with the specified name.
+	 *
+	 * @param name
+	 *            Name of type in switch specification, e.g. int.
+	 * @return The value type.
+	 * @throws IllegalArgumentException
+	 *             if there is no value type with this name.
+	 */
+	public static ValueType forName(String name) throws IllegalArgumentException
+	{
+		for (ValueType type : values())
+		{
+			if (type.typeName.equals(name))
+			{
+				return type;
+			}
+		}
+		throw new IllegalArgumentException("Unknown value type: " + name
+				+ ". Value type must be one of string, int, long, double, duration.");
+	}
+
+	/**
+	 * Returns name of type in switch specification.
+	 *
+	 * @return Name of type, e.g. int.
+	 */
+	public String getName()
+	{
+		return typeName;
+	}
+
+	/**
+	 * Returns true if values of this type can be returned as values of the
+	 * specified type without loss of meaning: int as long or double, long as
+	 * double, and any type as itself.
+	 *
+	 * @param type
+	 *            The requested type.
+	 * @return True if values of this type can be returned as the requested
+	 *         type.
+	 */
+	boolean widensTo(ValueType type)
+	{
+		switch (this)
+		{
+			case INT:
+				return type == INT || type == LONG || type == DOUBLE;
+			case LONG:
+				return type == LONG || type == DOUBLE;
+			default:
+				return type == this;
+		}
+	}
+
+	/**
+	 * Converts switch value of an integral type (int, long or duration) into a
+	 * long: the number itself, or the number of nanoseconds for a duration.
+	 * Also used by parsers generated at compile time from options classes.
+	 *
+	 * @param switchName
+	 *            Name of switch, for the error message.
+	 * @param value
+	 *            The switch value.
+	 * @return The converted value.
+	 * @throws IllegalArgumentException
+	 *             if the value can not be converted.
+	 */
+	public long toLong(String switchName, String value) throws IllegalArgumentException
+	{
+		if (this != INT && this != LONG && this != DURATION)
+		{
+			throw new IllegalArgumentException("Values of type " + typeName
+					+ " are not integral.");
+		}
+
+		long[] converted = new long[1];
+		if (!convert(value, converted, 0))
+		{
+			throw invalidValue(switchName, value);
+		}
+		return converted[0];
+	}
+
+	/**
+	 * Converts switch value into a double.
+	 *
+	 * @param switchName
+	 *            Name of switch, for the error message.
+	 * @param value
+	 *            The switch value.
+	 * @return The converted value.
+	 * @throws IllegalArgumentException
+	 *             if the value can not be converted.
+	 */
+	public double toDouble(String switchName, String value) throws IllegalArgumentException
+	{
+		double[] converted = new double[1];
+		if (!convert(value, converted, 0))
+		{
+			throw invalidValue(switchName, value);
+		}
+		return converted[0];
+	}
+
+	/**
+	 * Creates exception reporting a value that can not be converted to this
+	 * type.
+	 *
+	 * @param switchName
+	 *            Name of switch.
+	 * @param value
+	 *            The switch value.
+	 * @return The exception to throw.
+	 */
+	private IllegalArgumentException invalidValue(String switchName, String value)
+	{
+		return new IllegalArgumentException(invalidValueMessage(switchName, value));
+	}
+
+	/**
+	 * Builds message reporting a value that can not be converted to this type.
+	 *
+	 * @param switchName
+	 *            Name of switch.
+	 * @param value
+	 *            The switch value.
+	 * @return The message.
+	 */
+	String invalidValueMessage(String switchName, String value)
+	{
+		return "Invalid value '" + value + "' of switch " + switchName + ": a value of type "
+				+ typeName + " is expected.";
+	}
+
+	/**
+	 * Converts switch value of an integral type (int, long or duration), which
+	 * is checked and converted in the same pass, without throwing and catching
+	 * an exception.
+	 *
+	 * @param value
+	 *            The switch value.
+	 * @param longs
+	 *            Array to store the converted value in.
+	 * @param index
+	 *            Index of the converted value in the array.
+	 * @return True if the value is converted, false if it can not be
+	 *         converted, or this type is not integral.
+	 */
+	boolean convert(String value, long[] longs, int index)
+	{
+		switch (this)
+		{
+			case INT:
+				return parseInteger(value, 0, value.length(), Integer.MIN_VALUE,
+						Integer.MAX_VALUE, longs, index);
+			case LONG:
+				return parseInteger(value, 0, value.length(), Long.MIN_VALUE, Long.MAX_VALUE,
+						longs, index);
+			case DURATION:
+				return parseDuration(value, longs, index);
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Converts switch value of type double, which is checked and converted in
+	 * the same pass. The value is converted by
+	 * {@link Double#parseDouble(String)} only once its syntax is checked, so
+	 * that an invalid value is rejected without throwing and catching an
+	 * exception.
+	 *
+	 * @param value
+	 *            The switch value.
+	 * @param doubles
+	 *            Array to store the converted value in.
+	 * @param index
+	 *            Index of the converted value in the array.
+	 * @return True if the value is converted, false if it can not be
+	 *         converted.
+	 */
+	boolean convert(String value, double[] doubles, int index)
+	{
+		if (!isDouble(value))
+		{
+			return false;
+		}
+		doubles[index] = Double.parseDouble(value);
+		return true;
+	}
+
+	/**
+	 * Returns true if string is accepted by {@link Double#valueOf(String)}: a
+	 * decimal or hexadecimal floating-point literal with an optional sign and
+	 * type suffix, NaN or Infinity, surrounded by optional whitespace.
+	 *
+	 * @param value
+	 *            The string.
+	 * @return True for a floating-point number.
+	 */
+	private static boolean isDouble(String value)
+	{
+		// Whitespace is trimmed as String.trim() does
+		int start = 0;
+		int end = value.length();
+		while (start < end && value.charAt(start) <= ' ')
+		{
+			start++;
+		}
+		while (end > start && value.charAt(end - 1) <= ' ')
+		{
+			end--;
+		}
+
+		int i = start;
+		if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+'))
+		{
+			i++;
+		}
+		if (value.startsWith("NaN", i))
+		{
+			return i + 3 == end;
+		}
+		if (value.startsWith("Infinity", i))
+		{
+			return i + 8 == end;
+		}
+
+		boolean hex = i + 1 < end && value.charAt(i) == '0'
+				&& (value.charAt(i + 1) == 'x' || value.charAt(i + 1) == 'X');
+		if (hex)
+		{
+			i += 2;
+		}
+		int digitsStart = i;
+		i = skipDigits(value, i, end, hex);
+		int digitCount = i - digitsStart;
+		if (i < end && value.charAt(i) == '.')
+		{
+			digitsStart = ++i;
+			i = skipDigits(value, i, end, hex);
+			digitCount += i - digitsStart;
+		}
+		if (digitCount == 0)
+		{
+			return false;
+		}
+
+		// The exponent is binary and required in a hexadecimal literal
+		char exponent = hex ? 'p' : 'e';
+		if (i < end && Character.toLowerCase(value.charAt(i)) == exponent)
+		{
+			i++;
+			if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+'))
+			{
+				i++;
+			}
+			digitsStart = i;
+			i = skipDigits(value, i, end, false);
+			if (i == digitsStart)
+			{
+				return false;
+			}
+		}
+		else if (hex)
+		{
+			return false;
+		}
+
+		if (i < end && "fFdD".indexOf(value.charAt(i)) >= 0)
+		{
+			i++;
+		}
+		return i == end;
+	}
+
+	/**
+	 * Returns index after the ASCII digits that start at the specified index.
+	 *
+	 * @param value
+	 *            The string.
+	 * @param start
+	 *            Index of the first character to check.
+	 * @param end
+	 *            Index after the last character to check.
+	 * @param hex
+	 *            True to accept hexadecimal digits.
+	 * @return Index of the first character that is not a digit, or end.
+	 */
+	private static int skipDigits(String value, int start, int end, boolean hex)
+	{
+		int i = start;
+		while (i < end)
+		{
+			char c = value.charAt(i);
+			if (!(c >= '0' && c <= '9')
+					&& !(hex && (c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F')))
+			{
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Parses part of string as an integer in the specified range, as accepted
+	 * by {@link Long#parseLong(String)}, without throwing an exception.
+	 *
+	 * @param value
+	 *            The string.
+	 * @param start
+	 *            Index of the first character of the integer.
+	 * @param end
+	 *            Index after the last character of the integer.
+	 * @param min
+	 *            Minimum value.
+	 * @param max
+	 *            Maximum value.
+	 * @param longs
+	 *            Array to store the integer in.
+	 * @param index
+	 *            Index of the integer in the array.
+	 * @return True if the part of string is an integer in range.
+	 */
+	private static boolean parseInteger(String value, int start, int end, long min, long max,
+			long[] longs, int index)
+	{
+		int i = start;
+		boolean negative = false;
+
+		if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+'))
+		{
+			negative = value.charAt(i) == '-';
+			i++;
+		}
+		if (i == end)
+		{
+			return false;
+		}
+
+		// Accumulate negatively, as Long.parseLong() does, to reach the minimum
+		long limit = negative ? min : -max;
+		long multiplicationLimit = limit / 10;
+		long result = 0;
+		for (; i < end; i++)
+		{
+			int digit = Character.digit(value.charAt(i), 10);
+			if (digit < 0 || result < multiplicationLimit)
+			{
+				return false;
+			}
+			result *= 10;
+			if (result < limit + digit)
+			{
+				return false;
+			}
+			result -= digit;
+		}
+		longs[index] = negative ? result : -result;
+		return true;
+	}
+
+	/**
+	 * Parses duration, either an integer followed by a unit, e.g. 500ms, or an
+	 * ISO-8601 duration, e.g. PT1M30S, into nanoseconds.
+	 *
+	 * @param value
+	 *            The duration string.
+	 * @param longs
+	 *            Array to store the duration in.
+	 * @param index
+	 *            Index of the duration in the array.
+	 * @return True if the string is a valid duration in the range of long
+	 *         nanoseconds.
+	 */
+	private static boolean parseDuration(String value, long[] longs, int index)
+	{
+		if (isIsoDuration(value))
+		{
+			return parseIsoDuration(value, longs, index);
+		}
+
+		int unitStart = getUnitStart(value);
+		long nanosPerUnit = getNanosPerUnit(value.substring(unitStart));
+		if (nanosPerUnit == 0
+				|| !parseInteger(value, 0, unitStart, Long.MIN_VALUE, Long.MAX_VALUE, longs,
+						index))
+		{
+			return false;
+		}
+		long amount = longs[index];
+		if (amount > Long.MAX_VALUE / nanosPerUnit || amount < Long.MIN_VALUE / nanosPerUnit)
+		{
+			return false;
+		}
+		longs[index] = amount * nanosPerUnit;
+		return true;
+	}
+
+	/**
+	 * Returns true if duration string is in ISO-8601 format, that is, starts
+	 * with P after an optional sign.
+	 *
+	 * @param value
+	 *            The duration string.
+	 * @return True for an ISO-8601 duration.
+	 */
+	private static boolean isIsoDuration(String value)
+	{
+		int signLength = value.startsWith("-") || value.startsWith("+") ? 1 : 0;
+		return value.length() > signLength
+				&& Character.toUpperCase(value.charAt(signLength)) == 'P';
+	}
+
+	/**
+	 * Parses ISO-8601 duration into nanoseconds without throwing an exception,
+	 * accepting the strings that {@link Duration#parse(CharSequence)} accepts:
+	 * days, hours, minutes and seconds, each with an optional sign, and a
+	 * fraction of up to nine digits of the seconds.
+	 *
+	 * @param value
+	 *            The duration string, starting with P after an optional sign.
+	 * @param longs
+	 *            Array to store the duration in.
+	 * @param index
+	 *            Index of the duration in the array.
+	 * @return True if the string is a valid duration in the range of long
+	 *         nanoseconds.
+	 */
+	private static boolean parseIsoDuration(String value, long[] longs, int index)
+	{
+		int end = value.length();
+		boolean negated = value.charAt(0) == '-';
+		int i = negated || value.charAt(0) == '+' ? 2 : 1;
+
+		// Days, hours, minutes and seconds
+		long[] components = new long[4];
+		long nanos = 0;
+		boolean found = false;
+
+		int numberEnd = skipIsoNumber(value, i, end);
+		if (numberEnd != i && isIsoUnit(value, numberEnd, 'D'))
+		{
+			if (!parseInteger(value, i, numberEnd, Long.MIN_VALUE, Long.MAX_VALUE, components, 0))
+			{
+				return false;
+			}
+			i = numberEnd + 1;
+			found = true;
+		}
+
+		if (isIsoUnit(value, i, 'T'))
+		{
+			int timeStart = i++;
+			boolean timeFound = false;
+			for (int component = 1; component <= 2; component++)
+			{
+				numberEnd = skipIsoNumber(value, i, end);
+				if (numberEnd != i && isIsoUnit(value, numberEnd, component == 1 ? 'H' : 'M'))
+				{
+					if (!parseInteger(value, i, numberEnd, Long.MIN_VALUE, Long.MAX_VALUE,
+							components, component))
+					{
+						return false;
+					}
+					i = numberEnd + 1;
+					timeFound = true;
+				}
+			}
+
+			numberEnd = skipIsoNumber(value, i, end);
+			int fractionStart = numberEnd;
+			int fractionEnd = numberEnd;
+			if (numberEnd != i && numberEnd < end
+					&& (value.charAt(numberEnd) == '.' || value.charAt(numberEnd) == ','))
+			{
+				fractionStart = numberEnd + 1;
+				fractionEnd = Math.min(skipDigits(value, fractionStart, end, false),
+						fractionStart + 9);
+			}
+			if (numberEnd != i && isIsoUnit(value, fractionEnd, 'S'))
+			{
+				if (!parseInteger(value, i, numberEnd, Long.MIN_VALUE, Long.MAX_VALUE,
+						components, 3))
+				{
+					return false;
+				}
+				for (int j = fractionStart; j < fractionStart + 9; j++)
+				{
+					nanos = nanos * 10 + (j < fractionEnd ? value.charAt(j) - '0' : 0);
+				}
+				// The fraction takes the sign of the seconds
+				if (value.charAt(i) == '-')
+				{
+					nanos = -nanos;
+				}
+				i = fractionEnd + 1;
+				timeFound = true;
+			}
+
+			// Duration.parse() rejects an upper case T without time components
+			// only
+			if (!timeFound && value.charAt(timeStart) == 'T')
+			{
+				return false;
+			}
+			found |= timeFound;
+		}
+		if (!found || i != end)
+		{
+			return false;
+		}
+
+		// Sum the components in seconds, in the order Duration.parse() does
+		long[] secondsPerUnit = { 24L * 60L * 60L, 60L * 60L, 60L };
+		long seconds = components[3];
+		for (int component = 2; component >= 0; component--)
+		{
+			long amount = components[component];
+			long unit = secondsPerUnit[component];
+			if (amount > Long.MAX_VALUE / unit || amount < Long.MIN_VALUE / unit
+					|| addOverflows(seconds, amount * unit))
+			{
+				return false;
+			}
+			seconds += amount * unit;
+		}
+
+		// Normalize the nanoseconds to [0, 1e9), then negate, as Duration does
+		final long nanosPerSecond = 1000000000L;
+		if (nanos < 0)
+		{
+			if (seconds == Long.MIN_VALUE)
+			{
+				return false;
+			}
+			seconds--;
+			nanos += nanosPerSecond;
+		}
+		if (negated)
+		{
+			if (seconds == Long.MIN_VALUE && nanos == 0)
+			{
+				return false;
+			}
+			// Wraps around from the minimum to the maximum, as intended
+			seconds = nanos == 0 ? -seconds : -seconds - 1;
+			nanos = nanos == 0 ? 0 : nanosPerSecond - nanos;
+		}
+
+		// Convert to nanoseconds, reaching down to the minimum of long
+		if (seconds < 0 && nanos > 0)
+		{
+			seconds++;
+			nanos -= nanosPerSecond;
+		}
+		if (seconds > Long.MAX_VALUE / nanosPerSecond || seconds < Long.MIN_VALUE / nanosPerSecond
+				|| addOverflows(seconds * nanosPerSecond, nanos))
+		{
+			return false;
+		}
+		longs[index] = seconds * nanosPerSecond + nanos;
+		return true;
+	}
+
+	/**
+	 * Returns index after the number of ISO-8601 duration component, an
+	 * integer of ASCII digits with an optional sign.
+	 *
+	 * @param value
+	 *            The duration string.
+	 * @param start
+	 *            Index of the first character of the number.
+	 * @param end
+	 *            Length of the duration string.
+	 * @return Index after the number, or start if there is no number.
+	 */
+	private static int skipIsoNumber(String value, int start, int end)
+	{
+		int i = start;
+		if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+'))
+		{
+			i++;
+		}
+		int digitsEnd = skipDigits(value, i, end, false);
+		return digitsEnd == i ? start : digitsEnd;
+	}
+
+	/**
+	 * Returns true if ISO-8601 duration string has the specified unit letter,
+	 * in either case, at the specified index.
+	 *
+	 * @param value
+	 *            The duration string.
+	 * @param index
+	 *            Index of the character to check.
+	 * @param unit
+	 *            The upper case unit letter.
+	 * @return True if the unit letter is at the index.
+	 */
+	private static boolean isIsoUnit(String value, int index, char unit)
+	{
+		return index < value.length() && Character.toUpperCase(value.charAt(index)) == unit;
+	}
+
+	/**
+	 * Returns true if sum of two longs overflows, as checked by
+	 * Math.addExact().
+	 *
+	 * @param a
+	 *            The first addend.
+	 * @param b
+	 *            The second addend.
+	 * @return True if the sum is out of the range of long.
+	 */
+	private static boolean addOverflows(long a, long b)
+	{
+		long sum = a + b;
+		return ((a ^ sum) & (b ^ sum)) < 0;
+	}
+
+	/**
+	 * Returns index of the unit of duration string, which follows its amount.
+	 *
+	 * @param value
+	 *            The duration string.
+	 * @return Index of the first of the trailing letters.
+	 */
+	private static int getUnitStart(String value)
+	{
+		int unitStart = value.length();
+		while (unitStart > 0 && Character.isLetter(value.charAt(unitStart - 1)))
+		{
+			unitStart--;
+		}
+		return unitStart;
+	}
+
+	/**
+	 * Returns number of nanoseconds in a duration unit.
+	 *
+	 * @param unit
+	 *            The unit: ns, us, ms, s, m, h or d.
+	 * @return Number of nanoseconds in the unit, or 0 for an unknown unit.
+	 */
+	private static long getNanosPerUnit(String unit)
+	{
+		if (unit.equals("ns"))
+		{
+			return 1L;
+		}
+		else if (unit.equals("us"))
+		{
+			return 1000L;
+		}
+		else if (unit.equals("ms"))
+		{
+			return 1000000L;
+		}
+		else if (unit.equals("s"))
+		{
+			return 1000000000L;
+		}
+		else if (unit.equals("m"))
+		{
+			return 60L * 1000000000L;
+		}
+		else if (unit.equals("h"))
+		{
+			return 60L * 60L * 1000000000L;
+		}
+		else if (unit.equals("d"))
+		{
+			return 24L * 60L * 60L * 1000000000L;
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,88 @@
+package com.taitl.commandline;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests for ArgumentList class.
+ */
+public class ArgumentListTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	static final String[] arguments = new String[] { "--multi", "a", "b", "c", "--next", "d" };
+
+	@Test
+	public final void testRange()
+	{
+		List<String> list = new ArgumentList(arguments, 1, 3);
+
+		assertEquals(3, list.size());
+		assertEquals("a", list.get(0));
+		assertEquals("c", list.get(2));
+		assertEquals(Arrays.asList("a", "b", "c"), list);
+		assertTrue(new ArgumentList(arguments, 5, 0).isEmpty());
+	}
+
+	@Test
+	public final void testIndices()
+	{
+		List<String> list = new ArgumentList(arguments, new int[] { 0, 5, 3, 0 }, 3);
+
+		assertEquals(3, list.size());
+		assertEquals(Arrays.asList("--multi", "d", "c"), list);
+		assertEquals(Arrays.asList("--multi", "d", "c").hashCode(), list.hashCode());
+	}
+
+	@Test
+	public final void testOutOfRange()
+	{
+		List<String> list = new ArgumentList(arguments, 1, 3);
+
+		try
+		{
+			list.get(3);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IndexOutOfBoundsException ioobe)
+		{
+		}
+		try
+		{
+			new ArgumentList(arguments, new int[] { 0, 5 }, 1).get(1);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IndexOutOfBoundsException ioobe)
+		{
+		}
+	}
+
+	@Test
+	public final void testReadOnly()
+	{
+		List<String> list = new ArgumentList(arguments, 1, 3);
+
+		try
+		{
+			list.set(0, "changed");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (UnsupportedOperationException uoe)
+		{
+		}
+		try
+		{
+			list.add("e");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (UnsupportedOperationException uoe)
+		{
+		}
+		assertEquals("a", arguments[1]);
+	}
+}
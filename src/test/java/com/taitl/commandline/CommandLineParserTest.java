@@ -143,6 +143,350 @@ public class CommandLineParserTest extends TestCase
 		assertEquals("--prev --usage \"usagevalue1 usagevalue2\" --next", commandLine);
 		arguments = commandLineParser.getArguments();
 		assertTrue(arguments.length == 4);
+
+		// Arguments are trimmed, and quoted if they have whitespace inside
+		arguments = new String[] { "--multi", " tab\tvalue ", "", "line\nvalue", "--next" };
+		commandLineParser.setArguments(arguments);
+		commandLine = commandLineParser.getOriginalCommandLine();
+		assertEquals("--multi \"tab\tvalue\" \"line\nvalue\" --next", commandLine);
+		assertSame(commandLine, commandLineParser.getOriginalCommandLine());
+	}
+
+	/** */
+	@Test
+	public final void testTypedValues()
+	{
+		commandLineParser.setPossibleSwitches("--threads(1:int) --timeout(1:duration) --onevalue(1)");
+		commandLineParser.setCommandLine("--threads 4 --timeout 250ms --onevalue 7");
+		assertEquals(4, commandLineParser.getInt("--threads"));
+		assertEquals(4L, commandLineParser.getLong("--threads", 0));
+		assertEquals(250L, commandLineParser.getDuration("--timeout").toMillis());
+		assertEquals(7.0, commandLineParser.getDouble("--onevalue"), 0.0);
+		assertEquals(1, commandLineParser.getSwitchValueCount("--threads"));
+		try
+		{
+			commandLineParser.getInt("--prev");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			commandLineParser.setCommandLine("--threads four");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
+	/** */
+	@Test
+	public final void testParseAll()
+	{
+		commandLineParser.setArguments(new String[] { "--prev" });
+		List<ParseResult> results = commandLineParser.parseAll(Arrays.asList(
+				new String[] { "--next", "file1.txt" }, new String[] { "--onevalue", "1" }));
+		assertEquals(2, results.size());
+		assertEquals("file1.txt", results.get(0).getSwitchValue("--file"));
+		assertEquals("1", results.get(1).getSwitchValue("--onevalue"));
+
+		// The parser's own arguments are not changed
+		assertTrue(commandLineParser.isSwitchPresent("--prev"));
+		assertFalse(commandLineParser.isSwitchPresent("--next"));
+
+		results = commandLineParser.parseAllCommandLines(Arrays.asList("--usage"));
+		assertTrue(results.get(0).isSwitchPresent("--usage"));
+
+		results = commandLineParser.parseAllCommandLinesParallel(
+				Arrays.asList("--usage", "--next file2.txt"), null);
+		assertEquals("file2.txt", results.get(1).getSwitchValue("--file"));
+	}
+
+	/** */
+	@Test
+	public final void testResponseFiles() throws Exception
+	{
+		java.io.File file = java.io.File.createTempFile("arguments", ".txt");
+		try
+		{
+			ResponseFilesTest.write(file, "--multi a b\n\"c d\"\n");
+			String[] arguments = new String[] { "--prev", "@" + file.getPath() };
+
+			// Off by default: @path is an ordinary argument
+			assertFalse(commandLineParser.isResponseFileExpansion());
+			commandLineParser.setArguments(arguments);
+			assertEquals("@" + file.getPath(), commandLineParser.getSwitchValue("--file"));
+
+			commandLineParser.setResponseFileExpansion(true);
+			commandLineParser.setArguments(arguments);
+			assertEquals(Arrays.asList("a", "b", "c d"), commandLineParser
+					.getSwitchValues("--multi"));
+			assertEquals(2, commandLineParser.getArguments().length);
+
+			commandLineParser.setCommandLine("--prev @" + file.getPath() + ".missing");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			assertTrue(iae.getMessage().contains(".missing"));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/** */
+	@Test
+	public final void testTryParse()
+	{
+		commandLineParser.setArguments(new String[] { "--prev" });
+
+		ParseResult result = commandLineParser.tryParseCommandLine("--next --unknown");
+		assertTrue(result.hasErrors());
+		assertEquals(ParseErrorCode.UNKNOWN_SWITCH, result.getErrors().get(0).getCode());
+		assertEquals(1, result.getErrors().get(0).getPosition());
+
+		result = commandLineParser.tryParse(new String[] { "--next" });
+		assertFalse(result.hasErrors());
+		assertTrue(result.isSwitchPresent("--next"));
+
+		// The arguments of this object are not changed
+		assertTrue(commandLineParser.isSwitchPresent("--prev"));
+	}
+
+	/** */
+	@Test
+	public final void testAllErrorsReported()
+	{
+		assertFalse(commandLineParser.isAllErrorsReported());
+		try
+		{
+			commandLineParser.setCommandLine("--onevalue --unknown --onetothree");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(1, icle.getErrors().size());
+		}
+
+		commandLineParser.setAllErrorsReported(true);
+		try
+		{
+			commandLineParser.setCommandLine("--onevalue --unknown --onetothree");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(3, icle.getErrors().size());
+		}
+		assertEquals(2, commandLineParser.tryParseCommandLine("--onevalue --unknown")
+				.getErrors().size());
+	}
+
+	/** */
+	@Test
+	public final void testTooFewImplicitValues()
+	{
+		String message = "Too few values are specified for switch --file (must be no less "
+				+ "than 2 value, specified 1 values).";
+		ParseMetrics metrics = new ParseMetrics();
+		commandLineParser.setImplicitSwitch("--file(2-3)");
+		commandLineParser.setParseListener(metrics);
+
+		try
+		{
+			commandLineParser.setArguments(new String[] { "x" });
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(message, icle.getMessage());
+			assertEquals(-1, icle.getErrors().get(0).getPosition());
+		}
+		try
+		{
+			commandLineParser.setCommandLine("--prev x --next");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(message, icle.getMessage());
+		}
+		assertEquals(2, metrics.getTooFewValuesErrorCount());
+
+		ParseError error = commandLineParser.tryParse(new String[] { "x" }).getErrors().get(0);
+		assertEquals(ParseErrorCode.TOO_FEW_VALUES, error.getCode());
+		assertEquals("--file", error.getSwitchName());
+
+		commandLineParser.setArguments(new String[] { "x", "y" });
+		assertEquals(Arrays.asList("x", "y"), commandLineParser.getSwitchValues("--file"));
+	}
+
+	@Test
+	public final void testAbbreviatedSwitches()
+	{
+		assertFalse(commandLineParser.isAbbreviatedSwitchesAllowed());
+		commandLineParser.setAbbreviatedSwitchesAllowed(true);
+		assertTrue(commandLineParser.isAbbreviatedSwitchesAllowed());
+		assertTrue(commandLineParser.getImmutableParser().isAbbreviatedSwitchesAllowed());
+
+		commandLineParser.setCommandLine("--pr --onev val --thr a b c file.txt");
+		assertTrue(commandLineParser.isSwitchPresent("--prev"));
+		assertEquals("val", commandLineParser.getSwitchValue("--onevalue"));
+		assertEquals(3, commandLineParser.getSwitchValueCount("--threevalues"));
+		assertEquals("file.txt", commandLineParser.getSwitchValue("--file"));
+
+		ParseMetrics metrics = new ParseMetrics();
+		commandLineParser.setParseListener(metrics);
+		try
+		{
+			commandLineParser.setCommandLine("--prev --t val");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(Arrays.asList("--threevalues", "--twovalues"), icle.getErrors().get(0)
+					.getCandidates());
+		}
+		assertEquals(1, metrics.getAmbiguousSwitchErrorCount());
+
+		// Switches are created by their abbreviations, too
+		Switch s = commandLineParser.createSwitch("--onet");
+		assertEquals(1, s.getMinValues());
+		assertEquals(3, s.getMaxValues());
+		try
+		{
+			commandLineParser.createSwitch("--t");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			assertTrue(iae.getMessage().contains("--twovalues"));
+		}
+	}
+
+	@Test
+	public final void testSwitchSuggestions()
+	{
+		assertFalse(commandLineParser.isSwitchSuggestionsReported());
+		commandLineParser.setSwitchSuggestionsReported(true);
+		assertTrue(commandLineParser.isSwitchSuggestionsReported());
+		assertTrue(commandLineParser.getImmutableParser().isSwitchSuggestionsReported());
+
+		try
+		{
+			commandLineParser.setCommandLine("--prev --onevlaue val");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(Arrays.asList("--onevalue"), icle.getErrors().get(0).getCandidates());
+			assertTrue(icle.getMessage().endsWith(" Did you mean --onevalue?"));
+		}
+
+		commandLineParser.setSwitchSuggestionsReported(false);
+		try
+		{
+			commandLineParser.setCommandLine("--prev --onevlaue val");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertTrue(icle.getErrors().get(0).getCandidates().isEmpty());
+			assertFalse(icle.getMessage().contains("Did you mean"));
+		}
+	}
+
+	/** */
+	@Test
+	public final void testParseCache()
+	{
+		assertEquals(0, commandLineParser.getParseCacheSize());
+		assertNull(commandLineParser.getParseCache());
+
+		commandLineParser.setParseCacheSize(10);
+		commandLineParser.setCommandLine("--prev --onevalue a");
+		commandLineParser.setCommandLine("--next");
+		commandLineParser.setCommandLine("--prev --onevalue a");
+		assertEquals("a", commandLineParser.getSwitchValue("--onevalue"));
+		assertEquals(1, commandLineParser.getParseCache().getHitCount());
+		assertEquals(2, commandLineParser.getParseCache().getMissCount());
+
+		// Changing the possible switches discards the cache
+		commandLineParser.setPossibleSwitches(possibleSwitches + " --extra(0)");
+		assertNull(commandLineParser.getParseCache());
+		commandLineParser.setCommandLine("--prev --onevalue a --extra");
+		assertTrue(commandLineParser.isSwitchPresent("--extra"));
+		assertEquals(0, commandLineParser.getParseCache().getHitCount());
+
+		try
+		{
+			commandLineParser.setParseCacheSize(-1);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
+	/** */
+	@Test
+	public final void testParseListener()
+	{
+		assertNull(commandLineParser.getParseListener());
+
+		ParseMetrics metrics = new ParseMetrics();
+		commandLineParser.setParseListener(metrics);
+		commandLineParser.setParseCacheSize(10);
+		commandLineParser.setCommandLine("--prev --onevalue a");
+		commandLineParser.setCommandLine("--prev --onevalue a");
+		try
+		{
+			commandLineParser.setCommandLine("--prev --unknown");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			commandLineParser.setCommandLine(cmdlineImplicitSwitchTooManyValues);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalStateException ise)
+		{
+		}
+
+		assertSame(metrics, commandLineParser.getParseListener());
+		assertEquals(4, metrics.getParseCount());
+		assertEquals(2, metrics.getFailedParseCount());
+		assertEquals(12, metrics.getArgumentCount());
+		assertEquals(4, metrics.getMaxArgumentCount());
+		assertEquals(1, metrics.getUnknownSwitchErrorCount());
+		assertEquals(1, metrics.getTooManyValuesErrorCount());
+		assertEquals(1, metrics.getCacheHitCount());
+		assertEquals(3, metrics.getCacheMissCount());
+		assertTrue(metrics.getMaxLatencyNanos() >= metrics.getMeanLatencyNanos());
+
+		// All errors of a command line are counted
+		commandLineParser.setAllErrorsReported(true);
+		try
+		{
+			commandLineParser.setCommandLine("--onevalue --unknown --onetothree");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+		}
+		assertEquals(2, metrics.getUnknownSwitchErrorCount());
+		assertEquals(2, metrics.getTooFewValuesErrorCount());
+
+		commandLineParser.setParseListener(null);
+		commandLineParser.setCommandLine("--next");
+		assertEquals(5, metrics.getParseCount());
 	}
 
 	/** */
@@ -456,6 +800,35 @@ public class CommandLineParserTest extends TestCase
 
 	}
 
+	/** */
+	@Test
+	public final void testManyPossibleSwitches()
+	{
+		final int switchCount = 400;
+		StringBuilder specifications = new StringBuilder();
+		for (int i = 0; i < switchCount; i++)
+		{
+			specifications.append(" --switch").append(i).append("(").append(i % 3).append(")");
+		}
+		commandLineParser.setPossibleSwitches(specifications.toString().trim());
+		assertEquals(switchCount, commandLineParser.getPossibleSwitches().size());
+
+		assertTrue(commandLineParser.isPossibleSwitch("--switch399"));
+		assertFalse(commandLineParser.isPossibleSwitch("--switch400"));
+		assertFalse(commandLineParser.isPossibleSwitch("--switch"));
+		assertEquals(2, commandLineParser.createSwitch("--switch398").getMaxValues());
+		assertEquals(1, commandLineParser.createSwitch("--file(1)").getMaxValues());
+		assertEquals(1, commandLineParser.createSwitch("--file").getMaxValues());
+
+		commandLineParser.setCommandLine("--switch2 a b --switch0 file.txt");
+		assertEquals(2, commandLineParser.getSwitchValueCount("--switch2"));
+		assertEquals("file.txt", commandLineParser.getSwitchValue("--file"));
+
+		commandLineParser.removePossibleSwitch("--switch2(2)");
+		assertFalse(commandLineParser.isPossibleSwitch("--switch2"));
+		assertEquals(switchCount - 1, commandLineParser.getPossibleSwitches().size());
+	}
+
 	/*******************************
 	 * Trivial tests
 	 *******************************/
@@ -554,6 +927,28 @@ public class CommandLineParserTest extends TestCase
 		assertEquals("a", commandLineParser.getVersionSwitchName());
 	}
 
+	/** */
+	@Test
+	public final void testSetSwitchPrefixesMask()
+	{
+		assertEquals("(--|-)", commandLineParser.getSwitchPrefixesMask());
+
+		commandLineParser.setPossibleSwitches("/prev(0) /onevalue(1)");
+		commandLineParser.setSwitchPrefixesMask("(/)");
+		commandLineParser.setCommandLine("/prev /onevalue -val");
+		assertTrue(commandLineParser.isSwitchPresent("/prev"));
+		assertEquals("-val", commandLineParser.getSwitchValue("/onevalue"));
+
+		try
+		{
+			commandLineParser.setSwitchPrefixesMask("(/");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
 	/** */
 	@Test
 	public final void testRequireInitialization()
@@ -701,6 +1096,25 @@ public class CommandLineParserTest extends TestCase
 		catch (IllegalArgumentException iae)
 		{
 		}
+
+		try
+		{
+			commandLineParser.forbid(false, "No error message %s", "--switch");
+		}
+		catch (IllegalArgumentException iae)
+		{
+			fail(ERRONEOUS_EXCEPTION);
+		}
+
+		try
+		{
+			commandLineParser.forbid(true, "Error message %s", "--switch");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			assertEquals("Error message --switch", iae.getMessage());
+		}
 	}
 
 	/** */
@@ -0,0 +1,160 @@
+package com.taitl.commandline;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for CommandLineReader class.
+ */
+public class CommandLineReaderTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	static final String possibleSwitches = "--prev(0) --next(0) --onevalue(1) --multi(*)";
+
+	ImmutableCommandLineParser parser;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		parser = new ImmutableCommandLineParser(possibleSwitches, "--file(*)");
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception
+	{
+		parser = null;
+	}
+
+	@Test
+	public final void testNext() throws Exception
+	{
+		CommandLineReader reader = new CommandLineReader(parser, new StringReader(
+				"--prev a\n\n--onevalue \"b c\" d\r\n   \n--multi x y"));
+
+		ParseResult result = reader.next();
+		assertEquals(1, reader.getLineNumber());
+		assertTrue(result.isSwitchPresent("--prev"));
+		assertEquals("a", result.getSwitchValue("--file"));
+
+		// Blank lines are skipped, \r\n is a line terminator
+		result = reader.next();
+		assertEquals(3, reader.getLineNumber());
+		assertEquals("b c", result.getSwitchValue("--onevalue"));
+		assertEquals("d", result.getSwitchValue("--file"));
+
+		// Last line does not need a line terminator
+		result = reader.next();
+		assertEquals(5, reader.getLineNumber());
+		assertEquals(2, result.getSwitchValueCount("--multi"));
+
+		assertNull(reader.next());
+		assertNull(reader.next());
+		reader.close();
+	}
+
+	@Test
+	public final void testInputStream() throws Exception
+	{
+		Charset utf8 = Charset.forName("UTF-8");
+		CommandLineReader reader = new CommandLineReader(parser, new ByteArrayInputStream(
+				"--onevalue \u00e9t\u00e9\n".getBytes(utf8)), utf8);
+
+		assertEquals("\u00e9t\u00e9", reader.next().getSwitchValue("--onevalue"));
+		assertNull(reader.next());
+		reader.close();
+	}
+
+	@Test
+	public final void testLongLines() throws Exception
+	{
+		// Lines crossing the boundaries of the read buffer
+		StringBuilder input = new StringBuilder();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 300; i++)
+		{
+			StringBuilder value = new StringBuilder();
+			for (int j = 0; j < i * 7; j++)
+			{
+				value.append((char) ('a' + (i + j) % 26));
+			}
+			expected.add(value.toString());
+			input.append("--onevalue \"").append(value).append(" \" --prev\n");
+		}
+
+		final List<String> values = new ArrayList<String>();
+		CommandLineReader reader = new CommandLineReader(parser, new StringReader(input
+				.toString()));
+		int count = reader.readAll(new ParseResultHandler()
+		{
+			@Override
+			public void handle(int index, ParseResult result)
+			{
+				assertEquals(values.size() + 1, index);
+				values.add(result.getSwitchValue("--onevalue").trim());
+			}
+		});
+		assertEquals(300, count);
+		assertEquals(expected, values);
+	}
+
+	@Test
+	public final void testErrors() throws Exception
+	{
+		CommandLineReader reader = new CommandLineReader(parser, new StringReader(
+				"--prev\n--unknown\n--onevalue 1234567890123\r\n--onevalue 1\n"), 20);
+
+		assertNotNull(reader.next());
+		try
+		{
+			reader.next();
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			assertEquals(2, reader.getLineNumber());
+		}
+		try
+		{
+			reader.next();
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			assertEquals(3, reader.getLineNumber());
+		}
+
+		// Reading continues with the next line
+		assertEquals("1", reader.next().getSwitchValue("--onevalue"));
+		assertNull(reader.next());
+
+		try
+		{
+			new CommandLineReader(parser, null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			new CommandLineReader(parser, new StringReader(""), 0);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+}
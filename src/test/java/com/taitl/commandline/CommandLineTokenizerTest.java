@@ -0,0 +1,206 @@
+package com.taitl.commandline;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests for CommandLineTokenizer class.
+ */
+public class CommandLineTokenizerTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	@Test
+	public final void testTokenize()
+	{
+		CommandLineTokenizer tokens = new CommandLineTokenizer(
+				"--file \"my file.txt\"  --verbose\t\"\" last");
+
+		assertEquals(5, tokens.size());
+		assertEquals("--file", tokens.get(0));
+		assertEquals("my file.txt", tokens.get(1));
+		assertEquals("--verbose", tokens.get(2));
+		assertEquals("", tokens.get(3));
+		assertEquals("last", tokens.get(4));
+
+		assertEquals(0, new CommandLineTokenizer("").size());
+		assertEquals(0, new CommandLineTokenizer("   ").size());
+		assertEquals("unterminated quote", new CommandLineTokenizer("\"unterminated quote").get(0));
+	}
+
+	@Test
+	public final void testQuoteInsideWord()
+	{
+		// Quotes glued to a word make a non-contiguous argument
+		String[] arguments = new CommandLineTokenizer("ab\"c d\"ef x\"y\"").toArray();
+		assertTrue(Arrays.equals(referenceSplit("ab\"c d\"ef x\"y\""), arguments));
+	}
+
+	@Test
+	public final void testGetOutOfRange()
+	{
+		CommandLineTokenizer tokens = new CommandLineTokenizer("a b");
+		try
+		{
+			tokens.get(2);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IndexOutOfBoundsException ioobe)
+		{
+		}
+		try
+		{
+			new CommandLineTokenizer(null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
+	@Test
+	public final void testSameAsReference()
+	{
+		final char[] alphabet = new char[] { 'a', 'b', '-', ' ', ' ', '\t', '"', '"' };
+		Random random = new Random(2011);
+
+		for (int n = 0; n < 20000; n++)
+		{
+			char[] commandLine = new char[random.nextInt(16)];
+			for (int i = 0; i < commandLine.length; i++)
+			{
+				commandLine[i] = alphabet[random.nextInt(alphabet.length)];
+			}
+			String s = new String(commandLine);
+			String[] expected = referenceSplit(s);
+			String[] actual = new CommandLineTokenizer(s).toArray();
+			assertTrue("Tokenizing [" + s + "]: expected " + Arrays.toString(expected) + ", got "
+					+ Arrays.toString(actual), Arrays.equals(expected, actual));
+		}
+	}
+
+	@Test
+	public final void testUtf8Bytes()
+	{
+		// Multi-byte whitespace, and non-breaking spaces, which are not
+		// whitespace, as well as characters sharing their lead bytes
+		final String[] alphabet = new String[] { "a", "\u00e9", "\u20ac", "\ud83d\ude00", " ",
+				"\n", "\"", "\u3000", "\u2028", "\u2029", "\u2000", "\u200a", "\u1680",
+				"\u205f", "\u00a0", "\u2007", "\u202f", "\u0085", "\u3001", "\u200b" };
+		Charset utf8 = Charset.forName("UTF-8");
+		Random random = new Random(2011);
+
+		for (int n = 0; n < 20000; n++)
+		{
+			StringBuilder commandLine = new StringBuilder();
+			for (int i = random.nextInt(12); i > 0; i--)
+			{
+				commandLine.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			String s = commandLine.toString();
+			String[] expected = new CommandLineTokenizer(s).toArray();
+			String[] actual = new CommandLineTokenizer(new ByteCharSequence(ByteBuffer.wrap(s
+					.getBytes(utf8)))).toArray();
+			assertTrue("Tokenizing [" + s + "]: expected " + Arrays.toString(expected) + ", got "
+					+ Arrays.toString(actual), Arrays.equals(expected, actual));
+		}
+	}
+
+	/**
+	 * The former, StringBuffer-based implementation of setCommandLine()
+	 * splitting, used as reference.
+	 */
+	static String[] referenceSplit(String commandLine)
+	{
+		// Go over command line, splitting it into whitespace-separated
+		// arguments, preserving arguments enclosed with double quotes,
+		// treating them as a single argument, while also removing their
+		// enclosing double quotes.
+		boolean insideDoubleQuotes = false;
+		boolean inWord = false;
+		boolean isWhitespace = false;
+		StringBuffer arg = new StringBuffer();
+		List<String> args = new ArrayList<String>();
+
+		for (int i = 0; i < commandLine.length(); i++)
+		{
+			char c = commandLine.charAt(i);
+			boolean finalizeArgument = false;
+			boolean isClosingDoubleQuote = false;
+
+			if (c == '"')
+			{
+				if (!insideDoubleQuotes)
+				{
+					insideDoubleQuotes = true;
+					continue;
+				}
+				else
+				{
+					insideDoubleQuotes = false;
+					isClosingDoubleQuote = true;
+					finalizeArgument = true;
+				}
+			}
+
+			if (insideDoubleQuotes)
+			{
+				arg.append(c);
+				continue;
+			}
+
+			isWhitespace = Character.isWhitespace(c);
+
+			if (isWhitespace)
+			{
+				if (inWord)
+				{
+					inWord = false;
+					finalizeArgument = true;
+				}
+			}
+			else
+			{
+				if (!inWord && !isClosingDoubleQuote)
+				{
+					inWord = true;
+				}
+			}
+
+			if (inWord)
+			{
+				arg.append(c);
+			}
+
+			if (finalizeArgument)
+			{
+				// Finalize argument
+				args.add(arg.toString());
+				arg.setLength(0);
+			}
+		}
+
+		// Finalize last argument
+		if (arg.length() > 0)
+		{
+			args.add(arg.toString());
+		}
+
+		// Convert to String[]
+		String[] argArray = new String[args.size()];
+		for (int i = 0; i < args.size(); i++)
+		{
+			argArray[i] = args.get(i);
+		}
+		return argArray;
+	}
+}
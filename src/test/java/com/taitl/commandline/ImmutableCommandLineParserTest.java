@@ -0,0 +1,755 @@
+package com.taitl.commandline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for ImmutableCommandLineParser and ParseResult classes.
+ */
+public class ImmutableCommandLineParserTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	static final String possibleSwitches = "--prev(0) --next(0) --onevalue(1) --onetothree(1-3) --multi(*)";
+
+	// The protagonist
+	ImmutableCommandLineParser parser;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		parser = new ImmutableCommandLineParser(possibleSwitches, "--file(1)");
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception
+	{
+		parser = null;
+	}
+
+	@Test
+	public final void testParse()
+	{
+		ParseResult result = parser.parse(new String[] { "--prev", "--onevalue", "val", "file.txt",
+				"--multi", "a", "b" });
+
+		assertTrue(result.isSwitchPresent("--prev"));
+		assertFalse(result.isSwitchPresent("--next"));
+		assertEquals("", result.getSwitchValue("--prev"));
+		assertEquals("val", result.getSwitchValue("--onevalue"));
+		assertEquals("file.txt", result.getSwitchValue("--file"));
+		assertEquals(2, result.getSwitchValueCount("--multi"));
+		assertEquals(1, result.getSwitchlessArguments().length);
+		assertEquals(7, result.getArguments().length);
+		assertEquals(4, result.getSwitchMap().size());
+	}
+
+	@Test
+	public final void testParseCommandLine()
+	{
+		ParseResult result = parser.parse("--onevalue \"val1 val2\" --next");
+
+		assertEquals("val1 val2", result.getSwitchValue("--onevalue"));
+		assertTrue(result.isSwitchPresent("--next"));
+	}
+
+	@Test
+	public final void testParseErrors()
+	{
+		try
+		{
+			parser.parse((String[]) null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			parser.parse(new String[] { "--prev", null });
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			parser.parse("--unknown");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			parser.parse("--onetothree --next");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			parser.parse("file1.txt file2.txt");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalStateException ise)
+		{
+		}
+	}
+
+	@Test
+	public final void testTryParse() throws Exception
+	{
+		ParseResult result = parser.tryParse(new String[] { "--prev", "file.txt" });
+		assertFalse(result.hasErrors());
+		assertTrue(result.getErrors().isEmpty());
+		assertEquals("file.txt", result.getSwitchValue("--file"));
+
+		// Each kind of error, with its position
+		ImmutableCommandLineParser typedParser = new ImmutableCommandLineParser(
+				"--threads(1:int) --multi(*)", "--file(0-1)");
+		String[] commandLines = new String[] { "--multi a --unknown b", "--multi --threads",
+				"a b", "--threads x", "--threads 99999999999", "--multi a --threads 4" };
+		ParseErrorCode[] codes = new ParseErrorCode[] { ParseErrorCode.UNKNOWN_SWITCH,
+				ParseErrorCode.TOO_FEW_VALUES, ParseErrorCode.TOO_MANY_VALUES,
+				ParseErrorCode.INVALID_VALUE, ParseErrorCode.INVALID_VALUE, null };
+		int[] positions = new int[] { 2, 1, 1, 1, 1, -1 };
+		String[] switchNames = new String[] { "--unknown", "--threads", "--file", "--threads",
+				"--threads", null };
+
+		for (int i = 0; i < commandLines.length; i++)
+		{
+			result = typedParser.tryParse(commandLines[i]);
+			if (codes[i] == null)
+			{
+				assertFalse(result.hasErrors());
+				assertEquals(4, result.getInt("--threads"));
+				continue;
+			}
+
+			assertEquals(1, result.getErrors().size());
+			ParseError error = result.getErrors().get(0);
+			assertEquals(codes[i], error.getCode());
+			assertEquals(commandLines[i], positions[i], error.getPosition());
+			assertEquals(switchNames[i], error.getSwitchName());
+			assertFalse(result.isSwitchPresent("--multi"));
+			assertEquals(0, result.getSwitchlessArguments().length);
+
+			// The message is the one parse() throws
+			try
+			{
+				typedParser.parse(commandLines[i]);
+				fail(MISSING_EXCEPTION);
+			}
+			catch (RuntimeException e)
+			{
+				if (codes[i] != ParseErrorCode.TOO_MANY_VALUES)
+				{
+					assertEquals(e.getMessage(), error.getMessage());
+				}
+			}
+		}
+
+		ParseError error = typedParser.tryParse("a b c").getErrors().get(0);
+		assertEquals("b", error.getArgument());
+		assertEquals(1, error.getLimit());
+		assertEquals(2, error.getValueCount());
+		assertTrue(error.toString().contains("TOO_MANY_VALUES at argument 1"));
+		assertEquals(ValueType.INT, typedParser.tryParse("--threads x").getErrors().get(0)
+				.getValueType());
+
+		// An unreadable response file is an error, too
+		ParseResult fileResult = parser.withResponseFileExpansion(true).tryParse(
+				new String[] { "--prev", "@nonexistent.rsp" });
+		assertEquals(ParseErrorCode.UNREADABLE_RESPONSE_FILE, fileResult.getErrors().get(0)
+				.getCode());
+		assertEquals(1, fileResult.getErrors().get(0).getPosition());
+		assertTrue(fileResult.getErrors().get(0).getMessage().contains("nonexistent.rsp"));
+
+		// Programming errors are still thrown
+		try
+		{
+			parser.tryParse((String[]) null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
+	@Test
+	public final void testTooFewImplicitValues()
+	{
+		ImmutableCommandLineParser implicitParser = new ImmutableCommandLineParser(
+				possibleSwitches, "--file(2-3)");
+		String message = "Too few values are specified for switch --file (must be no less "
+				+ "than 2 value, specified 1 values).";
+
+		// The implicit switch is not an argument, so the error has no position
+		ParseError error = implicitParser.tryParse(new String[] { "x" }).getErrors().get(0);
+		assertEquals(ParseErrorCode.TOO_FEW_VALUES, error.getCode());
+		assertEquals(-1, error.getPosition());
+		assertEquals("--file", error.getSwitchName());
+		assertEquals(message, error.getMessage());
+
+		error = implicitParser.tryParse(new String[] { "--prev", "x", "--next" }).getErrors()
+				.get(0);
+		assertEquals(ParseErrorCode.TOO_FEW_VALUES, error.getCode());
+		assertEquals(-1, error.getPosition());
+
+		List<ParseError> errors = implicitParser.withAllErrorsReported(true).tryParse(
+				new String[] { "x", "--onevalue" }).getErrors();
+		assertEquals(2, errors.size());
+		assertEquals(-1, errors.get(0).getPosition());
+		assertEquals("--file", errors.get(0).getSwitchName());
+		assertEquals(1, errors.get(1).getPosition());
+		assertEquals("--onevalue", errors.get(1).getSwitchName());
+
+		try
+		{
+			implicitParser.parse(new String[] { "x" });
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(message, icle.getMessage());
+		}
+		try
+		{
+			implicitParser.withAllErrorsReported(true).parse(new String[] { "x" });
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(message, icle.getMessage());
+		}
+	}
+
+	@Test
+	public final void testAllErrorsReported()
+	{
+		ImmutableCommandLineParser allErrorsParser = new ImmutableCommandLineParser(
+				"--threads(1:int) --sizes(*:long) --onetothree(1-3) --multi(*)", "--file(0-1)")
+				.withAllErrorsReported(true);
+		assertTrue(allErrorsParser.isAllErrorsReported());
+		assertSame(allErrorsParser, allErrorsParser.withAllErrorsReported(true));
+		assertFalse(allErrorsParser.withAllErrorsReported(false).isAllErrorsReported());
+
+		// Values of the unknown switch are skipped, the implicit switch gets
+		// one error for all of its excess values, invalid values are reported
+		// one by one
+		String commandLine = "a b --unknown x y --onetothree --sizes 1 two 3 four c --threads t";
+		ParseResult result = allErrorsParser.tryParse(commandLine);
+		List<ParseError> errors = result.getErrors();
+		assertEquals(7, errors.size());
+
+		ParseErrorCode[] codes = new ParseErrorCode[] { ParseErrorCode.TOO_MANY_VALUES,
+				ParseErrorCode.UNKNOWN_SWITCH, ParseErrorCode.TOO_FEW_VALUES,
+				ParseErrorCode.INVALID_VALUE, ParseErrorCode.INVALID_VALUE,
+				ParseErrorCode.INVALID_VALUE, ParseErrorCode.INVALID_VALUE };
+		int[] positions = new int[] { 1, 2, 5, 8, 10, 11, 13 };
+		for (int i = 0; i < errors.size(); i++)
+		{
+			assertEquals(codes[i], errors.get(i).getCode());
+			assertEquals(positions[i], errors.get(i).getPosition());
+		}
+		assertEquals(2, errors.get(0).getValueCount());
+		assertFalse(result.isSwitchPresent("--threads"));
+
+		// parse() throws all errors at once
+		try
+		{
+			allErrorsParser.parse(commandLine);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(errors.size(), icle.getErrors().size());
+			assertTrue(icle.getMessage().startsWith("7 errors found"));
+			assertTrue(icle.getMessage().contains("--unknown"));
+			assertTrue(icle.getMessage().contains("'four'"));
+		}
+
+		// One error has its own message
+		try
+		{
+			allErrorsParser.parse("--threads");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(icle.getErrors().get(0).getMessage(), icle.getMessage());
+		}
+
+		// Valid command lines parse as usual
+		result = allErrorsParser.parse("--sizes 1 2 --threads 2 file.txt");
+		assertEquals(2, result.getInt("--threads"));
+		assertEquals("file.txt", result.getSwitchValue("--file"));
+	}
+
+	@Test
+	public final void testAbbreviatedSwitches()
+	{
+		assertFalse(parser.isAbbreviatedSwitchesAllowed());
+		try
+		{
+			parser.parse("--onev val");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(ParseErrorCode.UNKNOWN_SWITCH, icle.getErrors().get(0).getCode());
+		}
+
+		ImmutableCommandLineParser abbreviationsParser = parser
+				.withAbbreviatedSwitchesAllowed(true);
+		assertTrue(abbreviationsParser.isAbbreviatedSwitchesAllowed());
+		assertSame(abbreviationsParser, abbreviationsParser
+				.withAbbreviatedSwitchesAllowed(true));
+
+		// Abbreviated switches are present under their full names
+		ParseResult result = abbreviationsParser.parse("--pr --onev val --m a b --onevalue c");
+		assertEquals(Arrays.asList("--prev", "--onevalue", "--multi"), new ArrayList<String>(
+				result.getSwitchMap().keySet()));
+		assertEquals("c", result.getSwitchValue("--onevalue"));
+		assertEquals(Arrays.asList("a", "b"), result.getSwitchValues("--multi"));
+
+		// An abbreviation of more than one switch is ambiguous
+		result = abbreviationsParser.tryParse("--prev --o val");
+		ParseError error = result.getErrors().get(0);
+		assertEquals(ParseErrorCode.AMBIGUOUS_SWITCH, error.getCode());
+		assertEquals(1, error.getPosition());
+		assertEquals("--o", error.getArgument());
+		assertEquals(Arrays.asList("--onetothree", "--onevalue"), error.getCandidates());
+		assertEquals("Ambiguous switch found: --o. It abbreviates more than one possible "
+				+ "switch: --onetothree, --onevalue.", error.getMessage());
+		try
+		{
+			abbreviationsParser.parse("--o val");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(error.getMessage(), icle.getMessage());
+		}
+
+		// Neither an argument that abbreviates no switch, nor a bare prefix,
+		// is an abbreviation
+		assertEquals(ParseErrorCode.UNKNOWN_SWITCH, abbreviationsParser.tryParse(
+				"--prevent").getErrors().get(0).getCode());
+		assertEquals(ParseErrorCode.UNKNOWN_SWITCH, abbreviationsParser.tryParse("--")
+				.getErrors().get(0).getCode());
+		assertTrue(parser.tryParse("--pr").getErrors().get(0).getCandidates().isEmpty());
+
+		// All errors are reported, skipping values of ambiguous switches
+		result = abbreviationsParser.withAllErrorsReported(true).tryParse(
+				"--o a --unknown b --onet");
+		assertEquals(3, result.getErrors().size());
+		assertEquals(ParseErrorCode.AMBIGUOUS_SWITCH, result.getErrors().get(0).getCode());
+		assertEquals(ParseErrorCode.UNKNOWN_SWITCH, result.getErrors().get(1).getCode());
+		assertEquals(ParseErrorCode.TOO_FEW_VALUES, result.getErrors().get(2).getCode());
+	}
+
+	@Test
+	public final void testSwitchSuggestions()
+	{
+		assertFalse(parser.isSwitchSuggestionsReported());
+		assertTrue(parser.tryParse("--onevlaue x").getErrors().get(0).getCandidates()
+				.isEmpty());
+
+		ImmutableCommandLineParser suggestionsParser = parser
+				.withSwitchSuggestionsReported(true);
+		assertTrue(suggestionsParser.isSwitchSuggestionsReported());
+		assertSame(suggestionsParser, suggestionsParser.withSwitchSuggestionsReported(true));
+
+		ParseError error = suggestionsParser.tryParse("--prev --onevlaue x").getErrors()
+				.get(0);
+		assertEquals(ParseErrorCode.UNKNOWN_SWITCH, error.getCode());
+		assertEquals(1, error.getPosition());
+		assertEquals(Arrays.asList("--onevalue"), error.getCandidates());
+		assertTrue(error.getMessage().endsWith(" Did you mean --onevalue?"));
+
+		try
+		{
+			suggestionsParser.parse("--mult x");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals("Unknown switch found: --mult. You must specify this switch in a "
+					+ "call to setPossibleSwitches() first. Did you mean --multi?", icle
+					.getMessage());
+		}
+
+		// Several suggestions, the closest first, and none for a switch far
+		// from every possible switch
+		error = new ImmutableCommandLineParser("--files(*) --file(1) --filter(1)", null)
+				.withSwitchSuggestionsReported(true).tryParse("--filtes").getErrors().get(0);
+		assertEquals(Arrays.asList("--files", "--filter", "--file"), error.getCandidates());
+		assertTrue(error.getMessage().endsWith(" Did you mean --files, --filter or --file?"));
+		error = suggestionsParser.tryParse("--unknown").getErrors().get(0);
+		assertTrue(error.getCandidates().isEmpty());
+		assertEquals(parser.tryParse("--unknown").getErrors().get(0).getMessage(), error
+				.getMessage());
+
+		// Ambiguous abbreviations keep their own error and candidates
+		error = suggestionsParser.withAbbreviatedSwitchesAllowed(true).tryParse("--one x")
+				.getErrors().get(0);
+		assertEquals(ParseErrorCode.AMBIGUOUS_SWITCH, error.getCode());
+		assertEquals(Arrays.asList("--onetothree", "--onevalue"), error.getCandidates());
+
+		// Every unknown switch gets its suggestions
+		List<ParseError> errors = suggestionsParser.withAllErrorsReported(true).tryParse(
+				"--prevv --nxt").getErrors();
+		assertEquals(2, errors.size());
+		assertEquals(Arrays.asList("--prev"), errors.get(0).getCandidates());
+		assertEquals(Arrays.asList("--next"), errors.get(1).getCandidates());
+	}
+
+	@Test
+	public final void testValueViews()
+	{
+		String[] arguments = new String[] { "x", "--multi", "a", "b", "--onevalue", "c", "y",
+				"--multi", "d", "e", "f" };
+		ParseResult result = new ImmutableCommandLineParser(possibleSwitches, "--file(*)")
+				.parse(arguments);
+
+		// The last occurrence of a switch wins, keeping its first position
+		assertEquals("[--multi, --onevalue, --file]", result.getSwitchMap().keySet()
+				.toString());
+		assertEquals("[d, e, f]", result.getSwitchValues("--multi").toString());
+		assertEquals("[c]", result.getSwitchValues("--onevalue").toString());
+		assertEquals("[x, y]", result.getSwitchValues("--file").toString());
+		assertEquals(2, result.getSwitchlessArguments().length);
+		assertEquals("y", result.getSwitchlessArguments()[1]);
+
+		result = parser.parse(new String[] { "--multi" });
+		assertEquals(0, result.getSwitchValueCount("--multi"));
+		assertEquals(0, result.getSwitchlessArguments().length);
+	}
+
+	@Test
+	public final void testTypedValues()
+	{
+		ImmutableCommandLineParser typedParser = new ImmutableCommandLineParser(
+				"--threads(1:int) --sizes(*:long) --ratio(1:double) --timeout(1:duration) --name(1)",
+				"--ports(*:int)");
+		ParseResult result = typedParser.parse("--threads 8 --sizes 1 5000000000 --ratio 0.5"
+				+ " --timeout 30s --name 42 80 443");
+
+		assertEquals(8, result.getInt("--threads"));
+		assertEquals(8L, result.getLong("--threads"));
+		assertEquals(8.0, result.getDouble("--threads"), 0.0);
+		assertEquals(5000000000L, result.getLong("--sizes", 1));
+		assertEquals(5.0E9, result.getDouble("--sizes", 1), 0.0);
+		assertEquals(0.5, result.getDouble("--ratio"), 0.0);
+		assertEquals(30, result.getDuration("--timeout").getSeconds());
+		assertEquals(443, result.getInt("--ports", 1));
+		assertEquals("8", result.getSwitchValue("--threads"));
+
+		// Values of switches without a type are converted on access
+		assertEquals(42, result.getInt("--name"));
+
+		// Type mismatches, wrong number of values, wrong index
+		String[] invalid = new String[] { "getInt --sizes", "getInt --ratio", "getLong --timeout",
+				"getDuration --threads", "getInt --ports", "getInt --nonexistent" };
+		for (String call : invalid)
+		{
+			String switchName = call.substring(call.indexOf(' ') + 1);
+			try
+			{
+				if (call.startsWith("getInt"))
+				{
+					result.getInt(switchName);
+				}
+				else if (call.startsWith("getLong"))
+				{
+					result.getLong(switchName);
+				}
+				else
+				{
+					result.getDuration(switchName);
+				}
+				fail(MISSING_EXCEPTION);
+			}
+			catch (IllegalArgumentException iae)
+			{
+			}
+		}
+		try
+		{
+			result.getInt("--ports", 2);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IndexOutOfBoundsException ioobe)
+		{
+		}
+
+		// Malformed values are violations of parsing rules
+		String[] malformed = new String[] { "--threads eight", "--sizes 1 2 x", "--ratio half",
+				"--timeout 30", "80 http" };
+		for (String commandLine : malformed)
+		{
+			try
+			{
+				typedParser.parse(commandLine);
+				fail(MISSING_EXCEPTION);
+			}
+			catch (IllegalArgumentException iae)
+			{
+			}
+		}
+	}
+
+	@Test
+	public final void testParseAll()
+	{
+		List<String[]> batch = new ArrayList<String[]>();
+		for (int i = 0; i < 50; i++)
+		{
+			String[] args = new String[i % 15];
+			for (int j = 0; j < args.length; j++)
+			{
+				args[j] = j == 2 ? "--multi" : "arg" + i + "_" + j;
+			}
+			batch.add(args);
+		}
+		batch.add(new String[] { "x" });
+
+		ImmutableCommandLineParser multiParser = new ImmutableCommandLineParser(possibleSwitches,
+				"--file(*)");
+		List<ParseResult> results = multiParser.parseAll(batch);
+
+		assertEquals(batch.size(), results.size());
+		for (int i = 0; i < batch.size(); i++)
+		{
+			ParseResult expected = multiParser.parse(batch.get(i));
+			assertEquals(expected.getSwitchMap(), results.get(i).getSwitchMap());
+			assertTrue(Arrays.equals(expected.getSwitchlessArguments(), results.get(i)
+					.getSwitchlessArguments()));
+		}
+
+		List<String> commandLines = new ArrayList<String>();
+		commandLines.add("--prev a");
+		commandLines.add("--onevalue \"b c\" d");
+		results = parser.parseAllCommandLines(commandLines);
+		assertEquals("a", results.get(0).getSwitchValue("--file"));
+		assertEquals("b c", results.get(1).getSwitchValue("--onevalue"));
+		assertEquals("d", results.get(1).getSwitchValue("--file"));
+
+		batch.add(new String[] { "--unknown" });
+		try
+		{
+			multiParser.parseAll(batch);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			parser.parseAll(null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
+	@Test
+	public final void testParseAllParallel() throws Exception
+	{
+		final List<String> commandLines = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++)
+		{
+			commandLines.add("file" + i + " --onetothree a" + i + " b --multi"
+					+ (i % 7 == 0 ? "" : " c"));
+		}
+		List<ParseResult> expected = parser.parseAllCommandLines(commandLines);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try
+		{
+			// Ordered, on the common fork/join pool and on an executor
+			List<List<ParseResult>> resultLists = new ArrayList<List<ParseResult>>();
+			resultLists.add(parser.parseAllCommandLinesParallel(commandLines, null));
+			resultLists.add(parser.parseAllCommandLinesParallel(commandLines, executor));
+			for (List<ParseResult> results : resultLists)
+			{
+				assertEquals(expected.size(), results.size());
+				for (int i = 0; i < expected.size(); i++)
+				{
+					assertEquals(expected.get(i).getSwitchMap(), results.get(i).getSwitchMap());
+				}
+			}
+
+			// Unordered, through a handler
+			final AtomicReferenceArray<ParseResult> handled = new AtomicReferenceArray<ParseResult>(
+					commandLines.size());
+			parser.parseAllCommandLinesParallel(commandLines, executor, new ParseResultHandler()
+			{
+				@Override
+				public void handle(int index, ParseResult result)
+				{
+					assertTrue(handled.compareAndSet(index, null, result));
+				}
+			});
+			for (int i = 0; i < expected.size(); i++)
+			{
+				assertEquals(expected.get(i).getSwitchMap(), handled.get(i).getSwitchMap());
+			}
+
+			List<String[]> argumentVectors = new ArrayList<String[]>();
+			for (String commandLine : commandLines)
+			{
+				argumentVectors.add(commandLine.split(" "));
+			}
+			List<ParseResult> results = parser.parseAllParallel(argumentVectors, executor);
+			assertEquals(expected.get(4999).getSwitchMap(), results.get(4999).getSwitchMap());
+
+			// The first violation of parsing rules is rethrown
+			argumentVectors.set(3000, new String[] { "--unknown" });
+			try
+			{
+				parser.parseAllParallel(argumentVectors, executor);
+				fail(MISSING_EXCEPTION);
+			}
+			catch (IllegalArgumentException iae)
+			{
+				assertTrue(iae.getMessage().contains("--unknown"));
+			}
+			try
+			{
+				parser.parseAllParallel(argumentVectors, null);
+				fail(MISSING_EXCEPTION);
+			}
+			catch (IllegalArgumentException iae)
+			{
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		// A rejected task fails the batch
+		try
+		{
+			parser.parseAllCommandLinesParallel(commandLines, executor);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalStateException ise)
+		{
+		}
+	}
+
+	@Test
+	public final void testResultIsImmutable()
+	{
+		String[] arguments = new String[] { "--multi", "a", "b" };
+		ParseResult result = parser.parse(arguments);
+
+		// Changing the passed-in array does not affect the result
+		arguments[1] = "changed";
+		assertEquals("a", result.getSwitchValues("--multi").get(0));
+
+		try
+		{
+			result.getSwitchValues("--multi").add("c");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (UnsupportedOperationException uoe)
+		{
+		}
+		try
+		{
+			result.getSwitchMap().clear();
+			fail(MISSING_EXCEPTION);
+		}
+		catch (UnsupportedOperationException uoe)
+		{
+		}
+		try
+		{
+			result.getSwitchValues("--next");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
+	@Test
+	public final void testConcurrentParsing() throws Exception
+	{
+		final int threadCount = 8;
+		final int parseCount = 1000;
+		final List<Throwable> failures = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[threadCount];
+
+		for (int t = 0; t < threadCount; t++)
+		{
+			final String value = "val" + t;
+			threads[t] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						for (int i = 0; i < parseCount; i++)
+						{
+							ParseResult result = parser.parse(new String[] { "--onevalue", value,
+									"file" + i });
+							assertEquals(value, result.getSwitchValue("--onevalue"));
+							assertEquals("file" + i, result.getSwitchValue("--file"));
+						}
+					}
+					catch (Throwable e)
+					{
+						synchronized (failures)
+						{
+							failures.add(e);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		assertTrue(failures.isEmpty());
+	}
+
+	@Test
+	public final void testGetImmutableParser()
+	{
+		CommandLineParser commandLineParser = new CommandLineParser();
+		commandLineParser.setPossibleSwitches(possibleSwitches);
+		commandLineParser.setImplicitSwitch("--file(1)");
+
+		ImmutableCommandLineParser immutable = commandLineParser.getImmutableParser();
+		assertSame(immutable, commandLineParser.getImmutableParser());
+
+		// Reconfiguration does not affect a previously obtained parser
+		commandLineParser.setPossibleSwitches("--other(0)");
+		assertTrue(immutable.parse("--prev").isSwitchPresent("--prev"));
+		assertNotSame(immutable, commandLineParser.getImmutableParser());
+	}
+}
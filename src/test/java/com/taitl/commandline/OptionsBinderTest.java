@@ -0,0 +1,337 @@
+package com.taitl.commandline;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for OptionsBinder class.
+ */
+public class OptionsBinderTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	/** Options of a test program. */
+	static class BaseOptions
+	{
+		@Option(name = "--verbose")
+		boolean verbose;
+	}
+
+	/** Options of a test program, with every supported field type. */
+	static class ServerOptions extends BaseOptions
+	{
+		@Option(name = "--name")
+		String name = "default";
+
+		@Option(name = "--threads")
+		int threads = 4;
+
+		@Option(name = "--limit", values = "0-1")
+		Long limit;
+
+		@Option(name = "--ratio")
+		double ratio;
+
+		@Option(name = "--timeout")
+		Duration timeout;
+
+		@Option(name = "--ports", values = "1-*")
+		int[] ports;
+
+		@Option(name = "--sizes")
+		long[] sizes;
+
+		@Option(name = "--weights")
+		double[] weights;
+
+		@Option(name = "--delays")
+		Duration[] delays;
+
+		@Option(name = "--tags")
+		String[] tags;
+
+		@Option(name = "--include")
+		List<String> includes;
+
+		@Option(name = "--file", values = "0-2", implicit = true)
+		List<String> files;
+
+		/** Not bound. */
+		String unrelated = "unrelated";
+	}
+
+	/** Options with switchless arguments instead of an implicit switch. */
+	static class CopyOptions
+	{
+		@Option(name = "-r")
+		boolean recursive;
+
+		@SwitchlessArguments
+		String[] paths;
+
+		@SwitchlessArguments
+		List<String> pathList;
+	}
+
+	/** Options with an implicit switch of at least two values. */
+	static class PairOptions
+	{
+		@Option(name = "--include")
+		String include;
+
+		@Option(name = "--file", values = "2-3", implicit = true)
+		List<String> files;
+	}
+
+	/** Options with a duplicate switch. */
+	static class DuplicateOptions
+	{
+		@Option(name = "--a")
+		String first;
+
+		@Option(name = "--a")
+		String second;
+	}
+
+	/** Options with a field of an unsupported type. */
+	static class UnsupportedOptions
+	{
+		@Option(name = "--a")
+		Object value;
+	}
+
+	/** Options with a boolean switch with values. */
+	static class FlagWithValuesOptions
+	{
+		@Option(name = "--a", values = "1")
+		boolean value;
+	}
+
+	/** Options without a no-argument constructor. */
+	static class ConstructedOptions
+	{
+		@Option(name = "--a")
+		String value;
+
+		ConstructedOptions(String initialValue)
+		{
+			value = initialValue;
+		}
+	}
+
+	// The protagonist
+	OptionsBinder<ServerOptions> binder;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		binder = new OptionsBinder<ServerOptions>(ServerOptions.class);
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception
+	{
+		binder = null;
+	}
+
+	@Test
+	public final void testParse()
+	{
+		ServerOptions options = binder.parse(new String[] { "--verbose", "a.txt", "b.txt", "--name", "api",
+				"--threads", "16", "--limit", "100", "--ratio", "0.5", "--timeout", "30s",
+				"--ports", "80", "443", "--sizes", "1", "2", "--weights", "0.1",
+				"--delays", "1ms", "2ms", "--tags", "a", "b", "--include", "x", "y" });
+
+		assertTrue(options.verbose);
+		assertEquals("api", options.name);
+		assertEquals(16, options.threads);
+		assertEquals(Long.valueOf(100), options.limit);
+		assertEquals(0.5, options.ratio, 0.0);
+		assertEquals(Duration.ofSeconds(30), options.timeout);
+		assertTrue(Arrays.equals(new int[] { 80, 443 }, options.ports));
+		assertTrue(Arrays.equals(new long[] { 1, 2 }, options.sizes));
+		assertTrue(Arrays.equals(new double[] { 0.1 }, options.weights));
+		assertTrue(Arrays.equals(new Duration[] { Duration.ofMillis(1), Duration.ofMillis(2) },
+				options.delays));
+		assertTrue(Arrays.equals(new String[] { "a", "b" }, options.tags));
+		assertEquals(Arrays.asList("x", "y"), options.includes);
+		assertEquals(Arrays.asList("a.txt", "b.txt"), options.files);
+		assertEquals("unrelated", options.unrelated);
+	}
+
+	@Test
+	public final void testDefaults()
+	{
+		// Absent switches keep initial values
+		ServerOptions options = binder.parse("--limit --tags");
+
+		assertFalse(options.verbose);
+		assertEquals("default", options.name);
+		assertEquals(4, options.threads);
+		assertNull(options.limit);
+		assertNull(options.timeout);
+		assertNull(options.files);
+		assertEquals(0, options.tags.length);
+
+		// An existing object is populated in place
+		ServerOptions existing = new ServerOptions();
+		existing.threads = 8;
+		assertSame(existing, binder.bind(binder.getParser().parse("--verbose"), existing));
+		assertTrue(existing.verbose);
+		assertEquals(8, existing.threads);
+	}
+
+	@Test
+	public final void testSwitchlessArguments()
+	{
+		OptionsBinder<CopyOptions> copyBinder = new OptionsBinder<CopyOptions>(
+				CopyOptions.class);
+		CopyOptions options = copyBinder.parse("-r from to");
+
+		assertTrue(options.recursive);
+		assertTrue(Arrays.equals(new String[] { "from", "to" }, options.paths));
+		assertEquals(Arrays.asList("from", "to"), options.pathList);
+		assertNull(copyBinder.getImplicitSwitch());
+	}
+
+	@Test
+	public final void testSchema()
+	{
+		assertSame(ServerOptions.class, binder.getOptionsClass());
+		assertEquals("--verbose(0) --name(1) --threads(1:int) --limit(0-1:long)"
+				+ " --ratio(1:double) --timeout(1:duration) --ports(1-*:int) --sizes(*:long)"
+				+ " --weights(*:double) --delays(*:duration) --tags(*) --include(*)",
+				binder.getPossibleSwitches());
+		assertEquals("--file(0-2)", binder.getImplicitSwitch());
+		assertEquals(ValueType.INT, binder.getSchema().getSpecification("--threads")
+				.getValueType());
+
+		// The same switches configure a CommandLineParser
+		CommandLineParser parser = new CommandLineParser();
+		parser.setPossibleSwitches(binder.getPossibleSwitches());
+		parser.setImplicitSwitch(binder.getImplicitSwitch());
+		parser.setCommandLine("--threads 2 a.txt");
+		assertEquals(2, parser.getInt("--threads"));
+	}
+
+	@Test
+	public final void testViolations()
+	{
+		try
+		{
+			binder.parse("--threads many");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(ParseErrorCode.INVALID_VALUE, icle.getErrors().get(0).getCode());
+		}
+		try
+		{
+			binder.parse("--unknown");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+		}
+		try
+		{
+			binder.bind(binder.getParser().tryParse("--ports"), new ServerOptions());
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(ParseErrorCode.TOO_FEW_VALUES, icle.getErrors().get(0).getCode());
+		}
+		try
+		{
+			binder.parse("a b c");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalStateException ise)
+		{
+		}
+	}
+
+	@Test
+	public final void testTooFewImplicitValues()
+	{
+		OptionsBinder<PairOptions> pairBinder = new OptionsBinder<PairOptions>(
+				PairOptions.class);
+		for (String[] args : new String[][] { { "x" }, { "--include", "a", "b" } })
+		{
+			try
+			{
+				pairBinder.parse(args);
+				fail(MISSING_EXCEPTION);
+			}
+			catch (InvalidCommandLineException icle)
+			{
+				assertEquals(ParseErrorCode.TOO_FEW_VALUES, icle.getErrors().get(0).getCode());
+				assertEquals("--file", icle.getErrors().get(0).getSwitchName());
+			}
+		}
+		assertEquals(Arrays.asList("b", "c"), pairBinder.parse(new String[] { "--include",
+				"a", "b", "c" }).files);
+	}
+
+	@Test
+	public final void testInvalidOptionsClasses()
+	{
+		try
+		{
+			new OptionsBinder<Object>(null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			new OptionsBinder<DuplicateOptions>(DuplicateOptions.class);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			new OptionsBinder<UnsupportedOptions>(UnsupportedOptions.class);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			new OptionsBinder<FlagWithValuesOptions>(FlagWithValuesOptions.class);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+
+		OptionsBinder<ConstructedOptions> constructedBinder = new OptionsBinder<ConstructedOptions>(
+				ConstructedOptions.class);
+		try
+		{
+			constructedBinder.parse("--a b");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalStateException ise)
+		{
+		}
+		assertEquals("b", constructedBinder.bind(constructedBinder.getParser().parse("--a b"),
+				new ConstructedOptions("a")).value);
+	}
+}
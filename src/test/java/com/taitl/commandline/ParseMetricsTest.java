@@ -0,0 +1,160 @@
+package com.taitl.commandline;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for ParseMetrics class.
+ */
+public class ParseMetricsTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	// The protagonist
+	ParseMetrics metrics;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		metrics = new ParseMetrics();
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception
+	{
+		metrics.unregisterMBean();
+		metrics = null;
+	}
+
+	@Test
+	public final void testLatencies()
+	{
+		assertEquals(0, metrics.getMedianLatencyNanos());
+		assertEquals(0, metrics.getMeanLatencyNanos());
+
+		for (int i = 0; i < 98; i++)
+		{
+			metrics.parseCompleted(2, 1000, true);
+		}
+		metrics.parseCompleted(5, 100000, true);
+		metrics.parseCompleted(1, 0, false);
+
+		assertEquals(100, metrics.getParseCount());
+		assertEquals(1, metrics.getFailedParseCount());
+		assertEquals(198000, metrics.getTotalLatencyNanos());
+		assertEquals(1980, metrics.getMeanLatencyNanos());
+		assertEquals(100000, metrics.getMaxLatencyNanos());
+		assertEquals(202, metrics.getArgumentCount());
+		assertEquals(5, metrics.getMaxArgumentCount());
+
+		// 1000 ns falls in bucket [512, 1023], 100000 ns in [65536, 131071]
+		long[] histogram = metrics.getLatencyHistogram();
+		assertEquals(ParseMetrics.LATENCY_BUCKETS, histogram.length);
+		assertEquals(1, histogram[0]);
+		assertEquals(98, histogram[10]);
+		assertEquals(1, histogram[17]);
+		assertEquals(0, metrics.getLatencyPercentileNanos(0));
+		assertEquals(1023, metrics.getMedianLatencyNanos());
+		assertEquals(1023, metrics.getP99LatencyNanos());
+		assertEquals(100000, metrics.getLatencyPercentileNanos(100));
+
+		try
+		{
+			metrics.getLatencyPercentileNanos(101);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
+	@Test
+	public final void testBuckets()
+	{
+		assertEquals(0, ParseMetrics.getBucket(0));
+		assertEquals(1, ParseMetrics.getBucket(1));
+		assertEquals(2, ParseMetrics.getBucket(3));
+		assertEquals(3, ParseMetrics.getBucket(4));
+		assertEquals(63, ParseMetrics.getBucket(Long.MAX_VALUE));
+		assertEquals(0, ParseMetrics.getBucketUpperBound(0));
+		assertEquals(7, ParseMetrics.getBucketUpperBound(3));
+		assertEquals(Long.MAX_VALUE, ParseMetrics.getBucketUpperBound(63));
+	}
+
+	@Test
+	public final void testErrorsAndCache()
+	{
+		metrics.parseError(ParseErrorCode.UNKNOWN_SWITCH);
+		metrics.parseError(ParseErrorCode.UNKNOWN_SWITCH);
+		metrics.parseError(ParseErrorCode.INVALID_VALUE);
+		metrics.cacheLookup(true);
+		metrics.cacheLookup(false);
+		metrics.cacheLookup(false);
+		metrics.parseCompleted(3, 10, false);
+
+		assertEquals(2, metrics.getUnknownSwitchErrorCount());
+		assertEquals(1, metrics.getInvalidValueErrorCount());
+		assertEquals(0, metrics.getTooFewValuesErrorCount());
+		assertEquals(0, metrics.getTooManyValuesErrorCount());
+		assertEquals(0, metrics.getUnreadableResponseFileErrorCount());
+		assertEquals(2, metrics.getErrorCount(ParseErrorCode.UNKNOWN_SWITCH));
+		assertEquals(1, metrics.getCacheHitCount());
+		assertEquals(2, metrics.getCacheMissCount());
+
+		metrics.reset();
+		assertEquals(0, metrics.getParseCount());
+		assertEquals(0, metrics.getUnknownSwitchErrorCount());
+		assertEquals(0, metrics.getCacheMissCount());
+		assertEquals(0, metrics.getMaxLatencyNanos());
+		assertEquals(0, metrics.getLatencyHistogram()[4]);
+	}
+
+	@Test
+	public final void testMBean() throws Exception
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		metrics.parseCompleted(3, 10, true);
+
+		ObjectName name = metrics.registerMBean("test");
+		assertEquals(name, metrics.getObjectName());
+		assertEquals(ParseMetrics.JMX_DOMAIN, name.getDomain());
+		assertEquals(Long.valueOf(1), server.getAttribute(name, "ParseCount"));
+		assertEquals(Long.valueOf(3), server.getAttribute(name, "ArgumentCount"));
+
+		// Another object can not take the same name
+		try
+		{
+			new ParseMetrics().registerMBean("test");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalStateException ise)
+		{
+		}
+		try
+		{
+			metrics.registerMBean("other");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalStateException ise)
+		{
+		}
+
+		server.invoke(name, "reset", null, null);
+		assertEquals(0, metrics.getParseCount());
+
+		metrics.unregisterMBean();
+		assertNull(metrics.getObjectName());
+		assertFalse(server.isRegistered(name));
+	}
+}
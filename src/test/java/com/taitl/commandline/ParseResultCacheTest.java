@@ -0,0 +1,207 @@
+package com.taitl.commandline;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for ParseResultCache class.
+ */
+public class ParseResultCacheTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	static final String possibleSwitches = "--prev(0) --next(0) --onevalue(1) --multi(*)";
+
+	// The protagonist
+	ParseResultCache cache;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		cache = new ParseResultCache(new ImmutableCommandLineParser(possibleSwitches,
+				"--file(1)"), 2);
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception
+	{
+		cache = null;
+	}
+
+	@Test
+	public final void testParse()
+	{
+		String[] args = new String[] { "--prev", "--onevalue", "val", "file.txt" };
+		ParseResult result = cache.parse(args);
+
+		assertEquals("val", result.getSwitchValue("--onevalue"));
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		// Equal argument vector, in another array, gets the shared result
+		assertSame(result, cache.parse(args.clone()));
+		assertEquals(1, cache.getHitCount());
+
+		// Changing the array does not affect the cached result
+		args[2] = "other";
+		assertNotSame(result, cache.parse(args));
+		assertEquals("val", result.getSwitchValue("--onevalue"));
+
+		ParseResult lineResult = cache.parse("--next --multi a b");
+		assertSame(lineResult, cache.parse("--next --multi a b"));
+		assertEquals(2, lineResult.getSwitchValueCount("--multi"));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(0.4, cache.getHitRate(), 1e-9);
+	}
+
+	@Test
+	public final void testEviction()
+	{
+		ParseResult a = cache.parse(new String[] { "a" });
+		cache.parse(new String[] { "b" });
+
+		// Touch a, so that b is the least recently used
+		assertSame(a, cache.parse(new String[] { "a" }));
+		cache.parse(new String[] { "c" });
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertSame(a, cache.parse(new String[] { "a" }));
+		assertEquals(2, cache.getHitCount());
+
+		cache.parse(new String[] { "b" });
+		assertEquals(4, cache.getMissCount());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(4, cache.getMissCount());
+		assertTrue(cache.toString().contains("evictions=2"));
+	}
+
+	@Test
+	public final void testErrors()
+	{
+		try
+		{
+			new ParseResultCache(null, 1);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			new ParseResultCache(cache.getParser(), 0);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			cache.parse((String[]) null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+
+		// Violations of parsing rules are not cached
+		for (int i = 0; i < 2; i++)
+		{
+			try
+			{
+				cache.parse("--unknown");
+				fail(MISSING_EXCEPTION);
+			}
+			catch (IllegalArgumentException iae)
+			{
+			}
+		}
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public final void testResponseFiles() throws Exception
+	{
+		File file = File.createTempFile("cache", ".rsp");
+		try
+		{
+			ParseResultCache expandingCache = new ParseResultCache(cache.getParser()
+					.withResponseFileExpansion(true), 10);
+			String[] args = new String[] { "--multi", "@" + file.getPath() };
+
+			ResponseFilesTest.write(file, "a b");
+			assertEquals(2, expandingCache.parse(args).getSwitchValueCount("--multi"));
+
+			// Response files are read again, not cached
+			ResponseFilesTest.write(file, "a b c");
+			assertEquals(3, expandingCache.parse(args).getSwitchValueCount("--multi"));
+			assertEquals(0, expandingCache.size());
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public final void testConcurrentParse() throws Exception
+	{
+		final ParseResultCache sharedCache = new ParseResultCache(cache.getParser(), 50);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try
+		{
+			List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 4; t++)
+			{
+				futures.add(executor.submit(new Callable<Boolean>()
+				{
+					@Override
+					public Boolean call()
+					{
+						for (int i = 0; i < 10000; i++)
+						{
+							String value = "v" + (i % 100);
+							ParseResult result = sharedCache.parse(new String[] { "--onevalue",
+									value });
+							if (!value.equals(result.getSwitchValue("--onevalue")))
+							{
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> future : futures)
+			{
+				assertTrue(future.get());
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		assertEquals(40000, sharedCache.getHitCount() + sharedCache.getMissCount());
+		assertEquals(50, sharedCache.size());
+	}
+}
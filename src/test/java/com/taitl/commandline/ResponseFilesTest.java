@@ -0,0 +1,104 @@
+package com.taitl.commandline;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for ResponseFiles class.
+ */
+public class ResponseFilesTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	// The response file
+	File file;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile("arguments", ".txt");
+		write(file, "--multi a \"b c\"\r\n\td\u00e9\n--next\n");
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception
+	{
+		file.delete();
+		file = null;
+	}
+
+	/**
+	 * Writes UTF-8 encoded text to file.
+	 */
+	static void write(File file, String text) throws Exception
+	{
+		OutputStream out = new FileOutputStream(file);
+		try
+		{
+			out.write(text.getBytes("UTF-8"));
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	@Test
+	public final void testRead() throws Exception
+	{
+		String[] arguments = ResponseFiles.read(file.getPath());
+		assertEquals(Arrays.asList("--multi", "a", "b c", "d\u00e9", "--next"), Arrays
+				.asList(arguments));
+
+		// Multi-byte whitespace separates arguments, as in setCommandLine()
+		String text = "x\u3000y z\u2028w \"a\u2000b\"\u200ac\u00a0d";
+		write(file, text);
+		arguments = ResponseFiles.read(file.getPath());
+		assertEquals(Arrays.asList("x", "y", "z", "w", "a\u2000b", "c\u00a0d"), Arrays
+				.asList(arguments));
+		assertEquals(Arrays.asList(new CommandLineTokenizer(text).toArray()), Arrays
+				.asList(arguments));
+	}
+
+	@Test
+	public final void testExpand() throws Exception
+	{
+		String[] arguments = new String[] { "--prev", "@" + file.getPath(), "@", "x@y" };
+		String[] expanded = ResponseFiles.expand(arguments);
+		assertEquals(Arrays.asList("--prev", "--multi", "a", "b c", "d\u00e9", "--next", "@",
+				"x@y"), Arrays.asList(expanded));
+
+		// No response files, no copy
+		arguments = new String[] { "--prev", "@", "x" };
+		assertSame(arguments, ResponseFiles.expand(arguments));
+
+		// Empty response file
+		write(file, "");
+		assertEquals(0, ResponseFiles.read(file.getPath()).length);
+	}
+
+	@Test
+	public final void testMissingFile()
+	{
+		try
+		{
+			ResponseFiles.expand(new String[] { "@" + file.getPath() + ".missing" });
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			assertNotNull(iae.getCause());
+		}
+	}
+}
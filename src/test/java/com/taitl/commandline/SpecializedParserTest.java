@@ -0,0 +1,267 @@
+package com.taitl.commandline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for SpecializedParser class.
+ */
+public class SpecializedParserTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	static final String possibleSwitches = "--prev(0) --next(0) --onevalue(1) --twovalues(2) --range(1-2) --multi(*) --threads(1:int) --ratios(0-*:double)";
+
+	// Interpreted parser
+	ImmutableCommandLineParser interpreted;
+
+	// The protagonist
+	ImmutableCommandLineParser specialized;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		interpreted = new ImmutableCommandLineParser(possibleSwitches, "--file(1-3)");
+		specialized = interpreted.withSpecializedParsing(true);
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception
+	{
+		interpreted = null;
+		specialized = null;
+	}
+
+	@Test
+	public final void testSwitchNumber()
+	{
+		SpecializedParser parser = SpecializedParser.create(interpreted.getSchema(),
+				CommandLineParser.DEFAULT_SWITCH_PREFIX_MATCHER, null);
+
+		assertEquals(0, parser.getSwitchNumber("--prev"));
+		assertEquals(7, parser.getSwitchNumber("--ratios"));
+		assertEquals(-1, parser.getSwitchNumber("--file"));
+		assertEquals(-1, parser.getSwitchNumber("--pre"));
+		assertEquals(-1, parser.getSwitchNumber(""));
+
+		// Valid command lines are parsed, and parsing gives up on the others
+		assertNotNull(parser.parse(new String[] { "--prev", "a.txt" }, null));
+		assertNull(parser.parse(new String[] { "--pre", "a.txt" }, null));
+		assertNull(parser.parse(new String[] { "--threads", "x" }, null));
+		assertNull(parser.parse(new String[] { "--twovalues", "1" }, null));
+		assertNull(parser.parse(new String[] { "a", "b", "c", "d" }, null));
+
+		// Possible switch names with equal hash codes
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		parser = SpecializedParser.create(SwitchSchema.compile("-Aa(0) -BB(0)", null),
+				CommandLineParser.DEFAULT_SWITCH_PREFIX_MATCHER, null);
+		assertEquals(0, parser.getSwitchNumber("-Aa"));
+		assertEquals(1, parser.getSwitchNumber("-BB"));
+		assertEquals(-1, parser.getSwitchNumber("-Ab"));
+
+		// The implicit switch among possible switches is left to the
+		// interpreted parser
+		assertNull(SpecializedParser.create(SwitchSchema.compile("--file(*)", "--file(*)"),
+				CommandLineParser.DEFAULT_SWITCH_PREFIX_MATCHER, null));
+	}
+
+	@Test
+	public final void testParse()
+	{
+		assertFalse(interpreted.isSpecializedParsing());
+		assertTrue(specialized.isSpecializedParsing());
+		assertSame(specialized, specialized.withSpecializedParsing(true));
+		assertTrue(specialized.withAllErrorsReported(true).isSpecializedParsing());
+
+		ParseResult result = specialized.parse(new String[] { "--onevalue", "val", "a.txt",
+				"--threads", "8", "--ratios", "0.5", "1e3", "--multi", "x", "y", "--prev" });
+
+		assertEquals(Arrays.asList("--onevalue", "--threads", "--ratios", "--multi", "--prev",
+				"--file"), new ArrayList<String>(result.getSwitchMap().keySet()));
+		assertEquals("val", result.getSwitchValue("--onevalue"));
+		assertEquals(8, result.getInt("--threads"));
+		assertEquals(1000.0, result.getDouble("--ratios", 1));
+		assertEquals(Arrays.asList("x", "y"), result.getSwitchValues("--multi"));
+		assertEquals(0, result.getSwitchValueCount("--prev"));
+		assertTrue(Arrays.equals(new String[] { "a.txt" }, result.getSwitchlessArguments()));
+
+		// Violations of parsing rules are reported by the interpreted parser
+		try
+		{
+			specialized.parse(new String[] { "--unknown" });
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException e)
+		{
+			assertEquals(ParseErrorCode.UNKNOWN_SWITCH, e.getErrors().get(0).getCode());
+		}
+		try
+		{
+			specialized.parse(new String[] { "a", "b", "c", "d" });
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalStateException e)
+		{
+			// Expected: too many values of the implicit switch
+		}
+	}
+
+	@Test
+	public final void testSameResults()
+	{
+		String[][] argumentVectors = new String[][] { {}, { "a.txt" },
+				{ "--prev", "--next", "--prev" }, { "--onevalue" }, { "--onevalue", "1", "2" },
+				{ "--twovalues", "1" }, { "--twovalues", "1", "2", "3", "4" },
+				{ "--range", "1", "2", "3" }, { "--range", "--prev" },
+				{ "--multi", "1", "2", "3", "4", "5" }, { "--threads", "x" },
+				{ "--threads", "3", "--threads", "4" }, { "--threads", "x", "--threads", "4" },
+				{ "--ratios", "1", "2.5", "x" }, { "--ratios" }, { "a", "--prev", "b", "c" },
+				{ "a", "b", "c", "d" }, { "--onevalue", "v", "--unknown", "w" },
+				{ "-5", "a" }, { "--prev", "-", "x" }, { "--multi", "--", "x" },
+				{ "--onevalue", "v", "--onevalue", "w", "--prev", "a" },
+				{ "--pre", "--ra", "1", "--thr", "2" }, { "--t", "3" } };
+
+		List<ImmutableCommandLineParser> parsers = new ArrayList<ImmutableCommandLineParser>();
+		parsers.add(interpreted);
+		parsers.add(interpreted.withAllErrorsReported(true));
+		parsers.add(interpreted.withAbbreviatedSwitchesAllowed(true));
+		parsers.add(new ImmutableCommandLineParser(interpreted.getSchema(), "(/|--)"));
+		parsers.add(new ImmutableCommandLineParser(interpreted.getSchema(), "-+"));
+		parsers.add(new ImmutableCommandLineParser(SwitchSchema.compile(possibleSwitches,
+				"--ratios(*:double)"), "(--|-)"));
+		parsers.add(new ImmutableCommandLineParser(SwitchSchema.compile(possibleSwitches,
+				null), "(--|-)"));
+		parsers.add(new ImmutableCommandLineParser(SwitchSchema.compile(possibleSwitches,
+				"--multi(*)"), "(--|-)"));
+
+		for (ImmutableCommandLineParser parser : parsers)
+		{
+			ImmutableCommandLineParser specializedParser = parser.withSpecializedParsing(true);
+			for (String[] args : argumentVectors)
+			{
+				String description = parser.getSwitchPrefixesMask() + " "
+						+ Arrays.asList(args);
+				assertSameResult(description, parser.tryParse(args), specializedParser
+						.tryParse(args));
+				assertEquals(description, describe(parser, args), describe(specializedParser,
+						args));
+			}
+
+			// Batch parsing reuses buffers across argument vectors
+			List<String[]> valid = new ArrayList<String[]>();
+			List<ParseResult> expected = new ArrayList<ParseResult>();
+			for (String[] args : argumentVectors)
+			{
+				if (!parser.tryParse(args).hasErrors())
+				{
+					valid.add(args);
+					expected.add(parser.parse(args));
+				}
+			}
+			List<ParseResult> results = specializedParser.parseAll(valid);
+			for (int i = 0; i < valid.size(); i++)
+			{
+				assertSameResult(Arrays.asList(valid.get(i)).toString(), expected.get(i),
+						results.get(i));
+			}
+		}
+	}
+
+	@Test
+	public final void testCommandLineParser()
+	{
+		CommandLineParser commandLineParser = new CommandLineParser();
+		commandLineParser.setPossibleSwitches(possibleSwitches);
+		commandLineParser.setImplicitSwitch("--file(1-3)");
+		assertFalse(commandLineParser.isSpecializedParsing());
+
+		ImmutableCommandLineParser parser = commandLineParser.getImmutableParser();
+		commandLineParser.setSpecializedParsing(true);
+		assertTrue(commandLineParser.isSpecializedParsing());
+		assertNotSame(parser, commandLineParser.getImmutableParser());
+		assertTrue(commandLineParser.getImmutableParser().isSpecializedParsing());
+
+		commandLineParser.setArguments(new String[] { "--threads", "4", "a.txt", "--prev" });
+		assertEquals(4, commandLineParser.getInt("--threads"));
+		assertTrue(commandLineParser.isSwitchPresent("--prev"));
+		assertTrue(Arrays.equals(new String[] { "a.txt" }, commandLineParser
+				.getSwitchlessArguments()));
+
+		try
+		{
+			commandLineParser.setArguments(new String[] { "--threads", "four" });
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException e)
+		{
+			assertEquals(ParseErrorCode.INVALID_VALUE, e.getErrors().get(0).getCode());
+		}
+	}
+
+	/**
+	 * Asserts that two results of parsing are equal.
+	 */
+	private static void assertSameResult(String description, ParseResult expected,
+			ParseResult actual)
+	{
+		assertEquals(description, expected.hasErrors(), actual.hasErrors());
+		if (expected.hasErrors())
+		{
+			assertEquals(description, expected.getErrors().toString(), actual.getErrors()
+					.toString());
+			return;
+		}
+
+		assertEquals(description, new ArrayList<String>(expected.getSwitchMap().keySet()),
+				new ArrayList<String>(actual.getSwitchMap().keySet()));
+		assertEquals(description, expected.getSwitchMap(), actual.getSwitchMap());
+		assertTrue(description, Arrays.equals(expected.getSwitchlessArguments(), actual
+				.getSwitchlessArguments()));
+		for (String switchName : new String[] { "--threads", "--ratios" })
+		{
+			assertEquals(description, typedValues(expected, switchName), typedValues(actual,
+					switchName));
+		}
+	}
+
+	/**
+	 * Returns typed values of a switch as a string.
+	 */
+	private static String typedValues(ParseResult result, String switchName)
+	{
+		List<String> values = result.getSwitchMap().get(switchName);
+		StringBuilder typed = new StringBuilder();
+		for (int i = 0; values != null && i < values.size(); i++)
+		{
+			typed.append(switchName.equals("--threads") ? String.valueOf(result.getLong(
+					switchName, i)) : String.valueOf(result.getDouble(switchName, i)));
+			typed.append(' ');
+		}
+		return typed.toString();
+	}
+
+	/**
+	 * Describes the outcome of parse(): the switch map, or the exception.
+	 */
+	private static String describe(ImmutableCommandLineParser parser, String[] args)
+	{
+		try
+		{
+			return parser.parse(args).getSwitchMap().toString();
+		}
+		catch (RuntimeException e)
+		{
+			return e.getClass().getName() + ": " + e.getMessage();
+		}
+	}
+}
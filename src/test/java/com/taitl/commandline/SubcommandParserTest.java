@@ -0,0 +1,409 @@
+package com.taitl.commandline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for SubcommandParser class.
+ */
+public class SubcommandParserTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	// Parsers of subcommands
+	ImmutableCommandLineParser commitParser;
+	ImmutableCommandLineParser pushParser;
+
+	// The protagonist
+	SubcommandParser parser;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		commitParser = new ImmutableCommandLineParser("--message(1) --all(0)", "--file(*)");
+		pushParser = new ImmutableCommandLineParser("--force(0) --threads(1:int)",
+				"--remote(0-1)");
+
+		Map<String, ImmutableCommandLineParser> subcommands = new LinkedHashMap<String, ImmutableCommandLineParser>();
+		subcommands.put("commit", commitParser);
+		subcommands.put("push", pushParser);
+		parser = new SubcommandParser(subcommands);
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception
+	{
+		commitParser = null;
+		pushParser = null;
+		parser = null;
+	}
+
+	@Test
+	public final void testSubcommands()
+	{
+		assertEquals(Arrays.asList("commit", "push"), Arrays.asList(parser.getSubcommands()
+				.toArray()));
+		assertSame(commitParser, parser.getParser("commit"));
+		assertNull(parser.getParser("pull"));
+
+		SubcommandParser morePullsParser = parser.withSubcommand("pull", commitParser);
+		assertNotSame(parser, morePullsParser);
+		assertEquals(Arrays.asList("commit", "push", "pull"), Arrays.asList(morePullsParser
+				.getSubcommands().toArray()));
+		assertNull(parser.getParser("pull"));
+		assertSame(pushParser, parser.withSubcommand("commit", pushParser).getParser("push"));
+
+		try
+		{
+			parser.getSubcommands().clear();
+			fail(MISSING_EXCEPTION);
+		}
+		catch (UnsupportedOperationException uoe)
+		{
+			// Expected
+		}
+		try
+		{
+			parser.withSubcommand("", commitParser);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			// Expected
+		}
+		try
+		{
+			parser.withSubcommand("pull", (ImmutableCommandLineParser) null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			// Expected
+		}
+		try
+		{
+			new SubcommandParser(null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			// Expected
+		}
+	}
+
+	@Test
+	public final void testParse()
+	{
+		ParseResult result = parser.parse(new String[] { "commit", "--message", "Fix",
+				"a.txt", "--all" });
+		assertEquals("commit", result.getSubcommand());
+		assertEquals("Fix", result.getSwitchValue("--message"));
+		assertTrue(result.isSwitchPresent("--all"));
+		assertEquals(Arrays.asList("a.txt"), result.getSwitchValues("--file"));
+		assertTrue(Arrays.equals(new String[] { "--message", "Fix", "a.txt", "--all" },
+				result.getArguments()));
+
+		result = parser.parse("push --threads 4 origin");
+		assertEquals("push", result.getSubcommand());
+		assertEquals(4, result.getInt("--threads"));
+		assertEquals("origin", result.getSwitchValue("--remote"));
+
+		result = parser.parse("push");
+		assertEquals("push", result.getSubcommand());
+		assertTrue(result.getSwitchMap().isEmpty());
+
+		// A result of a parser of switches names no subcommand
+		assertNull(pushParser.parse("--force").getSubcommand());
+	}
+
+	@Test
+	public final void testErrors()
+	{
+		try
+		{
+			parser.parse(new String[0]);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(ParseErrorCode.MISSING_SUBCOMMAND, icle.getErrors().get(0).getCode());
+			assertEquals("Subcommand expected as the first argument.", icle.getMessage());
+		}
+		try
+		{
+			parser.parse("pull --force");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			ParseError error = icle.getErrors().get(0);
+			assertEquals(ParseErrorCode.UNKNOWN_SUBCOMMAND, error.getCode());
+			assertEquals(0, error.getPosition());
+			assertEquals("pull", error.getArgument());
+			assertNull(error.getSwitchName());
+			assertTrue(icle.getMessage().startsWith("Unknown subcommand found: pull."));
+		}
+		try
+		{
+			parser.parse("commit --message");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(ParseErrorCode.TOO_FEW_VALUES, icle.getErrors().get(0).getCode());
+		}
+
+		// Subcommand options are checked by the parser of the subcommand only
+		try
+		{
+			parser.parse("push --message Fix");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (InvalidCommandLineException icle)
+		{
+			assertEquals(ParseErrorCode.UNKNOWN_SWITCH, icle.getErrors().get(0).getCode());
+		}
+
+		try
+		{
+			parser.parse(new String[] { null, "--force" });
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			assertFalse(iae instanceof InvalidCommandLineException);
+		}
+		try
+		{
+			parser.parse((String[]) null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			// Expected
+		}
+	}
+
+	@Test
+	public final void testTryParse()
+	{
+		ParseResult result = parser.tryParse("");
+		assertTrue(result.hasErrors());
+		assertNull(result.getSubcommand());
+		assertEquals(ParseErrorCode.MISSING_SUBCOMMAND, result.getErrors().get(0).getCode());
+		assertEquals(-1, result.getErrors().get(0).getPosition());
+
+		result = parser.tryParse(new String[] { "pull", "--force" });
+		assertNull(result.getSubcommand());
+		assertEquals(ParseErrorCode.UNKNOWN_SUBCOMMAND, result.getErrors().get(0).getCode());
+		assertTrue(Arrays.equals(new String[] { "pull", "--force" }, result.getArguments()));
+
+		// Errors of a known subcommand are positioned among the arguments
+		// after it
+		result = parser.tryParse("push --force --threads x");
+		assertEquals("push", result.getSubcommand());
+		ParseError error = result.getErrors().get(0);
+		assertEquals(ParseErrorCode.INVALID_VALUE, error.getCode());
+		assertEquals(2, error.getPosition());
+
+		result = parser.tryParse("commit --all a.txt b.txt");
+		assertFalse(result.hasErrors());
+		assertEquals("commit", result.getSubcommand());
+		assertEquals(Arrays.asList("a.txt", "b.txt"), result.getSwitchValues("--file"));
+	}
+
+	@Test
+	public final void testLazySubcommands()
+	{
+		final AtomicInteger calls = new AtomicInteger();
+		Supplier<ImmutableCommandLineParser> supplier = new Supplier<ImmutableCommandLineParser>()
+		{
+			@Override
+			public ImmutableCommandLineParser get()
+			{
+				calls.incrementAndGet();
+				return new ImmutableCommandLineParser("--rebase(0)", null);
+			}
+		};
+		SubcommandParser lazyParser = new SubcommandParser().withSubcommand("pull", supplier)
+				.withSubcommand("fetch", "--all(0) --depth(1:int)", "--remote(0-1)")
+				.withSubcommand("commit", commitParser);
+		assertEquals(Arrays.asList("pull", "fetch", "commit"), Arrays.asList(lazyParser
+				.getSubcommands().toArray()));
+
+		// Suppliers are called when their subcommand is first selected, once
+		assertEquals("commit", lazyParser.parse("commit --all").getSubcommand());
+		assertEquals(0, calls.get());
+		assertTrue(lazyParser.parse("pull --rebase").isSwitchPresent("--rebase"));
+		assertTrue(lazyParser.tryParse("pull").getSwitchMap().isEmpty());
+		assertSame(lazyParser.getParser("pull"), lazyParser.getParser("pull"));
+		assertEquals(1, calls.get());
+		assertEquals(3, lazyParser.parse("fetch --depth 3").getInt("--depth"));
+
+		// Invalid specifications are reported when compiled
+		SubcommandParser invalidParser = lazyParser.withSubcommand("push", "--force(x)", null);
+		assertEquals(ParseErrorCode.UNKNOWN_SUBCOMMAND, invalidParser.tryParse("log")
+				.getErrors().get(0).getCode());
+		try
+		{
+			invalidParser.parse("push --force");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			assertFalse(iae instanceof InvalidCommandLineException);
+		}
+
+		try
+		{
+			lazyParser.withSubcommand("push", new Supplier<ImmutableCommandLineParser>()
+			{
+				@Override
+				public ImmutableCommandLineParser get()
+				{
+					return null;
+				}
+			}).parse("push");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalStateException ise)
+		{
+			assertTrue(ise.getMessage().contains("push"));
+		}
+		try
+		{
+			lazyParser.withSubcommand("push", (Supplier<ImmutableCommandLineParser>) null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			// Expected
+		}
+	}
+
+	@Test
+	public final void testBuilder()
+	{
+		final AtomicInteger calls = new AtomicInteger();
+		SubcommandParser.Builder builder = new SubcommandParser.Builder()
+				.withSubcommand("commit", commitParser)
+				.withSubcommand("pull", new Supplier<ImmutableCommandLineParser>()
+				{
+					@Override
+					public ImmutableCommandLineParser get()
+					{
+						calls.incrementAndGet();
+						return new ImmutableCommandLineParser("--rebase(0)", null);
+					}
+				}).withSubcommand("fetch", "--all(0) --depth(1:int)", "--remote(0-1)");
+		for (int i = 0; i < 1000; i++)
+		{
+			builder.withSubcommand("subcommand" + i, "--force(0)", null);
+		}
+		SubcommandParser builtParser = builder.build();
+		assertEquals(1003, builtParser.getSubcommands().size());
+		assertEquals(Arrays.asList("commit", "pull", "fetch"), Arrays.asList(builtParser
+				.getSubcommands().toArray()).subList(0, 3));
+		assertSame(commitParser, builtParser.getParser("commit"));
+		assertEquals(0, calls.get());
+		assertTrue(builtParser.parse("pull --rebase").isSwitchPresent("--rebase"));
+		assertEquals(1, calls.get());
+		assertEquals(3, builtParser.parse("fetch --depth 3").getInt("--depth"));
+		assertTrue(builtParser.parse("subcommand999 --force").isSwitchPresent("--force"));
+
+		// The builder can be used further, without affecting the parser
+		SubcommandParser rebuiltParser = builder.withSubcommand("commit", pushParser).build();
+		assertSame(commitParser, builtParser.getParser("commit"));
+		assertSame(pushParser, rebuiltParser.getParser("commit"));
+		assertEquals(1003, rebuiltParser.getSubcommands().size());
+		assertTrue(new SubcommandParser.Builder().build().getSubcommands().isEmpty());
+
+		try
+		{
+			builder.withSubcommand("", commitParser);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			// Expected
+		}
+		try
+		{
+			builder.withSubcommand("push", (Supplier<ImmutableCommandLineParser>) null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			// Expected
+		}
+		try
+		{
+			builder.withSubcommand("push", null, "--remote(0-1)");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			// Expected
+		}
+	}
+
+	@Test
+	public final void testLazySubcommandsConcurrently() throws Exception
+	{
+		final AtomicInteger calls = new AtomicInteger();
+		final SubcommandParser lazyParser = new SubcommandParser().withSubcommand("pull",
+				new Supplier<ImmutableCommandLineParser>()
+				{
+					@Override
+					public ImmutableCommandLineParser get()
+					{
+						calls.incrementAndGet();
+						return new ImmutableCommandLineParser("--rebase(0)", null);
+					}
+				});
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try
+		{
+			List<Future<ParseResult>> futures = new ArrayList<Future<ParseResult>>();
+			for (int i = 0; i < 64; i++)
+			{
+				futures.add(executor.submit(new Callable<ParseResult>()
+				{
+					@Override
+					public ParseResult call()
+					{
+						return lazyParser.parse("pull --rebase");
+					}
+				}));
+			}
+			for (Future<ParseResult> future : futures)
+			{
+				assertTrue(future.get().isSwitchPresent("--rebase"));
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		assertEquals(1, calls.get());
+	}
+}
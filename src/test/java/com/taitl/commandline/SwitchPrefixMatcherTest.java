@@ -0,0 +1,81 @@
+package com.taitl.commandline;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests for SwitchPrefixMatcher class.
+ */
+public class SwitchPrefixMatcherTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	@Test
+	public final void testLiteralMask()
+	{
+		SwitchPrefixMatcher matcher = SwitchPrefixMatcher.compile("(--|-)");
+
+		assertTrue(matcher.isLiteral());
+		assertTrue(matcher.matches("--file"));
+		assertTrue(matcher.matches("-f"));
+		assertTrue(matcher.matches("-"));
+		assertFalse(matcher.matches("file"));
+		assertFalse(matcher.matches(""));
+		assertFalse(matcher.matches("/f"));
+
+		matcher = SwitchPrefixMatcher.compile("/|-");
+		assertTrue(matcher.isLiteral());
+		assertTrue(matcher.matches("/f"));
+		assertTrue(matcher.matches("-f"));
+		assertFalse(matcher.matches("f/"));
+	}
+
+	@Test
+	public final void testRegexMask()
+	{
+		SwitchPrefixMatcher matcher = SwitchPrefixMatcher.compile("-{1,2}[a-z]");
+
+		assertFalse(matcher.isLiteral());
+		assertTrue(matcher.matches("--file"));
+		assertTrue(matcher.matches("-f"));
+		assertFalse(matcher.matches("-5"));
+		assertFalse(matcher.matches("file"));
+		assertEquals("-{1,2}[a-z]", matcher.getMask());
+	}
+
+	@Test
+	public final void testPrefixLength()
+	{
+		SwitchPrefixMatcher matcher = SwitchPrefixMatcher.compile("(-|--)");
+
+		assertEquals(2, matcher.getPrefixLength("--file"));
+		assertEquals(1, matcher.getPrefixLength("-f"));
+		assertEquals(2, matcher.getPrefixLength("--"));
+		assertEquals(-1, matcher.getPrefixLength("file"));
+
+		matcher = SwitchPrefixMatcher.compile("-{1,2}");
+		assertEquals(2, matcher.getPrefixLength("--file"));
+		assertEquals(1, matcher.getPrefixLength("-f"));
+		assertEquals(-1, matcher.getPrefixLength("/f"));
+	}
+
+	@Test
+	public final void testMalformedMask()
+	{
+		String[] malformed = new String[] { null, "", "(--|-" };
+
+		for (String mask : malformed)
+		{
+			try
+			{
+				SwitchPrefixMatcher.compile(mask);
+				fail(MISSING_EXCEPTION);
+			}
+			catch (IllegalArgumentException iae)
+			{
+			}
+		}
+	}
+}
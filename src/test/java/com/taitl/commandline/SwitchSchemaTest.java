@@ -0,0 +1,76 @@
+package com.taitl.commandline;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests for SwitchSchema class.
+ */
+public class SwitchSchemaTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	@Test
+	public final void testCompile()
+	{
+		SwitchSchema schema = SwitchSchema.compile("--version(0) --multi(*)", "--file(1)");
+
+		assertEquals(2, schema.size());
+		assertTrue(schema.isPossibleSwitch("--version"));
+		assertTrue(schema.isPossibleSwitch("--multi"));
+		assertFalse(schema.isPossibleSwitch("--file"));
+		assertFalse(schema.isPossibleSwitch("--version(0)"));
+		assertEquals(Integer.MAX_VALUE, schema.getSpecification("--multi").getMaxValues());
+		assertNull(schema.getSpecification("--unknown"));
+		assertEquals("--file", schema.getImplicitSpecification().getName());
+		assertEquals("--version", schema.getSpecifications().get(0).getName());
+
+		schema = SwitchSchema.compile("--version(0)", null);
+		assertNull(schema.getImplicitSpecification());
+	}
+
+	@Test
+	public final void testCompileMalformed()
+	{
+		try
+		{
+			SwitchSchema.compile("--version(0) --version(1)", null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			SwitchSchema.compile("--version(0)  --help(0)", null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+		try
+		{
+			SwitchSchema.compile("", null);
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
+	@Test
+	public final void testImmutable()
+	{
+		SwitchSchema schema = SwitchSchema.compile("--version(0)", null);
+		try
+		{
+			schema.getSpecifications().clear();
+			fail(MISSING_EXCEPTION);
+		}
+		catch (UnsupportedOperationException uoe)
+		{
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.taitl.commandline;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests for SwitchSpecification class.
+ */
+public class SwitchSpecificationTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	@Test
+	public final void testParse()
+	{
+		SwitchSpecification spec;
+
+		spec = SwitchSpecification.parse("--file(1)");
+		assertEquals("--file", spec.getName());
+		assertEquals(1, spec.getMinValues());
+		assertEquals(1, spec.getMaxValues());
+		assertEquals("--file(1)", spec.getSpecification());
+
+		spec = SwitchSpecification.parse(" --range(1-3) ");
+		assertEquals("--range", spec.getName());
+		assertEquals(1, spec.getMinValues());
+		assertEquals(3, spec.getMaxValues());
+
+		spec = SwitchSpecification.parse("--any(*)");
+		assertEquals(0, spec.getMinValues());
+		assertEquals(Integer.MAX_VALUE, spec.getMaxValues());
+
+		spec = SwitchSpecification.parse("--many(3-*)");
+		assertEquals(3, spec.getMinValues());
+		assertEquals(Integer.MAX_VALUE, spec.getMaxValues());
+		assertEquals(ValueType.STRING, spec.getValueType());
+
+		spec = SwitchSpecification.parse("--threads(1:int)");
+		assertEquals("--threads", spec.getName());
+		assertEquals(1, spec.getMaxValues());
+		assertEquals(ValueType.INT, spec.getValueType());
+		assertEquals("--threads(1:int)", spec.getSpecification());
+
+		spec = SwitchSpecification.parse("--timeouts(1-*:duration)");
+		assertEquals(1, spec.getMinValues());
+		assertEquals(Integer.MAX_VALUE, spec.getMaxValues());
+		assertEquals(ValueType.DURATION, spec.getValueType());
+	}
+
+	@Test
+	public final void testParseMalformed()
+	{
+		String[] malformed = new String[] { "--usage", "--usage(", "--usage)", "--usage()",
+				"--usage(?)", "--usage(x-1)", "--usage(1-x)", "--usage(3-2)", "--usage[0]", "(1)",
+				"--usage(1:)", "--usage(:int)", "--usage(1:integer)" };
+
+		for (String spec : malformed)
+		{
+			try
+			{
+				SwitchSpecification.parse(spec);
+				fail(MISSING_EXCEPTION + ": " + spec);
+			}
+			catch (IllegalArgumentException iae)
+			{
+			}
+		}
+	}
+
+	@Test
+	public final void testCreateSwitch()
+	{
+		Switch sw = SwitchSpecification.parse("--range(1-3)").createSwitch();
+		assertEquals("--range", sw.getSwitchName());
+		assertEquals(1, sw.getMinValues());
+		assertEquals(3, sw.getMaxValues());
+	}
+}
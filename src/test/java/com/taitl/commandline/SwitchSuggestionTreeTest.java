@@ -0,0 +1,129 @@
+package com.taitl.commandline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for SwitchSuggestionTree class.
+ */
+public class SwitchSuggestionTreeTest extends TestCase
+{
+	static final String possibleSwitches = "--verbose(0) --version(0) --file(1) --files(*) --quiet(0) -v(0)";
+
+	// The protagonist
+	SwitchSuggestionTree tree;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		tree = new SwitchSuggestionTree(SwitchSchema.compile(possibleSwitches, null)
+				.getSpecifications(), CommandLineParser.DEFAULT_SWITCH_PREFIX_MATCHER);
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception
+	{
+		tree = null;
+	}
+
+	@Test
+	public final void testDistance()
+	{
+		assertEquals(0, SwitchSuggestionTree.distance("--file", "--file"));
+		assertEquals(1, SwitchSuggestionTree.distance("--file", "--files"));
+		assertEquals(1, SwitchSuggestionTree.distance("--file", "--fine"));
+		assertEquals(2, SwitchSuggestionTree.distance("--verbose", "--verbsoe"));
+		assertEquals(3, SwitchSuggestionTree.distance("kitten", "sitting"));
+		assertEquals(4, SwitchSuggestionTree.distance("", "abcd"));
+	}
+
+	@Test
+	public final void testSuggest()
+	{
+		assertEquals(Arrays.asList("--verbose"), tree.suggest("--verbsoe"));
+		assertEquals(Arrays.asList("--quiet"), tree.suggest("--quet"));
+		assertEquals(Arrays.asList("--file", "--files"), tree.suggest("--filez"));
+		assertEquals(Arrays.asList("--verbose", "--version"), tree.suggest("--versoe"));
+
+		// Short arguments, and those far from every name, get no suggestions
+		assertEquals(Collections.emptyList(), tree.suggest("--fi"));
+		assertEquals(Collections.emptyList(), tree.suggest("-x"));
+		assertEquals(Collections.emptyList(), tree.suggest("--unknown"));
+
+		tree = new SwitchSuggestionTree(Collections.<SwitchSpecification> emptyList(),
+				CommandLineParser.DEFAULT_SWITCH_PREFIX_MATCHER);
+		assertEquals(Collections.emptyList(), tree.suggest("--verbose"));
+	}
+
+	@Test
+	public final void testSameAsLinearScan()
+	{
+		// The tree finds what comparing with every name finds
+		Random random = new Random(42);
+		List<SwitchSpecification> specifications = new ArrayList<SwitchSpecification>();
+		List<String> names = new ArrayList<String>();
+		for (int i = 0; i < 400; i++)
+		{
+			String name = "--" + randomWord(random, 4 + random.nextInt(8));
+			if (!names.contains(name))
+			{
+				names.add(name);
+				specifications.add(SwitchSpecification.parse(name + "(0)"));
+			}
+		}
+		tree = new SwitchSuggestionTree(specifications,
+				CommandLineParser.DEFAULT_SWITCH_PREFIX_MATCHER);
+
+		for (int i = 0; i < 200; i++)
+		{
+			char[] typo = names.get(random.nextInt(names.size())).toCharArray();
+			typo[2 + random.nextInt(typo.length - 2)] = (char) ('a' + random.nextInt(26));
+			String argument = new String(typo);
+
+			List<String> expected = new ArrayList<String>();
+			int maxDistance = Math.min(SwitchSuggestionTree.MAX_DISTANCE,
+					(argument.length() - 2) / 3);
+			for (int distance = 0; distance <= maxDistance; distance++)
+			{
+				List<String> atDistance = new ArrayList<String>();
+				for (String name : names)
+				{
+					if (SwitchSuggestionTree.distance(name, argument) == distance)
+					{
+						atDistance.add(name);
+					}
+				}
+				Collections.sort(atDistance);
+				expected.addAll(atDistance);
+			}
+			expected = expected.subList(0, Math.min(expected.size(),
+					SwitchSuggestionTree.MAX_SUGGESTIONS));
+
+			assertEquals(argument, expected, tree.suggest(argument));
+		}
+	}
+
+	/**
+	 * Returns a random word of lowercase letters.
+	 */
+	private static String randomWord(Random random, int length)
+	{
+		char[] word = new char[length];
+		for (int i = 0; i < length; i++)
+		{
+			word[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(word);
+	}
+}
@@ -0,0 +1,101 @@
+package com.taitl.commandline;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for SwitchTrie class.
+ */
+public class SwitchTrieTest extends TestCase
+{
+	static final String possibleSwitches = "--verbose(0) --version(0) --file(1) --files(*) -v(0) -x(0)";
+
+	// The protagonist
+	SwitchTrie trie;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		trie = new SwitchTrie(SwitchSchema.compile(possibleSwitches, null).getSpecifications(),
+				CommandLineParser.DEFAULT_SWITCH_PREFIX_MATCHER);
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception
+	{
+		trie = null;
+	}
+
+	@Test
+	public final void testExactMatch()
+	{
+		assertEquals(0, trie.find("--verbose"));
+		assertEquals(1, trie.find("--version"));
+		assertEquals(4, trie.find("-v"));
+
+		// A name which is also a prefix of another name matches exactly
+		assertEquals(2, trie.find("--file"));
+		assertEquals(3, trie.find("--files"));
+	}
+
+	@Test
+	public final void testUniquePrefix()
+	{
+		assertEquals(0, trie.find("--verb"));
+		assertEquals(0, trie.find("--verbo"));
+		assertEquals(1, trie.find("--vers"));
+		assertEquals(SwitchTrie.AMBIGUOUS, trie.find("--fil"));
+
+		assertEquals(SwitchTrie.NO_MATCH, trie.find("--verbosely"));
+		assertEquals(SwitchTrie.NO_MATCH, trie.find("--unknown"));
+		assertEquals(SwitchTrie.NO_MATCH, trie.find("file"));
+		assertEquals(SwitchTrie.NO_MATCH, trie.find("-y"));
+	}
+
+	@Test
+	public final void testAmbiguousPrefix()
+	{
+		assertEquals(SwitchTrie.AMBIGUOUS, trie.find("--ver"));
+		assertEquals(SwitchTrie.AMBIGUOUS, trie.find("--v"));
+		assertEquals(Arrays.asList("--verbose", "--version"), trie.getCompletions("--ver"));
+		assertEquals(Arrays.asList("--file", "--files", "--verbose", "--version"), trie
+				.getCompletions("--"));
+		assertEquals(Collections.emptyList(), trie.getCompletions("--x"));
+	}
+
+	@Test
+	public final void testSwitchPrefix()
+	{
+		// An abbreviation needs a character after its switch prefix
+		assertEquals(SwitchTrie.NO_MATCH, trie.find("-"));
+		assertEquals(SwitchTrie.NO_MATCH, trie.find("--"));
+		assertEquals(SwitchTrie.NO_MATCH, trie.find(""));
+
+		trie = new SwitchTrie(SwitchSchema.compile("--verbose(0)", null).getSpecifications(),
+				CommandLineParser.DEFAULT_SWITCH_PREFIX_MATCHER);
+		assertEquals(SwitchTrie.NO_MATCH, trie.find("--"));
+		assertEquals(0, trie.find("--v"));
+
+		trie = new SwitchTrie(SwitchSchema.compile("/verbose(0) /quiet(0)", null)
+				.getSpecifications(), SwitchPrefixMatcher.compile("/"));
+		assertEquals(SwitchTrie.NO_MATCH, trie.find("/"));
+		assertEquals(1, trie.find("/q"));
+	}
+
+	@Test
+	public final void testNoSwitches()
+	{
+		trie = new SwitchTrie(Collections.<SwitchSpecification> emptyList(),
+				CommandLineParser.DEFAULT_SWITCH_PREFIX_MATCHER);
+		assertEquals(SwitchTrie.NO_MATCH, trie.find("--verbose"));
+		assertEquals(Collections.emptyList(), trie.getCompletions("--"));
+	}
+}
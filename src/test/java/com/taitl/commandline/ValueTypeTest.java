@@ -0,0 +1,260 @@
+package com.taitl.commandline;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests for ValueType class.
+ */
+public class ValueTypeTest extends TestCase
+{
+	// Error strings
+	static final String MISSING_EXCEPTION = "Exception not thrown where it should";
+
+	@Test
+	public final void testForName()
+	{
+		assertEquals(ValueType.STRING, ValueType.forName("string"));
+		assertEquals(ValueType.INT, ValueType.forName("int"));
+		assertEquals(ValueType.DURATION, ValueType.forName("duration"));
+		assertEquals("double", ValueType.DOUBLE.getName());
+		try
+		{
+			ValueType.forName("integer");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
+	@Test
+	public final void testWidensTo()
+	{
+		assertTrue(ValueType.INT.widensTo(ValueType.LONG));
+		assertTrue(ValueType.INT.widensTo(ValueType.DOUBLE));
+		assertTrue(ValueType.LONG.widensTo(ValueType.DOUBLE));
+		assertFalse(ValueType.LONG.widensTo(ValueType.INT));
+		assertFalse(ValueType.DOUBLE.widensTo(ValueType.LONG));
+		assertFalse(ValueType.DURATION.widensTo(ValueType.LONG));
+		assertTrue(ValueType.DURATION.widensTo(ValueType.DURATION));
+	}
+
+	@Test
+	public final void testToLong()
+	{
+		assertEquals(-42L, ValueType.INT.toLong("--n", "-42"));
+		assertEquals(5000000000L, ValueType.LONG.toLong("--n", "5000000000"));
+		assertEquals(500000000L, ValueType.DURATION.toLong("--t", "500ms"));
+		assertEquals(90000000000L, ValueType.DURATION.toLong("--t", "PT1M30S"));
+		assertEquals(2L * 24 * 3600 * 1000000000L, ValueType.DURATION.toLong("--t", "2d"));
+		assertEquals(7L, ValueType.DURATION.toLong("--t", "7ns"));
+
+		String[] invalid = new String[] { "5000000000", "1.5", "", "x" };
+		for (String value : invalid)
+		{
+			try
+			{
+				ValueType.INT.toLong("--n", value);
+				fail(MISSING_EXCEPTION);
+			}
+			catch (IllegalArgumentException iae)
+			{
+			}
+		}
+
+		invalid = new String[] { "500", "ms", "5 s", "5w", "PT", "106752d" };
+		for (String value : invalid)
+		{
+			try
+			{
+				ValueType.DURATION.toLong("--t", value);
+				fail(MISSING_EXCEPTION);
+			}
+			catch (IllegalArgumentException iae)
+			{
+				assertTrue(iae.getMessage().contains("--t"));
+			}
+		}
+	}
+
+	@Test
+	public final void testConvert()
+	{
+		// Conversion agrees with the parsing methods of the JDK
+		String[] values = new String[] { "0", "-42", "+7", "2147483647", "2147483648",
+				"-2147483648", "-2147483649", "9223372036854775807", "9223372036854775808",
+				"-9223372036854775808", "-9223372036854775809", "\u0661\u0662", "1.5", "", "-",
+				"+", "x", "500ms", "-3s", "ms", "5 s", "5w", "PT", "PT1M30S", "-PT1S", "106751d",
+				"106752d", "9223372036854775807ns", "0.25", "1e3", "NaN", "quarter" };
+		long[] longs = new long[1];
+		double[] doubles = new double[1];
+		for (String value : values)
+		{
+			assertEquals("int " + value, parseInt(value), ValueType.INT.convert(value, longs, 0)
+					? Long.valueOf(longs[0]) : null);
+			assertEquals("long " + value, parseLong(value), ValueType.LONG.convert(value, longs,
+					0) ? Long.valueOf(longs[0]) : null);
+			assertEquals("double " + value, parseDouble(value), ValueType.DOUBLE.convert(value,
+					doubles, 0) ? Double.valueOf(doubles[0]) : null);
+			assertFalse(ValueType.STRING.convert(value, longs, 0));
+		}
+
+		String[] durations = new String[] { "500ms", "-3s", "7ns", "2d", "106751d",
+				"9223372036854775807ns", "PT1M30S", "-PT1S" };
+		long[] nanos = new long[] { 500000000L, -3000000000L, 7L, 172800000000000L,
+				106751L * 86400000000000L, Long.MAX_VALUE, 90000000000L, -1000000000L };
+		for (int i = 0; i < durations.length; i++)
+		{
+			assertTrue(durations[i], ValueType.DURATION.convert(durations[i], longs, 0));
+			assertEquals(durations[i], nanos[i], longs[0]);
+		}
+		for (String value : new String[] { "", "500", "ms", "5 s", "5w", "PT", "106752d",
+				"9223372036854775808ns", "1.5s" })
+		{
+			assertFalse(value, ValueType.DURATION.convert(value, longs, 0));
+		}
+	}
+
+	@Test
+	public final void testConvertDouble()
+	{
+		// Syntax is checked as Double.valueOf() checks it
+		String[] values = new String[] { "1", "-1.5", "+.5", "5.", ".", "-", "", " ", "1e3",
+				"1E-3", "1e", "1e+", "e5", ".e5", "1.5e3f", "2d", "2D", "3F", "1f5", "1.5.5",
+				" 1.5 ", "\t2\n", "1 5", "NaN", "-NaN", "nan", "Infinity", "+Infinity",
+				"-Infinity", "Infinityx", "inf", "0x1p3", "0X1.8P1", "0x.8p-1", "0x1.p0", "0x1",
+				"0x.p1", "0xp1", "0x1p", "0x1e3", "0x1p3d", "-0x1P+2F", "1_000", "1,5",
+				"\u0661", "\uff11", "1e99999", "1e-99999", "00012.500" };
+		double[] doubles = new double[1];
+		for (String value : values)
+		{
+			assertEquals("double " + value, parseDouble(value), ValueType.DOUBLE.convert(value,
+					doubles, 0) ? Double.valueOf(doubles[0]) : null);
+		}
+	}
+
+	@Test
+	public final void testConvertIsoDuration()
+	{
+		// ISO-8601 durations are parsed as Duration.parse() parses them
+		String[] values = new String[] { "P1D", "p1d", "-P1D", "+P1D", "P-1D", "P+1D", "P1DT2H",
+				"PT2H3M4S", "PT1.5S", "PT1,5S", "PT-0.5S", "PT-1.5S", "PT0.123456789S",
+				"PT0.1234567891S", "PT1.S", "PT.5S", "-PT-0.5S", "PT1H-30M", "P1DT", "P1Dt", "PT",
+				"Pt", "P", "-P", "P1", "P1Dx", "PT1S1M", "PT1M1H", "P1H", "PT1D", "P 1D", "P1D ",
+				"P\u0661D", "PT2562047H", "PT2562048H", "P106751D", "P106752D",
+				"PT9223372036S", "PT9223372037S", "PT-9223372036S", "PT-9223372036.854775808S",
+				"-PT9223372036.854775808S", "PT-9223372036.854775809S",
+				"PT9223372036.854775807S", "PT9223372036.854775808S",
+				"PT9223372036854775807S", "PT-9223372036854775808S", "PT9223372036854775808S",
+				"P9223372036854775807D", "PT-9223372036854775808S-PT1S",
+				"P-106751DT-23H-47M-16.854775808S" };
+		long[] longs = new long[1];
+		for (String value : values)
+		{
+			assertEquals("duration " + value, parseIsoDuration(value), ValueType.DURATION
+					.convert(value, longs, 0) ? Long.valueOf(longs[0]) : null);
+		}
+	}
+
+	@Test
+	public final void testTypedValues()
+	{
+		TypedValues typed = new TypedValues(ValueType.INT, 4);
+		List<String> values = Arrays.asList("1", "x", "3", "y");
+		assertEquals(1, typed.convert(values, 0));
+		assertEquals(3, typed.convert(values, 2));
+		assertEquals(-1, typed.convert(values.subList(0, 1), 0));
+		assertEquals(1L, typed.getLong(0));
+		assertEquals(3L, typed.getLong(2));
+
+		typed = new TypedValues(ValueType.DOUBLE, 2);
+		assertEquals(-1, typed.convert(Arrays.asList("0.5", "1e3"), 0));
+		assertEquals(1000.0, typed.getDouble(1), 0.0);
+	}
+
+	@Test
+	public final void testToDouble()
+	{
+		assertEquals(0.25, ValueType.DOUBLE.toDouble("--r", "0.25"), 0.0);
+		try
+		{
+			ValueType.DOUBLE.toDouble("--r", "quarter");
+			fail(MISSING_EXCEPTION);
+		}
+		catch (IllegalArgumentException iae)
+		{
+		}
+	}
+
+	/**
+	 * Parses int like the JDK, returning null if it can not be parsed.
+	 */
+	private static Long parseInt(String value)
+	{
+		try
+		{
+			return Long.valueOf(Integer.parseInt(value));
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Parses long like the JDK, returning null if it can not be parsed.
+	 */
+	private static Long parseLong(String value)
+	{
+		try
+		{
+			return Long.valueOf(Long.parseLong(value));
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Parses double like the JDK, returning null if it can not be parsed.
+	 */
+	private static Double parseDouble(String value)
+	{
+		try
+		{
+			return Double.valueOf(Double.parseDouble(value));
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Parses ISO-8601 duration like the JDK, returning null if it can not be
+	 * parsed or is out of the range of long nanoseconds.
+	 */
+	private static Long parseIsoDuration(String value)
+	{
+		try
+		{
+			return Long.valueOf(Duration.parse(value).toNanos());
+		}
+		catch (DateTimeParseException e)
+		{
+			return null;
+		}
+		catch (ArithmeticException e)
+		{
+			return null;
+		}
+	}
+}